@@ -1,20 +1,23 @@
 package block;
 
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Objects;
-import java.util.Random;
 import transaction.RewardTransaction;
 import transaction.Transaction;
 import utils.UTXOMap;
 import utils.BlockchainUtil;
+import utils.MerkleProof;
+import utils.MerkleTree;
+import utils.SignatureVerifier;
 import wallet.Wallet;
 
 /**
  * This class represents a block that contains hash, previous block's hash, list of transactions,
- * timeStamp, the merkle root of transactions hash codes, and a nonce.
+ * timeStamp, the merkle root of transactions hash codes, the compact POW target, and a nonce.
  */
 public class Block implements Serializable, Cloneable {
 
@@ -26,15 +29,32 @@ public class Block implements Serializable, Cloneable {
   private long timeStamp; //as number of milliseconds since 1/1/1970.
   private String transactionsMerkleRoot;
   private int nonce;
+  private int bits; // the compact form of the 256-bit POW target, see Difficulty
+  private long extraNonce; // written into the RewardTransaction once all nonces are tried
+  private transient MerkleTree merkleTree; // kept in sync with the Transactions, see getMerkleTree
 
   /**
    * Construct a Block with the given previous block's hash and the PublicKey string of the creator.
+   * The Block uses the initial POW target, which is valid before the first target adjustment.
    *
    * @param previousHash a hexadecimal string represents the previous block's hash
    * @param creator the PublicKey string of this block's creator
    */
   public Block(String previousHash, String creator) {
+    this(previousHash, creator, Difficulty.INITIAL_BITS);
+  }
+
+  /**
+   * Construct a Block with the given previous block's hash, the PublicKey string of the creator,
+   * and the compact bits of the POW target.
+   *
+   * @param previousHash a hexadecimal string represents the previous block's hash
+   * @param creator the PublicKey string of this block's creator
+   * @param bits the compact bits of the POW target, usually given by BlockChain.getNextBits
+   */
+  public Block(String previousHash, String creator, int bits) {
     this.previousHash = previousHash;
+    this.bits = bits;
     // the first transaction of this Block is the RewardTransaction to the creator
     transactions.add(new RewardTransaction(creator));
     hash = "";
@@ -54,6 +74,7 @@ public class Block implements Serializable, Cloneable {
     if (!transaction.outsideValidate(utxoMap)) {
       return false;
     } else {
+      getMerkleTree().append(transaction.getID());
       return transactions.add(transaction);
     }
   }
@@ -97,10 +118,12 @@ public class Block implements Serializable, Cloneable {
   }
 
   /**
-   * Update the timeStamp of this Block.
+   * Update the timeStamp of this Block to a given time.
+   *
+   * @param newTimeStamp a given time, as number of milliseconds since 1/1/1970
    */
-  private void updateTimeStamp() {
-    timeStamp = new Date().getTime();
+  private void updateTimeStamp(long newTimeStamp) {
+    timeStamp = newTimeStamp;
   }
 
   /**
@@ -109,34 +132,172 @@ public class Block implements Serializable, Cloneable {
    * @return a resulting hexadecimal string
    */
   private String calculateHash() {
-    String data = previousHash + timeStamp + nonce + transactionsMerkleRoot;
+    return calculateHash(nonce);
+  }
+
+  /**
+   * Produce the hash of this Block with a given candidate nonce, without changing this Block.
+   * It is safe to call from several mining threads at once, as long as the header of this Block
+   * is not modified during the mining.
+   *
+   * @param candidateNonce a given nonce integer
+   * @return a resulting hexadecimal string
+   */
+  public String calculateHash(int candidateNonce) {
+    return calculateHeaderHash(previousHash, timeStamp, candidateNonce, transactionsMerkleRoot,
+            bits);
+  }
+
+  /**
+   * Produce the hash of a Block header from its fields, so that the hash could be checked
+   * without the Transactions of the Block.
+   *
+   * @param previousHash the hash of the previous Block
+   * @param timeStamp the timeStamp of the Block
+   * @param nonce the nonce of the Block
+   * @param merkleRoot the merkle root of the Transactions of the Block
+   * @param bits the compact bits of the POW target of the Block
+   * @return a resulting hexadecimal string
+   */
+  public static String calculateHeaderHash(String previousHash, long timeStamp, int nonce,
+                                           String merkleRoot, int bits) {
+    String data = previousHash + timeStamp + nonce + merkleRoot + Integer.toHexString(bits);
     return BlockchainUtil.applySha256(data);
   }
 
   /**
-   * Set the merkle root of Transactions in this Block.
+   * Set the merkle root of Transactions in this Block. The MerkleTree is updated as Transactions
+   * are added, thus the root is read from it without rehashing.
    */
   public void setTransactionsMerkleRoot() {
-    transactionsMerkleRoot = BlockchainUtil.calculateMerkleRoot(transactions);
+    transactionsMerkleRoot = getMerkleTree().getRootHex();
+  }
+
+  /**
+   * Get the MerkleTree of the Transactions in this Block. The MerkleTree is not serialized,
+   * thus it is built from the Transactions the first time it is needed, such as in the first
+   * validation of a received Block, and then kept in sync as Transactions are added or changed.
+   *
+   * @return the MerkleTree of this Block
+   */
+  private MerkleTree getMerkleTree() {
+    if (merkleTree == null) {
+      List<String> transactionIDs = new ArrayList<>();
+      transactions.forEach(transaction -> transactionIDs.add(transaction.getID()));
+      merkleTree = new MerkleTree(transactionIDs);
+    }
+    return merkleTree;
+  }
+
+  /**
+   * Get the MerkleProof of a Transaction in this Block, which shows the Transaction is under
+   * the merkle root of this Block.
+   *
+   * @param transactionID the ID of a given Transaction
+   * @return a MerkleProof, or null if the Transaction is not in this Block
+   */
+  public MerkleProof getMerkleProof(String transactionID) {
+    for (int i = 0; i < transactions.size(); i++) {
+      if (transactions.get(i).getID().equals(transactionID)) {
+        return getMerkleTree().getProof(i);
+      }
+    }
+    return null;
   }
 
   /**
    * Complete one mining of this Block. Before starting a mining, this Block should have collected
    * enough Transactions and updated the merkle root of these Transactions.
-   * One mining means using a randomly generated nonce with other data in this Block
-   * to generate a hash string. If this hash starts with a string of zeros with the size of a given
-   * difficulty integer, the mining would succeed.
+   * One mining means using the current nonce with other data in this Block to generate a hash
+   * string. If this hash is not larger than the POW target of this Block, the mining would
+   * succeed. Otherwise the nonce moves on to the next one, so that repeated minings walk the
+   * nonce space in order, and roll over into a new extra nonce once all nonces are tried. The
+   * timeStamp is set in the first mining and then kept unchanged, thus a mining run is
+   * reproducible.
    *
-   * @param difficulty a given integer that represents the number of the required prefix zeros
-   * @param rand a Random object used to generate a random nonce
    * @return a boolean value, which is true if the mining succeeds
    */
-  public boolean oneMining(int difficulty, Random rand) {
-    updateTimeStamp(); // final timestamp will be the time when the block is mined successfully
-    String target = "0".repeat(difficulty);
-    nonce = rand.nextInt(Integer.MAX_VALUE);
+  public boolean oneMining() {
+    if (timeStamp == 0) {
+      startMining();
+    }
     hash = calculateHash();
-    return hash.substring(0, difficulty).equals(target);
+    if (validatePOW()) {
+      return true;
+    }
+    if (nonce == Integer.MAX_VALUE) {
+      rollExtraNonce();
+    } else {
+      nonce++;
+    }
+    return false;
+  }
+
+  /**
+   * Move on to the next extra nonce, once all nonces are tried with the current one.
+   * The extra nonce is written into the RewardTransaction of this Block, thus only the path of
+   * the RewardTransaction in the MerkleTree is rehashed to get the new merkle root, and the nonce
+   * restarts from zero.
+   */
+  public void rollExtraNonce() {
+    extraNonce++;
+    RewardTransaction reward = ((RewardTransaction) transactions.get(0)).withExtraNonce(extraNonce);
+    transactions.set(0, reward);
+    getMerkleTree().setLeaf(0, reward.getID());
+    transactionsMerkleRoot = merkleTree.getRootHex();
+    nonce = 0;
+  }
+
+  /**
+   * Get the bytes of the header data placed before the nonce in the hash calculation,
+   * which are the previous hash and the timeStamp of this Block.
+   *
+   * @return a byte array of the header prefix
+   */
+  public byte[] getHeaderPrefix() {
+    return (previousHash + timeStamp).getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Get the bytes of the header data placed after the nonce in the hash calculation,
+   * which are the merkle root of Transactions and the compact bits of this Block.
+   *
+   * @return a byte array of the header suffix
+   */
+  public byte[] getHeaderSuffix() {
+    return (transactionsMerkleRoot + Integer.toHexString(bits)).getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Start mining this Block, which refreshes the timeStamp and restarts the nonce from zero.
+   * The header of this Block must stay unchanged until the nonce space is searched, so that
+   * several threads could search it with {@link #calculateHash(int)} at the same time.
+   */
+  public void startMining() {
+    startMining(new Date().getTime());
+  }
+
+  /**
+   * Start mining this Block with a given timeStamp, such as the previous Block's timeStamp when
+   * the local clock is behind it, and restart the nonce from zero.
+   *
+   * @param newTimeStamp a given time, as number of milliseconds since 1/1/1970
+   */
+  public void startMining(long newTimeStamp) {
+    updateTimeStamp(newTimeStamp);
+    nonce = 0;
+  }
+
+  /**
+   * Accept a given nonce found in the current mining round as the POW solution of this Block.
+   *
+   * @param solutionNonce a given nonce integer
+   * @return a boolean value, which is true if the nonce solves the POW of this Block
+   */
+  public boolean acceptNonce(int solutionNonce) {
+    nonce = solutionNonce;
+    hash = calculateHash();
+    return validatePOW();
   }
 
   /**
@@ -182,7 +343,7 @@ public class Block implements Serializable, Cloneable {
    * @return a boolean value, which is true if this Block has valid hash
    */
   public boolean validateHashCalculation() {
-    return transactionsMerkleRoot.equals(BlockchainUtil.calculateMerkleRoot(transactions))
+    return transactionsMerkleRoot.equals(getMerkleTree().getRootHex())
             && hash.equals(calculateHash());
   }
 
@@ -197,49 +358,49 @@ public class Block implements Serializable, Cloneable {
 
   /**
    * Self verification of this Block, including verifying the Transactions, hash calculation, and POW.
+   * Whether the POW target follows the adjustment schedule is verified by the BlockChain.
+   * The signatures are verified last in a parallel batch, after the cheap checks passed.
    *
    * @param utxoMap a given UTXOMap used to verify Transactions
-   * @param difficulty a given integer to verify if the hash satisfies POW rule
    * @return a boolean value, which is true if this Block is valid
    */
-  public boolean verifySelf(UTXOMap utxoMap, int difficulty) {
+  public boolean verifySelf(UTXOMap utxoMap) {
     return verifySelfTransactions(utxoMap) // transactions in this block are valid
             && validateHashCalculation()  // self hash in this block is valid
-            && validatePOW(difficulty); // POW in this block is valid
+            && Difficulty.isLegalBits(bits) // target in this block is not too easy
+            && validatePOW() // POW in this block is valid
+            && SignatureVerifier.getDefault().verifyAll(transactions); // signatures are valid
   }
 
   /**
    * Self hash verification of this Block, including the hash calculation and POW.
    *
-   * @param difficulty a given integer to verify if the hash satisfies POW rule
    * @return a boolean value, which is true if this Block is valid
    */
-  public boolean verifySelfHash(int difficulty) {
-    return validateHashCalculation() && validatePOW(difficulty);
+  public boolean verifySelfHash() {
+    return validateHashCalculation() && Difficulty.isLegalBits(bits) && validatePOW();
   }
 
 
   /**
    * Validate the POW solution in this Block.
    *
-   * @param difficulty a given integer to verify if the hash satisfies POW rule
    * @return true if the hash of this Block matches the target required by POW
    */
-  private boolean validatePOW(int difficulty) {
-    String target = "0".repeat(difficulty);
-    return hash.substring(0, difficulty).equals(target);
+  private boolean validatePOW() {
+    return Difficulty.isSolution(hash, bits);
   }
 
 
   /**
-   * Verify the Transactions of this Block.
+   * Verify the inputs and outputs of the Transactions of this Block, except their signatures.
    *
    * @param utxoMap a given UTXOMap used to verify Transactions
    * @return a boolean value, which is true if all Transactions in this Block are valid
    */
   private boolean verifySelfTransactions(UTXOMap utxoMap) {
     for (Transaction transaction : this.getTransactions()) {
-      if (!transaction.outsideValidate(utxoMap)) {
+      if (!transaction.validateInputs(utxoMap)) {
         return false;
       }
     }
@@ -275,6 +436,15 @@ public class Block implements Serializable, Cloneable {
     return copy;
   }
 
+  /**
+   * Get the merkle root of the Transactions of this Block.
+   *
+   * @return a hexadecimal string of the merkle root
+   */
+  public String getTransactionsMerkleRoot() {
+    return transactionsMerkleRoot;
+  }
+
   /**
    * Get the timeStamp of this Block.
    *
@@ -284,6 +454,24 @@ public class Block implements Serializable, Cloneable {
     return timeStamp;
   }
 
+  /**
+   * Get the extra nonce of this Block.
+   *
+   * @return a long value of the extra nonce
+   */
+  public long getExtraNonce() {
+    return extraNonce;
+  }
+
+  /**
+   * Get the compact bits of the POW target of this Block.
+   *
+   * @return an integer of compact bits
+   */
+  public int getBits() {
+    return bits;
+  }
+
   /**
    * Get the nonce of this Block.
    *
@@ -321,6 +509,7 @@ public class Block implements Serializable, Cloneable {
       List<Transaction> transactionsCopy = new ArrayList<>();
       transactions.forEach(transaction -> transactionsCopy.add(transaction.copy()));
       copy.transactions = transactionsCopy;
+      copy.merkleTree = merkleTree == null ? null : merkleTree.copy();
     } catch (CloneNotSupportedException e) {
       e.printStackTrace();
     }
@@ -340,6 +529,7 @@ public class Block implements Serializable, Cloneable {
     Block block = (Block) o;
     return timeStamp == block.timeStamp
             && nonce == block.nonce
+            && bits == block.bits
             && hash.equals(block.hash)
             && previousHash.equals(block.previousHash)
             && transactions.equals(block.transactions)
@@ -353,6 +543,7 @@ public class Block implements Serializable, Cloneable {
    */
   @Override
   public int hashCode() {
-    return Objects.hash(hash, previousHash, transactions, timeStamp, transactionsMerkleRoot, nonce);
+    return Objects.hash(hash, previousHash, transactions, timeStamp, transactionsMerkleRoot, nonce,
+            bits);
   }
 }
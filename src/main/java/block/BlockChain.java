@@ -5,6 +5,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import transaction.Transaction;
+import utils.MerkleProof;
+import utils.SignatureVerifier;
 import utils.UTXOMap;
 import wallet.Wallet;
 
@@ -41,6 +43,37 @@ public class BlockChain implements Serializable {
     return blockChain.isEmpty() ? null : blockChain.get(blockChain.size() - 1);
   }
 
+  /**
+   * Get the Block at a given height of this BlockChain.
+   *
+   * @param height the index of the Block, the first Block is at height 0
+   * @return the Block at the given height
+   * @throws IllegalArgumentException if the height is out of range
+   */
+  public Block getBlock(int height) throws IllegalArgumentException {
+    if (height < 0 || height >= blockChain.size()) {
+      throw new IllegalArgumentException("Block height is out of range!");
+    }
+    return blockChain.get(height);
+  }
+
+  /**
+   * Get the height of the fork point of this BlockChain and another one, which is the number of
+   * Blocks at the start of both chains with the same hashes.
+   *
+   * @param other another BlockChain
+   * @return the number of common Blocks
+   */
+  public int getForkHeight(BlockChain other) {
+    int height = 0;
+    int commonSize = Math.min(blockChain.size(), other.blockChain.size());
+    while (height < commonSize
+            && blockChain.get(height).getHash().equals(other.blockChain.get(height).getHash())) {
+      height++;
+    }
+    return height;
+  }
+
   /**
    * Remove the last Block of this BlockChain.
    */
@@ -70,15 +103,39 @@ public class BlockChain implements Serializable {
   }
 
   /**
-   * Verify a given new Block to this BlockChain.
+   * Get the compact bits of the POW target required by the next Block of this BlockChain.
+   *
+   * @return an integer of compact bits
+   */
+  public int getNextBits() {
+    return getRequiredBits(blockChain.size());
+  }
+
+  /**
+   * Get the compact bits of the POW target required by the Block at a given height.
+   *
+   * @param height the index number of the Block in this BlockChain
+   * @return an integer of compact bits
+   */
+  private int getRequiredBits(int height) {
+    return Difficulty.getRequiredBits(height, i -> blockChain.get(i).getBits(),
+            i -> blockChain.get(i).getTimeStamp());
+  }
+
+  /**
+   * Verify a given new Block to this BlockChain, including its POW target and timeStamp.
    *
    * @param newBlock a given Block
    * @param utxoMap a given UTXOMap used to verify the new Block's Transactions
-   * @param difficulty a given integer used to verify if the hash satisfies POW rule
    * @return a boolean value, which is true if the new Block is valid to this BlockChain
    */
-  public boolean verifyNewBlock(Block newBlock, UTXOMap utxoMap, int difficulty) {
-    return newBlock.verifySelf(utxoMap, difficulty) && verifyPreviousBlockHash(newBlock);
+  public boolean verifyNewBlock(Block newBlock, UTXOMap utxoMap) {
+    return newBlock.getBits() == getNextBits()
+            && Difficulty.isLegalTimeStamp(newBlock.getTimeStamp(),
+                    getLastBlock() == null ? Long.MIN_VALUE : getLastBlock().getTimeStamp(),
+                    System.currentTimeMillis())
+            && newBlock.verifySelf(utxoMap)
+            && verifyPreviousBlockHash(newBlock);
   }
 
   /**
@@ -94,32 +151,54 @@ public class BlockChain implements Serializable {
   }
 
   /**
-   * Verify this whole BlockChain with the given difficulty number.
-   * Check if each block in the chain has valid hash and legal Transactions.
+   * Verify this whole BlockChain.
+   * Check if each block in the chain has valid hash, the POW target required by the adjustment
+   * schedule, a legal timeStamp, and legal Transactions.
    *
-   * @param difficulty a given integer used to verify if the block hash satisfies POW rule
    * @return a boolean value, which is true if this BlockChain is valid
    */
-  public boolean verifyChain(int difficulty) {
-    Block current, next;
-    String target = "0".repeat(difficulty);
-    UTXOMap tempUTXOMap = new UTXOMap();
+  public boolean verifyChain() {
+    return verifyChainFrom(0, new UTXOMap());
+  }
+
+  /**
+   * Verify the Blocks of this BlockChain from a given height, whose earlier Blocks are already
+   * verified, such as the new branch of a longer chain after its fork point. The cost depends on
+   * the number of verified Blocks, not on the height of the chain.
+   *
+   * @param fromHeight the height of the first Block to verify
+   * @param tempUTXOMap the UTXOMap after the Blocks before the given height, which is updated by
+   *                    the verified Transactions
+   * @return a boolean value, which is true if the Blocks from the given height are valid
+   */
+  public boolean verifyChainFrom(int fromHeight, UTXOMap tempUTXOMap) {
+    Block current, previous;
+    long now = System.currentTimeMillis();
 
-    for (int i = 0; i < blockChain.size(); i++) {
+    for (int i = fromHeight; i < blockChain.size(); i++) {
       current = blockChain.get(i);
-      next = i < blockChain.size() - 1 ? blockChain.get(i + 1) : null;
+      previous = i > 0 ? blockChain.get(i - 1) : null;
 
       // 1. Validate the hash of each Block:
-      // previousHash in next block == hash in the current block
-      if ((next != null) && (!current.getHash().equals(next.getPreviousHash()))) {
+      // previousHash in the current block == hash in the previous block
+      if ((previous != null) && (!previous.getHash().equals(current.getPreviousHash()))) {
         System.out.println("PreviousHash validation failed!");
         return false;
         // validate self hash
       } else if (!current.validateHashCalculation()) {
         System.out.println("SelfHash validation failed!");
         return false;
+        // validate the target follows the retarget schedule
+      } else if (current.getBits() != getRequiredBits(i)) {
+        System.out.println("Difficulty validation failed");
+        return false;
+        // validate the timeStamp the retarget depends on
+      } else if (!Difficulty.isLegalTimeStamp(current.getTimeStamp(),
+              previous == null ? Long.MIN_VALUE : previous.getTimeStamp(), now)) {
+        System.out.println("TimeStamp validation failed");
+        return false;
         // validate POW
-      } else if (!current.getHash().substring(0, difficulty).equals(target)) {
+      } else if (!Difficulty.isSolution(current.getHash(), current.getBits())) {
         System.out.println("POW validation failed");
         return false;
 
@@ -129,15 +208,23 @@ public class BlockChain implements Serializable {
         System.out.println("TX validation failed");
         return false;
       }
+    }
 
-/*      // 3. Confirm all Transactions and Update the temp UTXOMap in each Block iteration
-      current.processBlockTransactions(tempUTXOMap);*/
+    // 3. Validate the signatures of all verified Transactions in one parallel batch
+    List<Transaction> chainTransactions = new ArrayList<>();
+    for (int i = fromHeight; i < blockChain.size(); i++) {
+      chainTransactions.addAll(blockChain.get(i).getTransactions());
+    }
+    if (!SignatureVerifier.getDefault().verifyAll(chainTransactions)) {
+      System.out.println("Signature validation failed");
+      return false;
     }
     return true;
   }
 
   /**
-   * Verify the Transactions of a Block in the given position of this BlockChain.
+   * Verify the Transactions of a Block in the given position of this BlockChain, in order,
+   * except their signatures.
    *
    * @param blockIndex the index number of the target Block in this BlockChain
    * @param tempUTXOMap a given UTXOMap used to verify Transactions
@@ -146,7 +233,7 @@ public class BlockChain implements Serializable {
   private boolean verifyChainTransactions(int blockIndex, UTXOMap tempUTXOMap) {
     Block currentBlock = blockChain.get(blockIndex);
     for (Transaction transaction : currentBlock.getTransactions()) {
-      if (!transaction.outsideValidate(tempUTXOMap)) {
+      if (!transaction.validateInputs(tempUTXOMap)) {
         return false;
       }
       transaction.updateUTXO(tempUTXOMap);
@@ -154,6 +241,39 @@ public class BlockChain implements Serializable {
     return true;
   }
 
+  /**
+   * Get the TransactionProof of a Transaction confirmed in this BlockChain. The Blocks are
+   * searched from the tip, where recent payments are.
+   *
+   * @param transactionID the ID of a given Transaction
+   * @return a TransactionProof, or null if the Transaction is not in this BlockChain
+   */
+  public TransactionProof getTransactionProof(String transactionID) {
+    for (int height = blockChain.size() - 1; height >= 0; height--) {
+      Block block = blockChain.get(height);
+      MerkleProof merkleProof = block.getMerkleProof(transactionID);
+      if (merkleProof != null) {
+        return new TransactionProof(block, height, merkleProof);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Get the BlockHeaders of this BlockChain from a given height, for a Wallet that follows the
+   * chain by its headers.
+   *
+   * @param fromHeight the height of the first header
+   * @return a list of BlockHeaders, empty if the height is beyond the tip
+   */
+  public List<BlockHeader> getHeaders(int fromHeight) {
+    List<BlockHeader> headers = new ArrayList<>();
+    for (int height = Math.max(0, fromHeight); height < blockChain.size(); height++) {
+      headers.add(new BlockHeader(blockChain.get(height)));
+    }
+    return headers;
+  }
+
   /**
    * Generate an UTXOMap based on this BlockChain.
    *
@@ -0,0 +1,134 @@
+package block;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * This class represents the header of a Block, which contains the hash, the previous Block's
+ * hash, the timeStamp, the nonce, the merkle root of the Transactions and the compact POW target,
+ * without the Transactions themselves. A chain of headers lets a Wallet follow the POW of a
+ * BlockChain with a few hundred bytes for each Block.
+ */
+public class BlockHeader implements Serializable {
+  private final String hash;
+  private final String previousHash;
+  private final long timeStamp;
+  private final int nonce;
+  private final String merkleRoot;
+  private final int bits;
+
+  /**
+   * Construct the BlockHeader of a given Block.
+   *
+   * @param block a given Block
+   */
+  public BlockHeader(Block block) {
+    this.hash = block.getHash();
+    this.previousHash = block.getPreviousHash();
+    this.timeStamp = block.getTimeStamp();
+    this.nonce = block.getNonce();
+    this.merkleRoot = block.getTransactionsMerkleRoot();
+    this.bits = block.getBits();
+  }
+
+  /**
+   * Validate the hash of this BlockHeader against its fields.
+   *
+   * @return a boolean value, which is true if the hash matches the header fields
+   */
+  public boolean validateHashCalculation() {
+    return hash.equals(
+            Block.calculateHeaderHash(previousHash, timeStamp, nonce, merkleRoot, bits));
+  }
+
+  /**
+   * Get the hash of the Block.
+   *
+   * @return a hash string
+   */
+  public String getHash() {
+    return hash;
+  }
+
+  /**
+   * Get the hash of the previous Block.
+   *
+   * @return a hash string
+   */
+  public String getPreviousHash() {
+    return previousHash;
+  }
+
+  /**
+   * Get the timeStamp of the Block.
+   *
+   * @return a long value represents the timeStamp
+   */
+  public long getTimeStamp() {
+    return timeStamp;
+  }
+
+  /**
+   * Get the nonce of the Block.
+   *
+   * @return an integer nonce
+   */
+  public int getNonce() {
+    return nonce;
+  }
+
+  /**
+   * Get the merkle root of the Transactions of the Block.
+   *
+   * @return a hexadecimal string of the merkle root
+   */
+  public String getMerkleRoot() {
+    return merkleRoot;
+  }
+
+  /**
+   * Get the compact bits of the POW target of the Block.
+   *
+   * @return an integer of compact bits
+   */
+  public int getBits() {
+    return bits;
+  }
+
+  /**
+   * Get a string representation of this BlockHeader.
+   *
+   * @return a formatted string
+   */
+  @Override
+  public String toString() {
+    return "BlockHeader " + hash + " (previous = " + previousHash + ", bits = "
+            + Integer.toHexString(bits) + ")";
+  }
+
+  /**
+   * Check if two BlockHeaders are equal.
+   *
+   * @param o the object to be compared to
+   * @return a boolean value, which is true if two BlockHeaders have the same members
+   */
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    BlockHeader that = (BlockHeader) o;
+    return timeStamp == that.timeStamp && nonce == that.nonce && bits == that.bits
+            && hash.equals(that.hash) && previousHash.equals(that.previousHash)
+            && merkleRoot.equals(that.merkleRoot);
+  }
+
+  /**
+   * Generate the hashCode of this BlockHeader.
+   *
+   * @return a hashCode integer
+   */
+  @Override
+  public int hashCode() {
+    return Objects.hash(hash, previousHash, timeStamp, nonce, merkleRoot, bits);
+  }
+}
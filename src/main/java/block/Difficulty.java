@@ -0,0 +1,192 @@
+package block;
+
+import com.google.common.io.BaseEncoding;
+import java.math.BigInteger;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * This class contains static util methods of the POW difficulty. The difficulty of a Block is
+ * a 256-bit target stored in the compact "bits" form: the highest byte is the size of the target
+ * in bytes, and the lower three bytes are its most significant bytes. A Block hash is a valid
+ * POW solution if, read as an unsigned 256-bit integer, it is not larger than the target.
+ * Every RETARGET_INTERVAL Blocks, the target is adjusted by the time the last interval took,
+ * to keep the Block creation close to TARGET_BLOCK_TIME. Since the adjustment trusts the
+ * timeStamps chosen by the miners, a timeStamp must not be earlier than the previous Block's, nor
+ * later than MAX_FUTURE_TIME ahead of the verifier's clock, thus a miner could not report a long
+ * interval again and again to ease the target down to the POW_LIMIT.
+ */
+public class Difficulty {
+  // number of Blocks between two target adjustments
+  public static final int RETARGET_INTERVAL = 10;
+  // expected time between two Blocks, as number of milliseconds
+  public static final long TARGET_BLOCK_TIME = 20000;
+  // the largest factor of one target adjustment, in both directions
+  public static final int MAX_ADJUSTMENT = 4;
+  // the largest time a timeStamp could be ahead of the verifier's clock, as number of milliseconds
+  public static final long MAX_FUTURE_TIME = 2 * 60 * 1000;
+  // the easiest target allowed, with one leading hexadecimal zero
+  public static final BigInteger POW_LIMIT = BigInteger.ONE.shiftLeft(252).subtract(BigInteger.ONE);
+  // the target of the first Blocks, with four leading hexadecimal zeros
+  public static final int INITIAL_BITS = fromLeadingZeros(4);
+
+  /**
+   * Get the compact bits of a target that requires a given number of leading hexadecimal zeros.
+   *
+   * @param zeros a given number of leading hexadecimal zeros
+   * @return an integer of compact bits
+   */
+  public static int fromLeadingZeros(int zeros) {
+    return toCompact(BigInteger.ONE.shiftLeft(256 - 4 * zeros).subtract(BigInteger.ONE));
+  }
+
+  /**
+   * Convert a given target to the compact bits form. The target is rounded down to its three
+   * most significant bytes.
+   *
+   * @param target a given non-negative 256-bit target
+   * @return an integer of compact bits
+   */
+  public static int toCompact(BigInteger target) {
+    int size = (target.bitLength() + 7) / 8;
+    long mantissa = size <= 3
+            ? target.longValue() << (8 * (3 - size))
+            : target.shiftRight(8 * (size - 3)).longValue();
+    // the 0x00800000 bit is a sign bit in the compact form, keep it clear
+    if ((mantissa & 0x00800000L) != 0) {
+      mantissa >>= 8;
+      size++;
+    }
+    return (size << 24) | (int) mantissa;
+  }
+
+  /**
+   * Convert given compact bits to the target.
+   *
+   * @param bits given compact bits
+   * @return a non-negative 256-bit target
+   */
+  public static BigInteger toTarget(int bits) {
+    int size = bits >>> 24;
+    long mantissa = bits & 0x007fffffL;
+    return size <= 3
+            ? BigInteger.valueOf(mantissa >> (8 * (3 - size)))
+            : BigInteger.valueOf(mantissa).shiftLeft(8 * (size - 3));
+  }
+
+  /**
+   * Convert given compact bits to the target as 32 big-endian bytes, which could be compared
+   * with a raw digest directly.
+   *
+   * @param bits given compact bits
+   * @return a byte array of 32 bytes
+   */
+  public static byte[] toTargetBytes(int bits) {
+    byte[] targetBytes = new byte[32];
+    byte[] value = toTarget(bits).toByteArray(); // might have a leading sign byte
+    int length = Math.min(value.length, 32);
+    System.arraycopy(value, value.length - length, targetBytes, 32 - length, length);
+    return targetBytes;
+  }
+
+  /**
+   * Check if given compact bits are a legal target, which is positive and not easier than
+   * the POW_LIMIT.
+   *
+   * @param bits given compact bits
+   * @return a boolean value, which is true if the target is legal
+   */
+  public static boolean isLegalBits(int bits) {
+    BigInteger target = toTarget(bits);
+    return target.signum() > 0 && target.compareTo(POW_LIMIT) <= 0;
+  }
+
+  /**
+   * Check if a raw digest is not larger than a given target.
+   *
+   * @param digest a given 32-byte digest
+   * @param target a given 32-byte big-endian target
+   * @return a boolean value, which is true if the digest meets the target
+   */
+  public static boolean meetsTarget(byte[] digest, byte[] target) {
+    for (int i = 0; i < target.length; i++) {
+      int difference = (digest[i] & 0xff) - (target[i] & 0xff);
+      if (difference != 0) {
+        return difference < 0;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Check if a given hash is a POW solution under given compact bits.
+   *
+   * @param hash a given hexadecimal hash string
+   * @param bits given compact bits
+   * @return a boolean value, which is true if the hash meets the target
+   */
+  public static boolean isSolution(String hash, int bits) {
+    if (hash.length() != 64) {
+      return false;
+    }
+    return meetsTarget(BaseEncoding.base16().lowerCase().decode(hash), toTargetBytes(bits));
+  }
+
+  /**
+   * Get the compact bits of the POW target required by the Block at a given height of a chain,
+   * for both a BlockChain and a HeaderChain. The first Blocks use the initial target. Every
+   * RETARGET_INTERVAL Blocks, the target is adjusted by the timeStamps of the last interval,
+   * otherwise it is the same as the previous one.
+   *
+   * @param height the index number of the Block in the chain
+   * @param bitsAt a given function from an earlier height to the compact bits of its Block
+   * @param timeStampAt a given function from an earlier height to the timeStamp of its Block
+   * @return an integer of compact bits
+   */
+  public static int getRequiredBits(int height, IntUnaryOperator bitsAt,
+                                    IntToLongFunction timeStampAt) {
+    if (height == 0) {
+      return INITIAL_BITS;
+    }
+    int previousBits = bitsAt.applyAsInt(height - 1);
+    if (height % RETARGET_INTERVAL != 0) {
+      return previousBits;
+    }
+    return retarget(previousBits, timeStampAt.applyAsLong(height - RETARGET_INTERVAL),
+            timeStampAt.applyAsLong(height - 1));
+  }
+
+  /**
+   * Check if a given timeStamp of a Block is legal: not earlier than the timeStamp of the previous
+   * Block, and not later than MAX_FUTURE_TIME after the current time of the verifier.
+   *
+   * @param timeStamp the timeStamp of the Block
+   * @param previousTimeStamp the timeStamp of the previous Block, or Long.MIN_VALUE for the first
+   * @param now the current time of the verifier, as number of milliseconds since 1/1/1970
+   * @return a boolean value, which is true if the timeStamp is legal
+   */
+  public static boolean isLegalTimeStamp(long timeStamp, long previousTimeStamp, long now) {
+    return timeStamp >= previousTimeStamp && timeStamp <= now + MAX_FUTURE_TIME;
+  }
+
+  /**
+   * Calculate the compact bits after a target adjustment, based on the time the last
+   * RETARGET_INTERVAL Blocks took. The adjustment is limited to MAX_ADJUSTMENT in each
+   * direction, and the new target is never easier than the POW_LIMIT.
+   *
+   * @param lastBits the compact bits of the last Block
+   * @param firstTimeStamp the timeStamp of the first Block of the last interval
+   * @param lastTimeStamp the timeStamp of the last Block of the last interval
+   * @return an integer of the adjusted compact bits
+   */
+  public static int retarget(int lastBits, long firstTimeStamp, long lastTimeStamp) {
+    long expectedTime = TARGET_BLOCK_TIME * (RETARGET_INTERVAL - 1);
+    long actualTime = lastTimeStamp - firstTimeStamp;
+    actualTime = Math.max(expectedTime / MAX_ADJUSTMENT,
+            Math.min(expectedTime * MAX_ADJUSTMENT, actualTime));
+
+    BigInteger newTarget = toTarget(lastBits).multiply(BigInteger.valueOf(actualTime))
+            .divide(BigInteger.valueOf(expectedTime));
+    return toCompact(newTarget.min(POW_LIMIT));
+  }
+}
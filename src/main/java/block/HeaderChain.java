@@ -0,0 +1,108 @@
+package block;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class represents a chain of BlockHeaders, for a Wallet that does not hold the Transactions
+ * of the BlockChain. Every added header must link to the previous one, hash to its own hash, have
+ * a legal timeStamp, and meet the POW target required by the adjustment schedule, thus its Block
+ * hashes are as trusted as the POW behind them, and a TransactionProof is verified against them.
+ */
+public class HeaderChain implements Serializable {
+  private final List<BlockHeader> headers;
+
+  /**
+   * Construct an empty HeaderChain.
+   */
+  public HeaderChain() {
+    headers = new ArrayList<>();
+  }
+
+  /**
+   * Verify a given BlockHeader and add it to the end of this HeaderChain.
+   *
+   * @param header a given BlockHeader
+   * @return a boolean value, which is true if the header is valid and added
+   */
+  public boolean addHeader(BlockHeader header) {
+    BlockHeader tip = getLastHeader();
+    if (!header.getPreviousHash().equals(tip == null ? "0" : tip.getHash())
+            || !header.validateHashCalculation()
+            || header.getBits() != getNextBits()
+            || !Difficulty.isLegalTimeStamp(header.getTimeStamp(),
+                    tip == null ? Long.MIN_VALUE : tip.getTimeStamp(), System.currentTimeMillis())
+            || !Difficulty.isSolution(header.getHash(), header.getBits())) {
+      return false;
+    }
+    return headers.add(header);
+  }
+
+  /**
+   * Verify and add given BlockHeaders in order, stopping at the first invalid one.
+   *
+   * @param newHeaders a given list of BlockHeaders following the tip of this HeaderChain
+   * @return a boolean value, which is true if all headers are valid and added
+   */
+  public boolean addHeaders(List<BlockHeader> newHeaders) {
+    for (BlockHeader header : newHeaders) {
+      if (!addHeader(header)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Get the BlockHeader at a given height of this HeaderChain.
+   *
+   * @param height the index of the header, the first header is at height 0
+   * @return the BlockHeader at the given height
+   * @throws IllegalArgumentException if the height is out of range
+   */
+  public BlockHeader getHeader(int height) throws IllegalArgumentException {
+    if (height < 0 || height >= headers.size()) {
+      throw new IllegalArgumentException("Header height is out of range!");
+    }
+    return headers.get(height);
+  }
+
+  /**
+   * Get the last BlockHeader of this HeaderChain. If the HeaderChain is empty, return null.
+   *
+   * @return the last BlockHeader or null
+   */
+  public BlockHeader getLastHeader() {
+    return headers.isEmpty() ? null : headers.get(headers.size() - 1);
+  }
+
+  /**
+   * Get the size of this HeaderChain.
+   *
+   * @return an integer value of the size
+   */
+  public int size() {
+    return headers.size();
+  }
+
+  /**
+   * Get the compact bits of the POW target required by the next header of this HeaderChain.
+   *
+   * @return an integer of compact bits
+   */
+  public int getNextBits() {
+    return Difficulty.getRequiredBits(headers.size(), height -> headers.get(height).getBits(),
+            height -> headers.get(height).getTimeStamp());
+  }
+
+  /**
+   * Get the string representation of this HeaderChain.
+   *
+   * @return a formatted string
+   */
+  @Override
+  public String toString() {
+    return "HEADERS = " + headers.size() + "\n" + headers;
+  }
+}
@@ -0,0 +1,90 @@
+package block;
+
+import java.io.Serializable;
+import utils.MerkleProof;
+
+/**
+ * This class represents a proof that a Transaction is included in a Block, for a Wallet that does
+ * not hold the Transactions of the BlockChain. It contains the hash and the height of the Block
+ * with the Transaction, and the MerkleProof of the Transaction, with O(log n) digests instead of
+ * the whole Block.
+ * A proof only shows inclusion: its hash and height are supplied by the replying Node. Thus it is
+ * verified against the header at its height on a HeaderChain the Wallet verified itself, whose
+ * merkle root the MerkleProof must lead to, and a header made up by the replying Node is rejected.
+ * The proof does not show that the HeaderChain is the best chain.
+ */
+public class TransactionProof implements Serializable {
+  private final String blockHash;
+  private final int height;
+  private final MerkleProof merkleProof;
+
+  /**
+   * Construct a TransactionProof of a Transaction in a given Block.
+   *
+   * @param block a given Block containing the Transaction
+   * @param height the index of the Block in the BlockChain
+   * @param merkleProof the MerkleProof of the Transaction in the Block
+   */
+  public TransactionProof(Block block, int height, MerkleProof merkleProof) {
+    this.blockHash = block.getHash();
+    this.height = height;
+    this.merkleProof = merkleProof;
+  }
+
+  /**
+   * Verify this TransactionProof for a given Transaction ID against a trusted HeaderChain. The
+   * header at the height of this proof must have the Block hash of the proof, and the MerkleProof
+   * of the Transaction must lead to the merkle root of that header.
+   *
+   * @param transactionID the ID of a given Transaction
+   * @param trustedHeaders a HeaderChain verified by the Wallet
+   * @return a boolean value, which is true if the Transaction is proven to be in the trusted Block
+   */
+  public boolean verify(String transactionID, HeaderChain trustedHeaders) {
+    if (height < 0 || height >= trustedHeaders.size()) {
+      return false;
+    }
+    BlockHeader trustedHeader = trustedHeaders.getHeader(height);
+    return trustedHeader.getHash().equals(blockHash)
+            && merkleProof.getLeafHash().equals(transactionID)
+            && merkleProof.verify(trustedHeader.getMerkleRoot());
+  }
+
+  /**
+   * Get the hash of the Block with the Transaction.
+   *
+   * @return a hash string
+   */
+  public String getBlockHash() {
+    return blockHash;
+  }
+
+  /**
+   * Get the height of the Block with the Transaction, as supplied by the replying Node.
+   *
+   * @return an integer of the index of the Block in the BlockChain
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Get the MerkleProof of the Transaction.
+   *
+   * @return a MerkleProof object
+   */
+  public MerkleProof getMerkleProof() {
+    return merkleProof;
+  }
+
+  /**
+   * Get the string representation of this TransactionProof.
+   *
+   * @return a formatted string
+   */
+  @Override
+  public String toString() {
+    return "TransactionProof in Block " + blockHash + " (height = " + height + "): "
+            + merkleProof;
+  }
+}
@@ -19,6 +19,7 @@ public class Controller implements Starter {
   private StartTransactionRunnable startTransactionRunnable;
   private ShowBlockChainRunnable showBlockChainRunnable;
   private NodeServer hostServer;
+  private NodeServer workServer; // only started if the node serves external mining workers
   private ScheduledExecutorService executor;
 
   /**
@@ -33,7 +34,10 @@ public class Controller implements Starter {
     this.startTransactionRunnable = new StartTransactionRunnable(this);
     this.showBlockChainRunnable = new ShowBlockChainRunnable(this);
     this.hostServer = new HostServer(toHostServerPort, this);
-    this.executor = Executors.newScheduledThreadPool(4);
+    String workServerPort = System.getProperty(WorkServer.PORT_PROPERTY);
+    this.workServer = workServerPort == null
+            ? null : new WorkServer(Integer.parseInt(workServerPort), this);
+    this.executor = Executors.newScheduledThreadPool(workServer == null ? 4 : 5);
   }
 
   /**
@@ -48,10 +52,14 @@ public class Controller implements Starter {
   }
 
   /**
-   * Start running this Controller.
+   * Start running this Controller. The WorkServer is started if the system property
+   * "mining.work.port" is set.
    */
   public void start() {
     executor.schedule(hostServer, 0, TimeUnit.MILLISECONDS);
+    if (workServer != null) {
+      executor.schedule(workServer, 0, TimeUnit.MILLISECONDS);
+    }
     executor.scheduleAtFixedRate(createBlockRunnable,
             6000, 20000, TimeUnit.MILLISECONDS);
     executor.scheduleAtFixedRate(startTransactionRunnable,
@@ -1,5 +1,7 @@
 package controller;
 
+import mining.ShareAccounting;
+
 /**
  * This class represents a Runnable controller to show the BlockChain.
  */
@@ -16,7 +18,7 @@ public class ShowBlockChainRunnable implements Runnable {
   }
 
   /**
-   * Run this object to show a BlockChain.
+   * Run this object to show a BlockChain, and the share accounting of mining workers if any.
    */
   @Override
   public void run() {
@@ -24,6 +26,10 @@ public class ShowBlockChainRunnable implements Runnable {
     System.out.println(delimiter + "CURRENT BLOCKCHAIN" + delimiter + "\n" + runnerController.getNode().getBlockChain());*/
 
     String showableText = runnerController.getNode().getBlockChain().toString();
+    ShareAccounting shareAccounting = runnerController.getNode().getShareAccounting();
+    if (!shareAccounting.isEmpty()) {
+      showableText += "\nMINING WORKERS\n" + shareAccounting;
+    }
     runnerController.getNodeView().printBlockChainLog(showableText);
 
   }
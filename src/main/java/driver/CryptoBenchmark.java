@@ -0,0 +1,117 @@
+package driver;
+
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import utils.BlockchainUtil;
+import utils.CryptoService;
+
+/**
+ * A throughput benchmark of the Transaction signature verification, which decodes the sender's
+ * PublicKey string and verifies the signature. It compares looking up a new KeyFactory and
+ * Signature of the "BC" provider on every call, as BlockchainUtil did before CryptoService, with
+ * the per-thread instances of CryptoService and the cached PublicKeys of BlockchainUtil, on 1
+ * thread up to one thread per core, and prints the verifications per second per thread.
+ */
+public class CryptoBenchmark {
+  private static final int ROUNDS = 3;
+  private static final int VERIFICATIONS = 2_000;
+
+  public static void main(String[] args) throws Exception {
+    Security.addProvider(new BouncyCastleProvider());
+    KeyPairGenerator keyGenerator = KeyPairGenerator.getInstance("ECDSA", "BC");
+    keyGenerator.initialize(new ECGenParameterSpec("prime192v1"),
+            SecureRandom.getInstance("SHA1PRNG"));
+    KeyPair keys = keyGenerator.generateKeyPair();
+    String sender = BlockchainUtil.keyToString(keys.getPublic());
+    String data = sender + "recipient" + 1.0 + "memo";
+    byte[] signature = BlockchainUtil.encryptByECDSA(keys.getPrivate(), data);
+
+    int cores = Runtime.getRuntime().availableProcessors();
+    for (int threads = 1; threads <= cores; threads *= 2) {
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      for (int round = 0; round < ROUNDS; round++) {
+        double lookupRate = measure(executor, threads,
+                () -> verifyWithLookup(sender, signature, data));
+        double pooledRate = measure(executor, threads, () -> BlockchainUtil.verifyByECDSA(
+                BlockchainUtil.stringToPublicKey(sender), signature, data));
+        System.out.printf("%d threads: lookup per call %8.0f verify/s per thread, "
+                        + "pooled %8.0f verify/s per thread (%.2fx)%n", threads,
+                lookupRate / threads, pooledRate / threads, pooledRate / lookupRate);
+      }
+      executor.shutdown();
+    }
+    System.out.print(CryptoService.getDefault().getStatistics());
+    System.out.println("PublicKey cache: " + BlockchainUtil.getPublicKeyCacheStats());
+  }
+
+  /**
+   * Run VERIFICATIONS verifications on each of a given number of threads.
+   *
+   * @param executor an ExecutorService with the given number of threads
+   * @param threads the number of threads
+   * @param verification a verification, which must return true
+   * @return the total verifications per second
+   * @throws Exception if a verification fails
+   */
+  private static double measure(ExecutorService executor, int threads,
+                                VerificationTask verification) throws Exception {
+    List<Future<?>> futures = new ArrayList<>();
+    long start = System.nanoTime();
+    for (int i = 0; i < threads; i++) {
+      futures.add(executor.submit(() -> {
+        for (int j = 0; j < VERIFICATIONS; j++) {
+          if (!verification.verify()) {
+            throw new IllegalStateException("Signature verification failed!");
+          }
+        }
+        return null;
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    return (double) threads * VERIFICATIONS * 1e9 / (System.nanoTime() - start);
+  }
+
+  /**
+   * Verify a signature the way BlockchainUtil did before CryptoService, looking up a new
+   * KeyFactory and Signature on every call.
+   *
+   * @param sender the Base64 string of the sender's PublicKey
+   * @param signature a given signature
+   * @param data a given data string
+   * @return a boolean value, which is true if the signature is valid
+   * @throws Exception if the verification fails
+   */
+  private static boolean verifyWithLookup(String sender, byte[] signature, String data)
+          throws Exception {
+    KeyFactory factory = KeyFactory.getInstance("ECDSA", "BC");
+    PublicKey senderKey =
+            factory.generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(sender)));
+    Signature digitalSig = Signature.getInstance("ECDSA", "BC");
+    digitalSig.initVerify(senderKey);
+    digitalSig.update(data.getBytes());
+    return digitalSig.verify(signature);
+  }
+
+  /**
+   * This interface represents one verification in the benchmark.
+   */
+  private interface VerificationTask {
+    boolean verify() throws Exception;
+  }
+}
@@ -0,0 +1,30 @@
+package driver;
+
+import utils.CryptoService;
+import utils.HashFunction;
+
+/**
+ * A benchmark of the SHA-256 backends of HashFunction. Every backend hashes inputs of the size of
+ * a merkle node pair, a Block header and an encoded Transaction, and the time of one hash is
+ * printed for each of them, followed by the backend selected at startup for this host.
+ */
+public class HashBenchmark {
+  private static final int[] INPUT_LENGTHS = {64, 160, 250};
+  private static final int HASHES = 200_000;
+  private static final int ROUNDS = 3;
+
+  public static void main(String[] args) {
+    for (int round = 0; round < ROUNDS; round++) {
+      for (HashFunction.Backend backend : HashFunction.Backend.values()) {
+        StringBuilder line = new StringBuilder(String.format("%-13s", backend));
+        for (int inputLength : INPUT_LENGTHS) {
+          double nanos = HashFunction.measureNanosPerHash(
+                  HashFunction.create(backend), inputLength, HASHES);
+          line.append(String.format("  %3d bytes %7.1f ns/hash", inputLength, nanos));
+        }
+        System.out.println(line);
+      }
+    }
+    System.out.println("Selected backend: " + CryptoService.getDefault().getHashBackend());
+  }
+}
@@ -0,0 +1,102 @@
+package driver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import utils.BlockchainUtil;
+import utils.MerkleTree;
+
+/**
+ * A benchmark of the merkle root calculation of a 10k-Transaction Block. It compares the String
+ * merkle tree, which concatenates hexadecimal hashes in every layer, with the MerkleTree over
+ * raw digests, both when the whole tree is built and when a Block template is extended one
+ * Transaction at a time. The two trees use different node encodings, thus their roots differ.
+ * Then it builds the MerkleTree of increasing Block sizes serially and in parallel on the common
+ * ForkJoinPool, to show from which size the parallel layers pay off, which is where
+ * MerkleTree.PARALLEL_THRESHOLD should be.
+ */
+public class MerkleBenchmark {
+  private static final int LEAVES = 10_000;
+  private static final int ROUNDS = 10;
+  private static final int[] BLOCK_SIZES = {256, 1024, 4096, 16384, 65536, 262144};
+
+  public static void main(String[] args) {
+    List<String> leaves = new ArrayList<>();
+    for (int i = 0; i < LEAVES; i++) {
+      leaves.add(BlockchainUtil.applySha256("transaction" + i));
+    }
+
+    for (int round = 0; round < ROUNDS; round++) {
+      // 1. build the whole tree
+      long start = System.nanoTime();
+      String stringRoot = calculateStringMerkleRoot(leaves);
+      long stringNanos = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      String binaryRoot = new MerkleTree(leaves).getRootHex();
+      long binaryNanos = System.nanoTime() - start;
+
+      // 2. extend a template one leaf at a time, reading the root after every append
+      start = System.nanoTime();
+      MerkleTree template = new MerkleTree();
+      for (String leaf : leaves) {
+        template.append(leaf);
+        template.getRootHex();
+      }
+      long appendNanos = System.nanoTime() - start;
+
+      System.out.printf("%d leaves: String tree %.2f ms, binary tree %.2f ms (%.1fx), "
+                      + "%d appends %.2f ms (%.2f us each)%n", LEAVES, stringNanos / 1e6,
+              binaryNanos / 1e6, (double) stringNanos / binaryNanos, LEAVES, appendNanos / 1e6,
+              appendNanos / 1e3 / LEAVES);
+      if (!binaryRoot.equals(template.getRootHex()) || stringRoot.isEmpty()) {
+        throw new IllegalStateException("Merkle roots do not match!");
+      }
+    }
+
+    // 3. serial and parallel builds of increasing Block sizes
+    System.out.println("ForkJoinPool parallelism: " + ForkJoinPool.getCommonPoolParallelism());
+    for (int blockSize : BLOCK_SIZES) {
+      while (leaves.size() < blockSize) {
+        leaves.add(BlockchainUtil.applySha256("transaction" + leaves.size()));
+      }
+      List<String> blockLeaves = leaves.subList(0, blockSize);
+      long serialNanos = Long.MAX_VALUE;
+      long parallelNanos = Long.MAX_VALUE;
+      for (int round = 0; round < ROUNDS; round++) {
+        long start = System.nanoTime();
+        String serialRoot = new MerkleTree(blockLeaves, Integer.MAX_VALUE).getRootHex();
+        serialNanos = Math.min(serialNanos, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        String parallelRoot = new MerkleTree(blockLeaves, 1).getRootHex();
+        parallelNanos = Math.min(parallelNanos, System.nanoTime() - start);
+        if (!serialRoot.equals(parallelRoot)) {
+          throw new IllegalStateException("Merkle roots do not match!");
+        }
+      }
+      System.out.printf("%7d leaves: serial %8.3f ms, parallel %8.3f ms (%.2fx)%n", blockSize,
+              serialNanos / 1e6, parallelNanos / 1e6, (double) serialNanos / parallelNanos);
+    }
+  }
+
+  /**
+   * Calculate the merkle root the way it was done before MerkleTree, by hashing the
+   * concatenated hexadecimal strings of every pair in every layer.
+   *
+   * @param leaves a given list of hexadecimal leaf hashes
+   * @return a hexadecimal string of the merkle root
+   */
+  private static String calculateStringMerkleRoot(List<String> leaves) {
+    List<String> thisTreeLayer = leaves;
+    while (thisTreeLayer.size() > 1) {
+      List<String> nextTreeLayer = new ArrayList<>();
+      for (int i = 0; i < thisTreeLayer.size(); i += 2) {
+        String right = thisTreeLayer.get(Math.min(i + 1, thisTreeLayer.size() - 1));
+        nextTreeLayer.add(BlockchainUtil.applySha256(thisTreeLayer.get(i) + right));
+      }
+      thisTreeLayer = nextTreeLayer;
+    }
+    return thisTreeLayer.get(0);
+  }
+}
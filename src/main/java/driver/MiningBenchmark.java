@@ -0,0 +1,76 @@
+package driver;
+
+import com.sun.management.ThreadMXBean;
+import java.lang.management.ManagementFactory;
+import block.Block;
+import block.Difficulty;
+import mining.MiningEngine;
+import mining.NonceHasher;
+import wallet.Wallet;
+
+/**
+ * A throughput benchmark of Block mining. It first compares the hashes per second of the String
+ * hash calculation with the allocation-free NonceHasher on one thread, with the bytes the
+ * NonceHasher allocates for each hash, then mines the same kind
+ * of Block with every MiningEngine and an increasing number of workers, and prints the hashrate
+ * and the average time-to-solution of each run. The hashrate should grow close to linearly with
+ * the number of cores.
+ */
+public class MiningBenchmark {
+  private static final int BITS = Difficulty.fromLeadingZeros(6);
+  private static final int ROUNDS = 3;
+  private static final int HASHES = 2_000_000;
+
+  public static void main(String[] args) {
+    String creator = new Wallet().getPublicKeyStr();
+    Block template = new Block("0", creator, BITS);
+    template.setTransactionsMerkleRoot();
+    template.startMining();
+
+    // 1. single-thread hashes/sec, before and after the allocation-free hot path
+    ThreadMXBean threadBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadID = Thread.currentThread().getId();
+    for (int round = 0; round < ROUNDS; round++) {
+      long start = System.nanoTime();
+      int solved = 0;
+      for (int nonce = 0; nonce < HASHES; nonce++) {
+        solved += Difficulty.isSolution(template.calculateHash(nonce), BITS) ? 1 : 0;
+      }
+      long stringNanos = System.nanoTime() - start;
+
+      NonceHasher hasher = new NonceHasher(template.getHeaderPrefix(), template.getHeaderSuffix());
+      byte[] target = Difficulty.toTargetBytes(BITS);
+      long bytes = threadBean.getThreadAllocatedBytes(threadID);
+      start = System.nanoTime();
+      for (int nonce = 0; nonce < HASHES; nonce++) {
+        hasher.hash(nonce);
+        solved += hasher.meetsTarget(target) ? 1 : 0;
+      }
+      long hasherNanos = System.nanoTime() - start;
+      long hasherBytes = threadBean.getThreadAllocatedBytes(threadID) - bytes;
+
+      System.out.printf("String hash: %12.0f H/s, NonceHasher: %12.0f H/s, %.2f bytes/hash "
+                      + "(%d solutions)%n", HASHES * 1e9 / stringNanos, HASHES * 1e9 / hasherNanos,
+              (double) hasherBytes / HASHES, solved);
+    }
+
+    // 2. hashrate and time-to-solution of each MiningEngine with an increasing number of workers
+    int maxThreads = Runtime.getRuntime().availableProcessors();
+    for (MiningEngine.EngineType type : MiningEngine.EngineType.values()) {
+      for (int threads = 1; threads <= maxThreads; threads *= 2) {
+        MiningEngine engine = MiningEngine.create(type, threads);
+        for (int i = 0; i < ROUNDS; i++) {
+          Block block = new Block("0", creator, BITS);
+          block.setTransactionsMerkleRoot();
+          engine.mine(block, () -> false);
+        }
+        System.out.printf("%-14s threads = %2d, hashrate = %12.0f H/s, time-to-solution = %.3f s%n",
+                type, threads, engine.getStatistics().getHashRate(),
+                engine.getStatistics().getAverageTimeToSolution());
+        if (type == MiningEngine.EngineType.SINGLE_THREAD) {
+          break;
+        }
+      }
+    }
+  }
+}
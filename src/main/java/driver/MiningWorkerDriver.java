@@ -0,0 +1,17 @@
+package driver;
+
+import node.MiningWorker;
+
+/**
+ * This class runs an external mining worker for a PeerNode, whose Controller is started with
+ * the system property "mining.work.port".
+ * Arguments: [address] [port] [worker name], by default "localhost 9999 worker".
+ */
+public class MiningWorkerDriver {
+  public static void main(String[] args) {
+    String address = args.length > 0 ? args[0] : "localhost";
+    int port = args.length > 1 ? Integer.parseInt(args[1]) : 9999;
+    String workerName = args.length > 2 ? args[2] : "worker";
+    new MiningWorker(workerName, address, port).run();
+  }
+}
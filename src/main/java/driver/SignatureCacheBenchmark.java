@@ -0,0 +1,61 @@
+package driver;
+
+import java.util.ArrayList;
+import java.util.List;
+import transaction.RewardTransaction;
+import transaction.Transaction;
+import utils.BlockchainUtil;
+import utils.SignatureCache;
+import utils.UTXOMap;
+import wallet.Wallet;
+
+/**
+ * A benchmark of the Transaction validation of a received Block, with and without the signature
+ * cache. Every Transaction of the Block comes from a different Wallet. In the cold case the
+ * signature cache is empty, as if the Transactions were never seen before. In the warm case the
+ * Transactions were admitted to the Transaction pool first, thus their signatures are cached and
+ * the Block validation only checks the inputs against the UTXOMap.
+ */
+public class SignatureCacheBenchmark {
+  private static final int TRANSACTIONS = 200;
+  private static final int ROUNDS = 5;
+
+  public static void main(String[] args) {
+    UTXOMap utxoMap = new UTXOMap();
+    Wallet recipient = new Wallet();
+    List<Transaction> transactions = new ArrayList<>();
+    for (int i = 0; i < TRANSACTIONS; i++) {
+      Wallet sender = new Wallet();
+      new RewardTransaction(sender.getPublicKeyStr()).updateUTXO(utxoMap);
+      transactions.add(sender.send(recipient.getPublicKeyStr(), 1, "benchmark" + i, utxoMap));
+    }
+
+    SignatureCache cache = BlockchainUtil.getSignatureCache();
+    for (int round = 0; round < ROUNDS; round++) {
+      cache.clear();
+      long coldNanos = validateAll(transactions, utxoMap);
+      // the Block arrives after its Transactions were admitted to the pool
+      long warmNanos = validateAll(transactions, utxoMap);
+      System.out.printf("%d Transactions: cold cache %.2f ms, warm cache %.2f ms (%.0fx)%n",
+              TRANSACTIONS, coldNanos / 1e6, warmNanos / 1e6, (double) coldNanos / warmNanos);
+    }
+    System.out.println(cache);
+  }
+
+  /**
+   * Validate all given Transactions against a given UTXOMap.
+   *
+   * @param transactions a given list of Transactions
+   * @param utxoMap a given UTXOMap that contains the inputs of the Transactions
+   * @return the elapsed time as number of nanoseconds
+   */
+  private static long validateAll(List<Transaction> transactions, UTXOMap utxoMap) {
+    long start = System.nanoTime();
+    for (Transaction transaction : transactions) {
+      if (!transaction.outsideValidate(utxoMap)) {
+        throw new IllegalStateException("Transaction validation failed!");
+      }
+    }
+    return System.nanoTime() - start;
+  }
+}
@@ -0,0 +1,54 @@
+package driver;
+
+import java.util.ArrayList;
+import java.util.List;
+import transaction.RewardTransaction;
+import transaction.Transaction;
+import utils.BlockchainUtil;
+import utils.SignatureVerifier;
+import utils.UTXOMap;
+import wallet.Wallet;
+
+/**
+ * A benchmark of the signature verification of a received BlockChain, whose Transactions come
+ * from different Wallets and were never seen before. It verifies the whole batch with a
+ * SignatureVerifier of 1 thread up to one thread per core, clearing the signature cache before
+ * every run, and prints the verifications per second and the speedup over 1 thread.
+ */
+public class SignatureVerifierBenchmark {
+  private static final int TRANSACTIONS = 400;
+  private static final int ROUNDS = 3;
+
+  public static void main(String[] args) {
+    UTXOMap utxoMap = new UTXOMap();
+    Wallet recipient = new Wallet();
+    List<Transaction> transactions = new ArrayList<>();
+    for (int i = 0; i < TRANSACTIONS; i++) {
+      Wallet sender = new Wallet();
+      Transaction reward = new RewardTransaction(sender.getPublicKeyStr());
+      reward.updateUTXO(utxoMap);
+      transactions.add(reward);
+      transactions.add(sender.send(recipient.getPublicKeyStr(), 1, "benchmark" + i, utxoMap));
+    }
+
+    int cores = Runtime.getRuntime().availableProcessors();
+    double sequentialRate = 0;
+    for (int threads = 1; threads <= cores; threads *= 2) {
+      SignatureVerifier verifier = new SignatureVerifier(threads);
+      double bestRate = 0;
+      for (int round = 0; round < ROUNDS; round++) {
+        BlockchainUtil.getSignatureCache().clear();
+        long start = System.nanoTime();
+        if (!verifier.verifyAll(transactions)) {
+          throw new IllegalStateException("Signature verification failed!");
+        }
+        bestRate = Math.max(bestRate, TRANSACTIONS * 1e9 / (System.nanoTime() - start));
+      }
+      if (threads == 1) {
+        sequentialRate = bestRate;
+      }
+      System.out.printf("%d threads: %8.0f verify/s (%.2fx)%n", threads, bestRate,
+              bestRate / sequentialRate);
+    }
+  }
+}
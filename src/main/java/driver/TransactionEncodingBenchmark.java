@@ -0,0 +1,67 @@
+package driver;
+
+import com.sun.management.ThreadMXBean;
+import java.lang.management.ManagementFactory;
+import transaction.Transaction;
+import transaction.TransactionFlow;
+import transaction.RewardTransaction;
+import utils.BlockchainUtil;
+import utils.UTXOMap;
+import wallet.Wallet;
+
+/**
+ * A benchmark of the TransactionFlow ID calculation and of Transaction.copy(). It compares the
+ * String IDs, which hashed the concatenation of the Base64 owner key, the printed double value and
+ * the hexadecimal parent ID, with the canonical binary encoding, and prints the throughput and the
+ * bytes allocated per operation on the current thread.
+ */
+public class TransactionEncodingBenchmark {
+  private static final int OPERATIONS = 200_000;
+  private static final int ROUNDS = 5;
+
+  public static void main(String[] args) {
+    UTXOMap utxoMap = new UTXOMap();
+    Wallet sender = new Wallet();
+    Wallet recipient = new Wallet();
+    new RewardTransaction(sender.getPublicKeyStr()).updateUTXO(utxoMap);
+    Transaction transaction = sender.send(recipient.getPublicKeyStr(), 1.5, "benchmark", utxoMap);
+    String owner = recipient.getPublicKeyStr();
+    String parentID = transaction.getID();
+
+    ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadID = Thread.currentThread().getId();
+    for (int round = 0; round < ROUNDS; round++) {
+      long bytes = threads.getThreadAllocatedBytes(threadID);
+      long start = System.nanoTime();
+      int sink = 0;
+      for (int i = 0; i < OPERATIONS; i++) {
+        sink += BlockchainUtil.applySha256(owner + (1.5 + i) + parentID).length();
+      }
+      long stringNanos = System.nanoTime() - start;
+      long stringBytes = threads.getThreadAllocatedBytes(threadID) - bytes;
+
+      bytes = threads.getThreadAllocatedBytes(threadID);
+      start = System.nanoTime();
+      for (int i = 0; i < OPERATIONS; i++) {
+        sink += new TransactionFlow(owner, 1.5 + i, parentID).getID().length();
+      }
+      long binaryNanos = System.nanoTime() - start;
+      long binaryBytes = threads.getThreadAllocatedBytes(threadID) - bytes;
+
+      bytes = threads.getThreadAllocatedBytes(threadID);
+      start = System.nanoTime();
+      for (int i = 0; i < OPERATIONS; i++) {
+        sink += transaction.copy().getOutputs().size();
+      }
+      long copyNanos = System.nanoTime() - start;
+      long copyBytes = threads.getThreadAllocatedBytes(threadID) - bytes;
+
+      System.out.printf("flow ID: String %.0f ns %d B, binary %.0f ns %d B (%.2fx); "
+                      + "copy %.0f ns %d B [%d]%n",
+              (double) stringNanos / OPERATIONS, stringBytes / OPERATIONS,
+              (double) binaryNanos / OPERATIONS, binaryBytes / OPERATIONS,
+              (double) stringNanos / binaryNanos, (double) copyNanos / OPERATIONS,
+              copyBytes / OPERATIONS, sink % 10);
+    }
+  }
+}
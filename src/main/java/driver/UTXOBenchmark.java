@@ -0,0 +1,71 @@
+package driver;
+
+import java.util.HashMap;
+import java.util.Map;
+import transaction.RewardTransaction;
+import transaction.Transaction;
+import transaction.TransactionFlow;
+import utils.UTXOMap;
+import wallet.Wallet;
+
+/**
+ * A benchmark of the input validation of a Transaction against UTXOMaps of growing sizes. It
+ * compares the lookups of UTXOMap with the validation before the read-only views, which copied
+ * the whole map on every getMap() call, and prints the time of one validation.
+ */
+public class UTXOBenchmark {
+  private static final int[] UTXO_COUNTS = {1_000, 10_000, 100_000, 1_000_000};
+  private static final int ROUNDS = 5;
+
+  public static void main(String[] args) {
+    Wallet sender = new Wallet();
+    Wallet recipient = new Wallet();
+    UTXOMap utxoMap = new UTXOMap();
+    new RewardTransaction(sender.getPublicKeyStr()).updateUTXO(utxoMap);
+    Transaction transaction = sender.send(recipient.getPublicKeyStr(), 1, "benchmark", utxoMap);
+    TransactionFlow otherFlow = new TransactionFlow(recipient.getPublicKeyStr(), 1, "other");
+
+    for (int utxoCount : UTXO_COUNTS) {
+      while (utxoMap.size() < utxoCount) {
+        // the IDs are what the lookups depend on, the flows could be shared
+        utxoMap.put("utxo" + utxoMap.size(), otherFlow);
+      }
+      int validations = Math.max(10, 10_000_000 / utxoCount);
+      long copyNanos = Long.MAX_VALUE;
+      long lookupNanos = Long.MAX_VALUE;
+      for (int round = 0; round < ROUNDS; round++) {
+        long start = System.nanoTime();
+        for (int i = 0; i < validations; i++) {
+          if (!validateWithCopies(transaction, utxoMap)) {
+            throw new IllegalStateException("Transaction validation failed!");
+          }
+        }
+        copyNanos = Math.min(copyNanos, (System.nanoTime() - start) / validations);
+
+        start = System.nanoTime();
+        for (int i = 0; i < validations * 100; i++) {
+          if (!transaction.validateInputs(utxoMap)) {
+            throw new IllegalStateException("Transaction validation failed!");
+          }
+        }
+        lookupNanos = Math.min(lookupNanos, (System.nanoTime() - start) / (validations * 100));
+      }
+      System.out.printf("%8d UTXOs: copying %12.1f us, lookups %6.3f us per validation%n",
+              utxoCount, copyNanos / 1e3, lookupNanos / 1e3);
+    }
+  }
+
+  /**
+   * Validate the inputs of a Transaction with the copy of the whole UTXOMap that getMap() made
+   * on every call before the read-only views.
+   *
+   * @param transaction a given Transaction
+   * @param utxoMap a given UTXOMap
+   * @return a boolean value, which is true if the inputs of the Transaction are valid
+   */
+  private static boolean validateWithCopies(Transaction transaction, UTXOMap utxoMap) {
+    Map<String, TransactionFlow> utxoCopy = new HashMap<>();
+    utxoMap.getMap().forEach(utxoCopy::put);
+    return !utxoCopy.isEmpty() && transaction.validateInputs(utxoMap);
+  }
+}
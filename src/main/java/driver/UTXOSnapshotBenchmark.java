@@ -0,0 +1,95 @@
+package driver;
+
+import java.util.Random;
+import transaction.RewardTransaction;
+import transaction.Transaction;
+import transaction.TransactionFlow;
+import utils.UTXOMap;
+import utils.UTXOStore;
+import wallet.Wallet;
+
+/**
+ * A benchmark of building Block templates and validating Transactions against UTXOMaps of growing
+ * sizes, with the HASH_MAP and PERSISTENT stores. Building a template copies the UTXOMap of the
+ * tip and spends SPENDS UTXOs on the copy, each spend replacing an input by an output like a
+ * Transaction; a validation is the input check of a Transaction on the UTXOMap. It prints the
+ * time of one template, of the copy alone, and of one validation.
+ */
+public class UTXOSnapshotBenchmark {
+  private static final int[] UTXO_COUNTS = {10_000, 100_000, 1_000_000};
+  private static final int SPENDS = 100;
+  private static final int ROUNDS = 5;
+
+  public static void main(String[] args) {
+    Wallet sender = new Wallet();
+    Wallet recipient = new Wallet();
+    UTXOStore.StoreType[] storeTypes = {UTXOStore.StoreType.HASH_MAP,
+        UTXOStore.StoreType.PERSISTENT};
+    for (UTXOStore.StoreType storeType : storeTypes) {
+      Random random = new Random(42);
+      UTXOMap utxoMap = new UTXOMap(storeType);
+      new RewardTransaction(sender.getPublicKeyStr()).updateUTXO(utxoMap);
+      Transaction transaction = sender.send(recipient.getPublicKeyStr(), 1, "benchmark", utxoMap);
+      TransactionFlow otherFlow = new TransactionFlow(recipient.getPublicKeyStr(), 1, "other");
+      String[] IDs = new String[UTXO_COUNTS[UTXO_COUNTS.length - 1]];
+
+      for (int utxoCount : UTXO_COUNTS) {
+        while (utxoMap.size() < utxoCount) {
+          String ID = randomHash(random);
+          IDs[utxoMap.size() - 1] = ID;
+          utxoMap.put(ID, otherFlow);
+        }
+        int templates = Math.max(5, 1_000_000 / utxoCount);
+        long templateNanos = Long.MAX_VALUE;
+        long copyNanos = Long.MAX_VALUE;
+        long validationNanos = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+          long start = System.nanoTime();
+          for (int i = 0; i < templates; i++) {
+            utxoMap.copy();
+          }
+          copyNanos = Math.min(copyNanos, (System.nanoTime() - start) / templates);
+
+          start = System.nanoTime();
+          for (int i = 0; i < templates; i++) {
+            UTXOMap templateUTXOMap = utxoMap.copy();
+            for (int j = 0; j < SPENDS; j++) {
+              templateUTXOMap.remove(IDs[random.nextInt(utxoCount - 1)]);
+              templateUTXOMap.put(randomHash(random), otherFlow);
+            }
+          }
+          templateNanos = Math.min(templateNanos, (System.nanoTime() - start) / templates);
+
+          start = System.nanoTime();
+          for (int i = 0; i < 1_000_000; i++) {
+            if (!transaction.validateInputs(utxoMap)) {
+              throw new IllegalStateException("Transaction validation failed!");
+            }
+          }
+          validationNanos = Math.min(validationNanos, (System.nanoTime() - start) / 1_000_000);
+        }
+        System.out.printf("%-10s %8d UTXOs: template %10.1f us (copy %10.1f us), "
+                        + "validation %6.3f us%n", storeType, utxoCount, templateNanos / 1e3,
+                copyNanos / 1e3, validationNanos / 1e3);
+      }
+    }
+  }
+
+  /**
+   * Generate a random 64-character lowercase hexadecimal hash.
+   *
+   * @param random a given Random
+   * @return a hash string
+   */
+  private static String randomHash(Random random) {
+    StringBuilder hash = new StringBuilder(64);
+    for (int i = 0; i < 4; i++) {
+      String part = Long.toHexString(random.nextLong());
+      for (int j = part.length(); j < 16; j++) {
+        hash.append('0');
+      }
+      hash.append(part);
+    }
+    return hash.toString();
+  }
+}
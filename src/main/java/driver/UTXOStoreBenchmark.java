@@ -0,0 +1,151 @@
+package driver;
+
+import java.util.Random;
+import transaction.TransactionFlow;
+import utils.MappedUTXOStore;
+import utils.UTXOMap;
+import utils.UTXOStore;
+
+/**
+ * A benchmark of the memory and lookup throughput of the UTXOStore types. It fills an UTXOMap
+ * with 10M UTXOs of 1000 owners, two UTXOs per parent Transaction like a payment and its change,
+ * and prints the heap bytes per UTXO and the lookups per second of present and absent IDs.
+ * The MAPPED store keeps the UTXOs in memory-mapped files, thus its heap bytes only count the
+ * owner names, and it also prints the time to reopen its directory after a flush.
+ * Each store type should run in its own JVM with a large heap, since 10M UTXOs of the HashMap
+ * store take gigabytes:
+ * java -Xmx4g driver.UTXOStoreBenchmark HASH_MAP 10000000
+ * java -Xmx4g driver.UTXOStoreBenchmark OPEN_ADDRESSING 10000000
+ * java -Xmx1g driver.UTXOStoreBenchmark MAPPED 10000000
+ */
+public class UTXOStoreBenchmark {
+  private static final int DEFAULT_UTXO_COUNT = 10_000_000;
+  private static final int OWNERS = 1_000;
+  private static final int LOOKUPS = 2_000_000;
+  private static final int ROUNDS = 5;
+
+  public static void main(String[] args) {
+    UTXOStore.StoreType[] storeTypes = args.length > 0
+            ? new UTXOStore.StoreType[] {UTXOStore.StoreType.valueOf(args[0].toUpperCase())}
+            : UTXOStore.StoreType.values();
+    int utxoCount = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_UTXO_COUNT;
+    for (UTXOStore.StoreType storeType : storeTypes) {
+      run(storeType, utxoCount);
+    }
+  }
+
+  /**
+   * Fill an UTXOMap of a given store type, and measure its memory and lookups.
+   *
+   * @param storeType a given StoreType
+   * @param utxoCount the number of UTXOs
+   */
+  private static void run(UTXOStore.StoreType storeType, int utxoCount) {
+    Random random = new Random(42);
+    String[] owners = new String[OWNERS];
+    for (int i = 0; i < OWNERS; i++) {
+      owners[i] = "owner" + i;
+    }
+    // the IDs to look up, half of them in the map, are kept outside of the measured memory
+    String[] presentIDs = new String[LOOKUPS];
+    String[] absentIDs = new String[LOOKUPS];
+    for (int i = 0; i < LOOKUPS; i++) {
+      absentIDs[i] = randomHash(random);
+    }
+
+    long baseline = usedMemory();
+    MappedUTXOStore mappedStore = storeType == UTXOStore.StoreType.MAPPED
+            ? MappedUTXOStore.create(null) : null;
+    UTXOMap utxoMap = mappedStore != null ? UTXOMap.fromStore(mappedStore)
+            : new UTXOMap(storeType);
+    long start = System.nanoTime();
+    String parent = null;
+    int sampleStep = Math.max(1, utxoCount / LOOKUPS);
+    for (int i = 0; i < utxoCount; i++) {
+      if (i % 2 == 0) {
+        parent = randomHash(random);
+      }
+      String ID = randomHash(random);
+      utxoMap.put(ID, TransactionFlow.restore(ID, owners[random.nextInt(OWNERS)], i, parent));
+      if (i % sampleStep == 0 && i / sampleStep < LOOKUPS) {
+        presentIDs[i / sampleStep] = ID;
+      }
+    }
+    long fillNanos = System.nanoTime() - start;
+    long bytes = usedMemory() - baseline;
+    System.out.printf("%s: %d UTXOs filled in %.1f s, %.1f bytes per UTXO%n", storeType,
+            utxoMap.size(), fillNanos / 1e9, (double) bytes / utxoMap.size());
+
+    int presentCount = Math.min(LOOKUPS, utxoCount / sampleStep);
+    for (int round = 0; round < ROUNDS; round++) {
+      start = System.nanoTime();
+      int found = 0;
+      for (int i = 0; i < presentCount; i++) {
+        found += utxoMap.containsKey(presentIDs[i]) ? 1 : 0;
+      }
+      long presentNanos = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      for (int i = 0; i < LOOKUPS; i++) {
+        found += utxoMap.containsKey(absentIDs[i]) ? 1 : 0;
+      }
+      long absentNanos = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      double sum = 0;
+      for (int i = 0; i < presentCount; i++) {
+        sum += utxoMap.get(presentIDs[i]).getValue();
+      }
+      long getNanos = System.nanoTime() - start;
+      if (found != presentCount || sum < 0) {
+        throw new IllegalStateException("Lookups do not match the UTXOs!");
+      }
+      System.out.printf("  containsKey present %6.2f M/s, absent %6.2f M/s, get %6.2f M/s%n",
+              presentCount * 1e3 / presentNanos, LOOKUPS * 1e3 / absentNanos,
+              presentCount * 1e3 / getNanos);
+    }
+
+    if (mappedStore != null) {
+      mappedStore.flush();
+      start = System.nanoTime();
+      UTXOMap reopened = UTXOMap.fromStore(MappedUTXOStore.open(mappedStore.getDirectory()));
+      boolean isFound = reopened.containsKey(presentIDs[0]);
+      long reopenNanos = System.nanoTime() - start;
+      if (!isFound || reopened.size() != utxoCount) {
+        throw new IllegalStateException("Reopened store does not match the UTXOs!");
+      }
+      System.out.printf("  reopened %d UTXOs in %.2f ms%n", reopened.size(), reopenNanos / 1e6);
+    }
+  }
+
+  /**
+   * Generate a random 64-character lowercase hexadecimal hash.
+   *
+   * @param random a given Random
+   * @return a hash string
+   */
+  private static String randomHash(Random random) {
+    StringBuilder hash = new StringBuilder(64);
+    for (int i = 0; i < 4; i++) {
+      String part = Long.toHexString(random.nextLong());
+      for (int j = part.length(); j < 16; j++) {
+        hash.append('0');
+      }
+      hash.append(part);
+    }
+    return hash.toString();
+  }
+
+  /**
+   * Get the used heap memory after garbage collection.
+   *
+   * @return the number of used bytes
+   */
+  private static long usedMemory() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,80 @@
+package driver;
+
+import transaction.RewardTransaction;
+import transaction.Transaction;
+import transaction.TransactionFlow;
+import utils.UTXOMap;
+import wallet.Wallet;
+
+/**
+ * A benchmark of the Wallet balance and coin selection against UTXOMaps of growing sizes, in
+ * which the Wallet owns a few UTXOs among the ones of other owners. It compares the scan over
+ * all UTXOs that Wallet did before the owner index of UTXOMap with the index, and prints the
+ * time of one balance update and of one send.
+ */
+public class WalletBenchmark {
+  private static final int[] UTXO_COUNTS = {1_000, 10_000, 100_000, 1_000_000};
+  private static final int OWNED_UTXOS = 10;
+  private static final int ROUNDS = 5;
+
+  public static void main(String[] args) {
+    Wallet wallet = new Wallet();
+    Wallet recipient = new Wallet();
+    UTXOMap utxoMap = new UTXOMap();
+    for (int i = 0; i < OWNED_UTXOS; i++) {
+      new RewardTransaction(wallet.getPublicKeyStr()).updateUTXO(utxoMap);
+    }
+    TransactionFlow otherFlow = new TransactionFlow(recipient.getPublicKeyStr(), 1, "other");
+
+    for (int utxoCount : UTXO_COUNTS) {
+      while (utxoMap.size() < utxoCount) {
+        utxoMap.put("utxo" + utxoMap.size(), otherFlow);
+      }
+      int updates = Math.max(10, 10_000_000 / utxoCount);
+      long scanNanos = Long.MAX_VALUE;
+      long indexNanos = Long.MAX_VALUE;
+      long sendNanos = Long.MAX_VALUE;
+      for (int round = 0; round < ROUNDS; round++) {
+        long start = System.nanoTime();
+        double scanned = 0;
+        for (int i = 0; i < updates; i++) {
+          scanned = scanBalance(wallet.getPublicKeyStr(), utxoMap);
+        }
+        scanNanos = Math.min(scanNanos, (System.nanoTime() - start) / updates);
+
+        start = System.nanoTime();
+        for (int i = 0; i < updates * 100; i++) {
+          wallet.updateBalance(utxoMap);
+        }
+        indexNanos = Math.min(indexNanos, (System.nanoTime() - start) / (updates * 100));
+        if (Math.abs(scanned - wallet.getBalance()) > 1e-9) {
+          throw new IllegalStateException("Balances do not match!");
+        }
+
+        // signing dominates a send, the coin selection no longer grows with the UTXOs
+        start = System.nanoTime();
+        Transaction transaction = wallet.send(recipient.getPublicKeyStr(), 15, "benchmark",
+                utxoMap);
+        sendNanos = Math.min(sendNanos, System.nanoTime() - start);
+        if (!transaction.validateInputs(utxoMap)) {
+          throw new IllegalStateException("Transaction validation failed!");
+        }
+      }
+      System.out.printf("%8d UTXOs: scanned balance %10.1f us, indexed balance %6.3f us, "
+              + "send %8.1f us%n", utxoCount, scanNanos / 1e3, indexNanos / 1e3, sendNanos / 1e3);
+    }
+  }
+
+  /**
+   * Calculate the balance of an owner by scanning all UTXOs, the way Wallet did before the
+   * owner index.
+   *
+   * @param owner a Wallet's PublicKey string
+   * @param utxoMap a given UTXOMap
+   * @return a double value of the balance
+   */
+  private static double scanBalance(String owner, UTXOMap utxoMap) {
+    return utxoMap.values().stream().filter(transactionFlow -> transactionFlow.isOwnedBy(owner))
+            .mapToDouble(TransactionFlow::getValue).sum();
+  }
+}
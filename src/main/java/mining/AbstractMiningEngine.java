@@ -0,0 +1,232 @@
+package mining;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import block.Block;
+import block.Difficulty;
+
+/**
+ * This class represents a MiningEngine containing the statistics and the common mining loop.
+ * Each round of the loop searches the whole nonce space of a Block with the current extra nonce,
+ * and the subclasses decide how the nonce space is split among their workers.
+ */
+public abstract class AbstractMiningEngine implements MiningEngine {
+  // size of the nonce space, from 0 to Integer.MAX_VALUE
+  protected static final long NONCE_SPACE = (long) Integer.MAX_VALUE + 1;
+  // number of hashes between two checks of the interruption condition
+  private static final int CHECK_INTERVAL = 64;
+
+  protected final int workerCount;
+  protected final MiningStatistics statistics;
+
+  /**
+   * Initialize the number of workers and the statistics of this MiningEngine.
+   *
+   * @param workerCount a positive integer of workers
+   * @throws IllegalArgumentException if the given number of workers is not positive
+   */
+  public AbstractMiningEngine(int workerCount) throws IllegalArgumentException {
+    if (workerCount < 1) {
+      throw new IllegalArgumentException("Miner needs at least one worker!");
+    }
+    this.workerCount = workerCount;
+    this.statistics = new MiningStatistics();
+  }
+
+  /**
+   * Mine a given Block until a POW solution is found or the mining is interrupted.
+   * Before mining, the Block should have collected its Transactions and updated the merkle root.
+   * If all workers run out of the nonce space, a new round starts with the next extra nonce.
+   * The Block is mined against its own POW target.
+   *
+   * @param block a given Block to be mined
+   * @param isInterrupted a condition checked by every worker, mining stops once it is true
+   * @return a MiningResult of the found solution, or null if the mining was interrupted
+   */
+  @Override
+  public MiningResult mine(Block block, BooleanSupplier isInterrupted) {
+    long startTime = System.nanoTime();
+    NonceSearch search = new NonceSearch(block, isInterrupted);
+
+    block.startMining();
+    while (true) {
+      search.startRound();
+      try {
+        searchNonceSpace(search);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        statistics.record(false, search.getHashCount(), System.nanoTime() - startTime);
+        return null;
+      }
+
+      if (search.getSolution() >= 0) {
+        int nonce = (int) search.getSolution();
+        block.acceptNonce(nonce);
+        long elapsedNanos = System.nanoTime() - startTime;
+        statistics.record(true, search.getHashCount(), elapsedNanos);
+        return new MiningResult(nonce, block.getHash(), search.getHashCount(), elapsedNanos);
+      } else if (isInterrupted.getAsBoolean()) {
+        statistics.record(false, search.getHashCount(), System.nanoTime() - startTime);
+        return null;
+      }
+      // every nonce was tried, continue with a new merkle root
+      block.rollExtraNonce();
+    }
+  }
+
+  /**
+   * Search the whole nonce space of the current round, by calling
+   * {@link NonceSearch#searchRange(long, long)} on disjoint ranges from 0 to NONCE_SPACE.
+   * It returns once the ranges are searched or the search is stopped.
+   *
+   * @param search the NonceSearch of the current round
+   * @throws InterruptedException if the mining thread is interrupted while waiting for workers
+   */
+  protected abstract void searchNonceSpace(NonceSearch search) throws InterruptedException;
+
+  /**
+   * Split the nonce space into a given number of disjoint ranges, each of them searched by
+   * one Callable.
+   *
+   * @param search the NonceSearch of the current round
+   * @param rangeCount a positive integer of ranges
+   * @return a list of Callables
+   */
+  protected static List<Callable<Void>> splitNonceSpace(NonceSearch search, int rangeCount) {
+    List<Callable<Void>> workers = new ArrayList<>();
+    long rangeSize = NONCE_SPACE / rangeCount;
+    for (int i = 0; i < rangeCount; i++) {
+      long from = i * rangeSize;
+      long to = i == rangeCount - 1 ? NONCE_SPACE : from + rangeSize;
+      workers.add(() -> {
+        search.searchRange(from, to);
+        return null;
+      });
+    }
+    return workers;
+  }
+
+  /**
+   * Create a ThreadFactory of daemon mining workers, which never keep the program alive.
+   *
+   * @param name the name of the worker threads
+   * @return a ThreadFactory
+   */
+  protected static ThreadFactory daemonThreadFactory(String name) {
+    return runnable -> {
+      Thread worker = new Thread(runnable, name);
+      worker.setDaemon(true);
+      return worker;
+    };
+  }
+
+  @Override
+  public MiningStatistics getStatistics() {
+    return statistics;
+  }
+
+  @Override
+  public int getWorkerCount() {
+    return workerCount;
+  }
+
+  /**
+   * Get the string representation of this MiningEngine.
+   *
+   * @return a formatted string
+   */
+  @Override
+  public String toString() {
+    return getType() + " mining engine, workers = " + workerCount + ", " + statistics;
+  }
+
+  /**
+   * This class represents the shared state of one Block mining, which is used by all workers.
+   */
+  protected static class NonceSearch {
+    private final Block block;
+    private final byte[] target;
+    private final BooleanSupplier isInterrupted;
+    private final AtomicBoolean isStopped = new AtomicBoolean(false);
+    private final AtomicLong solution = new AtomicLong(-1);
+    private final AtomicLong hashCount = new AtomicLong();
+
+    /**
+     * Construct a NonceSearch of a given Block.
+     *
+     * @param block a given Block to be mined
+     * @param isInterrupted an external condition that stops the mining
+     */
+    private NonceSearch(Block block, BooleanSupplier isInterrupted) {
+      this.block = block;
+      this.target = Difficulty.toTargetBytes(block.getBits());
+      this.isInterrupted = isInterrupted;
+    }
+
+    /**
+     * Start a new round of the search, after the header of the Block has changed.
+     */
+    private void startRound() {
+      isStopped.set(false);
+    }
+
+    /**
+     * Check if workers should stop searching, because a solution is found or the mining
+     * is interrupted.
+     *
+     * @return a boolean value, which is true if the search should stop
+     */
+    public boolean isStopped() {
+      return isStopped.get() || isInterrupted.getAsBoolean();
+    }
+
+    /**
+     * Search a range of nonces of the Block for a POW solution.
+     *
+     * @param from the first nonce of the range, inclusive
+     * @param to the last nonce of the range, exclusive
+     */
+    public void searchRange(long from, long to) {
+      NonceHasher hasher = new NonceHasher(block.getHeaderPrefix(), block.getHeaderSuffix());
+      long tried = 0;
+      for (long nonce = from; nonce < to; nonce++) {
+        if (tried % CHECK_INTERVAL == 0 && isStopped()) {
+          break;
+        }
+        tried++;
+        hasher.hash((int) nonce);
+        if (hasher.meetsTarget(target)) {
+          // only the first worker that finds a solution wins, the others will stop soon
+          if (isStopped.compareAndSet(false, true)) {
+            solution.set(nonce);
+          }
+          break;
+        }
+      }
+      hashCount.addAndGet(tried);
+    }
+
+    /**
+     * Get the winning nonce.
+     *
+     * @return the winning nonce, or -1 if no solution is found yet
+     */
+    private long getSolution() {
+      return solution.get();
+    }
+
+    /**
+     * Get the number of hashes tried by all workers.
+     *
+     * @return a long value of the hash count
+     */
+    private long getHashCount() {
+      return hashCount.get();
+    }
+  }
+}
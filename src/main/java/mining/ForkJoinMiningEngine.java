@@ -0,0 +1,80 @@
+package mining;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class represents a MiningEngine that searches the nonce space of a Block on a
+ * work-stealing ForkJoinPool. The nonce space is split in halves recursively into small chunks,
+ * thus idle workers steal the pending chunks of the busy ones.
+ */
+public class ForkJoinMiningEngine extends AbstractMiningEngine {
+  // the largest range searched by one task without being split
+  private static final long CHUNK_SIZE = 1 << 16;
+
+  private final ForkJoinPool pool;
+
+  /**
+   * Construct a ForkJoinMiningEngine with the given parallelism.
+   *
+   * @param parallelism a positive integer of worker threads
+   * @throws IllegalArgumentException if the given parallelism is not positive
+   */
+  public ForkJoinMiningEngine(int parallelism) throws IllegalArgumentException {
+    super(parallelism);
+    this.pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+      ForkJoinWorker worker = new ForkJoinWorker(forkJoinPool);
+      worker.setDaemon(true); // mining workers should never keep the program alive
+      return worker;
+    }, null, false);
+  }
+
+  @Override
+  protected void searchNonceSpace(NonceSearch search) {
+    pool.invoke(new RangeTask(search, 0, NONCE_SPACE));
+  }
+
+  @Override
+  public EngineType getType() {
+    return EngineType.FORK_JOIN;
+  }
+
+  /**
+   * This class represents a worker thread of the ForkJoinMiningEngine.
+   */
+  private static class ForkJoinWorker extends ForkJoinWorkerThread {
+    private ForkJoinWorker(ForkJoinPool pool) {
+      super(pool);
+    }
+  }
+
+  /**
+   * This class represents a task that searches a range of nonces, or splits it in halves if
+   * the range is larger than a chunk.
+   */
+  private static class RangeTask extends RecursiveAction {
+    private final NonceSearch search;
+    private final long from;
+    private final long to;
+
+    private RangeTask(NonceSearch search, long from, long to) {
+      this.search = search;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (search.isStopped()) {
+        return;
+      }
+      if (to - from <= CHUNK_SIZE) {
+        search.searchRange(from, to);
+      } else {
+        long middle = from + (to - from) / 2;
+        invokeAll(new RangeTask(search, from, middle), new RangeTask(search, middle, to));
+      }
+    }
+  }
+}
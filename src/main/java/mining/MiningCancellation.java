@@ -0,0 +1,40 @@
+package mining;
+
+/**
+ * This class represents an explicit cancellation signal of one Block mining. Mining workers
+ * poll it between small batches of hashes, and the owner Node cancels it as soon as its
+ * BlockChain tip changes, thus all workers stop within microseconds.
+ */
+public class MiningCancellation {
+  private volatile boolean isCancelled;
+  private volatile long cancelledAt;
+
+  /**
+   * Cancel the mining. Only the first call takes effect.
+   */
+  public synchronized void cancel() {
+    if (!isCancelled) {
+      cancelledAt = System.nanoTime();
+      isCancelled = true;
+    }
+  }
+
+  /**
+   * Check if the mining is cancelled.
+   *
+   * @return a boolean value, which is true if the mining is cancelled
+   */
+  public boolean isCancelled() {
+    return isCancelled;
+  }
+
+  /**
+   * Get the time passed since the mining was cancelled. Called once the workers have stopped,
+   * it measures the hashing time wasted on a stale tip.
+   *
+   * @return a long value in nanoseconds, or 0 if the mining is not cancelled
+   */
+  public long getNanosSinceCancel() {
+    return isCancelled ? System.nanoTime() - cancelledAt : 0;
+  }
+}
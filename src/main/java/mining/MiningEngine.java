@@ -0,0 +1,90 @@
+package mining;
+
+import java.util.function.BooleanSupplier;
+import block.Block;
+
+/**
+ * This interface represents a MiningEngine, which searches the nonce space of a Block for a POW
+ * solution. Different engines use different threading strategies, and each of them records
+ * its hashrate and time-to-solution statistics, so that the fastest one could be picked for
+ * a machine through the node configuration.
+ */
+public interface MiningEngine {
+  /**
+   * An enum type represents the available MiningEngine implementations.
+   */
+  enum EngineType { SINGLE_THREAD, THREAD_POOL, FORK_JOIN, VIRTUAL_THREAD
+  }
+
+  String ENGINE_PROPERTY = "mining.engine";
+  String THREADS_PROPERTY = "mining.threads";
+
+  /**
+   * Mine a given Block until a POW solution is found or the mining is interrupted.
+   * Before mining, the Block should have collected its Transactions and updated the merkle root.
+   * The hash of a solution is not larger than the POW target stored in the Block.
+   *
+   * @param block a given Block to be mined
+   * @param isInterrupted a condition checked by every worker, mining stops once it is true
+   * @return a MiningResult of the found solution, or null if the mining was interrupted
+   */
+  MiningResult mine(Block block, BooleanSupplier isInterrupted);
+
+  /**
+   * Get the mining statistics recorded by this MiningEngine.
+   *
+   * @return a MiningStatistics object
+   */
+  MiningStatistics getStatistics();
+
+  /**
+   * Get the type of this MiningEngine.
+   *
+   * @return an EngineType value
+   */
+  EngineType getType();
+
+  /**
+   * Get the number of workers that search the nonce space at the same time.
+   *
+   * @return an integer of workers
+   */
+  int getWorkerCount();
+
+  /**
+   * Create a MiningEngine of a given type with a given number of workers.
+   *
+   * @param type a given EngineType
+   * @param workerCount a positive integer of workers, ignored by the single-thread engine
+   * @return a new MiningEngine
+   */
+  static MiningEngine create(EngineType type, int workerCount) {
+    switch (type) {
+      case SINGLE_THREAD:
+        return new SingleThreadMiningEngine();
+      case FORK_JOIN:
+        return new ForkJoinMiningEngine(workerCount);
+      case VIRTUAL_THREAD:
+        return new VirtualThreadMiningEngine(workerCount);
+      case THREAD_POOL:
+      default:
+        return new ThreadPoolMiningEngine(workerCount);
+    }
+  }
+
+  /**
+   * Create a MiningEngine from the node configuration, which is given by the system properties
+   * "mining.engine" (one of the EngineType names) and "mining.threads". By default, a
+   * thread-pool engine with one worker for each available processor is created.
+   *
+   * @return a new MiningEngine
+   * @throws IllegalArgumentException if the configured engine type or threads is invalid
+   */
+  static MiningEngine fromConfiguration() throws IllegalArgumentException {
+    EngineType type = EngineType.valueOf(
+            System.getProperty(ENGINE_PROPERTY, EngineType.THREAD_POOL.name()).toUpperCase());
+    int workerCount = Integer.parseInt(System.getProperty(THREADS_PROPERTY,
+            String.valueOf(Runtime.getRuntime().availableProcessors())));
+    return create(type, workerCount);
+  }
+}
@@ -0,0 +1,83 @@
+package mining;
+
+/**
+ * This class represents the result of mining one Block, containing the winning nonce,
+ * the resulting hash, the number of hashes tried and the time spent on the search.
+ */
+public class MiningResult {
+  private final int nonce;
+  private final String hash;
+  private final long hashCount;
+  private final long elapsedNanos;
+
+  /**
+   * Construct a MiningResult with the given nonce, hash, hash count and elapsed time.
+   *
+   * @param nonce the winning nonce integer
+   * @param hash the hexadecimal hash string produced by the winning nonce
+   * @param hashCount the number of hashes tried by all workers
+   * @param elapsedNanos the time spent on the search in nanoseconds
+   */
+  public MiningResult(int nonce, String hash, long hashCount, long elapsedNanos) {
+    this.nonce = nonce;
+    this.hash = hash;
+    this.hashCount = hashCount;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  /**
+   * Get the winning nonce.
+   *
+   * @return a nonce integer
+   */
+  public int getNonce() {
+    return nonce;
+  }
+
+  /**
+   * Get the hash produced by the winning nonce.
+   *
+   * @return a hexadecimal hash string
+   */
+  public String getHash() {
+    return hash;
+  }
+
+  /**
+   * Get the number of hashes tried by all workers.
+   *
+   * @return a long value of the hash count
+   */
+  public long getHashCount() {
+    return hashCount;
+  }
+
+  /**
+   * Get the time spent on the search.
+   *
+   * @return a long value in nanoseconds
+   */
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /**
+   * Get the hashrate of the search.
+   *
+   * @return a double value in hashes per second
+   */
+  public double getHashRate() {
+    return elapsedNanos == 0 ? 0 : hashCount * 1e9 / elapsedNanos;
+  }
+
+  /**
+   * Get the string representation of this MiningResult.
+   *
+   * @return a formatted string
+   */
+  @Override
+  public String toString() {
+    return String.format("Nonce: %d, Hash: %s, Hashes: %d, Time: %.3f s, Hashrate: %.0f H/s",
+            nonce, hash, hashCount, elapsedNanos / 1e9, getHashRate());
+  }
+}
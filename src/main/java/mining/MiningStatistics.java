@@ -0,0 +1,163 @@
+package mining;
+
+/**
+ * This class represents the statistics of a MiningEngine, containing the number of solved and
+ * interrupted minings, the total hashes and the total time spent on them, the hashing time
+ * wasted between a cancellation and the moment the workers stopped, and the number of solutions
+ * that were stale because the tip changed before they were added.
+ * It is updated by the mining thread and read by others, thus all methods are synchronized.
+ */
+public class MiningStatistics {
+  private long solvedCount;
+  private long interruptedCount;
+  private long totalHashes;
+  private long totalNanos;
+  private long solvingNanos;
+  private long lastSolvingNanos;
+  private long cancelledCount;
+  private long wastedNanos;
+  private long maxWastedNanos;
+  private long staleCount;
+
+  /**
+   * Record a finished mining.
+   *
+   * @param isSolved true if the mining found a POW solution, false if it was interrupted
+   * @param hashCount the number of hashes tried in the mining
+   * @param elapsedNanos the time spent on the mining in nanoseconds
+   */
+  public synchronized void record(boolean isSolved, long hashCount, long elapsedNanos) {
+    totalHashes += hashCount;
+    totalNanos += elapsedNanos;
+    if (isSolved) {
+      solvedCount++;
+      solvingNanos += elapsedNanos;
+      lastSolvingNanos = elapsedNanos;
+    } else {
+      interruptedCount++;
+    }
+  }
+
+  /**
+   * Record a cancelled mining, with the time between the cancellation and the moment
+   * all workers stopped.
+   *
+   * @param wastedNanos the wasted hashing time in nanoseconds
+   */
+  public synchronized void recordCancellation(long wastedNanos) {
+    cancelledCount++;
+    this.wastedNanos += wastedNanos;
+    maxWastedNanos = Math.max(maxWastedNanos, wastedNanos);
+  }
+
+  /**
+   * Record a POW solution that was rejected as stale, since the tip changed before it was
+   * added. Its workers stopped by the solution itself, thus no wasted time is recorded.
+   */
+  public synchronized void recordStaleSolution() {
+    staleCount++;
+  }
+
+  /**
+   * Get the number of minings that found a POW solution.
+   *
+   * @return a long value of solved minings
+   */
+  public synchronized long getSolvedCount() {
+    return solvedCount;
+  }
+
+  /**
+   * Get the number of minings that were interrupted.
+   *
+   * @return a long value of interrupted minings
+   */
+  public synchronized long getInterruptedCount() {
+    return interruptedCount;
+  }
+
+  /**
+   * Get the number of hashes tried in all minings.
+   *
+   * @return a long value of hashes
+   */
+  public synchronized long getTotalHashes() {
+    return totalHashes;
+  }
+
+  /**
+   * Get the average hashrate over all minings.
+   *
+   * @return a double value in hashes per second
+   */
+  public synchronized double getHashRate() {
+    return totalNanos == 0 ? 0 : totalHashes * 1e9 / totalNanos;
+  }
+
+  /**
+   * Get the average time a solved mining took to find its POW solution.
+   *
+   * @return a double value in seconds
+   */
+  public synchronized double getAverageTimeToSolution() {
+    return solvedCount == 0 ? 0 : solvingNanos / 1e9 / solvedCount;
+  }
+
+  /**
+   * Get the time the last solved mining took to find its POW solution.
+   *
+   * @return a double value in seconds
+   */
+  public synchronized double getLastTimeToSolution() {
+    return lastSolvingNanos / 1e9;
+  }
+
+  /**
+   * Get the number of minings that were cancelled by a tip change.
+   *
+   * @return a long value of cancelled minings
+   */
+  public synchronized long getCancelledCount() {
+    return cancelledCount;
+  }
+
+  /**
+   * Get the number of POW solutions that were rejected as stale.
+   *
+   * @return a long value of stale solutions
+   */
+  public synchronized long getStaleCount() {
+    return staleCount;
+  }
+
+  /**
+   * Get the average hashing time wasted between a cancellation and the workers stopping.
+   *
+   * @return a double value in microseconds
+   */
+  public synchronized double getAverageWastedMicros() {
+    return cancelledCount == 0 ? 0 : wastedNanos / 1e3 / cancelledCount;
+  }
+
+  /**
+   * Get the longest hashing time wasted between a cancellation and the workers stopping.
+   *
+   * @return a double value in microseconds
+   */
+  public synchronized double getMaxWastedMicros() {
+    return maxWastedNanos / 1e3;
+  }
+
+  /**
+   * Get the string representation of this MiningStatistics.
+   *
+   * @return a formatted string
+   */
+  @Override
+  public synchronized String toString() {
+    return String.format("Solved: %d, Interrupted: %d, Stale: %d, Hashrate: %.0f H/s, "
+                    + "Average time-to-solution: %.3f s, Average wasted time: %.1f us",
+            solvedCount, interruptedCount, staleCount, getHashRate(), getAverageTimeToSolution(),
+            getAverageWastedMicros());
+  }
+}
@@ -0,0 +1,91 @@
+package mining;
+
+import block.Difficulty;
+import utils.CryptoService;
+import utils.HashFunction;
+
+/**
+ * This class represents a SHA-256 hasher of Block headers, used in the mining hot path.
+ * A Block header is hashed as the bytes of "prefix + nonce + suffix", where the prefix is the
+ * previous hash with the timeStamp and the suffix is the merkle root.
+ * The prefix and the suffix are serialized only once. Each attempt then patches the nonce digits
+ * into a reusable buffer right before the suffix, feeds the prefix and that buffer into one
+ * reusable HashFunction, and compares the raw digest bytes with the target, thus an attempt
+ * builds no String and, with the JDK and BouncyCastle backends, allocates nothing at all. None of
+ * the backends could restore a copied midstate without allocating a new digest, and feeding the
+ * short prefix again is about as fast as copying the midstate of the JDK digest, whose SHA-256 is
+ * an intrinsic.
+ * The resulting digest is byte-identical to the hash produced by Block.calculateHash.
+ * A NonceHasher is not thread-safe, each mining worker should use its own instance.
+ */
+public class NonceHasher {
+  // the longest decimal nonce is Integer.MAX_VALUE, with 10 digits
+  private static final int MAX_NONCE_DIGITS = 10;
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  private final HashFunction hashFunction;
+  private final byte[] prefix;
+  private final byte[] tail;
+  private final int suffixLength;
+  private final byte[] digest = new byte[32];
+
+  /**
+   * Construct a NonceHasher of a Block header with the given prefix and suffix bytes.
+   *
+   * @param prefix the header bytes before the nonce
+   * @param suffix the header bytes after the nonce
+   */
+  public NonceHasher(byte[] prefix, byte[] suffix) {
+    hashFunction = CryptoService.getDefault().newHashFunction();
+    this.prefix = prefix.clone();
+    suffixLength = suffix.length;
+    // the suffix is kept at the end of the buffer, nonce digits are written right before it
+    tail = new byte[MAX_NONCE_DIGITS + suffixLength];
+    System.arraycopy(suffix, 0, tail, MAX_NONCE_DIGITS, suffixLength);
+  }
+
+  /**
+   * Hash the Block header with a given nonce. The digest is kept in this NonceHasher until
+   * the next call.
+   *
+   * @param nonce a given non-negative nonce integer
+   */
+  public void hash(int nonce) {
+    int start = MAX_NONCE_DIGITS;
+    int value = nonce;
+    do {
+      tail[--start] = (byte) ('0' + value % 10);
+      value /= 10;
+    } while (value > 0);
+
+    // the digest resets the HashFunction, so it is reused by the next attempt
+    hashFunction.update(prefix, 0, prefix.length);
+    hashFunction.update(tail, start, MAX_NONCE_DIGITS - start + suffixLength);
+    hashFunction.digest(digest, 0);
+  }
+
+  /**
+   * Check if the last digest, read as an unsigned big-endian integer, is not larger than a given
+   * target.
+   *
+   * @param target a given 32-byte big-endian target, see Difficulty.toTargetBytes
+   * @return a boolean value, which is true if the last digest meets the target
+   */
+  public boolean meetsTarget(byte[] target) {
+    return Difficulty.meetsTarget(digest, target);
+  }
+
+  /**
+   * Get the last digest as a hexadecimal string, the same as the hash string of a Block.
+   *
+   * @return a hexadecimal string of the last digest
+   */
+  public String getHexDigest() {
+    char[] hex = new char[digest.length * 2];
+    for (int i = 0; i < digest.length; i++) {
+      hex[2 * i] = HEX_DIGITS[(digest[i] >>> 4) & 0xf];
+      hex[2 * i + 1] = HEX_DIGITS[digest[i] & 0xf];
+    }
+    return new String(hex);
+  }
+}
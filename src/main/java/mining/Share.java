@@ -0,0 +1,63 @@
+package mining;
+
+import java.io.Serializable;
+
+/**
+ * This class represents a share submitted by an external mining worker, which is a nonce of
+ * a WorkUnit whose header hash meets the share target.
+ */
+public class Share implements Serializable {
+  private final String workerName;
+  private final long workID;
+  private final int nonce;
+
+  /**
+   * Construct a Share found by a given worker.
+   *
+   * @param workerName the name of the worker
+   * @param workID the ID of the job of the WorkUnit
+   * @param nonce the nonce meeting the share target
+   */
+  public Share(String workerName, long workID, int nonce) {
+    this.workerName = workerName;
+    this.workID = workID;
+    this.nonce = nonce;
+  }
+
+  /**
+   * Get the name of the worker who found this Share.
+   *
+   * @return a name string
+   */
+  public String getWorkerName() {
+    return workerName;
+  }
+
+  /**
+   * Get the ID of the job of the WorkUnit.
+   *
+   * @return a long value of the ID
+   */
+  public long getWorkID() {
+    return workID;
+  }
+
+  /**
+   * Get the nonce of this Share.
+   *
+   * @return an integer of the nonce
+   */
+  public int getNonce() {
+    return nonce;
+  }
+
+  /**
+   * Get the string representation of this Share.
+   *
+   * @return a formatted string
+   */
+  @Override
+  public String toString() {
+    return "Share of " + workerName + ": work #" + workID + ", nonce " + nonce;
+  }
+}
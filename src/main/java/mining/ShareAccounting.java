@@ -0,0 +1,190 @@
+package mining;
+
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.TreeMap;
+import block.Difficulty;
+
+/**
+ * This class represents the share accounting of external mining workers. For each worker, it
+ * counts the accepted, rejected and stale shares and the Blocks found, and estimates the
+ * hashrate: a share meeting a target T takes 2^256 / (T + 1) hashes on average, thus the expected
+ * hashes of all accepted shares divided by the time since the first work request of the worker
+ * is its hashrate. It is updated by the work server threads and read by others, thus all methods
+ * are synchronized.
+ */
+public class ShareAccounting {
+  private static final double HASH_SPACE = Math.pow(2, 256);
+
+  private final Map<String, WorkerStatistics> workers = new TreeMap<>();
+
+  /**
+   * Record a work request of a given worker.
+   *
+   * @param workerName the name of the worker
+   */
+  public synchronized void recordWorkRequest(String workerName) {
+    getWorker(workerName).workUnits++;
+  }
+
+  /**
+   * Record an accepted share of a given worker.
+   *
+   * @param workerName the name of the worker
+   * @param shareBits the compact bits of the share target
+   */
+  public synchronized void recordAccepted(String workerName, int shareBits) {
+    WorkerStatistics worker = getWorker(workerName);
+    worker.acceptedCount++;
+    worker.expectedHashes += getExpectedHashes(shareBits);
+    worker.lastShareTime = System.nanoTime();
+  }
+
+  /**
+   * Record a rejected share of a given worker, which does not meet the share target or
+   * was submitted before.
+   *
+   * @param workerName the name of the worker
+   */
+  public synchronized void recordRejected(String workerName) {
+    getWorker(workerName).rejectedCount++;
+  }
+
+  /**
+   * Record a stale share of a given worker, whose job is no longer on the tip of the mainChain.
+   *
+   * @param workerName the name of the worker
+   */
+  public synchronized void recordStale(String workerName) {
+    getWorker(workerName).staleCount++;
+  }
+
+  /**
+   * Record a Block found by a given worker.
+   *
+   * @param workerName the name of the worker
+   */
+  public synchronized void recordBlock(String workerName) {
+    getWorker(workerName).blockCount++;
+  }
+
+  /**
+   * Get the number of accepted shares of a given worker.
+   *
+   * @param workerName the name of the worker
+   * @return a long value of accepted shares
+   */
+  public synchronized long getAcceptedCount(String workerName) {
+    WorkerStatistics worker = workers.get(workerName);
+    return worker == null ? 0 : worker.acceptedCount;
+  }
+
+  /**
+   * Get the number of rejected shares of a given worker.
+   *
+   * @param workerName the name of the worker
+   * @return a long value of rejected shares
+   */
+  public synchronized long getRejectedCount(String workerName) {
+    WorkerStatistics worker = workers.get(workerName);
+    return worker == null ? 0 : worker.rejectedCount;
+  }
+
+  /**
+   * Get the number of stale shares of a given worker.
+   *
+   * @param workerName the name of the worker
+   * @return a long value of stale shares
+   */
+  public synchronized long getStaleCount(String workerName) {
+    WorkerStatistics worker = workers.get(workerName);
+    return worker == null ? 0 : worker.staleCount;
+  }
+
+  /**
+   * Get the number of Blocks found by a given worker.
+   *
+   * @param workerName the name of the worker
+   * @return a long value of Blocks
+   */
+  public synchronized long getBlockCount(String workerName) {
+    WorkerStatistics worker = workers.get(workerName);
+    return worker == null ? 0 : worker.blockCount;
+  }
+
+  /**
+   * Get the estimated hashrate of a given worker, from its first work request to its last
+   * accepted share.
+   *
+   * @param workerName the name of the worker
+   * @return a double value in hashes per second
+   */
+  public synchronized double getHashRate(String workerName) {
+    WorkerStatistics worker = workers.get(workerName);
+    if (worker == null || worker.lastShareTime <= worker.firstSeenTime) {
+      return 0;
+    }
+    return worker.expectedHashes * 1e9 / (worker.lastShareTime - worker.firstSeenTime);
+  }
+
+  /**
+   * Check if no worker has been seen yet.
+   *
+   * @return a boolean value, which is true if there is no worker
+   */
+  public synchronized boolean isEmpty() {
+    return workers.isEmpty();
+  }
+
+  /**
+   * Get the expected number of hashes to find a share under given compact bits.
+   *
+   * @param shareBits the compact bits of the share target
+   * @return a double value of hashes
+   */
+  public static double getExpectedHashes(int shareBits) {
+    return HASH_SPACE / Difficulty.toTarget(shareBits).add(BigInteger.ONE).doubleValue();
+  }
+
+  /**
+   * Get the statistics of a given worker, creating them on its first appearance.
+   *
+   * @param workerName the name of the worker
+   * @return a WorkerStatistics object
+   */
+  private WorkerStatistics getWorker(String workerName) {
+    return workers.computeIfAbsent(workerName, name -> new WorkerStatistics());
+  }
+
+  /**
+   * Get the string representation of this ShareAccounting, as a table of workers.
+   *
+   * @return a formatted string
+   */
+  @Override
+  public synchronized String toString() {
+    StringBuilder table = new StringBuilder(String.format("%-16s %10s %10s %8s %8s %8s %14s%n",
+            "WORKER", "WORK UNITS", "ACCEPTED", "REJECTED", "STALE", "BLOCKS", "HASHRATE(H/s)"));
+    for (String workerName : workers.keySet()) {
+      WorkerStatistics worker = workers.get(workerName);
+      table.append(String.format("%-16s %10d %10d %8d %8d %8d %14.0f%n", workerName,
+              worker.workUnits, worker.acceptedCount, worker.rejectedCount, worker.staleCount,
+              worker.blockCount, getHashRate(workerName)));
+    }
+    return table.toString();
+  }
+
+  /**
+   * This class represents the counters of one worker.
+   */
+  private static class WorkerStatistics {
+    private final long firstSeenTime = System.nanoTime();
+    private long lastShareTime;
+    private long workUnits;
+    private long acceptedCount;
+    private long rejectedCount;
+    private long staleCount;
+    private long blockCount;
+    private double expectedHashes;
+  }
+}
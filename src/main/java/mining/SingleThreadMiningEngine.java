@@ -0,0 +1,25 @@
+package mining;
+
+/**
+ * This class represents a MiningEngine that searches the nonce space of a Block in order,
+ * on the calling thread.
+ */
+public class SingleThreadMiningEngine extends AbstractMiningEngine {
+
+  /**
+   * Construct a SingleThreadMiningEngine.
+   */
+  public SingleThreadMiningEngine() {
+    super(1);
+  }
+
+  @Override
+  protected void searchNonceSpace(NonceSearch search) {
+    search.searchRange(0, NONCE_SPACE);
+  }
+
+  @Override
+  public EngineType getType() {
+    return EngineType.SINGLE_THREAD;
+  }
+}
@@ -0,0 +1,41 @@
+package mining;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This class represents a MiningEngine that searches the nonce space of a Block on a fixed pool
+ * of platform threads. The nonce space is split into disjoint ranges, one for each worker, and
+ * the first worker that finds a POW solution stops all the others.
+ */
+public class ThreadPoolMiningEngine extends AbstractMiningEngine {
+  private final ExecutorService executor;
+
+  /**
+   * Construct a ThreadPoolMiningEngine that uses one worker thread for each available processor.
+   */
+  public ThreadPoolMiningEngine() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Construct a ThreadPoolMiningEngine with the given number of worker threads.
+   *
+   * @param threadCount a positive integer of worker threads
+   * @throws IllegalArgumentException if the given number of threads is not positive
+   */
+  public ThreadPoolMiningEngine(int threadCount) throws IllegalArgumentException {
+    super(threadCount);
+    this.executor = Executors.newFixedThreadPool(threadCount, daemonThreadFactory("miner-worker"));
+  }
+
+  @Override
+  protected void searchNonceSpace(NonceSearch search) throws InterruptedException {
+    executor.invokeAll(splitNonceSpace(search, workerCount));
+  }
+
+  @Override
+  public EngineType getType() {
+    return EngineType.THREAD_POOL;
+  }
+}
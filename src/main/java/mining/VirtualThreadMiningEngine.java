@@ -0,0 +1,54 @@
+package mining;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This class represents a MiningEngine that searches the nonce space of a Block on virtual
+ * threads, one for each range. Virtual threads are only available since Java 21, thus the
+ * executor is looked up at runtime, and platform threads are used on older runtimes.
+ */
+public class VirtualThreadMiningEngine extends AbstractMiningEngine {
+  private final ExecutorService executor;
+  private final boolean isVirtual;
+
+  /**
+   * Construct a VirtualThreadMiningEngine with the given number of ranges searched at once.
+   *
+   * @param rangeCount a positive integer of ranges, one virtual thread for each
+   * @throws IllegalArgumentException if the given number of ranges is not positive
+   */
+  public VirtualThreadMiningEngine(int rangeCount) throws IllegalArgumentException {
+    super(rangeCount);
+    ExecutorService virtualExecutor;
+    try {
+      virtualExecutor = (ExecutorService) Executors.class
+              .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+      virtualExecutor = null;
+    }
+    isVirtual = virtualExecutor != null;
+    executor = isVirtual ? virtualExecutor
+            : Executors.newCachedThreadPool(daemonThreadFactory("miner-worker"));
+  }
+
+  @Override
+  protected void searchNonceSpace(NonceSearch search) throws InterruptedException {
+    executor.invokeAll(splitNonceSpace(search, workerCount));
+  }
+
+  /**
+   * Check if this engine runs on virtual threads, or falls back to platform threads.
+   *
+   * @return a boolean value, which is true if virtual threads are available
+   */
+  public boolean isVirtual() {
+    return isVirtual;
+  }
+
+  @Override
+  public EngineType getType() {
+    return EngineType.VIRTUAL_THREAD;
+  }
+}
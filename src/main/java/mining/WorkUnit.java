@@ -0,0 +1,130 @@
+package mining;
+
+import java.io.Serializable;
+import block.Difficulty;
+
+/**
+ * This class represents a unit of mining work handed out to an external mining worker. It
+ * contains the header bytes of a Block template before and after the nonce, a range of nonces
+ * to search, the compact bits of the Block target and the compact bits of the share target.
+ * The share target is never harder than the Block target, so that a worker reports its progress
+ * with shares found much more often than Blocks, and every Block solution is also a share.
+ */
+public class WorkUnit implements Serializable {
+  private final long workID;
+  private final byte[] headerPrefix;
+  private final byte[] headerSuffix;
+  private final int nonceFrom;
+  private final int nonceTo; // exclusive
+  private final int bits;
+  private final int shareBits;
+
+  /**
+   * Construct a WorkUnit with the given header, nonce range and targets.
+   *
+   * @param workID the ID of the job this WorkUnit belongs to
+   * @param headerPrefix the header bytes before the nonce
+   * @param headerSuffix the header bytes after the nonce
+   * @param nonceFrom the first nonce of the range
+   * @param nonceTo the end of the range, exclusive
+   * @param bits the compact bits of the Block target
+   * @param shareBits the compact bits of the share target
+   * @throws IllegalArgumentException if the nonce range is empty or negative
+   */
+  public WorkUnit(long workID, byte[] headerPrefix, byte[] headerSuffix, int nonceFrom,
+                  int nonceTo, int bits, int shareBits) throws IllegalArgumentException {
+    if (nonceFrom < 0 || nonceTo <= nonceFrom) {
+      throw new IllegalArgumentException("Nonce range is invalid!");
+    }
+    this.workID = workID;
+    this.headerPrefix = headerPrefix.clone();
+    this.headerSuffix = headerSuffix.clone();
+    this.nonceFrom = nonceFrom;
+    this.nonceTo = nonceTo;
+    this.bits = bits;
+    this.shareBits = shareBits;
+  }
+
+  /**
+   * Get the ID of the job this WorkUnit belongs to.
+   *
+   * @return a long value of the ID
+   */
+  public long getWorkID() {
+    return workID;
+  }
+
+  /**
+   * Get the header bytes before the nonce.
+   *
+   * @return a byte array of the header prefix
+   */
+  public byte[] getHeaderPrefix() {
+    return headerPrefix.clone();
+  }
+
+  /**
+   * Get the header bytes after the nonce.
+   *
+   * @return a byte array of the header suffix
+   */
+  public byte[] getHeaderSuffix() {
+    return headerSuffix.clone();
+  }
+
+  /**
+   * Get the first nonce of the range.
+   *
+   * @return an integer of the nonce
+   */
+  public int getNonceFrom() {
+    return nonceFrom;
+  }
+
+  /**
+   * Get the end of the nonce range, exclusive.
+   *
+   * @return an integer of the nonce
+   */
+  public int getNonceTo() {
+    return nonceTo;
+  }
+
+  /**
+   * Get the compact bits of the Block target.
+   *
+   * @return an integer of compact bits
+   */
+  public int getBits() {
+    return bits;
+  }
+
+  /**
+   * Get the compact bits of the share target.
+   *
+   * @return an integer of compact bits
+   */
+  public int getShareBits() {
+    return shareBits;
+  }
+
+  /**
+   * Get the share target as 32 big-endian bytes, to be compared with raw digests.
+   *
+   * @return a byte array of 32 bytes
+   */
+  public byte[] getShareTarget() {
+    return Difficulty.toTargetBytes(shareBits);
+  }
+
+  /**
+   * Get the string representation of this WorkUnit.
+   *
+   * @return a formatted string
+   */
+  @Override
+  public String toString() {
+    return "WorkUnit #" + workID + " [" + nonceFrom + ", " + nonceTo + "), bits: "
+            + Integer.toHexString(bits) + ", share bits: " + Integer.toHexString(shareBits);
+  }
+}
@@ -0,0 +1,171 @@
+package node;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import block.Block;
+import block.BlockChain;
+import transaction.Transaction;
+import utils.UTXOMap;
+
+/**
+ * This class represents a manager of the next candidate Block of a PeerNode. The candidate is
+ * rebuilt only when the tip of the mainChain changes, and it is extended one Transaction at a
+ * time as the Transaction pool admits new ones, validating each new Transaction against an UTXOMap
+ * that already includes the Transactions of the candidate. Thus a miner could start hashing a
+ * copy of the candidate right away, instead of copying and validating the whole pool first.
+ * When the candidate gains Transactions while it is being mined, the RefreshPolicy decides if
+ * the mining should restart with the new candidate.
+ */
+public class BlockTemplateManager {
+  /**
+   * An enum type represents when a mining restarts with a candidate that gained Transactions.
+   */
+  public enum RefreshPolicy { NEVER, IMMEDIATE, INTERVAL
+  }
+
+  public static final String REFRESH_PROPERTY = "mining.template.refresh";
+  public static final String INTERVAL_PROPERTY = "mining.template.interval";
+  public static final long DEFAULT_INTERVAL = 5000; // as number of milliseconds
+
+  private final String creator;
+  private final RefreshPolicy refreshPolicy;
+  private final long refreshIntervalNanos;
+
+  private Block template;
+  private UTXOMap templateUTXOMap; // the UTXOMap after the Transactions of the template
+  private int transactionCount;
+  private volatile long version; // increased on every change of the template
+
+  /**
+   * Construct a BlockTemplateManager of the Blocks created by a given creator.
+   *
+   * @param creator the PublicKey string of the creator, who receives the rewards
+   * @param refreshPolicy a given RefreshPolicy
+   * @param refreshInterval the minimum time of mining a candidate before it is refreshed,
+   *                        as number of milliseconds, only used by the INTERVAL policy
+   * @throws IllegalArgumentException if the given refresh interval is negative
+   */
+  public BlockTemplateManager(String creator, RefreshPolicy refreshPolicy, long refreshInterval)
+          throws IllegalArgumentException {
+    if (refreshInterval < 0) {
+      throw new IllegalArgumentException("Refresh interval cannot be negative!");
+    }
+    this.creator = creator;
+    this.refreshPolicy = refreshPolicy;
+    this.refreshIntervalNanos = refreshPolicy == RefreshPolicy.INTERVAL
+            ? TimeUnit.MILLISECONDS.toNanos(refreshInterval) : 0;
+  }
+
+  /**
+   * Create a BlockTemplateManager from the node configuration, which is given by the system
+   * properties "mining.template.refresh" (one of the RefreshPolicy names) and
+   * "mining.template.interval". By default, the candidate is refreshed at most once every
+   * DEFAULT_INTERVAL milliseconds.
+   *
+   * @param creator the PublicKey string of the creator, who receives the rewards
+   * @return a new BlockTemplateManager
+   * @throws IllegalArgumentException if the configured policy or interval is invalid
+   */
+  public static BlockTemplateManager fromConfiguration(String creator)
+          throws IllegalArgumentException {
+    RefreshPolicy policy = RefreshPolicy.valueOf(
+            System.getProperty(REFRESH_PROPERTY, RefreshPolicy.INTERVAL.name()).toUpperCase());
+    long interval = Long.parseLong(
+            System.getProperty(INTERVAL_PROPERTY, String.valueOf(DEFAULT_INTERVAL)));
+    return new BlockTemplateManager(creator, policy, interval);
+  }
+
+  /**
+   * Rebuild the candidate on the tip of a given BlockChain, because the tip has changed.
+   * Transactions are collected from the given pool until the candidate is full. The ones that
+   * are not valid on the new tip are removed from the pool, the others stay in the pool until
+   * they are confirmed. The candidate is validated on a layer over the given UTXOMap, which must
+   * not change until the next rebuild.
+   *
+   * @param mainChain a given BlockChain to build on
+   * @param utxoMap the UTXOMap of the given BlockChain
+   * @param transactionPool a given list of pending Transactions
+   */
+  public synchronized void rebuild(BlockChain mainChain, UTXOMap utxoMap,
+                                   List<Transaction> transactionPool) {
+    String previousHash = mainChain.size() == 0 ? "0" : mainChain.getLastBlock().getHash();
+    template = new Block(previousHash, creator, mainChain.getNextBits());
+    templateUTXOMap = utxoMap.layer();
+    transactionCount = 1; // the RewardTransaction
+
+    Iterator<Transaction> iterator = transactionPool.iterator();
+    while (iterator.hasNext() && transactionCount < Block.BLOCK_MAX_CAPACITY) {
+      Transaction transaction = iterator.next();
+      if (template.addTransaction(transaction, templateUTXOMap)) {
+        transaction.updateUTXO(templateUTXOMap);
+        transactionCount++;
+      } else {
+        iterator.remove(); // double-spent or already confirmed on the new tip
+      }
+    }
+    template.setTransactionsMerkleRoot();
+    version++;
+  }
+
+  /**
+   * Offer a Transaction just admitted by the Transaction pool to the candidate. It joins the
+   * candidate if there is room left and it is valid after the Transactions already in it.
+   *
+   * @param transaction a given new Transaction
+   * @return a boolean value, which is true if the Transaction joins the candidate
+   */
+  public synchronized boolean offerTransaction(Transaction transaction) {
+    if (template == null || transactionCount >= Block.BLOCK_MAX_CAPACITY
+            || !template.addTransaction(transaction, templateUTXOMap)) {
+      return false;
+    }
+    transaction.updateUTXO(templateUTXOMap);
+    transactionCount++;
+    template.setTransactionsMerkleRoot();
+    version++;
+    return true;
+  }
+
+  /**
+   * Get a copy of the candidate, ready to be mined.
+   *
+   * @return a new Block with its merkle root set
+   */
+  public synchronized Block getTemplate() {
+    return template.clone();
+  }
+
+  /**
+   * Get the version of the candidate, which increases every time the candidate changes.
+   *
+   * @return a long value of the version
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Check if a mining should restart with the latest candidate. It is called by the mining
+   * workers, thus it only reads volatile and final fields.
+   *
+   * @param minedVersion the version of the candidate being mined
+   * @param miningStartTime the System.nanoTime() when the mining started
+   * @return a boolean value, which is true if the candidate changed and the policy allows a refresh
+   */
+  public boolean isRefreshDue(long minedVersion, long miningStartTime) {
+    if (refreshPolicy == RefreshPolicy.NEVER || version == minedVersion) {
+      return false;
+    }
+    return System.nanoTime() - miningStartTime >= refreshIntervalNanos;
+  }
+
+  /**
+   * Get the RefreshPolicy of this BlockTemplateManager.
+   *
+   * @return a RefreshPolicy value
+   */
+  public RefreshPolicy getRefreshPolicy() {
+    return refreshPolicy;
+  }
+}
@@ -0,0 +1,110 @@
+package node;
+
+import java.io.IOException;
+import block.Difficulty;
+import mining.NonceHasher;
+import mining.Share;
+import mining.WorkUnit;
+import utils.Message;
+
+/**
+ * This class represents an external mining worker, which runs in its own process and mines for
+ * a PeerNode through its WorkServer. It repeatedly requests a WorkUnit, hashes the nonce range
+ * with a NonceHasher, and submits every nonce meeting the share target. It drops the rest of a
+ * range as soon as a Share solves the Block or is reported stale, because the PeerNode has moved
+ * to a new tip.
+ */
+public class MiningWorker implements Runnable {
+  private static final long RETRY_INTERVAL = 2000; // as number of milliseconds
+
+  private final String workerName;
+  private final NodeClient client;
+  private long totalHashes;
+  private long acceptedCount;
+
+  /**
+   * Construct a MiningWorker connecting to the WorkServer at a given address and port.
+   *
+   * @param workerName the name of this worker, used in the share accounting
+   * @param address an address string of the WorkServer
+   * @param port a port integer of the WorkServer
+   */
+  public MiningWorker(String workerName, String address, int port) {
+    this.workerName = workerName;
+    this.client = new NodeClient(address, port);
+  }
+
+  /**
+   * Run this MiningWorker until its thread is interrupted.
+   */
+  @Override
+  public void run() {
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        WorkUnit workUnit = client.sendWorkRequest(workerName);
+        long startTime = System.nanoTime();
+        long hashCount = mineWorkUnit(workUnit);
+        System.out.printf("%s: %s done, %d hashes at %.0f H/s, %d shares accepted%n", workerName,
+                workUnit, hashCount, hashCount * 1e9 / (System.nanoTime() - startTime),
+                acceptedCount);
+      } catch (IOException | ClassNotFoundException e) {
+        System.out.println("Connection error. Failed requesting work from "
+                + client.getServerEndStr());
+        try {
+          Thread.sleep(RETRY_INTERVAL);
+        } catch (InterruptedException interrupted) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+
+  /**
+   * Hash the nonce range of a given WorkUnit and submit the Shares found.
+   *
+   * @param workUnit a given WorkUnit
+   * @return the number of hashes tried
+   * @throws IOException if the socket and stream failed
+   * @throws ClassNotFoundException if the class of the IO object does not exist
+   */
+  public long mineWorkUnit(WorkUnit workUnit) throws IOException, ClassNotFoundException {
+    NonceHasher hasher = new NonceHasher(workUnit.getHeaderPrefix(), workUnit.getHeaderSuffix());
+    byte[] shareTarget = workUnit.getShareTarget();
+    byte[] blockTarget = Difficulty.toTargetBytes(workUnit.getBits());
+    long hashCount = 0;
+    for (int nonce = workUnit.getNonceFrom(); nonce < workUnit.getNonceTo(); nonce++) {
+      hasher.hash(nonce);
+      hashCount++;
+      if (hasher.meetsTarget(shareTarget)) {
+        Message response = client.sendShare(new Share(workerName, workUnit.getWorkID(), nonce));
+        if (response == Message.SUCCESS) {
+          acceptedCount++;
+        }
+        // the rest of the range is outdated once the Block is solved or the tip has moved
+        if (response == Message.STALE || hasher.meetsTarget(blockTarget)) {
+          break;
+        }
+      }
+    }
+    totalHashes += hashCount;
+    return hashCount;
+  }
+
+  /**
+   * Get the number of hashes tried by this MiningWorker.
+   *
+   * @return a long value of hashes
+   */
+  public long getTotalHashes() {
+    return totalHashes;
+  }
+
+  /**
+   * Get the number of Shares accepted by the PeerNode.
+   *
+   * @return a long value of accepted Shares
+   */
+  public long getAcceptedCount() {
+    return acceptedCount;
+  }
+}
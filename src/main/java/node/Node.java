@@ -3,7 +3,14 @@ package node;
 import java.util.List;
 import block.Block;
 import block.BlockChain;
+import block.BlockHeader;
+import block.TransactionProof;
+import mining.MiningStatistics;
+import mining.Share;
+import mining.ShareAccounting;
+import mining.WorkUnit;
 import transaction.Transaction;
+import utils.Message;
 import utils.UTXOMap;
 import wallet.Wallet;
 
@@ -44,6 +51,50 @@ public interface Node extends HostNode {
    */
   boolean updateBlockChain(BlockChain newBlockChain);
 
+  /**
+   * Get the TransactionProof of a Transaction confirmed in the BlockChain of this Node, for a
+   * Wallet that does not hold the BlockChain.
+   *
+   * @param transactionID the ID of a given Transaction
+   * @return a TransactionProof, or null if the Transaction is not confirmed
+   */
+  TransactionProof getTransactionProof(String transactionID);
+
+  /**
+   * Get the BlockHeaders of the BlockChain of this Node from a given height, for a Wallet that
+   * follows the chain by its headers.
+   *
+   * @param fromHeight the height of the first header
+   * @return a list of BlockHeaders
+   */
+  List<BlockHeader> getHeaders(int fromHeight);
+
+  /**
+   * Hand out the next range of nonces of the current Block template to an external mining
+   * worker.
+   *
+   * @param workerName the name of the worker
+   * @return a new WorkUnit
+   */
+  WorkUnit requestWork(String workerName);
+
+  /**
+   * Submit a Share found by an external mining worker. If the Share solves the Block of its
+   * WorkUnit, the Block is added to the BlockChain and returned by the next createBlock call.
+   *
+   * @param share a given Share
+   * @return Message.SUCCESS if the Share is accepted, Message.STALE if its work is outdated,
+   *         otherwise Message.FAIL
+   */
+  Message submitShare(Share share);
+
+  /**
+   * Get the share accounting of the external mining workers of this Node.
+   *
+   * @return a ShareAccounting object
+   */
+  ShareAccounting getShareAccounting();
+
   /**
    * Verify the given new Block self-hash, omitting the Transactions and previousHash validation.
    *
@@ -73,6 +124,13 @@ public interface Node extends HostNode {
    */
   Wallet getWallet();
 
+  /**
+   * Get the mining statistics of the MiningEngine in this Node.
+   *
+   * @return a MiningStatistics object
+   */
+  MiningStatistics getMiningStatistics();
+
   /**
    * Get the BlockChain maintained in this Node.
    *
@@ -8,6 +8,10 @@ import java.util.List;
 import java.util.Objects;
 import block.Block;
 import block.BlockChain;
+import block.BlockHeader;
+import block.TransactionProof;
+import mining.Share;
+import mining.WorkUnit;
 import transaction.Transaction;
 import utils.*;
 
@@ -147,6 +151,45 @@ public class NodeClient {
     return newBlockChain;
   }
 
+  /**
+   * Send a request of the TransactionProof of a Transaction to another Node.
+   *
+   * @param transactionID the ID of a given Transaction
+   * @return a TransactionProof replied from another Node, or null if the Transaction is not
+   *         confirmed in its BlockChain
+   * @throws IOException            if the socket and stream failed
+   * @throws ClassNotFoundException if the class of the IO object does not exist
+   */
+  public synchronized TransactionProof sendProofRequest(String transactionID) throws
+          IOException, ClassNotFoundException {
+    connect();
+    clientOut.writeObject(Message.PROOF_REQUEST);
+    clientOut.writeObject(transactionID);
+    TransactionProof proof = (TransactionProof) clientIn.readObject();
+    stopConnection();
+    return proof;
+  }
+
+  /**
+   * Send a request of the BlockHeaders of the BlockChain of another Node from a given height.
+   * The replied headers are not trusted until they are added to a HeaderChain.
+   *
+   * @param fromHeight the height of the first header
+   * @return a list of BlockHeaders replied from another Node
+   * @throws IOException            if the socket and stream failed
+   * @throws ClassNotFoundException if the class of the IO object does not exist
+   */
+  @SuppressWarnings("unchecked")
+  public synchronized List<BlockHeader> sendHeadersRequest(int fromHeight) throws
+          IOException, ClassNotFoundException {
+    connect();
+    clientOut.writeObject(Message.HEADERS_REQUEST);
+    clientOut.writeObject(fromHeight);
+    List<BlockHeader> headers = (List<BlockHeader>) clientIn.readObject();
+    stopConnection();
+    return headers;
+  }
+
   /**
    * Send a list of Server ports to another Node.
    *
@@ -183,6 +226,42 @@ public class NodeClient {
     return feedBack;
   }
 
+  /**
+   * Send a work request of a mining worker to a Node.
+   *
+   * @param workerName the name of the mining worker
+   * @return a WorkUnit replied from the Node
+   * @throws IOException            if the socket and stream failed
+   * @throws ClassNotFoundException if the class of the IO object does not exist
+   */
+  public synchronized WorkUnit sendWorkRequest(String workerName) throws
+          IOException, ClassNotFoundException {
+    connect();
+    clientOut.writeObject(Message.WORK_REQUEST);
+    clientOut.writeObject(workerName);
+    WorkUnit workUnit = (WorkUnit) clientIn.readObject();
+    stopConnection();
+    return workUnit;
+  }
+
+  /**
+   * Send a Share found by a mining worker to a Node.
+   *
+   * @param share a given Share
+   * @return Message.SUCCESS if the Share is accepted, Message.STALE if its work is outdated,
+   *         otherwise Message.FAIL
+   * @throws IOException            if the socket and stream failed
+   * @throws ClassNotFoundException if the class of the IO object does not exist
+   */
+  public synchronized Message sendShare(Share share) throws IOException, ClassNotFoundException {
+    connect();
+    clientOut.writeObject(Message.SHARE);
+    clientOut.writeObject(share);
+    Message feedBack = (Message) clientIn.readObject();
+    stopConnection();
+    return feedBack;
+  }
+
   /**
    * Close all IO stream and Socket.
    *
@@ -1,15 +1,29 @@
 package node;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Random;
+import java.util.Set;
 import block.Block;
 import block.BlockChain;
+import block.BlockHeader;
+import block.TransactionProof;
+import mining.MiningCancellation;
+import mining.MiningEngine;
+import mining.MiningResult;
+import mining.MiningStatistics;
+import mining.Share;
+import mining.ShareAccounting;
+import mining.WorkUnit;
 import transaction.Transaction;
-import transaction.NormalTransaction;
+import utils.Message;
 import utils.UTXOMap;
+import utils.UTXOStore;
+import utils.UTXOView;
+import utils.UndoRecord;
 import wallet.Wallet;
 
 /**
@@ -17,71 +31,234 @@ import wallet.Wallet;
  * a Transaction pool.
  */
 public class PeerNode extends AbstractNode implements Node {
-  public static final int DIFFICULTY = 4;
-
   private String ownerName;
   private Wallet wallet;
   private BlockChain mainChain;
   private UTXOMap utxoMap;
+  private List<UndoRecord> undoRecords; // the UndoRecord of each Block of the mainChain
   private List<Transaction> transactionPool;
+  private MiningEngine miningEngine;
+  private BlockTemplateManager templateManager;
+  private volatile MiningCancellation currentMining;
+  private WorkDistributor workDistributor;
+  private Block workerBlock; // a Block solved by an external worker, not broadcast yet
 
   /**
-   * Construct a PeerNode with the given ownerName.
+   * Construct a PeerNode with the given ownerName, using the MiningEngine selected by the
+   * node configuration.
    *
    * @param ownerName a name string
    */
   public PeerNode(String ownerName) {
+    this(ownerName, MiningEngine.fromConfiguration());
+  }
+
+  /**
+   * Construct a PeerNode with the given ownerName and MiningEngine.
+   *
+   * @param ownerName a name string
+   * @param miningEngine a MiningEngine used to create new Blocks
+   */
+  public PeerNode(String ownerName, MiningEngine miningEngine) {
     super();
     this.ownerName = ownerName;
     wallet = new Wallet(); // initialize a new Wallet with PublicKey and PrivateKey
     mainChain = new BlockChain();
-    utxoMap = new UTXOMap();
+    utxoMap = new UTXOMap(UTXOStore.configuredType());
+    undoRecords = new ArrayList<>();
     transactionPool = new ArrayList<>();
+    this.miningEngine = miningEngine;
+    templateManager = BlockTemplateManager.fromConfiguration(wallet.getPublicKeyStr());
+    templateManager.rebuild(mainChain, utxoMap, transactionPool);
+    workDistributor = new WorkDistributor();
+  }
+
+  /**
+   * Confirm the Transactions of a given Block just added to the mainChain, and update the local
+   * UTXOMap through a UTXOView, keeping the UndoRecord of the Block for a later reorganization.
+   *
+   * @param newBlock a given Block just added to the mainChain
+   */
+  private void connectBlock(Block newBlock) {
+    UTXOView blockView = new UTXOView(utxoMap);
+    newBlock.processBlockTransactions(blockView.getUTXOMap());
+    undoRecords.add(blockView.commit());
+  }
+
+  /**
+   * Switch the mainChain to a given longer BlockChain. The Blocks of the mainChain after the
+   * fork point are disconnected by their UndoRecords, then only the Blocks of the new branch are
+   * verified and connected, thus the cost depends on the depth of the reorganization, not on the
+   * height of the chain. All changes are staged on a UTXOView, which is discarded if the new
+   * branch is invalid. The Transactions of the disconnected Blocks that the new branch does not
+   * confirm go back to the Transaction pool, and the wallet history is rewound over the same
+   * Blocks.
+   *
+   * @param newBlockChain a given BlockChain longer than the mainChain
+   * @return a boolean value, which is true if the new branch is valid and the mainChain switched
+   */
+  private boolean reorganize(BlockChain newBlockChain) {
+    int forkHeight = mainChain.getForkHeight(newBlockChain);
+    int disconnected = mainChain.size() - forkHeight;
+
+    // 1. disconnect the Blocks of the mainChain after the fork point, from the tip down
+    UTXOView reorgView = new UTXOView(utxoMap);
+    UTXOMap forkUTXOMap = reorgView.getUTXOMap();
+    for (int height = mainChain.size() - 1; height >= forkHeight; height--) {
+      undoRecords.get(height).undo(forkUTXOMap);
+    }
+
+    // 2. verify the new branch on the UTXOMap of the fork point
+    if (!newBlockChain.verifyChainFrom(forkHeight, forkUTXOMap.copy())) {
+      reorgView.discard();
+      return false;
+    }
+
+    // 3. connect the new branch, keeping the UndoRecord of each new Block
+    List<Block> newBlocks = new ArrayList<>();
+    List<UndoRecord> newUndoRecords = new ArrayList<>();
+    for (int height = forkHeight; height < newBlockChain.size(); height++) {
+      Block newBlock = newBlockChain.getBlock(height).clone();
+      UTXOView blockView = new UTXOView(forkUTXOMap);
+      newBlock.getTransactions().forEach(transaction ->
+              transaction.updateUTXO(blockView.getUTXOMap()));
+      newBlocks.add(newBlock);
+      newUndoRecords.add(blockView.commit());
+    }
+    reorgView.commit();
+    List<Block> disconnectedBlocks = new ArrayList<>();
+    while (mainChain.size() > forkHeight) {
+      disconnectedBlocks.add(0, mainChain.getLastBlock());
+      mainChain.removeLastBlock();
+      undoRecords.remove(undoRecords.size() - 1);
+    }
+    newBlocks.forEach(mainChain::addBlock);
+    undoRecords.addAll(newUndoRecords);
+
+    // 4. return the Transactions only confirmed by the disconnected Blocks to the pool, and
+    // rewind the wallet history over the disconnected and connected Blocks
+    Set<String> connectedIDs = new HashSet<>();
+    newBlocks.forEach(block -> block.getTransactions().forEach(transaction ->
+            connectedIDs.add(transaction.getID())));
+    transactionPool.removeIf(transaction -> connectedIDs.contains(transaction.getID()));
+    Set<String> pooledIDs = new HashSet<>();
+    transactionPool.forEach(transaction -> pooledIDs.add(transaction.getID()));
+    Set<String> disconnectedIDs = new HashSet<>();
+    List<Transaction> returnedTransactions = new ArrayList<>();
+    for (Block block : disconnectedBlocks) {
+      List<Transaction> transactions = block.getTransactions();
+      for (int i = 0; i < transactions.size(); i++) {
+        Transaction transaction = transactions.get(i);
+        disconnectedIDs.add(transaction.getID());
+        // the first one is the RewardTransaction, which is only valid in its own Block
+        if (i > 0 && !connectedIDs.contains(transaction.getID())
+                && pooledIDs.add(transaction.getID())) {
+          returnedTransactions.add(transaction);
+        }
+      }
+    }
+    transactionPool.addAll(0, returnedTransactions);
+    wallet.removeReceivedTransactions(disconnectedIDs);
+    newBlocks.forEach(block -> block.updateReceivedTransactionHistoryOf(wallet));
+    System.out.printf("Disconnected %d Blocks after height %d, connected %d Blocks, "
+            + "returned %d Transactions to the pool%n", disconnected, forkHeight, newBlocks.size(),
+            returnedTransactions.size());
+    return true;
   }
 
+
   /**
-   * Reset the UTXOMap maintained in this PeerNode to be consistent with its BlockChain.
+   * Remove the Transactions confirmed by a given new Block from the Transaction pool, then
+   * rebuild the Block template on the new tip.
+   *
+   * @param newBlock a given Block just added to the mainChain
    */
-  private void resetUTXOMap() {
-    utxoMap = mainChain.generateUTXOMap();
+  private void updateTemplateOnNewTip(Block newBlock) {
+    Set<String> confirmedIDs = new HashSet<>();
+    newBlock.getTransactions().forEach(transaction -> confirmedIDs.add(transaction.getID()));
+    transactionPool.removeIf(transaction -> confirmedIDs.contains(transaction.getID()));
+    templateManager.rebuild(mainChain, utxoMap, transactionPool);
   }
 
+  /**
+   * Add a mined Block to the mainChain, if the mainChain tip has not changed during the mining.
+   * Then update the local UTXOMap and the PeerNode's wallet.
+   *
+   * @param newBlock a mined Block
+   * @return true if the Block is added, false if it was mined on a stale tip
+   */
+  private synchronized boolean addMinedBlock(Block newBlock) {
+    String tipHash = mainChain.size() == 0 ? "0" : mainChain.getLastBlock().getHash();
+    if (!tipHash.equals(newBlock.getPreviousHash())) {
+      return false;
+    }
+    mainChain.addBlock(newBlock);
+    connectBlock(newBlock);
+    // update TX history of the wallet in this PeerNode (Miner),
+    newBlock.updateReceivedTransactionHistoryOf(wallet);
+    // update wallet's balance based on new local UTXOMap
+    wallet.updateBalance(utxoMap);
+    updateTemplateOnNewTip(newBlock);
+    return true;
+  }
+
+  /**
+   * Cancel the current mining, because the tip of the mainChain has changed.
+   */
+  private void cancelMining() {
+    MiningCancellation mining = currentMining;
+    if (mining != null) {
+      mining.cancel();
+    }
+  }
 
   @Override
   public Block createBlock() {
-    // 1. create a new empty block
-    String previousHash = mainChain.size() == 0 ? "0" : mainChain.getLastBlock().getHash();
-    Block newBlock = new Block(previousHash, wallet.getPublicKeyStr());
-
-    //2. add transactions to this new block by using for-each loop,
-    // if transactionPool is empty, automatically skip this step
-    newBlock.collectTransactionsFromPool(transactionPool, utxoMap);
-
-    // 3. after adding transactions, calculate the merkle root of them
-    newBlock.setTransactionsMerkleRoot();
-
-    // 4. start mining this new block
-    Random rand = new Random(); // generate random integer nonce in POW
-    int startingSize = mainChain.size(); // remember the original mainChain size
-    boolean isMined;
-    // keep looping while new block hasn't been mined and the mainChain hasn't updated
-    do {
-      isMined = newBlock.oneMining(DIFFICULTY, rand);
-    } while (!isMined && startingSize == mainChain.size());
-
-    // 5. if new block is mined successfully, updating the local mainChain, UTXOMap, PeerNode's wallet,
-    // and return this new block
-    if (isMined) {
-      mainChain.addBlock(newBlock);
-      newBlock.processBlockTransactions(utxoMap);
-      // update TX history of the wallet in this PeerNode (Miner),
-      newBlock.updateReceivedTransactionHistoryOf(wallet);
-      // update wallet's balance based on new local UTXOMap
-      wallet.updateBalance(utxoMap);
-      return newBlock;
-    } else {
-      System.out.println("Mining was interrupted!");
-      return null;
+    while (true) {
+      // 1. take a copy of the Block template, which is kept up to date with the tip and the
+      // Transaction pool, thus there is no Transaction to collect or validate here
+      Block newBlock;
+      long templateVersion;
+      MiningCancellation cancellation = new MiningCancellation();
+      synchronized (this) {
+        // a Block solved by an external worker is returned to be broadcast like a mined one
+        if (workerBlock != null) {
+          Block solvedBlock = workerBlock;
+          workerBlock = null;
+          return solvedBlock;
+        }
+        newBlock = templateManager.getTemplate();
+        templateVersion = templateManager.getVersion();
+        currentMining = cancellation;
+      }
+
+      // 2. start mining this new block, until it is mined, a new tip cancels the mining, or
+      // the template gains Transactions and the refresh policy restarts the mining
+      long startTime = System.nanoTime();
+      MiningResult result = miningEngine.mine(newBlock, () -> cancellation.isCancelled()
+              || templateManager.isRefreshDue(templateVersion, startTime));
+
+      // 3. if new block is mined successfully on the current tip, updating the local mainChain,
+      // UTXOMap, PeerNode's wallet, and return this new block
+      if (result != null && addMinedBlock(newBlock)) {
+        return newBlock;
+      } else if (result == null && !cancellation.isCancelled()
+              && !templateManager.isRefreshDue(templateVersion, startTime)) {
+        System.out.println("Mining was interrupted!");
+        return null;
+      }
+
+      // 4. otherwise restart with the latest template
+      if (result != null) {
+        // the solution lost the race with a new tip, its workers were not cancelled
+        miningEngine.getStatistics().recordStaleSolution();
+        System.out.println("Mined Block is stale on a new tip, restarting!");
+      } else if (cancellation.isCancelled()) {
+        miningEngine.getStatistics().recordCancellation(cancellation.getNanosSinceCancel());
+        System.out.println("Mining was cancelled by a new tip, restarting!");
+      } else {
+        System.out.println("Block template was refreshed, restarting!");
+      }
     }
   }
 
@@ -92,7 +269,10 @@ public class PeerNode extends AbstractNode implements Node {
     } else if (transactionPool.contains(newTransaction)) {
       return false;
     } else {
-      return transactionPool.add(newTransaction);
+      transactionPool.add(newTransaction);
+      // extend the Block template if there is room left, instead of rebuilding it
+      templateManager.offerTransaction(newTransaction);
+      return true;
     }
   }
 
@@ -101,13 +281,16 @@ public class PeerNode extends AbstractNode implements Node {
     boolean isUpdated = false;
     // 1. a regular valid newBlock added to the mainChain
     // -- add the new Block to the mainChain, then confirm all new TXs and update the local UTXOMap
-    if (mainChain.verifyNewBlock(newBlock, utxoMap, DIFFICULTY)) {
+    if (mainChain.verifyNewBlock(newBlock, utxoMap)) {
       isUpdated = mainChain.addBlock(newBlock);
-      newBlock.processBlockTransactions(utxoMap);
+      connectBlock(newBlock);
       // update wallet's transaction history in this PeerNode,
       newBlock.updateReceivedTransactionHistoryOf(wallet);
       // update wallet's balance based on new local UTXOMap
       wallet.updateBalance(utxoMap);
+      updateTemplateOnNewTip(newBlock);
+      // the tip has changed, stop mining on the old one
+      cancelMining();
     }
 
     // 2. have a local mainChain that is too old to catch up with the new block,
@@ -118,24 +301,57 @@ public class PeerNode extends AbstractNode implements Node {
 
   @Override
   public synchronized boolean updateBlockChain(BlockChain newBlockChain) {
-    boolean isLonger = newBlockChain.size() > mainChain.size();
-    if (newBlockChain.size() > mainChain.size() && newBlockChain.verifyChain(DIFFICULTY)) {
-      mainChain = newBlockChain.copy();
-      // reset local UTXOMap based on the new local mainChain
-      resetUTXOMap();
-      // reset the whole transaction history of the wallet in this PeerNode, based on the given new chain
-      mainChain.resetTransactionHistoryOf(wallet);
+    // switch to the longer chain from the fork point, updating the local UTXOMap
+    if (newBlockChain.size() > mainChain.size() && reorganize(newBlockChain)) {
       // update wallet's balance based on new local UTXOMap
       wallet.updateBalance(utxoMap);
+      templateManager.rebuild(mainChain, utxoMap, transactionPool);
+      // the tip has changed, stop mining on the old one
+      cancelMining();
       return true;
     }
     System.out.println("New blockchain is not accepted!");
     return false;
   }
 
+  @Override
+  public synchronized TransactionProof getTransactionProof(String transactionID) {
+    return mainChain.getTransactionProof(transactionID);
+  }
+
+  @Override
+  public synchronized List<BlockHeader> getHeaders(int fromHeight) {
+    return mainChain.getHeaders(fromHeight);
+  }
+
+  @Override
+  public synchronized WorkUnit requestWork(String workerName) {
+    return workDistributor.assignWork(workerName, templateManager);
+  }
+
+  @Override
+  public synchronized Message submitShare(Share share) {
+    String tipHash = mainChain.size() == 0 ? "0" : mainChain.getLastBlock().getHash();
+    Message verdict = workDistributor.submitShare(share, tipHash);
+    Block solvedBlock = workDistributor.takeSolvedBlock();
+    if (solvedBlock != null && addMinedBlock(solvedBlock)) {
+      workDistributor.getShareAccounting().recordBlock(share.getWorkerName());
+      System.out.println("Block solved by worker " + share.getWorkerName() + "!");
+      workerBlock = solvedBlock;
+      // the tip has changed, stop the local mining, which returns the worker's Block
+      cancelMining();
+    }
+    return verdict;
+  }
+
+  @Override
+  public ShareAccounting getShareAccounting() {
+    return workDistributor.getShareAccounting();
+  }
+
   @Override
   public boolean verifyNewBlockSelfHash(Block newBlock) {
-    return newBlock.verifySelfHash(DIFFICULTY);
+    return newBlock.verifySelfHash();
   }
 
   // TODO: For further improvement, this method could be replaced by taking user input using a GUI
@@ -145,9 +361,9 @@ public class PeerNode extends AbstractNode implements Node {
     Transaction newTransaction = null;
     boolean done = false;
 
-    while (!done && wallet.getBalance() >= NormalTransaction.MINIMUM_INPUT) {
-      // generate random transaction value
-      double transactionValue = rand.nextFloat() * wallet.getBalance();
+    while (!done && wallet.getBalanceUnits() >= Transaction.MINIMUM_INPUT_UNITS) {
+      // generate random transaction value in units, always less than the balance
+      long valueUnits = Math.floorMod(rand.nextLong(), wallet.getBalanceUnits());
 
       // pick a random recipient from contacts map
       // if no valid recipient was chosen, send funds to itself
@@ -159,12 +375,12 @@ public class PeerNode extends AbstractNode implements Node {
       String recipientName = recipient == null ? ownerName : recipient.getKey();
 
       // generate a transaction memo
-      String memo = String.format(
-              "%s send %.2f coins to %s", ownerName, transactionValue, recipientName);
+      String memo = String.format("%s send %.2f coins to %s",
+              ownerName, Transaction.toCoins(valueUnits), recipientName);
 
       // start sending
       try {
-        newTransaction = wallet.send(recipientAddress, transactionValue, memo, utxoMap);
+        newTransaction = wallet.sendUnits(recipientAddress, valueUnits, memo, utxoMap);
         done = true;
       } catch (IllegalArgumentException e) {
         System.out.println(e.getMessage());
@@ -185,6 +401,11 @@ public class PeerNode extends AbstractNode implements Node {
     return wallet.clone();
   }
 
+  @Override
+  public MiningStatistics getMiningStatistics() {
+    return miningEngine.getStatistics();
+  }
+
   @Override
   public BlockChain getBlockChain() {
     return mainChain.copy();
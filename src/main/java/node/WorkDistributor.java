@@ -0,0 +1,188 @@
+package node;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import block.Block;
+import block.Difficulty;
+import mining.Share;
+import mining.ShareAccounting;
+import mining.WorkUnit;
+import utils.Message;
+
+/**
+ * This class represents a distributor of mining work to external mining workers, in the way of
+ * a stratum-style pool run by the PeerNode that owns the mainChain. A job is a copy of the Block
+ * template with its timeStamp fixed, and each work request takes the next range of RANGE_SIZE
+ * nonces of the current job. Once all nonces of a job are handed out, the job rolls into a new
+ * extra nonce. A new job starts when the Block template changes.
+ * Workers submit shares back, which are verified by rehashing the header of their job with the
+ * submitted nonce, the same way as Block.oneMining does. A share that also meets the Block
+ * target is a solved Block, which the PeerNode takes to add to its mainChain.
+ * The recent jobs are kept, so that shares of a job replaced by a new template are still
+ * credited as long as the tip of the mainChain has not changed.
+ */
+public class WorkDistributor {
+  public static final int RANGE_SIZE = 1 << 22;
+  // the default share target, with five leading hexadecimal zeros
+  public static final int DEFAULT_SHARE_BITS = Difficulty.fromLeadingZeros(5);
+  private static final int MAX_JOBS = 16;
+
+  private final int shareBits;
+  private final ShareAccounting shareAccounting = new ShareAccounting();
+  private final Map<Long, Job> jobs = new LinkedHashMap<>() {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Long, Job> eldest) {
+      return size() > MAX_JOBS;
+    }
+  };
+  private Job currentJob;
+  private long nextWorkID;
+  private Block solvedBlock;
+
+  /**
+   * Construct a WorkDistributor with the default share target.
+   */
+  public WorkDistributor() {
+    this(DEFAULT_SHARE_BITS);
+  }
+
+  /**
+   * Construct a WorkDistributor with a given share target. When the Block target is easier
+   * than the share target, the Block target is used for shares instead.
+   *
+   * @param shareBits the compact bits of the share target
+   * @throws IllegalArgumentException if the share target is not legal
+   */
+  public WorkDistributor(int shareBits) throws IllegalArgumentException {
+    if (!Difficulty.isLegalBits(shareBits)) {
+      throw new IllegalArgumentException("Share target is not legal!");
+    }
+    this.shareBits = shareBits;
+  }
+
+  /**
+   * Assign the next nonce range of the current job to a given worker. A new job is started
+   * from the latest Block template if the template has changed since the current job started.
+   *
+   * @param workerName the name of the worker
+   * @param templateManager the BlockTemplateManager of the PeerNode
+   * @return a new WorkUnit
+   */
+  public synchronized WorkUnit assignWork(String workerName, BlockTemplateManager templateManager) {
+    long templateVersion = templateManager.getVersion();
+    if (currentJob == null || currentJob.templateVersion != templateVersion) {
+      Block template = templateManager.getTemplate();
+      template.startMining();
+      startJob(template, templateVersion);
+    } else if (currentJob.nextNonce == Integer.MAX_VALUE) {
+      // all nonces are handed out, the header changes with a new extra nonce
+      Block rolled = currentJob.block.clone();
+      rolled.rollExtraNonce();
+      startJob(rolled, templateVersion);
+    }
+
+    Block block = currentJob.block;
+    int nonceFrom = currentJob.nextNonce;
+    int nonceTo = (int) Math.min((long) nonceFrom + RANGE_SIZE, Integer.MAX_VALUE);
+    currentJob.nextNonce = nonceTo;
+    shareAccounting.recordWorkRequest(workerName);
+    return new WorkUnit(currentJob.workID, block.getHeaderPrefix(), block.getHeaderSuffix(),
+            nonceFrom, nonceTo, block.getBits(), currentJob.shareBits);
+  }
+
+  /**
+   * Verify a Share submitted by a worker and credit it in the ShareAccounting. If the Share also
+   * solves the Block of its job, the solved Block is kept to be taken by the PeerNode.
+   *
+   * @param share a given Share
+   * @param tipHash the hash of the last Block of the mainChain, or "0" if it is empty
+   * @return Message.SUCCESS if the Share is accepted, Message.STALE if its job is unknown or not
+   *         on the current tip, otherwise Message.FAIL
+   */
+  public synchronized Message submitShare(Share share, String tipHash) {
+    Job job = jobs.get(share.getWorkID());
+    if (job == null || !job.block.getPreviousHash().equals(tipHash)) {
+      shareAccounting.recordStale(share.getWorkerName());
+      return Message.STALE;
+    }
+    String hash = job.block.calculateHash(share.getNonce());
+    if (share.getNonce() < 0 || job.submittedNonces.contains(share.getNonce())
+            || !Difficulty.isSolution(hash, job.shareBits)) {
+      shareAccounting.recordRejected(share.getWorkerName());
+      return Message.FAIL;
+    }
+    job.submittedNonces.add(share.getNonce());
+    shareAccounting.recordAccepted(share.getWorkerName(), job.shareBits);
+
+    if (Difficulty.isSolution(hash, job.block.getBits())) {
+      Block solved = job.block.clone();
+      solved.acceptNonce(share.getNonce());
+      solvedBlock = solved;
+    }
+    return Message.SUCCESS;
+  }
+
+  /**
+   * Take the Block solved by the last submitted Share, if there is one.
+   *
+   * @return a solved Block, or null if the last Share did not solve a Block
+   */
+  public synchronized Block takeSolvedBlock() {
+    Block solved = solvedBlock;
+    solvedBlock = null;
+    return solved;
+  }
+
+  /**
+   * Get the ShareAccounting of the workers of this WorkDistributor.
+   *
+   * @return a ShareAccounting object
+   */
+  public ShareAccounting getShareAccounting() {
+    return shareAccounting;
+  }
+
+  /**
+   * Start a new job of a given Block, whose header is fixed from now on.
+   *
+   * @param block a given Block ready to be mined
+   * @param templateVersion the version of the Block template the Block comes from
+   */
+  private void startJob(Block block, long templateVersion) {
+    // every Block solution must also be a share, thus the easier target is used for shares
+    int jobShareBits = Difficulty.toTarget(block.getBits())
+            .compareTo(Difficulty.toTarget(shareBits)) > 0 ? block.getBits() : shareBits;
+    currentJob = new Job(nextWorkID++, block, templateVersion, jobShareBits);
+    jobs.put(currentJob.workID, currentJob);
+  }
+
+  /**
+   * This class represents a job, which is a Block with a fixed header whose nonces are handed
+   * out to workers range by range.
+   */
+  private static class Job {
+    private final long workID;
+    private final Block block;
+    private final long templateVersion;
+    private final int shareBits;
+    private final Set<Integer> submittedNonces = new HashSet<>();
+    private int nextNonce;
+
+    /**
+     * Construct a Job of a given Block.
+     *
+     * @param workID the ID of this Job
+     * @param block a given Block with a fixed header
+     * @param templateVersion the version of the Block template the Block comes from
+     * @param shareBits the compact bits of the share target of this Job
+     */
+    private Job(long workID, Block block, long templateVersion, int shareBits) {
+      this.workID = workID;
+      this.block = block;
+      this.templateVersion = templateVersion;
+      this.shareBits = shareBits;
+    }
+  }
+}
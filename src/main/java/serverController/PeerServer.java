@@ -116,6 +116,28 @@ public class PeerServer extends AbstractServer {
       serverOut.writeObject(ownerController.getNode().getBlockChain());
     }
 
+    /**
+     * Process the received TransactionProof request.
+     *
+     * @throws IOException if the InputStream/ OutputStream fails
+     * @throws ClassNotFoundException if the class of the IO object does not exist
+     */
+    private void processProofRequest() throws IOException, ClassNotFoundException {
+      String transactionID = (String) serverIn.readObject();
+      serverOut.writeObject(ownerController.getNode().getTransactionProof(transactionID));
+    }
+
+    /**
+     * Process the received BlockHeaders request.
+     *
+     * @throws IOException if the InputStream/ OutputStream fails
+     * @throws ClassNotFoundException if the class of the IO object does not exist
+     */
+    private void processHeadersRequest() throws IOException, ClassNotFoundException {
+      int fromHeight = (Integer) serverIn.readObject();
+      serverOut.writeObject(ownerController.getNode().getHeaders(fromHeight));
+    }
+
     /**
      * Process the received Message.
      *
@@ -137,6 +159,12 @@ public class PeerServer extends AbstractServer {
         case BLOCKCHAIN_REQUEST:
           processBlockChainRequest();
           break;
+        case PROOF_REQUEST:
+          processProofRequest();
+          break;
+        case HEADERS_REQUEST:
+          processHeadersRequest();
+          break;
         default:
           System.out.println("Receiving error...");
           break;
@@ -0,0 +1,103 @@
+package serverController;
+
+import java.io.IOException;
+import java.net.Socket;
+import controller.Controller;
+import mining.Share;
+import mining.WorkUnit;
+import utils.Message;
+
+/**
+ * This class represents a WorkServer that is used to hand out mining work to external mining
+ * workers, and to receive the Shares they find.
+ */
+public class WorkServer extends AbstractServer {
+  public static final String PORT_PROPERTY = "mining.work.port";
+
+  /**
+   * Construct a WorkServer with the given port and ownerController.
+   *
+   * @param workServerPort an integer port, which is used to connect the mining workers
+   * @param ownerController a given Controller
+   */
+  public WorkServer(int workServerPort, Controller ownerController) {
+    super(workServerPort, ownerController);
+  }
+
+  @Override
+  public void run() {
+    while (true) {
+      try {
+        executor.execute(new ClientHandler(serverSocket.accept()));
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+
+  private class ClientHandler extends AbstractClientHandler {
+
+    public ClientHandler(Socket clientSocket) throws IOException {
+      super(clientSocket);
+    }
+
+    /**
+     * Process the received work request, by replying a new WorkUnit.
+     *
+     * @throws IOException if the InputStream/ OutputStream fails
+     * @throws ClassNotFoundException if the class of the IO object does not exist
+     */
+    private void processWorkRequest() throws IOException, ClassNotFoundException {
+      String workerName = (String) serverIn.readObject();
+      WorkUnit workUnit = ownerController.getNode().requestWork(workerName);
+      serverOut.writeObject(workUnit);
+    }
+
+    /**
+     * Process the received Share.
+     *
+     * @throws IOException if the InputStream/ OutputStream fails
+     * @throws ClassNotFoundException if the class of the IO object does not exist
+     */
+    private void receiveShare() throws IOException, ClassNotFoundException {
+      Share share = (Share) serverIn.readObject();
+      serverOut.writeObject(ownerController.getNode().submitShare(share));
+    }
+
+    /**
+     * Process the received Message.
+     *
+     * @param receivedMsg the received Message value
+     * @throws IOException if the InputStream/ OutputStream fails
+     * @throws ClassNotFoundException if the class of the IO object does not exist
+     */
+    private void processMsg(Message receivedMsg) throws IOException, ClassNotFoundException {
+      switch (receivedMsg) {
+        case WORK_REQUEST:
+          processWorkRequest();
+          break;
+        case SHARE:
+          receiveShare();
+          break;
+        default:
+          System.out.println("Receiving error...");
+          break;
+      }
+    }
+
+    /**
+     * Run the ClientHandler.
+     */
+    @Override
+    public void run() {
+      try {
+        Message receivedMsg = (Message) serverIn.readObject();
+        processMsg(receivedMsg);
+        stopConnection();
+      } catch (IOException | ClassNotFoundException e) {
+        e.printStackTrace();
+      }
+    }
+  }
+}
@@ -6,7 +6,6 @@ import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
-import utils.BlockchainUtil;
 import utils.UTXOMap;
 
 
@@ -18,7 +17,7 @@ public abstract class AbstractTransaction implements Transaction {
 
   protected String ID;
   protected String recipient;
-  protected double value;
+  protected long units; // the value in units of Transaction.UNITS_PER_COIN
   protected long timeStamp; //as number of milliseconds since 1/1/1970.
   protected String memo;
   protected List<TransactionFlow> outputs = new ArrayList<>();
@@ -39,7 +38,7 @@ public abstract class AbstractTransaction implements Transaction {
     } catch (IllegalArgumentException e) {
       System.out.println(e.getMessage());
       System.out.println("Transaction value is set to the default minimum.");
-      this.value = MINIMUM_VALUE;
+      this.units = Transaction.toUnits(MINIMUM_VALUE);
     }
 
     this.memo = memo;
@@ -47,6 +46,22 @@ public abstract class AbstractTransaction implements Transaction {
     this.state = TransactionState.UNCONFIRMED;
   }
 
+  /**
+   * Initialize all instance variables of this AbstractTransaction as a copy of a given one,
+   * without calculating the IDs again.
+   *
+   * @param original a given AbstractTransaction to be copied
+   */
+  protected AbstractTransaction(AbstractTransaction original) {
+    this.ID = original.ID;
+    this.recipient = original.recipient;
+    this.units = original.units;
+    this.timeStamp = original.timeStamp;
+    this.memo = original.memo;
+    this.outputs.addAll(original.outputs);
+    this.state = original.state;
+  }
+
 
   /**
    * Set the value of this Transaction.
@@ -58,14 +73,14 @@ public abstract class AbstractTransaction implements Transaction {
     if (value < MINIMUM_VALUE) {
       throw new IllegalArgumentException("Transaction value is too small!");
     }
-    this.value = value;
+    this.units = Transaction.toUnits(value);
   }
 
   /**
    * Set the outputs of this Transaction.
    */
   protected void setOutputs() {
-    this.outputs.add(new TransactionFlow(recipient, value, ID));
+    this.outputs.add(TransactionFlow.ofUnits(recipient, units, ID));
   }
 
   @Override
@@ -115,17 +130,21 @@ public abstract class AbstractTransaction implements Transaction {
 
   @Override
   public double getValue() {
-    return value;
+    return Transaction.toCoins(units);
+  }
+
+  @Override
+  public long getUnits() {
+    return units;
   }
 
   /**
-   * Calculate this Transaction's ID using Sha256 hashing algorithm.
+   * Calculate this Transaction's ID by hashing its canonical binary encoding with Sha256.
    *
    * @return a hexadecimal ID string
    */
   protected String calculateID() {
-    String data = recipient + value + memo + timeStamp;
-    return BlockchainUtil.applySha256(data);
+    return TransactionEncoder.transactionID(recipient, units, memo, timeStamp);
   }
 
 
@@ -137,7 +156,7 @@ public abstract class AbstractTransaction implements Transaction {
   @Override
   public String toString() {
     return String.format("%n    Recipient Address: %s", recipient)
-            + String.format("%n    Value: %.2f", value)
+            + String.format("%n    Value: %.2f", getValue())
             + String.format("%n    Memo: \"%s\"", memo)
             + String.format("%n    Status: %s%n", state);
   }
@@ -153,7 +172,7 @@ public abstract class AbstractTransaction implements Transaction {
     if (this == o) return true;
     if (o == null || getClass() != o.getClass()) return false;
     AbstractTransaction that = (AbstractTransaction) o;
-    return Math.abs(that.value - value) < 0.001
+    return units == that.units
             && timeStamp == that.timeStamp
             && ID.equals(that.ID)
             && recipient.equals(that.recipient)
@@ -168,6 +187,6 @@ public abstract class AbstractTransaction implements Transaction {
    */
   @Override
   public int hashCode() {
-    return Objects.hash(ID, recipient, value, timeStamp, memo, outputs, state);
+    return Objects.hash(ID, recipient, units, timeStamp, memo, outputs, state);
   }
 }
@@ -1,8 +1,6 @@
 package transaction;
 
 import java.security.PrivateKey;
-import java.security.PublicKey;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Objects;
 import utils.BlockchainUtil;
@@ -38,19 +36,30 @@ public class NormalTransaction extends AbstractTransaction {
     setOutputs();
   }
 
+  /**
+   * Construct a NormalTransaction as a copy of a given one, without calculating the IDs again.
+   *
+   * @param original a given NormalTransaction to be copied
+   */
+  private NormalTransaction(NormalTransaction original) {
+    super(original);
+    this.sender = original.sender;
+    this.inputs = original.inputs.copy();
+    this.signature = original.signature;
+  }
+
   @Override
   protected String calculateID() {
-    String data = sender + recipient + value + memo + timeStamp;
-    return BlockchainUtil.applySha256(data);
+    return TransactionEncoder.normalTransactionID(sender, recipient, units, memo, timeStamp);
   }
 
   @Override
   protected void setOutputs() {
     super.setOutputs();
-    double leftOver = inputs.sum() - getOutputSum();
+    long leftOver = inputs.sumUnits() - getOutputUnits();
     if (leftOver > 0) {
       // the remaining unspent input become a new output to its original owner
-      this.outputs.add(new TransactionFlow(sender, leftOver, ID));
+      this.outputs.add(TransactionFlow.ofUnits(sender, leftOver, ID));
     }
   }
 
@@ -60,17 +69,21 @@ public class NormalTransaction extends AbstractTransaction {
    * @param privateKey a Wallet's PrivateKey of the sender
    */
   public void sign(PrivateKey privateKey) {
-    String transactionData = sender + recipient + value + memo;
+    byte[] transactionData = TransactionEncoder.signedData(sender, recipient, units, memo);
     signature = BlockchainUtil.encryptByECDSA(privateKey, transactionData);
   }
 
   /**
-   * Calculate the outputs sum of this Transaction.
+   * Calculate the outputs sum of this Transaction in units.
    *
-   * @return a double value of the outputs sum
+   * @return a long value of the outputs sum
    */
-  private double getOutputSum() {
-    return outputs.stream().mapToDouble(TransactionFlow:: getValue).sum();
+  private long getOutputUnits() {
+    long outputUnits = 0;
+    for (TransactionFlow output : outputs) {
+      outputUnits += output.getUnits();
+    }
+    return outputUnits;
   }
 
   /**
@@ -80,32 +93,43 @@ public class NormalTransaction extends AbstractTransaction {
    * @return a boolean value, which is true if the inputs in this TRasaction are valid
    */
   private boolean isLegalInput(UTXOMap utxoMap) {
-    return utxoMap.getMap().keySet().containsAll(inputs.getMap().keySet());
+    return utxoMap.containsAll(inputs.keySet());
   }
 
   /**
    * Verify the signature of this Transaction, based on the sender's PublicKey, signature and the
-   * data in this Transaction.
+   * data in this Transaction. A signature verified before is found in the signature cache.
    *
    * @return a boolean value, which is true if the signature is valid
    */
   private boolean isLegalSignature() {
-    String transactionData = sender + recipient + value + memo;
-    PublicKey senderKey = BlockchainUtil.stringToPublicKey(sender);
-    return BlockchainUtil.verifyByECDSA(senderKey, signature, transactionData);
+    if (signature == null) {
+      return false;
+    }
+    byte[] transactionData = TransactionEncoder.signedData(sender, recipient, units, memo);
+    return BlockchainUtil.verifyTransactionSignature(ID, sender, signature, transactionData);
   }
 
   @Override
   public boolean outsideValidate(UTXOMap utxoMap) {
-    return insideValidate() & isLegalInput(utxoMap) && isLegalSignature();
+    return validateInputs(utxoMap) && isLegalSignature();
+  }
+
+  @Override
+  public boolean validateInputs(UTXOMap utxoMap) {
+    return insideValidate() & isLegalInput(utxoMap);
+  }
+
+  @Override
+  public boolean verifySignature() {
+    return isLegalSignature();
   }
 
   @Override
   public boolean insideValidate() {
-    double inputsSum = inputs.sum();
-    double outputsSum = getOutputSum();
-    // check minimum inputs and overspent
-    return inputsSum >= MINIMUM_INPUT && Math.abs(outputsSum - inputsSum) < 0.001;
+    long inputUnits = inputs.sumUnits();
+    // check minimum inputs and overspent, exactly since the amounts are units
+    return inputUnits >= MINIMUM_INPUT_UNITS && getOutputUnits() == inputUnits;
   }
 
 
@@ -114,20 +138,12 @@ public class NormalTransaction extends AbstractTransaction {
     // add new outputs in UTXOMap
     super.updateUTXO(utxoMap);
     // remove old inputs in UTXOMap
-    inputs.getMap().forEach((k, v) -> utxoMap.remove(k));
+    inputs.keySet().forEach(utxoMap::remove);
   }
 
   @Override
   public NormalTransaction copy() {
-    NormalTransaction copy = new NormalTransaction(
-            this.sender, this.recipient, this.value, this.memo, this.inputs.copy());
-    copy.timeStamp = this.timeStamp;
-    copy.ID = this.ID;
-    copy.outputs = new ArrayList<>();
-    copy.outputs.addAll(outputs);
-    copy.state = this.state;
-    copy.signature = this.signature;
-    return copy;
+    return new NormalTransaction(this);
   }
 
   @Override
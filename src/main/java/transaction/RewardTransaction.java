@@ -1,13 +1,14 @@
 package transaction;
 
-import java.util.ArrayList;
-
 import utils.UTXOMap;
 
 /**
  * This class represents a reward transaction that is sent to a block creator.
  */
 public class RewardTransaction extends AbstractTransaction {
+  private static final String REWARD_MEMO = "Block creation reward";
+
+  private long extraNonce;
 
   /**
    * Construct a RewardTransaction object by a given recipient.
@@ -15,17 +16,72 @@ public class RewardTransaction extends AbstractTransaction {
    * @param recipient a Wallet's PublicKey string that represents the address of the recipient
    */
   public RewardTransaction(String recipient) {
-    super(recipient, Transaction.BLOCK_REWARD, "Block creation reward");
+    super(recipient, Transaction.BLOCK_REWARD, REWARD_MEMO);
     this.ID = calculateID();
     // outputs rely on Transaction Id to calculate TransactionFlow ID, thus must be the last to initialize
     setOutputs();
   }
 
+  /**
+   * Construct a RewardTransaction object by a given recipient, extra nonce and timeStamp.
+   *
+   * @param recipient a Wallet's PublicKey string that represents the address of the recipient
+   * @param extraNonce a given extra nonce, which is written into the memo
+   * @param timeStamp a given timeStamp of this Transaction
+   */
+  private RewardTransaction(String recipient, long extraNonce, long timeStamp) {
+    super(recipient, Transaction.BLOCK_REWARD, REWARD_MEMO + " (extra nonce " + extraNonce + ")");
+    this.extraNonce = extraNonce;
+    this.timeStamp = timeStamp;
+    this.ID = calculateID();
+    setOutputs();
+  }
+
+  /**
+   * Construct a RewardTransaction as a copy of a given one, without calculating the IDs again.
+   *
+   * @param original a given RewardTransaction to be copied
+   */
+  private RewardTransaction(RewardTransaction original) {
+    super(original);
+    this.extraNonce = original.extraNonce;
+  }
+
+  /**
+   * Get a new RewardTransaction that is the same as this one except for a given extra nonce.
+   * A Block creator uses it to get a new merkle root once all nonces of its Block are tried.
+   *
+   * @param extraNonce a given extra nonce
+   * @return a new RewardTransaction with a different ID
+   */
+  public RewardTransaction withExtraNonce(long extraNonce) {
+    return new RewardTransaction(recipient, extraNonce, timeStamp);
+  }
+
+  /**
+   * Get the extra nonce of this RewardTransaction.
+   *
+   * @return a long value of the extra nonce
+   */
+  public long getExtraNonce() {
+    return extraNonce;
+  }
+
   @Override
   public boolean outsideValidate(UTXOMap utxoMap) {
     return true;
   }
 
+  @Override
+  public boolean validateInputs(UTXOMap utxoMap) {
+    return true;
+  }
+
+  @Override
+  public boolean verifySignature() {
+    return true;
+  }
+
   @Override
   public boolean insideValidate() {
     return true;
@@ -33,13 +89,7 @@ public class RewardTransaction extends AbstractTransaction {
 
   @Override
   public Transaction copy() {
-    RewardTransaction copy = new RewardTransaction(this.recipient);
-    copy.timeStamp = this.timeStamp;
-    copy.ID = this.ID;
-    copy.outputs = new ArrayList<>();
-    copy.outputs.addAll(outputs);
-    copy.state = this.state;
-    return copy;
+    return new RewardTransaction(this);
   }
 
 }
@@ -18,6 +18,10 @@ public interface Transaction extends Serializable {
   double BLOCK_REWARD = 10.0;
   double MINIMUM_VALUE = 0.1;
 
+  // amounts are kept as longs of UNITS_PER_COIN units, thus their arithmetic is exact
+  long UNITS_PER_COIN = 100_000_000L;
+  long MINIMUM_INPUT_UNITS = Transaction.toUnits(MINIMUM_INPUT);
+
   /**
    * Validate this Transaction by clients except the sender, including the verification of the
    * signature, legal inputs and outputs.
@@ -27,6 +31,22 @@ public interface Transaction extends Serializable {
    */
   boolean outsideValidate(UTXOMap utxoMap);
 
+  /**
+   * Validate this Transaction by clients except the sender, like outsideValidate, but without
+   * the verification of the signature, which could be verified in a batch by a SignatureVerifier.
+   *
+   * @param utxoMap a given UTXOMap to check if inputs in this Transaction is not spent
+   * @return a boolean value, which is true if this Transaction has legal inputs and outputs
+   */
+  boolean validateInputs(UTXOMap utxoMap);
+
+  /**
+   * Verify the signature of this Transaction.
+   *
+   * @return a boolean value, which is true if the signature is valid
+   */
+  boolean verifySignature();
+
   /**
    * Check if this Transaction has minimum inputs and is not overspent.
    *
@@ -103,5 +123,32 @@ public interface Transaction extends Serializable {
    * @return a double value
    */
   double getValue();
+
+  /**
+   * Get the value of this Transaction in units.
+   *
+   * @return a long value of UNITS_PER_COIN units per coin
+   */
+  long getUnits();
+
+  /**
+   * Convert a double amount of coins to units, rounding to the nearest unit.
+   *
+   * @param coins a double amount of coins
+   * @return a long value of units
+   */
+  static long toUnits(double coins) {
+    return Math.round(coins * UNITS_PER_COIN);
+  }
+
+  /**
+   * Convert an amount of units to coins.
+   *
+   * @param units a long value of units
+   * @return a double amount of coins
+   */
+  static double toCoins(long units) {
+    return (double) units / UNITS_PER_COIN;
+  }
 }
 
@@ -0,0 +1,315 @@
+package transaction;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import utils.CryptoService;
+
+/**
+ * This class represents the canonical binary encoding of Transactions and TransactionFlows, which
+ * is hashed into their IDs and signed by the senders. Every encoding starts with a tag of its
+ * kind, followed by its fields in a fixed order:
+ * <ul>
+ *   <li>a Transaction ID: recipient, value, timeStamp, memo</li>
+ *   <li>a NormalTransaction ID: sender, recipient, value, timeStamp, memo</li>
+ *   <li>a TransactionFlow ID: owner, value, parent Transaction ID</li>
+ *   <li>the signed data of a NormalTransaction: sender, recipient, value, memo</li>
+ * </ul>
+ * A value is written as its long of Transaction.UNITS_PER_COIN units per coin, thus an ID does
+ * not depend on how a double prints. A PublicKey string is written as its decoded X.509 bytes,
+ * and a hexadecimal hash as its 32 raw bytes. A string that is not a canonical Base64 key or hash
+ * is written as its UTF-8 bytes under a different field tag, thus the encoding stays injective.
+ * Lengths are written in 7-bit groups, so the encoding of a TransactionFlow fits in two SHA-256
+ * blocks instead of the three of its former string. Every thread reuses its own buffer, so an
+ * encoding builds no intermediate strings.
+ */
+final class TransactionEncoder {
+  private static final byte TRANSACTION_TAG = 1;
+  private static final byte NORMAL_TRANSACTION_TAG = 2;
+  private static final byte FLOW_TAG = 3;
+  private static final byte SIGNED_DATA_TAG = 4;
+
+  private static final byte TEXT_FIELD = 0;
+  private static final byte KEY_FIELD = 1;
+  private static final byte HASH_FIELD = 2;
+
+  private static final int HASH_LENGTH = 32;
+  private static final int KEY_SLOTS = 4;
+  private static final int[] BASE64_VALUES = new int[128];
+  private static final ThreadLocal<TransactionEncoder> ENCODERS =
+          ThreadLocal.withInitial(TransactionEncoder::new);
+
+  static {
+    Arrays.fill(BASE64_VALUES, -1);
+    String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+    for (int i = 0; i < alphabet.length(); i++) {
+      BASE64_VALUES[alphabet.charAt(i)] = i;
+    }
+  }
+
+  private byte[] buffer = new byte[512];
+  private int position;
+  private final String[] recentKeys = new String[KEY_SLOTS];
+  private final byte[][] recentDecodedKeys = new byte[KEY_SLOTS][];
+  private int nextKeySlot;
+
+  private TransactionEncoder() {
+  }
+
+  /**
+   * Calculate the ID of a Transaction without a sender.
+   *
+   * @param recipient a Wallet's PublicKey string of the recipient
+   * @param units the Transaction value in units
+   * @param memo a memo string
+   * @param timeStamp the timeStamp of the Transaction
+   * @return a hexadecimal ID string
+   */
+  static String transactionID(String recipient, long units, String memo, long timeStamp) {
+    return ENCODERS.get().begin(TRANSACTION_TAG).putKey(recipient).putLong(units)
+            .putLong(timeStamp).putText(memo).hash();
+  }
+
+  /**
+   * Calculate the ID of a NormalTransaction.
+   *
+   * @param sender a Wallet's PublicKey string of the sender
+   * @param recipient a Wallet's PublicKey string of the recipient
+   * @param units the Transaction value in units
+   * @param memo a memo string
+   * @param timeStamp the timeStamp of the Transaction
+   * @return a hexadecimal ID string
+   */
+  static String normalTransactionID(String sender, String recipient, long units, String memo,
+                                    long timeStamp) {
+    return ENCODERS.get().begin(NORMAL_TRANSACTION_TAG).putKey(sender).putKey(recipient)
+            .putLong(units).putLong(timeStamp).putText(memo).hash();
+  }
+
+  /**
+   * Calculate the ID of a TransactionFlow.
+   *
+   * @param owner a Wallet's PublicKey string of the owner
+   * @param units the value in units
+   * @param transactionID the ID string of the parent Transaction
+   * @return a hexadecimal ID string
+   */
+  static String flowID(String owner, long units, String transactionID) {
+    return ENCODERS.get().begin(FLOW_TAG).putKey(owner).putLong(units)
+            .putHash(transactionID).hash();
+  }
+
+  /**
+   * Encode the data of a NormalTransaction that is signed by its sender.
+   *
+   * @param sender a Wallet's PublicKey string of the sender
+   * @param recipient a Wallet's PublicKey string of the recipient
+   * @param units the Transaction value in units
+   * @param memo a memo string
+   * @return a new byte array of the signed data
+   */
+  static byte[] signedData(String sender, String recipient, long units, String memo) {
+    TransactionEncoder encoder = ENCODERS.get().begin(SIGNED_DATA_TAG).putKey(sender)
+            .putKey(recipient).putLong(units).putText(memo);
+    return Arrays.copyOf(encoder.buffer, encoder.position);
+  }
+
+  /**
+   * Start a new encoding with a given tag.
+   *
+   * @param tag the tag of the kind of the encoding
+   * @return this TransactionEncoder
+   */
+  private TransactionEncoder begin(byte tag) {
+    position = 0;
+    buffer[position++] = tag;
+    return this;
+  }
+
+  /**
+   * Write a PublicKey string, as its decoded bytes if it is canonical Base64. The few keys of a
+   * Transaction are written several times, for its ID and the IDs of its outputs, thus the
+   * latest decoded keys are kept.
+   *
+   * @param key a given PublicKey string
+   * @return this TransactionEncoder
+   */
+  private TransactionEncoder putKey(String key) {
+    byte[] decoded;
+    int slot = 0;
+    while (slot < KEY_SLOTS && !key.equals(recentKeys[slot])) {
+      slot++;
+    }
+    if (slot < KEY_SLOTS) {
+      decoded = recentDecodedKeys[slot];
+    } else {
+      decoded = decodeBase64(key);
+      recentKeys[nextKeySlot] = key;
+      recentDecodedKeys[nextKeySlot] = decoded;
+      nextKeySlot = (nextKeySlot + 1) % KEY_SLOTS;
+    }
+    if (decoded == null) {
+      return putText(key);
+    }
+    ensureCapacity(5 + decoded.length);
+    buffer[position++] = KEY_FIELD;
+    putLength(decoded.length);
+    System.arraycopy(decoded, 0, buffer, position, decoded.length);
+    position += decoded.length;
+    return this;
+  }
+
+  /**
+   * Decode a canonical Base64 string, four characters at a time.
+   *
+   * @param text a given string
+   * @return a new byte array of the decoded bytes, or null if the string is not canonical Base64
+   */
+  private static byte[] decodeBase64(String text) {
+    int length = text.length();
+    if (length == 0 || length % 4 != 0) {
+      return null;
+    }
+    int padding = text.charAt(length - 1) != '=' ? 0 : text.charAt(length - 2) != '=' ? 1 : 2;
+    byte[] decoded = new byte[length / 4 * 3 - padding];
+    int position = 0;
+    for (int i = 0; i < length; i += 4) {
+      boolean isLast = i + 4 == length;
+      int bits = 0;
+      for (int j = 0; j < 4; j++) {
+        char c = text.charAt(i + j);
+        int digit = c < 128 ? BASE64_VALUES[c] : -1;
+        if (digit < 0) {
+          if (!isLast || c != '=' || j < 4 - padding) {
+            return null;
+          }
+          digit = 0;
+        }
+        bits = bits << 6 | digit;
+      }
+      int bytes = isLast ? 3 - padding : 3;
+      // non-canonical trailing bits would decode to the same bytes as another string
+      if (isLast && (bits & (0xFFFFFF >>> (8 * bytes))) != 0) {
+        return null;
+      }
+      for (int j = 0; j < bytes; j++) {
+        decoded[position++] = (byte) (bits >>> (16 - 8 * j));
+      }
+    }
+    return decoded;
+  }
+
+  /**
+   * Write a hexadecimal hash string, as its raw bytes if it is a lowercase SHA-256 hash.
+   *
+   * @param hash a given hash string
+   * @return this TransactionEncoder
+   */
+  private TransactionEncoder putHash(String hash) {
+    if (hash.length() != HASH_LENGTH * 2) {
+      return putText(hash);
+    }
+    ensureCapacity(1 + HASH_LENGTH);
+    int start = position;
+    buffer[position++] = HASH_FIELD;
+    for (int i = 0; i < HASH_LENGTH; i++) {
+      int high = hexValue(hash.charAt(2 * i));
+      int low = hexValue(hash.charAt(2 * i + 1));
+      if (high < 0 || low < 0) {
+        position = start;
+        return putText(hash);
+      }
+      buffer[position++] = (byte) (high << 4 | low);
+    }
+    return this;
+  }
+
+  /**
+   * Write a string as its length-prefixed UTF-8 bytes.
+   *
+   * @param text a given string
+   * @return this TransactionEncoder
+   */
+  private TransactionEncoder putText(String text) {
+    int length = text.length();
+    ensureCapacity(5 + length);
+    int start = position;
+    buffer[position++] = TEXT_FIELD;
+    putLength(length);
+    for (int i = 0; i < length; i++) {
+      char c = text.charAt(i);
+      if (c >= 0x80) {
+        // not ASCII, fall back to the UTF-8 encoder
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        position = start + 1;
+        ensureCapacity(4 + bytes.length);
+        putLength(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+        return this;
+      }
+      buffer[position++] = (byte) c;
+    }
+    return this;
+  }
+
+  /**
+   * Write a long value in big-endian order.
+   *
+   * @param value a long value
+   * @return this TransactionEncoder
+   */
+  private TransactionEncoder putLong(long value) {
+    ensureCapacity(8);
+    for (int shift = 56; shift >= 0; shift -= 8) {
+      buffer[position++] = (byte) (value >>> shift);
+    }
+    return this;
+  }
+
+  /**
+   * Write a non-negative length in 7-bit groups, the lowest group first, so a key shorter than
+   * 128 bytes takes a single length byte.
+   *
+   * @param length a non-negative integer, which takes at most 5 bytes
+   */
+  private void putLength(int length) {
+    while (length >= 0x80) {
+      buffer[position++] = (byte) (length & 0x7F | 0x80);
+      length >>>= 7;
+    }
+    buffer[position++] = (byte) length;
+  }
+
+  /**
+   * Hash the encoding written so far with SHA-256.
+   *
+   * @return a hexadecimal hash string
+   */
+  private String hash() {
+    return CryptoService.getDefault().sha256Hex(buffer, 0, position);
+  }
+
+  /**
+   * Grow the buffer, if it has less than a given number of bytes left.
+   *
+   * @param bytes the number of bytes to be written
+   */
+  private void ensureCapacity(int bytes) {
+    if (position + bytes > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+    }
+  }
+
+  /**
+   * Get the value of a lowercase hexadecimal digit.
+   *
+   * @param c a given character
+   * @return the value of the digit, or -1 if the character is not a lowercase hexadecimal digit
+   */
+  private static int hexValue(char c) {
+    if (c >= '0' && c <= '9') {
+      return c - '0';
+    }
+    return c >= 'a' && c <= 'f' ? c - 'a' + 10 : -1;
+  }
+}
@@ -2,16 +2,16 @@ package transaction;
 
 import java.io.Serializable;
 import java.util.Objects;
-import utils.BlockchainUtil;
 
 /**
  * This class represents a TransactionFlow, that contains an ID, owner, value and
- * its parent Transaction's ID.
+ * its parent Transaction's ID. The value is kept as a long of Transaction.UNITS_PER_COIN units,
+ * thus sums of values are exact, and it is only converted to a double for display.
  */
 public class TransactionFlow implements Serializable {
   private final String id;
   private final String owner;
-  private final double value;
+  private final long units;
   private final String transactionID;
 
   /**
@@ -22,20 +22,57 @@ public class TransactionFlow implements Serializable {
    * @param transactionID an ID string of the parent Transaction
    */
   public TransactionFlow(String owner, double value, String transactionID) {
+    this(null, owner, Transaction.toUnits(value), transactionID);
+  }
+
+  /**
+   * Construct a TransactionFlow with a known ID, or calculate its ID if it is not known.
+   *
+   * @param id the ID string of the TransactionFlow, or null to calculate it
+   * @param owner a Wallet's PublicKey string represents the owner address
+   * @param units the value in units
+   * @param transactionID an ID string of the parent Transaction
+   */
+  private TransactionFlow(String id, String owner, long units, String transactionID) {
     this.owner = owner;
-    this.value = value;
+    this.units = units;
     this.transactionID = transactionID;
-    this.id = calculateID();
+    this.id = id == null ? calculateID() : id;
   }
 
   /**
-   * Calculate the ID of this TransactionFlow.
+   * Create a TransactionFlow by the given owner, value in units and parent Transaction's ID.
+   *
+   * @param owner a Wallet's PublicKey string represents the owner address
+   * @param units the value in units
+   * @param transactionID an ID string of the parent Transaction
+   * @return a new TransactionFlow
+   */
+  public static TransactionFlow ofUnits(String owner, long units, String transactionID) {
+    return new TransactionFlow(null, owner, units, transactionID);
+  }
+
+  /**
+   * Restore a TransactionFlow kept by a UTXO store in another form, with its ID as it was kept.
+   *
+   * @param id the ID string of the TransactionFlow
+   * @param owner a Wallet's PublicKey string represents the owner address
+   * @param units the value in units
+   * @param transactionID an ID string of the parent Transaction
+   * @return a TransactionFlow equal to the one that was kept
+   */
+  public static TransactionFlow restore(String id, String owner, long units,
+                                        String transactionID) {
+    return new TransactionFlow(id, owner, units, transactionID);
+  }
+
+  /**
+   * Calculate the ID of this TransactionFlow by hashing its canonical binary encoding.
    *
    * @return an ID string
    */
   private String calculateID() {
-    String data = owner + value + transactionID;
-    return BlockchainUtil.applySha256(data);
+    return TransactionEncoder.flowID(owner, units, transactionID);
   }
 
   /**
@@ -54,7 +91,34 @@ public class TransactionFlow implements Serializable {
    * @return a double value
    */
   public double getValue() {
-    return value;
+    return Transaction.toCoins(units);
+  }
+
+  /**
+   * Get the value of this TransactionFlow in units.
+   *
+   * @return a long value of units
+   */
+  public long getUnits() {
+    return units;
+  }
+
+  /**
+   * Get the owner address of this TransactionFlow.
+   *
+   * @return a Wallet's PublicKey string
+   */
+  public String getOwner() {
+    return owner;
+  }
+
+  /**
+   * Get the ID of the parent Transaction of this TransactionFlow.
+   *
+   * @return an ID string
+   */
+  public String getTransactionID() {
+    return transactionID;
   }
 
   /**
@@ -75,7 +139,7 @@ public class TransactionFlow implements Serializable {
   public String toString() {
     return String.format("ID: %s%n", id)
             + String.format("Owner: %s%n", owner)
-            + String.format("Value: %.2f%n", value)
+            + String.format("Value: %.2f%n", getValue())
             + String.format("TransactionID: %s%n", transactionID);
   }
 
@@ -90,7 +154,7 @@ public class TransactionFlow implements Serializable {
     if (this == o) return true;
     if (o == null || getClass() != o.getClass()) return false;
     TransactionFlow that = (TransactionFlow) o;
-    return Math.abs(this.value - that.value) < 0.001
+    return this.units == that.units
             && this.id.equals(that.id)
             && this.owner.equals(that.owner)
             && this.transactionID.equals(that.transactionID);
@@ -103,6 +167,6 @@ public class TransactionFlow implements Serializable {
    */
   @Override
   public int hashCode() {
-    return Objects.hash(id, owner, value, transactionID);
+    return Objects.hash(id, owner, units, transactionID);
   }
 }
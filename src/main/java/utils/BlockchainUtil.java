@@ -1,19 +1,12 @@
 package utils;
 
-import com.google.common.hash.Hashing;
-import java.nio.charset.StandardCharsets;
-import java.security.InvalidKeyException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import java.nio.ByteBuffer;
 import java.security.Key;
-import java.security.KeyFactory;
-import java.security.NoSuchAlgorithmException;
-import java.security.NoSuchProviderException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
-import java.security.Signature;
-import java.security.SignatureException;
-import java.security.spec.InvalidKeySpecException;
-import java.security.spec.X509EncodedKeySpec;
-import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -24,6 +17,14 @@ import transaction.Transaction;
  * This is a class contains static util methods in blockchain creation and operation.
  */
 public class BlockchainUtil {
+  // the number of decoded PublicKeys kept, the least recently used ones are evicted first
+  public static final int PUBLIC_KEY_CACHE_SIZE = 10_000;
+  // the number of successful signature verifications kept, a random one is evicted when full
+  public static final int SIGNATURE_CACHE_SIZE = 50_000;
+
+  private static final Cache<String, PublicKey> PUBLIC_KEY_CACHE = CacheBuilder.newBuilder()
+          .maximumSize(PUBLIC_KEY_CACHE_SIZE).recordStats().build();
+  private static final SignatureCache SIGNATURE_CACHE = new SignatureCache(SIGNATURE_CACHE_SIZE);
 
   /**
    * Convert a Key object to a hexadecimal string.
@@ -37,21 +38,31 @@ public class BlockchainUtil {
 
   /**
    * Convert a hexadecimal string back to a PublicKey, generated by Elliptic-curve
-   * cryptographic algorithm.
+   * cryptographic algorithm. The same senders sign many Transactions, thus the decoded
+   * PublicKeys are kept in a bounded concurrent LRU cache, and only a cache miss parses the key.
    *
    * @param keyStr a hexadecimal string represents a PublicKey
    * @return a converted PublicKey object
    */
   public static PublicKey stringToPublicKey(String keyStr) {
-    PublicKey resultKey = null;
-    byte[] byteKey = Base64.getDecoder().decode(keyStr);
-    try {
-      KeyFactory factory = KeyFactory.getInstance("ECDSA", "BC");
-      resultKey = factory.generatePublic(new X509EncodedKeySpec(byteKey));
-    } catch (NoSuchAlgorithmException | InvalidKeySpecException | NoSuchProviderException e) {
-      e.printStackTrace();
+    PublicKey publicKey = PUBLIC_KEY_CACHE.getIfPresent(keyStr);
+    if (publicKey == null) {
+      publicKey = CryptoService.getDefault().decodePublicKey(keyStr);
+      // a key string that fails to decode is not cached, the cache does not hold null
+      if (publicKey != null) {
+        PUBLIC_KEY_CACHE.put(keyStr, publicKey);
+      }
     }
-    return resultKey;
+    return publicKey;
+  }
+
+  /**
+   * Get the hit and miss statistics of the decoded PublicKey cache.
+   *
+   * @return a CacheStats snapshot
+   */
+  public static CacheStats getPublicKeyCacheStats() {
+    return PUBLIC_KEY_CACHE.stats();
   }
 
 
@@ -76,7 +87,7 @@ public class BlockchainUtil {
    * @return a hexadecimal string generated by sha256 hashing function
    */
   public static String applySha256(String data) {
-    return Hashing.sha256().hashString(data, StandardCharsets.UTF_8).toString();
+    return CryptoService.getDefault().sha256Hex(data);
   }
 
   /**
@@ -88,17 +99,19 @@ public class BlockchainUtil {
    * @return a byte array represents the digital signature
    */
   public static byte[] encryptByECDSA(PrivateKey privateKey, String data) {
-    byte[] signature = new byte[0];
-    try {
-      Signature digitalSig = Signature.getInstance("ECDSA", "BC");
-      digitalSig.initSign(privateKey);
-      digitalSig.update(data.getBytes());
-      signature = digitalSig.sign();
-    } catch (NoSuchAlgorithmException | SignatureException | NoSuchProviderException
-            | InvalidKeyException e) {
-      e.printStackTrace();
-    }
-    return signature;
+    return CryptoService.getDefault().sign(privateKey, data);
+  }
+
+  /**
+   * Generate a digital signature from a given data byte array combined with a specific
+   * PrivateKey, by using Elliptic-curve cryptographic algorithm.
+   *
+   * @param privateKey a given PrivateKey object
+   * @param data a given data byte array
+   * @return a byte array represents the digital signature
+   */
+  public static byte[] encryptByECDSA(PrivateKey privateKey, byte[] data) {
+    return CryptoService.getDefault().sign(privateKey, data);
   }
 
   /**
@@ -111,16 +124,59 @@ public class BlockchainUtil {
    * @return a boolean value, which is true if the signature is valid
    */
   public static boolean verifyByECDSA(PublicKey publicKey, byte[] signature, String data) {
-    try {
-      Signature digitalSig = Signature.getInstance("ECDSA", "BC");
-      digitalSig.initVerify(publicKey);
-      digitalSig.update(data.getBytes());
-      return digitalSig.verify(signature);
-    } catch (NoSuchAlgorithmException | SignatureException | NoSuchProviderException
-            | InvalidKeyException e) {
-      e.printStackTrace();
+    return CryptoService.getDefault().verify(publicKey, signature, data);
+  }
+
+  /**
+   * Verify a given digital signature by the given PublicKey and the data byte array, by using
+   * Elliptic-curve cryptographic algorithm.
+   *
+   * @param publicKey a given PublicKey object
+   * @param signature a given byte array represents the digital signature
+   * @param data a given data byte array
+   * @return a boolean value, which is true if the signature is valid
+   */
+  public static boolean verifyByECDSA(PublicKey publicKey, byte[] signature, byte[] data) {
+    return CryptoService.getDefault().verify(publicKey, signature, data);
+  }
+
+  /**
+   * Verify the signature of a Transaction, skipping the verification if the same signature of
+   * the same Transaction data was verified successfully before. The cache entry is the
+   * Transaction ID with the hash of the signature and the signed data. The signed data is part
+   * of the entry because the ID carried by a received Transaction is not recalculated, thus a
+   * forged Transaction reusing an ID and a signature must not hit the entry of the original.
+   *
+   * @param transactionID the ID of the Transaction
+   * @param sender the PublicKey string of the sender
+   * @param signature a given byte array represents the digital signature
+   * @param data the signed data byte array, which includes the sender
+   * @return a boolean value, which is true if the signature is valid
+   */
+  public static boolean verifyTransactionSignature(String transactionID, String sender,
+                                                   byte[] signature, byte[] data) {
+    // the signature length keeps the boundary between the signature and the data unambiguous
+    byte[] signedEntry = ByteBuffer.allocate(4 + signature.length + data.length)
+            .putInt(signature.length).put(signature).put(data).array();
+    String entry = transactionID + ":"
+            + CryptoService.getDefault().sha256Hex(signedEntry, 0, signedEntry.length);
+    if (SIGNATURE_CACHE.contains(entry)) {
+      return true;
+    }
+    boolean isValid = verifyByECDSA(stringToPublicKey(sender), signature, data);
+    if (isValid) {
+      SIGNATURE_CACHE.add(entry);
     }
-    return false;
+    return isValid;
+  }
+
+  /**
+   * Get the cache of successful Transaction signature verifications.
+   *
+   * @return the SignatureCache
+   */
+  public static SignatureCache getSignatureCache() {
+    return SIGNATURE_CACHE;
   }
 
   /**
@@ -130,33 +186,9 @@ public class BlockchainUtil {
    * @return a string represents the hash code of the resulting merkle root
    */
   public static String calculateMerkleRoot(List<Transaction> transactions) {
-    if (transactions.isEmpty()) {
-      return "";
-    } else {
-      List<String> thisTreeLayer =
-              transactions.stream().map(Transaction::getID).collect(Collectors.toList());
-      List<String> nextTreeLayer;
-
-      while (thisTreeLayer.size() > 1) {
-        nextTreeLayer = new ArrayList<>();
-
-        for (int i = 0; i < thisTreeLayer.size(); i += 2) {
-          // if thisTreeLayer has odd elements and i is the last index,
-          // calculate the hash in the next layer by using two i-th elements.
-          // Otherwise calculate the hash in the next layer by using the i-th element
-          // and the (i+1)-th element
-          if (i == thisTreeLayer.size() - 1) {
-            nextTreeLayer.add(BlockchainUtil.applySha256(thisTreeLayer.get(i)
-                    + thisTreeLayer.get(i)));
-          } else {
-            nextTreeLayer.add(BlockchainUtil.applySha256(thisTreeLayer.get(i)
-                    + thisTreeLayer.get(i + 1)));
-          }
-          thisTreeLayer = nextTreeLayer;
-        }
-      }
-      return thisTreeLayer.get(0);
-    }
+    return new MerkleTree(
+            transactions.stream().map(Transaction::getID).collect(Collectors.toList()))
+            .getRootHex();
   }
 
 }
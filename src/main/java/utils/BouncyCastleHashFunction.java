@@ -0,0 +1,60 @@
+package utils;
+
+import java.nio.ByteBuffer;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+
+/**
+ * This class represents a HashFunction backed by the pure Java SHA-256 digest of BouncyCastle,
+ * which is used without the JCA provider lookup.
+ */
+public class BouncyCastleHashFunction implements HashFunction {
+  private final SHA256Digest digest;
+
+  /**
+   * Construct a BouncyCastleHashFunction.
+   */
+  public BouncyCastleHashFunction() {
+    this(new SHA256Digest());
+  }
+
+  /**
+   * Construct a BouncyCastleHashFunction with a given SHA256Digest.
+   *
+   * @param digest a given SHA256Digest
+   */
+  private BouncyCastleHashFunction(SHA256Digest digest) {
+    this.digest = digest;
+  }
+
+  @Override
+  public void update(byte[] data, int offset, int length) {
+    digest.update(data, offset, length);
+  }
+
+  @Override
+  public void update(ByteBuffer data) {
+    if (data.hasArray()) {
+      digest.update(data.array(), data.arrayOffset() + data.position(), data.remaining());
+      data.position(data.limit());
+    } else {
+      while (data.hasRemaining()) {
+        digest.update(data.get());
+      }
+    }
+  }
+
+  @Override
+  public void digest(byte[] output, int offset) {
+    digest.doFinal(output, offset);
+  }
+
+  @Override
+  public HashFunction copy() {
+    return new BouncyCastleHashFunction(new SHA256Digest(digest));
+  }
+
+  @Override
+  public Backend getBackend() {
+    return Backend.BOUNCY_CASTLE;
+  }
+}
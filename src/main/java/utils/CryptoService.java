@@ -0,0 +1,256 @@
+package utils;
+
+import com.google.common.io.BaseEncoding;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.KeyFactory;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import utils.CryptoStatistics.Operation;
+
+/**
+ * This class represents the cryptographic service behind the static methods of BlockchainUtil.
+ * Looking up a Signature or a KeyFactory of the "BC" provider takes a large part of a
+ * verification, thus every thread keeps its own Signature, KeyFactory and MessageDigest
+ * instances, created on the first use and reinitialized for every call. None of these instances
+ * is thread-safe, and none of them is shared between threads.
+ * The SHA-256 backend of all hashing, including the mining, merkle trees and IDs, is selected
+ * once when the CryptoService is created, see HashFunction.selectBackend.
+ * Every call is timed in the CryptoStatistics of this CryptoService.
+ */
+public class CryptoService {
+  public static final String SIGNATURE_ALGORITHM = "ECDSA";
+  public static final String PROVIDER = "BC";
+
+  private static final CryptoService DEFAULT = new CryptoService();
+
+  private final ThreadLocal<Signature> signatures = new ThreadLocal<>();
+  private final ThreadLocal<KeyFactory> keyFactories = new ThreadLocal<>();
+  private final ThreadLocal<HashFunction> sha256Functions = new ThreadLocal<>();
+  private final CryptoStatistics statistics = new CryptoStatistics();
+  private final HashFunction.Backend hashBackend;
+
+  /**
+   * Construct a CryptoService, whose SHA-256 backend is selected from the node configuration.
+   *
+   * @throws IllegalArgumentException if the configured hash backend is invalid
+   */
+  public CryptoService() throws IllegalArgumentException {
+    this(HashFunction.selectBackend());
+  }
+
+  /**
+   * Construct a CryptoService with a given SHA-256 backend.
+   *
+   * @param hashBackend a given HashFunction.Backend
+   */
+  public CryptoService(HashFunction.Backend hashBackend) {
+    this.hashBackend = hashBackend;
+  }
+
+  /**
+   * Get the CryptoService used by BlockchainUtil.
+   *
+   * @return the default CryptoService
+   */
+  public static CryptoService getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * Sign a given data string with a given PrivateKey.
+   *
+   * @param privateKey a given PrivateKey object
+   * @param data a given data string
+   * @return a byte array represents the digital signature, or an empty array if the signing fails
+   */
+  public byte[] sign(PrivateKey privateKey, String data) {
+    return sign(privateKey, data.getBytes());
+  }
+
+  /**
+   * Sign a given data byte array with a given PrivateKey.
+   *
+   * @param privateKey a given PrivateKey object
+   * @param data a given data byte array
+   * @return a byte array represents the digital signature, or an empty array if the signing fails
+   */
+  public byte[] sign(PrivateKey privateKey, byte[] data) {
+    long start = System.nanoTime();
+    byte[] signature = new byte[0];
+    try {
+      Signature digitalSig = getSignature();
+      digitalSig.initSign(privateKey);
+      digitalSig.update(data);
+      signature = digitalSig.sign();
+    } catch (NoSuchAlgorithmException | SignatureException | NoSuchProviderException
+            | InvalidKeyException e) {
+      e.printStackTrace();
+    }
+    statistics.record(Operation.SIGN, System.nanoTime() - start);
+    return signature;
+  }
+
+  /**
+   * Verify a given digital signature of a data string with a given PublicKey.
+   *
+   * @param publicKey a given PublicKey object
+   * @param signature a given byte array represents the digital signature
+   * @param data a given data string
+   * @return a boolean value, which is true if the signature is valid
+   */
+  public boolean verify(PublicKey publicKey, byte[] signature, String data) {
+    return verify(publicKey, signature, data.getBytes());
+  }
+
+  /**
+   * Verify a given digital signature of a data byte array with a given PublicKey.
+   *
+   * @param publicKey a given PublicKey object
+   * @param signature a given byte array represents the digital signature
+   * @param data a given data byte array
+   * @return a boolean value, which is true if the signature is valid
+   */
+  public boolean verify(PublicKey publicKey, byte[] signature, byte[] data) {
+    long start = System.nanoTime();
+    boolean isValid = false;
+    try {
+      Signature digitalSig = getSignature();
+      digitalSig.initVerify(publicKey);
+      digitalSig.update(data);
+      isValid = digitalSig.verify(signature);
+    } catch (NoSuchAlgorithmException | SignatureException | NoSuchProviderException
+            | InvalidKeyException e) {
+      e.printStackTrace();
+    }
+    statistics.record(Operation.VERIFY, System.nanoTime() - start);
+    return isValid;
+  }
+
+  /**
+   * Decode a Base64 string of an X.509 encoded key back to a PublicKey.
+   *
+   * @param keyStr a Base64 string represents a PublicKey
+   * @return a PublicKey object, or null if the decoding fails
+   */
+  public PublicKey decodePublicKey(String keyStr) {
+    long start = System.nanoTime();
+    PublicKey resultKey = null;
+    byte[] byteKey = Base64.getDecoder().decode(keyStr);
+    try {
+      resultKey = getKeyFactory().generatePublic(new X509EncodedKeySpec(byteKey));
+    } catch (NoSuchAlgorithmException | InvalidKeySpecException | NoSuchProviderException e) {
+      e.printStackTrace();
+    }
+    statistics.record(Operation.DECODE_KEY, System.nanoTime() - start);
+    return resultKey;
+  }
+
+  /**
+   * Hash a given data string with SHA-256.
+   *
+   * @param data a given data string, encoded in UTF-8
+   * @return a lowercase hexadecimal string of the digest
+   */
+  public String sha256Hex(String data) {
+    byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+    return sha256Hex(bytes, 0, bytes.length);
+  }
+
+  /**
+   * Hash a given range of a byte array with SHA-256.
+   *
+   * @param data a given data byte array
+   * @param offset the index of the first byte to hash
+   * @param length the number of bytes to hash
+   * @return a lowercase hexadecimal string of the digest
+   */
+  public String sha256Hex(byte[] data, int offset, int length) {
+    long start = System.nanoTime();
+    HashFunction sha256 = getSha256Function();
+    sha256.update(data, offset, length);
+    String hash = BaseEncoding.base16().lowerCase().encode(sha256.digest());
+    statistics.record(Operation.HASH, System.nanoTime() - start);
+    return hash;
+  }
+
+  /**
+   * Get the SHA-256 HashFunction of the current thread, created on the first use.
+   *
+   * @return a HashFunction of the selected backend
+   */
+  private HashFunction getSha256Function() {
+    HashFunction sha256 = sha256Functions.get();
+    if (sha256 == null) {
+      sha256 = newHashFunction();
+      sha256Functions.set(sha256);
+    }
+    return sha256;
+  }
+
+  /**
+   * Create a new SHA-256 HashFunction of the backend selected for this CryptoService.
+   *
+   * @return a new HashFunction
+   */
+  public HashFunction newHashFunction() {
+    return HashFunction.create(hashBackend);
+  }
+
+  /**
+   * Get the SHA-256 backend selected for this CryptoService.
+   *
+   * @return a HashFunction.Backend value
+   */
+  public HashFunction.Backend getHashBackend() {
+    return hashBackend;
+  }
+
+  /**
+   * Get the timing counters of this CryptoService.
+   *
+   * @return a CryptoStatistics object
+   */
+  public CryptoStatistics getStatistics() {
+    return statistics;
+  }
+
+  /**
+   * Get the Signature of the calling thread, creating it on the first use.
+   *
+   * @return a Signature object
+   * @throws NoSuchAlgorithmException if the algorithm is not available
+   * @throws NoSuchProviderException if the provider is not registered
+   */
+  private Signature getSignature() throws NoSuchAlgorithmException, NoSuchProviderException {
+    Signature signature = signatures.get();
+    if (signature == null) {
+      signature = Signature.getInstance(SIGNATURE_ALGORITHM, PROVIDER);
+      signatures.set(signature);
+    }
+    return signature;
+  }
+
+  /**
+   * Get the KeyFactory of the calling thread, creating it on the first use.
+   *
+   * @return a KeyFactory object
+   * @throws NoSuchAlgorithmException if the algorithm is not available
+   * @throws NoSuchProviderException if the provider is not registered
+   */
+  private KeyFactory getKeyFactory() throws NoSuchAlgorithmException, NoSuchProviderException {
+    KeyFactory keyFactory = keyFactories.get();
+    if (keyFactory == null) {
+      keyFactory = KeyFactory.getInstance(SIGNATURE_ALGORITHM, PROVIDER);
+      keyFactories.set(keyFactory);
+    }
+    return keyFactory;
+  }
+}
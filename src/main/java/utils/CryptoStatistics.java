@@ -0,0 +1,86 @@
+package utils;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class represents the timing counters of a CryptoService, containing the number of calls
+ * and the total time of each Operation. It is updated by every thread that signs, verifies,
+ * decodes keys or hashes, thus the counters are LongAdders instead of synchronized fields.
+ */
+public class CryptoStatistics {
+  /**
+   * An enum type represents the timed operations of a CryptoService.
+   */
+  public enum Operation { SIGN, VERIFY, DECODE_KEY, HASH
+  }
+
+  private final LongAdder[] counts = new LongAdder[Operation.values().length];
+  private final LongAdder[] nanos = new LongAdder[Operation.values().length];
+
+  /**
+   * Construct a CryptoStatistics with all counters at zero.
+   */
+  public CryptoStatistics() {
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = new LongAdder();
+      nanos[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Record a finished call of a given Operation.
+   *
+   * @param operation a given Operation
+   * @param elapsedNanos the time spent on the call in nanoseconds
+   */
+  public void record(Operation operation, long elapsedNanos) {
+    counts[operation.ordinal()].increment();
+    nanos[operation.ordinal()].add(elapsedNanos);
+  }
+
+  /**
+   * Get the number of calls of a given Operation.
+   *
+   * @param operation a given Operation
+   * @return a long value of calls
+   */
+  public long getCount(Operation operation) {
+    return counts[operation.ordinal()].sum();
+  }
+
+  /**
+   * Get the average time of a call of a given Operation.
+   *
+   * @param operation a given Operation
+   * @return a double value in microseconds
+   */
+  public double getAverageMicros(Operation operation) {
+    long count = getCount(operation);
+    return count == 0 ? 0 : nanos[operation.ordinal()].sum() / 1e3 / count;
+  }
+
+  /**
+   * Reset all counters to zero.
+   */
+  public void reset() {
+    for (int i = 0; i < counts.length; i++) {
+      counts[i].reset();
+      nanos[i].reset();
+    }
+  }
+
+  /**
+   * Get the string representation of this CryptoStatistics.
+   *
+   * @return a formatted string
+   */
+  @Override
+  public String toString() {
+    StringBuilder text = new StringBuilder();
+    for (Operation operation : Operation.values()) {
+      text.append(String.format("%s: %d calls, %.2f us average%n", operation,
+              getCount(operation), getAverageMicros(operation)));
+    }
+    return text.toString();
+  }
+}
@@ -0,0 +1,75 @@
+package utils;
+
+import com.google.common.hash.Hashing;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * This class represents a HashFunction backed by the SHA-256 of Guava, as BlockchainUtil used
+ * to hash. A Guava Hasher could not be copied, thus the bytes fed so far are buffered and hashed
+ * at once by the digest.
+ */
+public class GuavaHashFunction implements HashFunction {
+  private byte[] buffer;
+  private int length;
+
+  /**
+   * Construct a GuavaHashFunction.
+   */
+  public GuavaHashFunction() {
+    this(new byte[256], 0);
+  }
+
+  /**
+   * Construct a GuavaHashFunction with the given buffered bytes.
+   *
+   * @param buffer a given buffer
+   * @param length the number of bytes in the buffer
+   */
+  private GuavaHashFunction(byte[] buffer, int length) {
+    this.buffer = buffer;
+    this.length = length;
+  }
+
+  @Override
+  public void update(byte[] data, int offset, int length) {
+    ensureCapacity(length);
+    System.arraycopy(data, offset, buffer, this.length, length);
+    this.length += length;
+  }
+
+  @Override
+  public void update(ByteBuffer data) {
+    int remaining = data.remaining();
+    ensureCapacity(remaining);
+    data.get(buffer, length, remaining);
+    length += remaining;
+  }
+
+  @Override
+  public void digest(byte[] output, int offset) {
+    Hashing.sha256().hashBytes(buffer, 0, length).writeBytesTo(output, offset, DIGEST_LENGTH);
+    length = 0;
+  }
+
+  @Override
+  public HashFunction copy() {
+    return new GuavaHashFunction(Arrays.copyOf(buffer, buffer.length), length);
+  }
+
+  @Override
+  public Backend getBackend() {
+    return Backend.GUAVA;
+  }
+
+  /**
+   * Grow the buffer, if it has less than a given number of bytes left.
+   *
+   * @param bytes the number of bytes to be buffered
+   */
+  private void ensureCapacity(int bytes) {
+    if (length + bytes > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + bytes));
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This interface represents an incremental SHA-256 hash function, which takes raw bytes and
+ * produces raw 32-byte digests. Different backends are backed by different implementations of
+ * SHA-256, and the fastest one on the host is selected once at startup, unless it is given by the
+ * node configuration. A HashFunction is not thread-safe, each thread should use its own instance.
+ */
+public interface HashFunction {
+  /**
+   * An enum type represents the available HashFunction implementations.
+   */
+  enum Backend { JDK, GUAVA, BOUNCY_CASTLE
+  }
+
+  String BACKEND_PROPERTY = "hash.backend";
+  int DIGEST_LENGTH = 32;
+
+  /**
+   * Feed a given range of a byte array into this HashFunction.
+   *
+   * @param data a given data byte array
+   * @param offset the index of the first byte
+   * @param length the number of bytes
+   */
+  void update(byte[] data, int offset, int length);
+
+  /**
+   * Feed the remaining bytes of a given ByteBuffer into this HashFunction. The position of the
+   * ByteBuffer is moved to its limit.
+   *
+   * @param data a given ByteBuffer
+   */
+  void update(ByteBuffer data);
+
+  /**
+   * Complete the hash of all bytes fed so far, write the digest into a given byte array, and
+   * reset this HashFunction.
+   *
+   * @param output a byte array with at least DIGEST_LENGTH bytes from the given offset
+   * @param offset the index of the first digest byte in the output
+   */
+  void digest(byte[] output, int offset);
+
+  /**
+   * Complete the hash of all bytes fed so far and reset this HashFunction.
+   *
+   * @return a new byte array of the digest
+   */
+  default byte[] digest() {
+    byte[] output = new byte[DIGEST_LENGTH];
+    digest(output, 0);
+    return output;
+  }
+
+  /**
+   * Get a copy of this HashFunction with the same bytes fed so far, such as the midstate of a
+   * Block header prefix.
+   *
+   * @return a new HashFunction
+   */
+  HashFunction copy();
+
+  /**
+   * Get the backend of this HashFunction.
+   *
+   * @return a Backend value
+   */
+  Backend getBackend();
+
+  /**
+   * Create a HashFunction of a given backend.
+   *
+   * @param backend a given Backend
+   * @return a new HashFunction
+   */
+  static HashFunction create(Backend backend) {
+    switch (backend) {
+      case GUAVA:
+        return new GuavaHashFunction();
+      case BOUNCY_CASTLE:
+        return new BouncyCastleHashFunction();
+      case JDK:
+      default:
+        return new JdkHashFunction();
+    }
+  }
+
+  /**
+   * Select the backend from the node configuration, which is given by the system property
+   * "hash.backend" (one of the Backend names, or "auto"). By default, every backend hashes
+   * Block-header-sized inputs for a short while and the fastest one is selected.
+   *
+   * @return the selected Backend
+   * @throws IllegalArgumentException if the configured backend is invalid
+   */
+  static Backend selectBackend() throws IllegalArgumentException {
+    String configured = System.getProperty(BACKEND_PROPERTY, "auto").toUpperCase();
+    if (!configured.equals("AUTO")) {
+      return Backend.valueOf(configured);
+    }
+    Backend fastest = Backend.JDK;
+    double fastestNanos = Double.MAX_VALUE;
+    // two passes, so the backends measured first are not slowed by the JIT warm-up
+    for (int pass = 0; pass < 2; pass++) {
+      for (Backend backend : Backend.values()) {
+        double nanos = measureNanosPerHash(create(backend), 160, 2_000);
+        if (nanos < fastestNanos) {
+          fastest = backend;
+          fastestNanos = nanos;
+        }
+      }
+    }
+    return fastest;
+  }
+
+  /**
+   * Measure the time of hashing inputs of a given size with a given HashFunction. The best of
+   * three runs is kept, the first one warms up the code.
+   *
+   * @param hashFunction a given HashFunction
+   * @param inputLength the number of bytes of each input
+   * @param hashes the number of hashes of each run
+   * @return the time of one hash, as number of nanoseconds
+   */
+  static double measureNanosPerHash(HashFunction hashFunction, int inputLength, int hashes) {
+    byte[] input = new byte[inputLength];
+    byte[] output = new byte[DIGEST_LENGTH];
+    long bestNanos = Long.MAX_VALUE;
+    for (int run = 0; run < 3; run++) {
+      long start = System.nanoTime();
+      for (int i = 0; i < hashes; i++) {
+        input[0] = output[0]; // chain the hashes, so none of them could be skipped
+        hashFunction.update(input, 0, inputLength);
+        hashFunction.digest(output, 0);
+      }
+      bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+    }
+    return (double) bestNanos / hashes;
+  }
+}
@@ -0,0 +1,70 @@
+package utils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import transaction.TransactionFlow;
+
+/**
+ * This class represents a UTXOStore backed by a HashMap from UTXO ID strings to TransactionFlows.
+ */
+public class HashMapUTXOStore implements UTXOStore {
+  private final Map<String, TransactionFlow> utxoMap;
+
+  /**
+   * Construct an empty HashMapUTXOStore.
+   */
+  public HashMapUTXOStore() {
+    this(new HashMap<>());
+  }
+
+  /**
+   * Construct a HashMapUTXOStore with a given map.
+   *
+   * @param utxoMap a given map from UTXO IDs to TransactionFlows
+   */
+  private HashMapUTXOStore(Map<String, TransactionFlow> utxoMap) {
+    this.utxoMap = utxoMap;
+  }
+
+  @Override
+  public TransactionFlow get(String ID) {
+    return utxoMap.get(ID);
+  }
+
+  @Override
+  public boolean containsKey(String ID) {
+    return utxoMap.containsKey(ID);
+  }
+
+  @Override
+  public TransactionFlow put(String ID, TransactionFlow transactionFlow) {
+    return utxoMap.put(ID, transactionFlow);
+  }
+
+  @Override
+  public TransactionFlow remove(String ID) {
+    return utxoMap.remove(ID);
+  }
+
+  @Override
+  public int size() {
+    return utxoMap.size();
+  }
+
+  @Override
+  public UTXOStore copy() {
+    // TransactionFlow is immutable, thus the copy could share them
+    return new HashMapUTXOStore(new HashMap<>(utxoMap));
+  }
+
+  @Override
+  public Map<String, TransactionFlow> asMap() {
+    return Collections.unmodifiableMap(utxoMap);
+  }
+
+  @Override
+  public StoreType getType() {
+    return StoreType.HASH_MAP;
+  }
+}
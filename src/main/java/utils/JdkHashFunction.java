@@ -0,0 +1,69 @@
+package utils;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * This class represents a HashFunction backed by the SHA-256 MessageDigest of the JDK, whose
+ * compression function is replaced by the SHA extensions of the CPU when the JVM supports them.
+ */
+public class JdkHashFunction implements HashFunction {
+  private final MessageDigest digest;
+
+  /**
+   * Construct a JdkHashFunction.
+   *
+   * @throws IllegalStateException if the SHA-256 algorithm is not available
+   */
+  public JdkHashFunction() throws IllegalStateException {
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available!", e);
+    }
+  }
+
+  /**
+   * Construct a JdkHashFunction with a given MessageDigest.
+   *
+   * @param digest a given SHA-256 MessageDigest
+   */
+  private JdkHashFunction(MessageDigest digest) {
+    this.digest = digest;
+  }
+
+  @Override
+  public void update(byte[] data, int offset, int length) {
+    digest.update(data, offset, length);
+  }
+
+  @Override
+  public void update(ByteBuffer data) {
+    digest.update(data);
+  }
+
+  @Override
+  public void digest(byte[] output, int offset) {
+    try {
+      digest.digest(output, offset, DIGEST_LENGTH);
+    } catch (DigestException e) {
+      throw new IllegalStateException("SHA-256 digest is not writable!", e);
+    }
+  }
+
+  @Override
+  public HashFunction copy() {
+    try {
+      return new JdkHashFunction((MessageDigest) digest.clone());
+    } catch (CloneNotSupportedException e) {
+      throw new IllegalStateException("SHA-256 midstate is not reusable!", e);
+    }
+  }
+
+  @Override
+  public Backend getBackend() {
+    return Backend.JDK;
+  }
+}
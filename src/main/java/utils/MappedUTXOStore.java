@@ -0,0 +1,863 @@
+package utils;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import transaction.TransactionFlow;
+
+/**
+ * This class represents a UTXOStore kept off the heap, in memory-mapped files of a directory.
+ * The table file is a hash table of fixed-width slots, mapped in segments through
+ * FileChannel.map, and probed linearly from the first long of the UTXO ID like the
+ * OpenAddressingUTXOStore. A removed slot is marked deleted instead of shifting the following
+ * slots, thus a slot never moves until the table is rehashed, and the slots of each owner are
+ * linked into a list whose head, count and balance are kept in the owner file. The owner names
+ * and the parent IDs that are not hashes are appended to the string file.
+ * The heap only keeps the owner names, the OS page cache keeps the hot slots, and reopening a
+ * directory maps the files again without reading the UTXOs. The files are not journaled, thus a
+ * store should be flushed before its directory is reopened.
+ * The UTXO IDs must be 64-character lowercase hexadecimal hashes, which all Transaction outputs
+ * are.
+ */
+public class MappedUTXOStore implements UTXOStore {
+  private static final String TABLE_FILE = "utxos.table";
+  private static final String OWNER_FILE = "owners.table";
+  private static final String STRING_FILE = "strings.log";
+  private static final int MAGIC = 0x5554584F; // "UTXO"
+  private static final int VERSION = 3; // 3: the header keeps the sum of all UTXOs
+  private static final int INITIAL_CAPACITY = 16;
+  private static final int SEGMENT_BITS = 16; // 2^16 slots for each mapped segment
+  private static final int NONE = -1; // the slot index of the end of an owner list
+
+  // the header of the table file
+  private static final int HEADER_SIZE = 64;
+  private static final int MAGIC_OFFSET = 0;
+  private static final int VERSION_OFFSET = 4;
+  private static final int CAPACITY_OFFSET = 8;
+  private static final int SIZE_OFFSET = 12;
+  private static final int DELETED_OFFSET = 16;
+  private static final int OWNER_COUNT_OFFSET = 20;
+  private static final int SUM_OFFSET = 24; // the sum of all UTXOs in units
+
+  // the fields of a slot
+  private static final int SLOT_SIZE = 88;
+  private static final int STATE = 0; // EMPTY, USED or DELETED
+  private static final int PARENT_KIND = 1; // HASH_PARENT or STRING_PARENT
+  private static final int OWNER = 4; // the index of the owner
+  private static final int VALUE = 8;
+  private static final int PREVIOUS_OWNED = 16; // the previous slot of the owner list
+  private static final int NEXT_OWNED = 20; // the next slot of the owner list
+  private static final int KEY = 24; // the four longs of the UTXO ID
+  private static final int PARENT = 56; // the four longs of the parent, or its string offset
+  private static final byte EMPTY = 0;
+  private static final byte USED = 1;
+  private static final byte DELETED = 2;
+  private static final byte HASH_PARENT = 0;
+  private static final byte STRING_PARENT = 1;
+
+  // the fields of an owner record
+  private static final int OWNER_RECORD_SIZE = 24;
+  private static final int NAME = 0; // the string offset of the owner name
+  private static final int HEAD = 8; // the first slot of the owner list
+  private static final int COUNT = 12;
+  private static final int BALANCE = 16;
+
+  private transient Path directory;
+  private transient MappedByteBuffer header;
+  private transient MappedByteBuffer[] segments;
+  private transient int capacity; // the number of slots, a power of two
+  private transient int size;
+  private transient int deleted; // the number of slots marked deleted
+  private transient long sumUnits;
+  private transient MappedByteBuffer ownerRecords;
+  private transient List<String> ownerTable;
+  private transient Map<String, Integer> ownerIndexes;
+  private transient FileChannel strings;
+
+  /**
+   * Construct a MappedUTXOStore on the files of a given directory.
+   *
+   * @param directory the directory of the store files
+   * @param isTemporary true if the files are deleted when the JVM exits
+   * @throws UncheckedIOException if the files could not be opened
+   */
+  private MappedUTXOStore(Path directory, boolean isTemporary) throws UncheckedIOException {
+    try {
+      open(directory, isTemporary);
+    } catch (IOException e) {
+      throw new UncheckedIOException("UTXO store could not be opened in " + directory, e);
+    }
+  }
+
+  /**
+   * Create an empty MappedUTXOStore in a new directory.
+   *
+   * @param parent the directory in which the store directory is created, or null for a
+   *               temporary directory, which is deleted when the JVM exits
+   * @return a new MappedUTXOStore
+   * @throws UncheckedIOException if the files could not be created
+   */
+  public static MappedUTXOStore create(Path parent) throws UncheckedIOException {
+    try {
+      Path directory = parent == null ? Files.createTempDirectory("utxo-store")
+              : Files.createTempDirectory(Files.createDirectories(parent), "utxo-store");
+      return new MappedUTXOStore(directory, parent == null);
+    } catch (IOException e) {
+      throw new UncheckedIOException("UTXO store directory could not be created", e);
+    }
+  }
+
+  /**
+   * Open the MappedUTXOStore of a given directory, or an empty one if the directory has no
+   * store. The UTXOs are not read, thus it costs the same with any number of UTXOs.
+   *
+   * @param directory a given directory
+   * @return a MappedUTXOStore on the files of the directory
+   * @throws UncheckedIOException if the files could not be opened
+   * @throws IllegalArgumentException if the table file is not a UTXO store
+   */
+  public static MappedUTXOStore open(Path directory) throws UncheckedIOException,
+          IllegalArgumentException {
+    return new MappedUTXOStore(directory, false);
+  }
+
+  /**
+   * Map the files of a given directory, creating them if they do not exist.
+   *
+   * @param directory a given directory
+   * @param isTemporary true if the files are deleted when the JVM exits
+   * @throws IOException if the files could not be opened
+   * @throws IllegalArgumentException if the table file is not a UTXO store
+   */
+  private void open(Path directory, boolean isTemporary) throws IOException,
+          IllegalArgumentException {
+    this.directory = Files.createDirectories(directory);
+    if (isTemporary) {
+      // the files registered later are deleted first
+      directory.toFile().deleteOnExit();
+      for (String file : new String[] {TABLE_FILE, OWNER_FILE, STRING_FILE}) {
+        directory.resolve(file).toFile().deleteOnExit();
+      }
+    }
+    strings = FileChannel.open(directory.resolve(STRING_FILE), StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+    Path tableFile = directory.resolve(TABLE_FILE);
+    boolean isNew = !Files.exists(tableFile) || Files.size(tableFile) == 0;
+    try (FileChannel table = FileChannel.open(tableFile, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      header = map(table, 0, HEADER_SIZE);
+      if (isNew) {
+        header.putInt(MAGIC_OFFSET, MAGIC).putInt(VERSION_OFFSET, VERSION)
+                .putInt(CAPACITY_OFFSET, INITIAL_CAPACITY);
+      } else if (header.getInt(MAGIC_OFFSET) != MAGIC
+              || header.getInt(VERSION_OFFSET) != VERSION) {
+        throw new IllegalArgumentException(tableFile + " is not a UTXO store!");
+      }
+      capacity = header.getInt(CAPACITY_OFFSET);
+      size = header.getInt(SIZE_OFFSET);
+      deleted = header.getInt(DELETED_OFFSET);
+      sumUnits = header.getLong(SUM_OFFSET);
+      segments = mapSegments(table, capacity);
+    }
+
+    int ownerCount = header.getInt(OWNER_COUNT_OFFSET);
+    ownerTable = new ArrayList<>(ownerCount);
+    ownerIndexes = new HashMap<>();
+    mapOwnerRecords(Math.max(INITIAL_CAPACITY, Integer.highestOneBit(ownerCount) * 2));
+    for (int i = 0; i < ownerCount; i++) {
+      String owner = readString(ownerRecords.getLong(i * OWNER_RECORD_SIZE + NAME));
+      ownerIndexes.put(owner, i);
+      ownerTable.add(owner);
+    }
+  }
+
+  @Override
+  public TransactionFlow get(String ID) {
+    int slot = findSlot(ID);
+    return slot == NONE ? null : restore(slot, ID);
+  }
+
+  @Override
+  public boolean containsKey(String ID) {
+    return findSlot(ID) != NONE;
+  }
+
+  @Override
+  public TransactionFlow put(String ID, TransactionFlow transactionFlow)
+          throws IllegalArgumentException {
+    long[] key = OpenAddressingUTXOStore.parseKey(ID);
+    if (key == null) {
+      throw new IllegalArgumentException("UTXO ID must be a 64-character hexadecimal hash!");
+    }
+    if ((size + deleted + 1) * 4L > capacity * 3L) { // keep the load factor under 0.75
+      rehash((size + 1) * 2L > capacity ? 2 * capacity : capacity);
+    }
+    int slot = homeSlot(key[0]);
+    int freeSlot = NONE; // the first deleted slot of the probe sequence
+    while (state(slot) != EMPTY) {
+      if (state(slot) == USED && keyEquals(slot, key)) {
+        break;
+      } else if (state(slot) == DELETED && freeSlot == NONE) {
+        freeSlot = slot;
+      }
+      slot = (slot + 1) & (capacity - 1);
+    }
+
+    TransactionFlow replaced = null;
+    if (state(slot) == USED) {
+      replaced = restore(slot, ID);
+      unlink(slot);
+      sumUnits -= replaced.getUnits();
+    } else {
+      if (freeSlot != NONE) {
+        slot = freeSlot;
+        deleted--;
+      }
+      size++;
+      ByteBuffer segment = segment(slot);
+      int offset = offset(slot);
+      for (int i = 0; i < OpenAddressingUTXOStore.KEY_LONGS; i++) {
+        segment.putLong(offset + KEY + 8 * i, key[i]);
+      }
+    }
+    write(slot, transactionFlow);
+    sumUnits += transactionFlow.getUnits();
+    updateHeader();
+    return replaced;
+  }
+
+  @Override
+  public TransactionFlow remove(String ID) {
+    int slot = findSlot(ID);
+    if (slot == NONE) {
+      return null;
+    }
+    TransactionFlow removed = restore(slot, ID);
+    unlink(slot);
+    segment(slot).put(offset(slot) + STATE, DELETED);
+    size--;
+    deleted++;
+    sumUnits -= removed.getUnits();
+    updateHeader();
+    return removed;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Get a copy of this store in a new temporary directory. It copies the files, thus it costs
+   * O(n), and the staged changes of a UTXOView or a Block template are kept in a layer instead.
+   *
+   * @return a new MappedUTXOStore with the UTXOs of this one
+   * @throws UncheckedIOException if the files could not be copied
+   */
+  @Override
+  public UTXOStore copy() throws UncheckedIOException {
+    flush();
+    try {
+      Path copyDirectory = Files.createTempDirectory("utxo-store");
+      for (String file : new String[] {TABLE_FILE, OWNER_FILE, STRING_FILE}) {
+        Files.copy(directory.resolve(file), copyDirectory.resolve(file));
+      }
+      return new MappedUTXOStore(copyDirectory, true);
+    } catch (IOException e) {
+      throw new UncheckedIOException("UTXO store could not be copied", e);
+    }
+  }
+
+  @Override
+  public Map<String, TransactionFlow> asMap() {
+    return new MapView();
+  }
+
+  @Override
+  public StoreType getType() {
+    return StoreType.MAPPED;
+  }
+
+  @Override
+  public boolean isOwnerIndexed() {
+    return true;
+  }
+
+  @Override
+  public Set<String> getOwnedIDs(String owner) {
+    Integer index = ownerIndexes.get(owner);
+    if (index == null) {
+      return Collections.emptySet();
+    }
+    Set<String> ownedIDs = new LinkedHashSet<>();
+    for (int slot = ownerRecords.getInt(index * OWNER_RECORD_SIZE + HEAD); slot != NONE;
+         slot = segment(slot).getInt(offset(slot) + NEXT_OWNED)) {
+      ownedIDs.add(readID(slot));
+    }
+    return Collections.unmodifiableSet(ownedIDs);
+  }
+
+  @Override
+  public long getBalanceUnits(String owner) {
+    Integer index = ownerIndexes.get(owner);
+    return index == null ? 0 : ownerRecords.getLong(index * OWNER_RECORD_SIZE + BALANCE);
+  }
+
+  @Override
+  public long getSumUnits() {
+    return sumUnits;
+  }
+
+  /**
+   * Get the directory of the files of this store.
+   *
+   * @return the path of the directory
+   */
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Write the changes of the mapped files to the disk, thus the directory could be reopened
+   * after the JVM exits.
+   *
+   * @throws UncheckedIOException if the string file could not be written
+   */
+  public void flush() throws UncheckedIOException {
+    header.force();
+    for (MappedByteBuffer segment : segments) {
+      segment.force();
+    }
+    ownerRecords.force();
+    try {
+      strings.force(false);
+    } catch (IOException e) {
+      throw new UncheckedIOException("UTXO store could not be flushed", e);
+    }
+  }
+
+  /**
+   * Find the slot of a given UTXO ID, parsing the rest of the ID only when a slot has the same
+   * first long.
+   *
+   * @param ID a given UTXO ID string
+   * @return the index of the slot, or NONE if the ID is not in this store
+   */
+  private int findSlot(String ID) {
+    long[] key = new long[OpenAddressingUTXOStore.KEY_LONGS];
+    if (ID == null || ID.length() != OpenAddressingUTXOStore.KEY_LONGS * 16
+            || !OpenAddressingUTXOStore.parseLongs(ID, key, 0, 1)) {
+      return NONE;
+    }
+    boolean isParsed = false;
+    int slot = homeSlot(key[0]);
+    for (byte state = state(slot); state != EMPTY; state = state(slot)) {
+      if (state == USED && segment(slot).getLong(offset(slot) + KEY) == key[0]) {
+        if (!isParsed && !OpenAddressingUTXOStore.parseLongs(ID, key, 1,
+                OpenAddressingUTXOStore.KEY_LONGS)) {
+          return NONE;
+        }
+        isParsed = true;
+        if (keyEquals(slot, key)) {
+          return slot;
+        }
+      }
+      slot = (slot + 1) & (capacity - 1);
+    }
+    return NONE;
+  }
+
+  /**
+   * Get the first slot of the probe sequence of a key.
+   *
+   * @param firstLong the first long of a UTXO ID
+   * @return the index of a slot
+   */
+  private int homeSlot(long firstLong) {
+    long mixed = firstLong * 0x9E3779B97F4A7C15L;
+    return (int) (mixed ^ (mixed >>> 32)) & (capacity - 1);
+  }
+
+  /**
+   * Check if the key in a slot is the same as a given key.
+   *
+   * @param slot the index of a slot
+   * @param key the four longs of a UTXO ID
+   * @return a boolean value, which is true if the keys are the same
+   */
+  private boolean keyEquals(int slot, long[] key) {
+    ByteBuffer segment = segment(slot);
+    int offset = offset(slot) + KEY;
+    return segment.getLong(offset) == key[0] && segment.getLong(offset + 8) == key[1]
+            && segment.getLong(offset + 16) == key[2] && segment.getLong(offset + 24) == key[3];
+  }
+
+  /**
+   * Get the mapped segment of a slot.
+   *
+   * @param slot the index of a slot
+   * @return the MappedByteBuffer of the segment
+   */
+  private ByteBuffer segment(int slot) {
+    return segments[slot >>> SEGMENT_BITS];
+  }
+
+  /**
+   * Get the position of a slot in its segment.
+   *
+   * @param slot the index of a slot
+   * @return the offset of the slot in bytes
+   */
+  private static int offset(int slot) {
+    return (slot & ((1 << SEGMENT_BITS) - 1)) * SLOT_SIZE;
+  }
+
+  /**
+   * Get the state of a slot.
+   *
+   * @param slot the index of a slot
+   * @return EMPTY, USED or DELETED
+   */
+  private byte state(int slot) {
+    return segment(slot).get(offset(slot) + STATE);
+  }
+
+  /**
+   * Write a TransactionFlow into a slot whose key is written, and add the slot to the list of
+   * its owner.
+   *
+   * @param slot the index of a slot
+   * @param transactionFlow a given TransactionFlow
+   */
+  private void write(int slot, TransactionFlow transactionFlow) {
+    ByteBuffer segment = segment(slot);
+    int offset = offset(slot);
+    int owner = ownerIndexOf(transactionFlow.getOwner());
+    segment.put(offset + STATE, USED);
+    segment.putInt(offset + OWNER, owner);
+    segment.putLong(offset + VALUE, transactionFlow.getUnits());
+    String transactionID = transactionFlow.getTransactionID();
+    long[] parent = OpenAddressingUTXOStore.parseKey(transactionID);
+    if (parent != null) {
+      segment.put(offset + PARENT_KIND, HASH_PARENT);
+      for (int i = 0; i < OpenAddressingUTXOStore.KEY_LONGS; i++) {
+        segment.putLong(offset + PARENT + 8 * i, parent[i]);
+      }
+    } else {
+      segment.put(offset + PARENT_KIND, STRING_PARENT);
+      segment.putLong(offset + PARENT, appendString(transactionID));
+    }
+    link(slot, owner);
+  }
+
+  /**
+   * Add a used slot at the head of the list of a given owner, and add its value to the balance.
+   *
+   * @param slot the index of a slot
+   * @param owner the index of the owner of the slot
+   */
+  private void link(int slot, int owner) {
+    int record = owner * OWNER_RECORD_SIZE;
+    int head = ownerRecords.getInt(record + HEAD);
+    segment(slot).putInt(offset(slot) + PREVIOUS_OWNED, NONE);
+    segment(slot).putInt(offset(slot) + NEXT_OWNED, head);
+    if (head != NONE) {
+      segment(head).putInt(offset(head) + PREVIOUS_OWNED, slot);
+    }
+    ownerRecords.putInt(record + HEAD, slot);
+    ownerRecords.putInt(record + COUNT, ownerRecords.getInt(record + COUNT) + 1);
+    ownerRecords.putLong(record + BALANCE, ownerRecords.getLong(record + BALANCE)
+            + segment(slot).getLong(offset(slot) + VALUE));
+  }
+
+  /**
+   * Remove a used slot from the list of its owner, and subtract its value from the balance.
+   *
+   * @param slot the index of a slot
+   */
+  private void unlink(int slot) {
+    ByteBuffer segment = segment(slot);
+    int offset = offset(slot);
+    int record = segment.getInt(offset + OWNER) * OWNER_RECORD_SIZE;
+    int previous = segment.getInt(offset + PREVIOUS_OWNED);
+    int next = segment.getInt(offset + NEXT_OWNED);
+    if (previous == NONE) {
+      ownerRecords.putInt(record + HEAD, next);
+    } else {
+      segment(previous).putInt(offset(previous) + NEXT_OWNED, next);
+    }
+    if (next != NONE) {
+      segment(next).putInt(offset(next) + PREVIOUS_OWNED, previous);
+    }
+    int count = ownerRecords.getInt(record + COUNT) - 1;
+    ownerRecords.putInt(record + COUNT, count);
+    ownerRecords.putLong(record + BALANCE,
+            ownerRecords.getLong(record + BALANCE) - segment.getLong(offset + VALUE));
+  }
+
+  /**
+   * Move all used slots into a new table file of a given number of slots, dropping the deleted
+   * slots, and link the lists of the owners again.
+   *
+   * @param newCapacity a given power of two, large enough for all entries
+   * @throws UncheckedIOException if the new table file could not be written
+   */
+  private void rehash(int newCapacity) throws UncheckedIOException {
+    Path tableFile = directory.resolve(TABLE_FILE);
+    Path newTableFile = directory.resolve(TABLE_FILE + ".tmp");
+    try (FileChannel table = FileChannel.open(newTableFile, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      MappedByteBuffer newHeader = map(table, 0, HEADER_SIZE);
+      MappedByteBuffer[] newSegments = mapSegments(table, newCapacity);
+      for (int owner = 0; owner < ownerTable.size(); owner++) {
+        ownerRecords.putInt(owner * OWNER_RECORD_SIZE + HEAD, NONE);
+        ownerRecords.putInt(owner * OWNER_RECORD_SIZE + COUNT, 0);
+        ownerRecords.putLong(owner * OWNER_RECORD_SIZE + BALANCE, 0);
+      }
+
+      MappedByteBuffer[] oldSegments = segments;
+      int oldCapacity = capacity;
+      segments = newSegments;
+      capacity = newCapacity;
+      for (int oldSlot = 0; oldSlot < oldCapacity; oldSlot++) {
+        ByteBuffer oldSegment = oldSegments[oldSlot >>> SEGMENT_BITS];
+        int oldOffset = offset(oldSlot);
+        if (oldSegment.get(oldOffset + STATE) != USED) {
+          continue;
+        }
+        int slot = homeSlot(oldSegment.getLong(oldOffset + KEY));
+        while (state(slot) != EMPTY) {
+          slot = (slot + 1) & (capacity - 1);
+        }
+        ByteBuffer segment = segment(slot);
+        int offset = offset(slot);
+        for (int i = 0; i < SLOT_SIZE; i += 8) {
+          segment.putLong(offset + i, oldSegment.getLong(oldOffset + i));
+        }
+        link(slot, segment.getInt(offset + OWNER));
+      }
+
+      header = newHeader;
+      header.putInt(MAGIC_OFFSET, MAGIC).putInt(VERSION_OFFSET, VERSION)
+              .putInt(CAPACITY_OFFSET, capacity);
+      deleted = 0;
+      updateHeader();
+      // the old file stays mapped until its buffers are collected
+      Files.move(newTableFile, tableFile, StandardCopyOption.REPLACE_EXISTING,
+              StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException("UTXO store could not be rehashed", e);
+    }
+  }
+
+  /**
+   * Write the size, the number of deleted slots, the number of owners and the sum of all UTXOs
+   * into the header.
+   */
+  private void updateHeader() {
+    header.putInt(SIZE_OFFSET, size).putInt(DELETED_OFFSET, deleted)
+            .putInt(OWNER_COUNT_OFFSET, ownerTable.size()).putLong(SUM_OFFSET, sumUnits);
+  }
+
+  /**
+   * Get the index of a given owner in the owner table, adding the owner if it is new.
+   *
+   * @param owner a Wallet's PublicKey string
+   * @return the index of the owner
+   */
+  private int ownerIndexOf(String owner) {
+    Integer index = ownerIndexes.get(owner);
+    if (index == null) {
+      index = ownerTable.size();
+      if ((index + 1) * OWNER_RECORD_SIZE > ownerRecords.capacity()) {
+        mapOwnerRecords(2 * ownerRecords.capacity() / OWNER_RECORD_SIZE);
+      }
+      int record = index * OWNER_RECORD_SIZE;
+      ownerRecords.putLong(record + NAME, appendString(owner));
+      ownerRecords.putInt(record + HEAD, NONE);
+      ownerRecords.putInt(record + COUNT, 0);
+      ownerRecords.putLong(record + BALANCE, 0);
+      ownerTable.add(owner);
+      ownerIndexes.put(owner, index);
+      updateHeader();
+    }
+    return index;
+  }
+
+  /**
+   * Map the owner file with room for a given number of owner records.
+   *
+   * @param records a given number of owner records
+   * @throws UncheckedIOException if the owner file could not be mapped
+   */
+  private void mapOwnerRecords(int records) throws UncheckedIOException {
+    try (FileChannel owners = FileChannel.open(directory.resolve(OWNER_FILE),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      ownerRecords = map(owners, 0, (long) records * OWNER_RECORD_SIZE);
+    } catch (IOException e) {
+      throw new UncheckedIOException("UTXO store owners could not be mapped", e);
+    }
+  }
+
+  /**
+   * Restore the TransactionFlow of a used slot.
+   *
+   * @param slot the index of a slot
+   * @param ID the UTXO ID of the slot
+   * @return a TransactionFlow equal to the one that was put
+   */
+  private TransactionFlow restore(int slot, String ID) {
+    ByteBuffer segment = segment(slot);
+    int offset = offset(slot);
+    String transactionID = segment.get(offset + PARENT_KIND) == STRING_PARENT
+            ? readString(segment.getLong(offset + PARENT)) : readLongs(slot, PARENT);
+    return TransactionFlow.restore(ID, ownerTable.get(segment.getInt(offset + OWNER)),
+            segment.getLong(offset + VALUE), transactionID);
+  }
+
+  /**
+   * Read the UTXO ID of a used slot.
+   *
+   * @param slot the index of a slot
+   * @return a UTXO ID string
+   */
+  private String readID(int slot) {
+    return readLongs(slot, KEY);
+  }
+
+  /**
+   * Read four longs of a slot as a hash.
+   *
+   * @param slot the index of a slot
+   * @param field the offset of the longs in the slot
+   * @return a hash string
+   */
+  private String readLongs(int slot, int field) {
+    long[] longs = new long[OpenAddressingUTXOStore.KEY_LONGS];
+    ByteBuffer segment = segment(slot);
+    for (int i = 0; i < longs.length; i++) {
+      longs[i] = segment.getLong(offset(slot) + field + 8 * i);
+    }
+    return OpenAddressingUTXOStore.formatKey(longs, 0);
+  }
+
+  /**
+   * Append a string to the string file.
+   *
+   * @param string a given string
+   * @return the offset of the string in the file
+   * @throws UncheckedIOException if the string file could not be written
+   */
+  private long appendString(String string) throws UncheckedIOException {
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    ByteBuffer record = ByteBuffer.allocate(4 + bytes.length).putInt(bytes.length).put(bytes);
+    record.flip();
+    try {
+      long offset = strings.size();
+      while (record.hasRemaining()) {
+        strings.write(record, offset + record.position());
+      }
+      return offset;
+    } catch (IOException e) {
+      throw new UncheckedIOException("UTXO store string could not be written", e);
+    }
+  }
+
+  /**
+   * Read a string of the string file.
+   *
+   * @param offset the offset of the string in the file
+   * @return the string
+   * @throws UncheckedIOException if the string file could not be read
+   */
+  private String readString(long offset) throws UncheckedIOException {
+    try {
+      ByteBuffer length = ByteBuffer.allocate(4);
+      readFully(length, offset);
+      ByteBuffer bytes = ByteBuffer.allocate(length.getInt(0));
+      readFully(bytes, offset + 4);
+      return new String(bytes.array(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException("UTXO store string could not be read", e);
+    }
+  }
+
+  /**
+   * Fill a given buffer from the string file.
+   *
+   * @param buffer a given ByteBuffer
+   * @param offset the offset of the first byte in the file
+   * @throws IOException if the file ends before the buffer is filled
+   */
+  private void readFully(ByteBuffer buffer, long offset) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (strings.read(buffer, offset + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of " + STRING_FILE);
+      }
+    }
+  }
+
+  /**
+   * Map the slots of a table file in segments.
+   *
+   * @param table a given FileChannel of the table file
+   * @param slots the number of slots, a power of two
+   * @return the MappedByteBuffers of the segments
+   * @throws IOException if the file could not be mapped
+   */
+  private static MappedByteBuffer[] mapSegments(FileChannel table, int slots) throws IOException {
+    int segmentSlots = Math.min(slots, 1 << SEGMENT_BITS);
+    MappedByteBuffer[] mapped = new MappedByteBuffer[slots / segmentSlots];
+    for (int i = 0; i < mapped.length; i++) {
+      mapped[i] = map(table, HEADER_SIZE + (long) i * segmentSlots * SLOT_SIZE,
+              (long) segmentSlots * SLOT_SIZE);
+    }
+    return mapped;
+  }
+
+  /**
+   * Map a region of a file for reading and writing, extending the file if it is shorter.
+   *
+   * @param channel a given FileChannel
+   * @param position the offset of the region
+   * @param length the length of the region
+   * @return a little-endian MappedByteBuffer of the region
+   * @throws IOException if the region could not be mapped
+   */
+  private static MappedByteBuffer map(FileChannel channel, long position, long length)
+          throws IOException {
+    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, length);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    return buffer;
+  }
+
+  /**
+   * Write this store as its entries, instead of the files.
+   *
+   * @param out a given ObjectOutputStream
+   * @throws IOException if the writing fails
+   */
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+    out.writeInt(size);
+    for (Map.Entry<String, TransactionFlow> entry : asMap().entrySet()) {
+      TransactionFlow flow = entry.getValue();
+      out.writeUTF(entry.getKey());
+      out.writeUTF(flow.getOwner());
+      out.writeLong(flow.getUnits());
+      out.writeUTF(flow.getTransactionID());
+    }
+  }
+
+  /**
+   * Read a store written by writeObject into a new temporary directory.
+   *
+   * @param in a given ObjectInputStream
+   * @throws IOException if the reading fails
+   * @throws ClassNotFoundException if a class of the store is not found
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    open(Files.createTempDirectory("utxo-store"), true);
+    int entries = in.readInt();
+    for (int i = 0; i < entries; i++) {
+      String ID = in.readUTF();
+      put(ID, TransactionFlow.restore(ID, in.readUTF(), in.readLong(), in.readUTF()));
+    }
+  }
+
+  /**
+   * This class represents a read-only view of the store as a map, which restores the
+   * TransactionFlows while it is iterated.
+   */
+  private class MapView extends AbstractMap<String, TransactionFlow> {
+    @Override
+    public TransactionFlow get(Object key) {
+      return key instanceof String ? MappedUTXOStore.this.get((String) key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return key instanceof String && MappedUTXOStore.this.containsKey((String) key);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public Set<Entry<String, TransactionFlow>> entrySet() {
+      return new AbstractSet<Entry<String, TransactionFlow>>() {
+        @Override
+        public Iterator<Entry<String, TransactionFlow>> iterator() {
+          return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+          return size;
+        }
+      };
+    }
+  }
+
+  /**
+   * This class represents an iterator over the used slots of the table.
+   */
+  private class EntryIterator implements Iterator<Map.Entry<String, TransactionFlow>> {
+    private int nextSlot = findUsed(0);
+
+    @Override
+    public boolean hasNext() {
+      return nextSlot < capacity;
+    }
+
+    @Override
+    public Map.Entry<String, TransactionFlow> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      String ID = readID(nextSlot);
+      TransactionFlow flow = restore(nextSlot, ID);
+      nextSlot = findUsed(nextSlot + 1);
+      return new AbstractMap.SimpleImmutableEntry<>(ID, flow);
+    }
+
+    /**
+     * Find the first used slot from a given slot.
+     *
+     * @param slot the index of a given slot
+     * @return the index of the used slot, or the capacity if there is none
+     */
+    private int findUsed(int slot) {
+      while (slot < capacity && state(slot) != USED) {
+        slot++;
+      }
+      return slot;
+    }
+  }
+}
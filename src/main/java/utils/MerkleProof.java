@@ -0,0 +1,111 @@
+package utils;
+
+import com.google.common.io.BaseEncoding;
+import java.io.Serializable;
+
+/**
+ * This class represents a merkle inclusion proof of a leaf, which is the leaf hash, its index,
+ * and the sibling digests on the path from the leaf to the root. Rehashing the leaf with its
+ * siblings gives the merkle root, thus the proof shows a leaf is in a tree of n leaves with
+ * O(log n) digests, without the other leaves.
+ */
+public class MerkleProof implements Serializable {
+  private final String leafHash;
+  private final int index;
+  private final byte[] siblings; // the sibling digests from the bottom layer to the top
+
+  /**
+   * Construct a MerkleProof of a leaf with the given index and siblings.
+   *
+   * @param leafHash a 64-character hexadecimal hash of the leaf
+   * @param index the index of the leaf
+   * @param siblings the concatenated 32-byte sibling digests, from the bottom layer to the top
+   * @throws IllegalArgumentException if the index is negative or the siblings are not digests
+   */
+  public MerkleProof(String leafHash, int index, byte[] siblings)
+          throws IllegalArgumentException {
+    if (index < 0 || siblings.length % MerkleTree.HASH_LENGTH != 0) {
+      throw new IllegalArgumentException("Merkle proof is malformed!");
+    }
+    this.leafHash = leafHash;
+    this.index = index;
+    this.siblings = siblings.clone();
+  }
+
+  /**
+   * Calculate the merkle root from the leaf and its siblings.
+   *
+   * @return a hexadecimal string of the merkle root, or an empty string if the leaf hash is
+   *         not a 64-character hexadecimal string
+   */
+  public String calculateRoot() {
+    BaseEncoding hex = BaseEncoding.base16().lowerCase();
+    if (leafHash.length() != 2 * MerkleTree.HASH_LENGTH || !hex.canDecode(leafHash)) {
+      return "";
+    }
+    HashFunction sha256 = CryptoService.getDefault().newHashFunction();
+
+    byte[] node = hex.decode(leafHash);
+    int position = index;
+    for (int offset = 0; offset < siblings.length; offset += MerkleTree.HASH_LENGTH) {
+      // a left node is hashed before its sibling, a right node after it
+      if (position % 2 == 0) {
+        sha256.update(node, 0, node.length);
+        sha256.update(siblings, offset, MerkleTree.HASH_LENGTH);
+      } else {
+        sha256.update(siblings, offset, MerkleTree.HASH_LENGTH);
+        sha256.update(node, 0, node.length);
+      }
+      node = sha256.digest();
+      position /= 2;
+    }
+    return hex.encode(node);
+  }
+
+  /**
+   * Verify this MerkleProof against a given merkle root.
+   *
+   * @param merkleRoot a hexadecimal string of the merkle root
+   * @return a boolean value, which is true if the leaf is in the tree of the given root
+   */
+  public boolean verify(String merkleRoot) {
+    return !merkleRoot.isEmpty() && merkleRoot.equals(calculateRoot());
+  }
+
+  /**
+   * Get the leaf hash of this MerkleProof.
+   *
+   * @return a hexadecimal string of the leaf hash
+   */
+  public String getLeafHash() {
+    return leafHash;
+  }
+
+  /**
+   * Get the index of the leaf.
+   *
+   * @return an integer of the index
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  /**
+   * Get the number of sibling digests, which is the height of the tree minus one.
+   *
+   * @return an integer of the number of siblings
+   */
+  public int getDepth() {
+    return siblings.length / MerkleTree.HASH_LENGTH;
+  }
+
+  /**
+   * Get the string representation of this MerkleProof.
+   *
+   * @return a formatted string
+   */
+  @Override
+  public String toString() {
+    return "MerkleProof of " + leafHash + " at index " + index + ", depth " + getDepth();
+  }
+}
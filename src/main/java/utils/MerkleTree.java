@@ -0,0 +1,328 @@
+package utils;
+
+import com.google.common.io.BaseEncoding;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class represents a merkle tree of 32-byte SHA-256 digests. All layers of the tree are kept
+ * in one flat byte buffer, the leaves first and the root last, and each interior node is the
+ * SHA-256 digest of the raw bytes of its two children. The last node of a layer with an odd
+ * number of nodes is paired with itself.
+ * Since the interior layers are kept, appending a leaf or replacing one only rehashes the nodes
+ * on the path from that leaf to the root, which are O(log n) nodes. A MerkleTree is not
+ * thread-safe.
+ */
+public class MerkleTree {
+  public static final int HASH_LENGTH = 32;
+  // the smallest layer whose pairs are hashed in parallel, as number of parent nodes
+  public static final int PARALLEL_THRESHOLD = 2048;
+  private static final int INITIAL_CAPACITY = 8;
+  // the largest number of parent nodes hashed by one fork-join task without being split
+  private static final int CHUNK_SIZE = 512;
+  private static final ThreadLocal<HashFunction> TASK_DIGESTS =
+          ThreadLocal.withInitial(() -> CryptoService.getDefault().newHashFunction());
+
+  private final HashFunction sha256;
+  private byte[] buffer;
+  private int[] layerOffsets; // the byte offset of each layer in the buffer
+  private int capacity; // the number of leaves the buffer could hold, always a power of two
+  private int size;
+  private int height; // the number of layers in use, the root is the only node of the top one
+
+  /**
+   * Construct an empty MerkleTree.
+   */
+  public MerkleTree() {
+    this(INITIAL_CAPACITY);
+  }
+
+  /**
+   * Construct a MerkleTree of a given list of leaf hashes, such as Transaction IDs.
+   * All interior nodes are hashed layer by layer, which takes n - 1 hashes. The layers with at
+   * least PARALLEL_THRESHOLD parents are hashed in parallel, unless the common ForkJoinPool has
+   * a single worker, which could only add the task overhead.
+   *
+   * @param leafHashes a given list of 64-character hexadecimal hashes
+   * @throws IllegalArgumentException if a leaf hash is not a 64-character hexadecimal string
+   */
+  public MerkleTree(List<String> leafHashes) throws IllegalArgumentException {
+    this(leafHashes, ForkJoinPool.getCommonPoolParallelism() > 1
+            ? PARALLEL_THRESHOLD : Integer.MAX_VALUE);
+  }
+
+  /**
+   * Construct a MerkleTree of a given list of leaf hashes, hashing the layers with at least a
+   * given number of parents in parallel. The parents of one layer only depend on the layer below,
+   * thus they are split into chunks hashed by fork-join tasks of the common ForkJoinPool, each
+   * writing its own part of the buffer. The root is the same as the serial one.
+   *
+   * @param leafHashes a given list of 64-character hexadecimal hashes
+   * @param parallelThreshold the smallest number of parents of a layer hashed in parallel
+   * @throws IllegalArgumentException if a leaf hash is not a 64-character hexadecimal string
+   */
+  public MerkleTree(List<String> leafHashes, int parallelThreshold)
+          throws IllegalArgumentException {
+    this(capacityFor(leafHashes.size()));
+    for (String leafHash : leafHashes) {
+      decodeHex(leafHash, layerOffsets[0] + size * HASH_LENGTH);
+      size++;
+    }
+    int count = size;
+    height = size == 0 ? 0 : 1;
+    for (int layer = 0; count > 1; layer++, height++) {
+      int parents = (count + 1) / 2;
+      if (parents >= parallelThreshold) {
+        ForkJoinPool.commonPool().invoke(new LayerTask(layer, 0, parents, count));
+      } else {
+        for (int parent = 0; parent < parents; parent++) {
+          hashChildren(sha256, layer, parent, count);
+        }
+      }
+      count = parents;
+    }
+  }
+
+  /**
+   * Construct an empty MerkleTree, whose buffer holds a given number of leaves.
+   *
+   * @param capacity a given power of two
+   */
+  private MerkleTree(int capacity) {
+    sha256 = CryptoService.getDefault().newHashFunction();
+    allocate(capacity);
+  }
+
+  /**
+   * Append a leaf hash to this MerkleTree, and rehash the path from the new leaf to the root.
+   *
+   * @param leafHash a 64-character hexadecimal hash
+   * @throws IllegalArgumentException if the leaf hash is not a 64-character hexadecimal string
+   */
+  public void append(String leafHash) throws IllegalArgumentException {
+    if (size == capacity) {
+      grow();
+    }
+    decodeHex(leafHash, layerOffsets[0] + size * HASH_LENGTH);
+    size++;
+    updatePath(size - 1);
+  }
+
+  /**
+   * Replace the leaf hash at a given index, and rehash the path from the leaf to the root.
+   *
+   * @param index the index of the leaf
+   * @param leafHash a 64-character hexadecimal hash
+   * @throws IllegalArgumentException if the index is out of range, or the leaf hash is not
+   *                                  a 64-character hexadecimal string
+   */
+  public void setLeaf(int index, String leafHash) throws IllegalArgumentException {
+    if (index < 0 || index >= size) {
+      throw new IllegalArgumentException("Leaf index is out of range!");
+    }
+    decodeHex(leafHash, layerOffsets[0] + index * HASH_LENGTH);
+    updatePath(index);
+  }
+
+  /**
+   * Get the number of leaves of this MerkleTree.
+   *
+   * @return an integer of the size
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Get the merkle root as raw bytes.
+   *
+   * @return a byte array of 32 bytes, or an empty array if this MerkleTree is empty
+   */
+  public byte[] getRoot() {
+    byte[] root = new byte[size == 0 ? 0 : HASH_LENGTH];
+    if (size > 0) {
+      System.arraycopy(buffer, layerOffsets[height - 1], root, 0, HASH_LENGTH);
+    }
+    return root;
+  }
+
+  /**
+   * Get the merkle root as a hexadecimal string.
+   *
+   * @return a 64-character hexadecimal string, or an empty string if this MerkleTree is empty
+   */
+  public String getRootHex() {
+    if (size == 0) {
+      return "";
+    }
+    return BaseEncoding.base16().lowerCase().encode(buffer, layerOffsets[height - 1], HASH_LENGTH);
+  }
+
+  /**
+   * Get the MerkleProof of the leaf at a given index, with one sibling digest per layer below
+   * the root.
+   *
+   * @param index the index of the leaf
+   * @return a MerkleProof of the leaf
+   * @throws IllegalArgumentException if the index is out of range
+   */
+  public MerkleProof getProof(int index) throws IllegalArgumentException {
+    if (index < 0 || index >= size) {
+      throw new IllegalArgumentException("Leaf index is out of range!");
+    }
+    byte[] siblings = new byte[(height - 1) * HASH_LENGTH];
+    int position = index;
+    int count = size;
+    for (int layer = 0; count > 1; layer++) {
+      int sibling = Math.min(position ^ 1, count - 1); // the last odd node is its own sibling
+      System.arraycopy(buffer, layerOffsets[layer] + sibling * HASH_LENGTH,
+              siblings, layer * HASH_LENGTH, HASH_LENGTH);
+      position /= 2;
+      count = (count + 1) / 2;
+    }
+    String leafHash = BaseEncoding.base16().lowerCase()
+            .encode(buffer, layerOffsets[0] + index * HASH_LENGTH, HASH_LENGTH);
+    return new MerkleProof(leafHash, index, siblings);
+  }
+
+  /**
+   * Get the copy of this MerkleTree.
+   *
+   * @return a MerkleTree copy
+   */
+  public MerkleTree copy() {
+    MerkleTree treeCopy = new MerkleTree(capacity);
+    System.arraycopy(buffer, 0, treeCopy.buffer, 0, buffer.length);
+    treeCopy.size = size;
+    treeCopy.height = height;
+    return treeCopy;
+  }
+
+  /**
+   * Rehash the nodes on the path from the leaf at a given index to the root. Only the parent of
+   * a changed node changes in each layer, thus there is one hash per layer.
+   *
+   * @param index the index of the changed leaf
+   */
+  private void updatePath(int index) {
+    int count = size;
+    int layer = 0;
+    for (; count > 1; layer++) {
+      index /= 2;
+      hashChildren(sha256, layer, index, count);
+      count = (count + 1) / 2;
+    }
+    height = layer + 1;
+  }
+
+  /**
+   * Hash the two children of a node into the node.
+   *
+   * @param digest a HashFunction owned by the calling thread
+   * @param childLayer the layer of the children
+   * @param parent the index of the node in the next layer
+   * @param childCount the number of nodes in the layer of the children
+   */
+  private void hashChildren(HashFunction digest, int childLayer, int parent, int childCount) {
+    int left = 2 * parent;
+    int right = Math.min(left + 1, childCount - 1); // the last odd node is paired with itself
+    int childOffset = layerOffsets[childLayer];
+    digest.update(buffer, childOffset + left * HASH_LENGTH, HASH_LENGTH);
+    digest.update(buffer, childOffset + right * HASH_LENGTH, HASH_LENGTH);
+    digest.digest(buffer, layerOffsets[childLayer + 1] + parent * HASH_LENGTH);
+  }
+
+  /**
+   * Get the smallest capacity that holds a given number of leaves.
+   *
+   * @param leafCount a given number of leaves
+   * @return a power of two, not smaller than INITIAL_CAPACITY
+   */
+  private static int capacityFor(int leafCount) {
+    return Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, leafCount - 1)) << 1);
+  }
+
+  /**
+   * Allocate the buffer for a given number of leaves. The layer k holds at most
+   * capacity / 2^k nodes.
+   *
+   * @param newCapacity a given power of two
+   */
+  private void allocate(int newCapacity) {
+    int layers = Integer.numberOfTrailingZeros(newCapacity) + 1;
+    layerOffsets = new int[layers];
+    for (int layer = 1; layer < layers; layer++) {
+      layerOffsets[layer] = layerOffsets[layer - 1] + (newCapacity >> (layer - 1)) * HASH_LENGTH;
+    }
+    buffer = new byte[(2 * newCapacity - 1) * HASH_LENGTH];
+    capacity = newCapacity;
+  }
+
+  /**
+   * Double the capacity of this MerkleTree, keeping the nodes of all layers.
+   */
+  private void grow() {
+    byte[] oldBuffer = buffer;
+    int[] oldOffsets = layerOffsets;
+    int oldCapacity = capacity;
+    allocate(oldCapacity * 2);
+    for (int layer = 0; layer < oldOffsets.length; layer++) {
+      System.arraycopy(oldBuffer, oldOffsets[layer], buffer, layerOffsets[layer],
+              (oldCapacity >> layer) * HASH_LENGTH);
+    }
+  }
+
+  /**
+   * Decode a 64-character hexadecimal hash into the buffer at a given offset.
+   *
+   * @param hex a given hexadecimal string
+   * @param offset the byte offset in the buffer
+   * @throws IllegalArgumentException if the string is not a 64-character hexadecimal string
+   */
+  private void decodeHex(String hex, int offset) throws IllegalArgumentException {
+    if (hex.length() != 2 * HASH_LENGTH) {
+      throw new IllegalArgumentException("Leaf hash must have 64 hexadecimal characters!");
+    }
+    for (int i = 0; i < HASH_LENGTH; i++) {
+      int high = Character.digit(hex.charAt(2 * i), 16);
+      int low = Character.digit(hex.charAt(2 * i + 1), 16);
+      if (high < 0 || low < 0) {
+        throw new IllegalArgumentException("Leaf hash is not hexadecimal!");
+      }
+      buffer[offset + i] = (byte) ((high << 4) | low);
+    }
+  }
+
+  /**
+   * This class represents a task that hashes a range of parents of one layer, or splits it in
+   * halves if the range is larger than a chunk.
+   */
+  private class LayerTask extends RecursiveAction {
+    private final int childLayer;
+    private final int from;
+    private final int to;
+    private final int childCount;
+
+    private LayerTask(int childLayer, int from, int to, int childCount) {
+      this.childLayer = childLayer;
+      this.from = from;
+      this.to = to;
+      this.childCount = childCount;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= CHUNK_SIZE) {
+        HashFunction digest = TASK_DIGESTS.get();
+        for (int parent = from; parent < to; parent++) {
+          hashChildren(digest, childLayer, parent, childCount);
+        }
+      } else {
+        int middle = from + (to - from) / 2;
+        invokeAll(new LayerTask(childLayer, from, middle, childCount),
+                new LayerTask(childLayer, middle, to, childCount));
+      }
+    }
+  }
+}
@@ -4,6 +4,6 @@ package utils;
  * An enum type represents the messages in the Node communication.
  */
 public enum Message  { TRANSACTION, BLOCK, BLOCKCHAIN, BLOCKCHAIN_REQUEST, SUCCESS, FAIL,
-  CONTACT_REQUEST, CONTACT_MAP, SERVER_PORT, CLIENT_PORT
+  CONTACT_REQUEST, CONTACT_MAP, SERVER_PORT, CLIENT_PORT, WORK_REQUEST, SHARE, STALE,
+  PROOF_REQUEST, HEADERS_REQUEST
 }
-
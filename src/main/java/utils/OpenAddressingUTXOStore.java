@@ -0,0 +1,507 @@
+package utils;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import transaction.TransactionFlow;
+
+/**
+ * This class represents a compact UTXOStore, which keeps no object for each UTXO. The UTXO IDs
+ * are 32-byte hashes, kept as four longs each in one flat array, and the slots of the hash table
+ * are found by linear probing from the first long of the ID. The owner of each UTXO is an index
+ * into a table of the distinct owners, and the value, the parent Transaction ID and the owner
+ * index are kept in parallel primitive arrays. A TransactionFlow is only restored when it is
+ * read, while the lookups of the validation only parse the ID and compare longs.
+ * A removed entry is filled by shifting the following entries of its probe sequence back, so
+ * the table never keeps tombstones. The UTXO IDs must be 64-character lowercase hexadecimal
+ * hashes, which all Transaction outputs are.
+ */
+public class OpenAddressingUTXOStore implements UTXOStore {
+  static final int KEY_LONGS = 4;
+  private static final int INITIAL_CAPACITY = 16;
+  private static final int EMPTY = -1; // the owner index of an empty slot
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+  private static final byte[] HEX_VALUES = new byte['f' + 1];
+
+  static {
+    Arrays.fill(HEX_VALUES, (byte) -1);
+    for (int i = 0; i < HEX_DIGITS.length; i++) {
+      HEX_VALUES[HEX_DIGITS[i]] = (byte) i;
+    }
+  }
+
+  private transient long[] keys; // KEY_LONGS longs for each slot
+  private transient long[] parents; // KEY_LONGS longs for each slot, the parent Transaction ID
+  private transient int[] owners; // the owner index of each slot, EMPTY for an empty slot
+  private transient long[] values; // in units
+  private transient int size;
+  private transient int mask; // the number of slots minus one, a power of two minus one
+
+  // the distinct owners, an owner keeps its index once added
+  private transient List<String> ownerTable;
+  private transient Map<String, Integer> ownerIndexes;
+  // the parent IDs that are not hexadecimal hashes, by UTXO ID, which only happens in tests
+  private transient Map<String, String> irregularParents;
+
+  /**
+   * Construct an empty OpenAddressingUTXOStore.
+   */
+  public OpenAddressingUTXOStore() {
+    allocate(INITIAL_CAPACITY);
+    ownerTable = new ArrayList<>();
+    ownerIndexes = new HashMap<>();
+    irregularParents = new HashMap<>();
+  }
+
+  @Override
+  public TransactionFlow get(String ID) {
+    int slot = findSlot(ID);
+    return slot == EMPTY ? null : restore(slot, ID);
+  }
+
+  @Override
+  public boolean containsKey(String ID) {
+    return findSlot(ID) != EMPTY;
+  }
+
+  @Override
+  public TransactionFlow put(String ID, TransactionFlow transactionFlow)
+          throws IllegalArgumentException {
+    long[] key = parseKey(ID);
+    if (key == null) {
+      throw new IllegalArgumentException("UTXO ID must be a 64-character hexadecimal hash!");
+    }
+    if ((size + 1) * 4L > (mask + 1) * 3L) { // keep the load factor under 0.75
+      resize(2 * (mask + 1));
+    }
+    int slot = homeSlot(key[0]);
+    while (owners[slot] != EMPTY && !keyEquals(slot, key)) {
+      slot = (slot + 1) & mask;
+    }
+    TransactionFlow replaced = null;
+    if (owners[slot] == EMPTY) {
+      size++;
+    } else {
+      replaced = restore(slot, ID);
+    }
+    System.arraycopy(key, 0, keys, slot * KEY_LONGS, KEY_LONGS);
+    owners[slot] = ownerIndexOf(transactionFlow.getOwner());
+    values[slot] = transactionFlow.getUnits();
+    String transactionID = transactionFlow.getTransactionID();
+    long[] parent = parseKey(transactionID);
+    if (parent != null) {
+      System.arraycopy(parent, 0, parents, slot * KEY_LONGS, KEY_LONGS);
+      irregularParents.remove(ID);
+    } else {
+      Arrays.fill(parents, slot * KEY_LONGS, (slot + 1) * KEY_LONGS, 0);
+      irregularParents.put(ID, transactionID);
+    }
+    return replaced;
+  }
+
+  @Override
+  public TransactionFlow remove(String ID) {
+    int slot = findSlot(ID);
+    if (slot == EMPTY) {
+      return null;
+    }
+    TransactionFlow removed = restore(slot, ID);
+    irregularParents.remove(ID);
+    size--;
+
+    // shift back every following entry of the probe sequence whose home slot is not after the hole
+    int hole = slot;
+    int next = (hole + 1) & mask;
+    while (owners[next] != EMPTY) {
+      int home = homeSlot(keys[next * KEY_LONGS]);
+      if (((next - home) & mask) >= ((next - hole) & mask)) {
+        moveSlot(next, hole);
+        hole = next;
+      }
+      next = (next + 1) & mask;
+    }
+    owners[hole] = EMPTY;
+    return removed;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public UTXOStore copy() {
+    OpenAddressingUTXOStore storeCopy = new OpenAddressingUTXOStore();
+    storeCopy.keys = keys.clone();
+    storeCopy.parents = parents.clone();
+    storeCopy.owners = owners.clone();
+    storeCopy.values = values.clone();
+    storeCopy.size = size;
+    storeCopy.mask = mask;
+    storeCopy.ownerTable.addAll(ownerTable);
+    storeCopy.ownerIndexes.putAll(ownerIndexes);
+    storeCopy.irregularParents.putAll(irregularParents);
+    return storeCopy;
+  }
+
+  @Override
+  public Map<String, TransactionFlow> asMap() {
+    return new MapView();
+  }
+
+  @Override
+  public StoreType getType() {
+    return StoreType.OPEN_ADDRESSING;
+  }
+
+  /**
+   * Allocate empty arrays of a given number of slots.
+   *
+   * @param capacity a given power of two
+   */
+  private void allocate(int capacity) {
+    keys = new long[capacity * KEY_LONGS];
+    parents = new long[capacity * KEY_LONGS];
+    owners = new int[capacity];
+    Arrays.fill(owners, EMPTY);
+    values = new long[capacity];
+    mask = capacity - 1;
+  }
+
+  /**
+   * Move all entries into new arrays of a given number of slots.
+   *
+   * @param capacity a given power of two, large enough for all entries
+   */
+  private void resize(int capacity) {
+    long[] oldKeys = keys;
+    long[] oldParents = parents;
+    int[] oldOwners = owners;
+    long[] oldValues = values;
+    allocate(capacity);
+    for (int oldSlot = 0; oldSlot < oldOwners.length; oldSlot++) {
+      if (oldOwners[oldSlot] == EMPTY) {
+        continue;
+      }
+      int slot = homeSlot(oldKeys[oldSlot * KEY_LONGS]);
+      while (owners[slot] != EMPTY) {
+        slot = (slot + 1) & mask;
+      }
+      System.arraycopy(oldKeys, oldSlot * KEY_LONGS, keys, slot * KEY_LONGS, KEY_LONGS);
+      System.arraycopy(oldParents, oldSlot * KEY_LONGS, parents, slot * KEY_LONGS, KEY_LONGS);
+      owners[slot] = oldOwners[oldSlot];
+      values[slot] = oldValues[oldSlot];
+    }
+  }
+
+  /**
+   * Copy the entry of a slot into another slot.
+   *
+   * @param from the index of the source slot
+   * @param to the index of the target slot
+   */
+  private void moveSlot(int from, int to) {
+    System.arraycopy(keys, from * KEY_LONGS, keys, to * KEY_LONGS, KEY_LONGS);
+    System.arraycopy(parents, from * KEY_LONGS, parents, to * KEY_LONGS, KEY_LONGS);
+    owners[to] = owners[from];
+    values[to] = values[from];
+  }
+
+  /**
+   * Find the slot of a given UTXO ID. Only the first 16 characters of the ID are parsed to probe
+   * the table, and the rest only when a slot has the same first long, thus an absent ID mostly
+   * costs a quarter of the parsing.
+   *
+   * @param ID a given UTXO ID string
+   * @return the index of the slot, or EMPTY if the ID is not in this store
+   */
+  private int findSlot(String ID) {
+    long[] key = new long[KEY_LONGS];
+    if (ID == null || ID.length() != KEY_LONGS * 16 || !parseLongs(ID, key, 0, 1)) {
+      return EMPTY;
+    }
+    boolean isParsed = false;
+    int slot = homeSlot(key[0]);
+    while (owners[slot] != EMPTY) {
+      if (keys[slot * KEY_LONGS] == key[0]) {
+        if (!isParsed && !parseLongs(ID, key, 1, KEY_LONGS)) {
+          return EMPTY;
+        }
+        isParsed = true;
+        if (keyEquals(slot, key)) {
+          return slot;
+        }
+      }
+      slot = (slot + 1) & mask;
+    }
+    return EMPTY;
+  }
+
+  /**
+   * Get the first slot of the probe sequence of a key. The IDs are SHA-256 hashes, thus their
+   * first long is already uniform, and it is only mixed to use all of its bits.
+   *
+   * @param firstLong the first long of a UTXO ID
+   * @return the index of a slot
+   */
+  private int homeSlot(long firstLong) {
+    long mixed = firstLong * 0x9E3779B97F4A7C15L;
+    return (int) (mixed ^ (mixed >>> 32)) & mask;
+  }
+
+  /**
+   * Check if the key in a slot is the same as a given key.
+   *
+   * @param slot the index of a slot
+   * @param key the four longs of a UTXO ID
+   * @return a boolean value, which is true if the keys are the same
+   */
+  private boolean keyEquals(int slot, long[] key) {
+    int offset = slot * KEY_LONGS;
+    return keys[offset] == key[0] && keys[offset + 1] == key[1]
+            && keys[offset + 2] == key[2] && keys[offset + 3] == key[3];
+  }
+
+  /**
+   * Get the index of a given owner in the owner table, adding the owner if it is new.
+   *
+   * @param owner a Wallet's PublicKey string
+   * @return the index of the owner
+   */
+  private int ownerIndexOf(String owner) {
+    Integer index = ownerIndexes.get(owner);
+    if (index == null) {
+      index = ownerTable.size();
+      ownerTable.add(owner);
+      ownerIndexes.put(owner, index);
+    }
+    return index;
+  }
+
+  /**
+   * Restore the TransactionFlow of a slot.
+   *
+   * @param slot the index of a slot
+   * @param ID the UTXO ID of the slot
+   * @return a TransactionFlow equal to the one that was put
+   */
+  private TransactionFlow restore(int slot, String ID) {
+    String transactionID = irregularParents.isEmpty() ? null : irregularParents.get(ID);
+    if (transactionID == null) {
+      transactionID = formatKey(parents, slot * KEY_LONGS);
+    }
+    return TransactionFlow.restore(ID, ownerTable.get(owners[slot]), values[slot], transactionID);
+  }
+
+  /**
+   * Parse a 64-character lowercase hexadecimal hash into four longs.
+   *
+   * @param hash a given hash string
+   * @return a new array of four longs, or null if the string is not such a hash
+   */
+  static long[] parseKey(String hash) {
+    long[] key = new long[KEY_LONGS];
+    if (hash == null || hash.length() != KEY_LONGS * 16 || !parseLongs(hash, key, 0, KEY_LONGS)) {
+      return null;
+    }
+    return key;
+  }
+
+  /**
+   * Parse a range of the 16-character groups of a 64-character hexadecimal hash into longs.
+   *
+   * @param hash a given string of 64 characters
+   * @param key an array of four longs, whose range is written
+   * @param from the index of the first group to parse
+   * @param to the index after the last group to parse
+   * @return a boolean value, which is true if the groups are lowercase hexadecimal
+   */
+  static boolean parseLongs(String hash, long[] key, int from, int to) {
+    for (int group = from; group < to; group++) {
+      long value = 0;
+      int digits = 0; // negative once a character is not a digit
+      for (int i = group * 16; i < group * 16 + 16; i++) {
+        char c = hash.charAt(i);
+        int digit = c < HEX_VALUES.length ? HEX_VALUES[c] : -1;
+        digits |= digit;
+        value = value << 4 | (digit & 0xf);
+      }
+      if (digits < 0) {
+        return false;
+      }
+      key[group] = value;
+    }
+    return true;
+  }
+
+  /**
+   * Format four longs of an array as a 64-character lowercase hexadecimal hash.
+   *
+   * @param array a given array
+   * @param offset the index of the first long
+   * @return a hash string
+   */
+  static String formatKey(long[] array, int offset) {
+    char[] hex = new char[KEY_LONGS * 16];
+    for (int i = 0; i < hex.length; i++) {
+      hex[i] = HEX_DIGITS[(int) (array[offset + i / 16] >>> (60 - 4 * (i % 16))) & 0xf];
+    }
+    return new String(hex);
+  }
+
+  /**
+   * Write this store as its owner table followed by its entries, instead of the arrays with
+   * their empty slots.
+   *
+   * @param out a given ObjectOutputStream
+   * @throws IOException if the writing fails
+   */
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+    out.writeInt(ownerTable.size());
+    for (String owner : ownerTable) {
+      out.writeUTF(owner);
+    }
+    out.writeObject(irregularParents);
+    out.writeInt(size);
+    for (int slot = 0; slot <= mask; slot++) {
+      if (owners[slot] != EMPTY) {
+        for (int i = 0; i < KEY_LONGS; i++) {
+          out.writeLong(keys[slot * KEY_LONGS + i]);
+        }
+        for (int i = 0; i < KEY_LONGS; i++) {
+          out.writeLong(parents[slot * KEY_LONGS + i]);
+        }
+        out.writeInt(owners[slot]);
+        out.writeLong(values[slot]);
+      }
+    }
+  }
+
+  /**
+   * Read a store written by writeObject, and rebuild its hash table.
+   *
+   * @param in a given ObjectInputStream
+   * @throws IOException if the reading fails
+   * @throws ClassNotFoundException if a class of the irregular parents is not found
+   */
+  @SuppressWarnings("unchecked")
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    int ownerCount = in.readInt();
+    ownerTable = new ArrayList<>(ownerCount);
+    ownerIndexes = new HashMap<>();
+    for (int i = 0; i < ownerCount; i++) {
+      String owner = in.readUTF();
+      ownerIndexes.put(owner, ownerTable.size());
+      ownerTable.add(owner);
+    }
+    irregularParents = (Map<String, String>) in.readObject();
+    int entries = in.readInt();
+    int capacity = INITIAL_CAPACITY;
+    while (entries * 4L > capacity * 3L) {
+      capacity *= 2;
+    }
+    allocate(capacity);
+    long[] key = new long[KEY_LONGS];
+    for (int entry = 0; entry < entries; entry++) {
+      for (int i = 0; i < KEY_LONGS; i++) {
+        key[i] = in.readLong();
+      }
+      int slot = homeSlot(key[0]);
+      while (owners[slot] != EMPTY) {
+        slot = (slot + 1) & mask;
+      }
+      System.arraycopy(key, 0, keys, slot * KEY_LONGS, KEY_LONGS);
+      for (int i = 0; i < KEY_LONGS; i++) {
+        parents[slot * KEY_LONGS + i] = in.readLong();
+      }
+      owners[slot] = in.readInt();
+      values[slot] = in.readLong();
+    }
+    size = entries;
+  }
+
+  /**
+   * This class represents a read-only Map view of the store, whose entries are restored while
+   * they are iterated.
+   */
+  private class MapView extends AbstractMap<String, TransactionFlow> {
+    @Override
+    public TransactionFlow get(Object key) {
+      return key instanceof String ? OpenAddressingUTXOStore.this.get((String) key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return key instanceof String && OpenAddressingUTXOStore.this.containsKey((String) key);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public Set<Entry<String, TransactionFlow>> entrySet() {
+      return new AbstractSet<Entry<String, TransactionFlow>>() {
+        @Override
+        public Iterator<Entry<String, TransactionFlow>> iterator() {
+          return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+          return size;
+        }
+      };
+    }
+  }
+
+  /**
+   * This class represents an iterator over the entries of the store, in slot order.
+   */
+  private class EntryIterator implements Iterator<Map.Entry<String, TransactionFlow>> {
+    private int nextSlot = findOccupied(0);
+
+    @Override
+    public boolean hasNext() {
+      return nextSlot <= mask;
+    }
+
+    @Override
+    public Map.Entry<String, TransactionFlow> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      int slot = nextSlot;
+      nextSlot = findOccupied(slot + 1);
+      String ID = formatKey(keys, slot * KEY_LONGS);
+      return new AbstractMap.SimpleImmutableEntry<>(ID, restore(slot, ID));
+    }
+
+    /**
+     * Find the first occupied slot from a given slot.
+     *
+     * @param from the index of the first slot to check
+     * @return the index of an occupied slot, or mask + 1 if there is none
+     */
+    private int findOccupied(int from) {
+      int slot = from;
+      while (slot <= mask && owners[slot] == EMPTY) {
+        slot++;
+      }
+      return slot;
+    }
+  }
+}
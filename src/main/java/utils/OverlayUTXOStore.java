@@ -0,0 +1,248 @@
+package utils;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import transaction.TransactionFlow;
+
+/**
+ * This class represents a layer of changes over a base UTXOStore, which the layer never changes.
+ * A lookup checks the changes first and then the base, thus a layer costs O(changes) whatever the
+ * size of the base, such as a layer over a file-backed store whose copy would copy the file.
+ * The base must not change while the layer is used.
+ */
+class OverlayUTXOStore implements UTXOStore {
+  // marks an UTXO of the base removed by the layer
+  private static final TransactionFlow REMOVED = TransactionFlow.restore("", "", 0, "");
+
+  private final UTXOStore base;
+  private final Map<String, TransactionFlow> changes;
+  private int size;
+
+  /**
+   * Construct an OverlayUTXOStore without changes over a given base.
+   *
+   * @param base a given UTXOStore
+   */
+  OverlayUTXOStore(UTXOStore base) {
+    this(base, new HashMap<>(), base.size());
+  }
+
+  /**
+   * Construct an OverlayUTXOStore with given changes over a given base.
+   *
+   * @param base a given UTXOStore
+   * @param changes the changed UTXOs by ID, REMOVED for the removed ones
+   * @param size the number of UTXOs with the changes
+   */
+  private OverlayUTXOStore(UTXOStore base, Map<String, TransactionFlow> changes, int size) {
+    this.base = base;
+    this.changes = changes;
+    this.size = size;
+  }
+
+  @Override
+  public TransactionFlow get(String ID) {
+    TransactionFlow changed = changes.get(ID);
+    if (changed != null) {
+      return changed == REMOVED ? null : changed;
+    }
+    return base.get(ID);
+  }
+
+  @Override
+  public boolean containsKey(String ID) {
+    TransactionFlow changed = changes.get(ID);
+    return changed != null ? changed != REMOVED : base.containsKey(ID);
+  }
+
+  @Override
+  public TransactionFlow put(String ID, TransactionFlow transactionFlow)
+          throws IllegalArgumentException {
+    TransactionFlow replaced = get(ID);
+    changes.put(ID, transactionFlow);
+    if (replaced == null) {
+      size++;
+    }
+    return replaced;
+  }
+
+  @Override
+  public TransactionFlow remove(String ID) {
+    TransactionFlow removed = get(ID);
+    if (removed != null) {
+      if (base.containsKey(ID)) {
+        changes.put(ID, REMOVED);
+      } else {
+        changes.remove(ID);
+      }
+      size--;
+    }
+    return removed;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public UTXOStore copy() {
+    return new OverlayUTXOStore(base, new HashMap<>(changes), size);
+  }
+
+  @Override
+  public Map<String, TransactionFlow> asMap() {
+    return new AbstractMap<String, TransactionFlow>() {
+      @Override
+      public TransactionFlow get(Object key) {
+        return key instanceof String ? OverlayUTXOStore.this.get((String) key) : null;
+      }
+
+      @Override
+      public boolean containsKey(Object key) {
+        return key instanceof String && OverlayUTXOStore.this.containsKey((String) key);
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+
+      @Override
+      public Set<Entry<String, TransactionFlow>> entrySet() {
+        return new AbstractSet<Entry<String, TransactionFlow>>() {
+          @Override
+          public Iterator<Entry<String, TransactionFlow>> iterator() {
+            return new EntryIterator();
+          }
+
+          @Override
+          public int size() {
+            return size;
+          }
+        };
+      }
+    };
+  }
+
+  @Override
+  public StoreType getType() {
+    return base.getType();
+  }
+
+  @Override
+  public boolean isOwnerIndexed() {
+    return base.isOwnerIndexed();
+  }
+
+  @Override
+  public Set<String> getOwnedIDs(String owner) throws UnsupportedOperationException {
+    Set<String> ownedIDs = new LinkedHashSet<>(base.getOwnedIDs(owner));
+    changes.forEach((ID, changed) -> {
+      if (changed != REMOVED && changed.isOwnedBy(owner)) {
+        ownedIDs.add(ID);
+      } else {
+        ownedIDs.remove(ID);
+      }
+    });
+    return Collections.unmodifiableSet(ownedIDs);
+  }
+
+  @Override
+  public long getBalanceUnits(String owner) throws UnsupportedOperationException {
+    long balance = base.getBalanceUnits(owner);
+    for (Map.Entry<String, TransactionFlow> change : changes.entrySet()) {
+      TransactionFlow baseFlow = base.get(change.getKey());
+      if (baseFlow != null && baseFlow.isOwnedBy(owner)) {
+        balance -= baseFlow.getUnits();
+      }
+      if (change.getValue() != REMOVED && change.getValue().isOwnedBy(owner)) {
+        balance += change.getValue().getUnits();
+      }
+    }
+    return balance;
+  }
+
+  @Override
+  public long getSumUnits() throws UnsupportedOperationException {
+    long sum = base.getSumUnits();
+    for (Map.Entry<String, TransactionFlow> change : changes.entrySet()) {
+      TransactionFlow baseFlow = base.get(change.getKey());
+      if (baseFlow != null) {
+        sum -= baseFlow.getUnits();
+      }
+      if (change.getValue() != REMOVED) {
+        sum += change.getValue().getUnits();
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * Replace this layer by a standalone store of its UTXOs when it is serialized, since the
+   * changes of a layer are only meaningful with its base.
+   *
+   * @return a new in-memory UTXOStore with the UTXOs of this layer
+   */
+  private Object writeReplace() {
+    UTXOStore standalone = UTXOStore.create(getType() == StoreType.MAPPED
+            ? StoreType.PERSISTENT : getType());
+    asMap().forEach(standalone::put);
+    return standalone;
+  }
+
+  /**
+   * This class represents an iterator over the unchanged UTXOs of the base, followed by the
+   * UTXOs put by the layer.
+   */
+  private class EntryIterator implements Iterator<Map.Entry<String, TransactionFlow>> {
+    private final Iterator<Map.Entry<String, TransactionFlow>> baseEntries =
+            base.asMap().entrySet().iterator();
+    private final Iterator<Map.Entry<String, TransactionFlow>> changedEntries =
+            changes.entrySet().iterator();
+    private Map.Entry<String, TransactionFlow> nextEntry = findNext();
+
+    @Override
+    public boolean hasNext() {
+      return nextEntry != null;
+    }
+
+    @Override
+    public Map.Entry<String, TransactionFlow> next() {
+      if (nextEntry == null) {
+        throw new NoSuchElementException();
+      }
+      Map.Entry<String, TransactionFlow> entry = nextEntry;
+      nextEntry = findNext();
+      return entry;
+    }
+
+    /**
+     * Find the next entry of the layer.
+     *
+     * @return an entry, or null if there is none left
+     */
+    private Map.Entry<String, TransactionFlow> findNext() {
+      while (baseEntries.hasNext()) {
+        Map.Entry<String, TransactionFlow> entry = baseEntries.next();
+        if (!changes.containsKey(entry.getKey())) {
+          return entry;
+        }
+      }
+      while (changedEntries.hasNext()) {
+        Map.Entry<String, TransactionFlow> entry = changedEntries.next();
+        if (entry.getValue() != REMOVED) {
+          return new AbstractMap.SimpleImmutableEntry<>(entry);
+        }
+      }
+      return null;
+    }
+  }
+}
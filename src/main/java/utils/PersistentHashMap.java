@@ -0,0 +1,458 @@
+package utils;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * This class represents an immutable hash array mapped trie. Each node of the trie consumes 5
+ * bits of the key hash, and keeps a bitmap of its used branches with a packed array of only those
+ * branches, where a branch is either a key and its value, or a child node. Keys of the same
+ * 32-bit hash share a collision node.
+ * with() and without() return a new map, which shares every node with this map except the ones
+ * on the path to the changed key, thus an update allocates O(log32 n) small arrays, and keeping
+ * an old version as a snapshot costs nothing. A PersistentHashMap is a read-only Map, and is
+ * thread-safe since it never changes. Null keys and null values are not allowed.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public final class PersistentHashMap<K, V> extends AbstractMap<K, V> implements Serializable {
+  private static final int BITS = 5;
+  private static final int BRANCH_MASK = (1 << BITS) - 1;
+  // 7 bitmap levels consume the 32 hash bits, and a collision node may be below them
+  private static final int MAX_DEPTH = 8;
+  private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(null, 0);
+
+  private final Node root;
+  private final int size;
+
+  /**
+   * Construct a PersistentHashMap with a given root node.
+   *
+   * @param root the root node, or null if the map is empty
+   * @param size the number of entries under the root
+   */
+  private PersistentHashMap(Node root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  /**
+   * Get the empty PersistentHashMap.
+   *
+   * @param <K> the type of the keys
+   * @param <V> the type of the values
+   * @return an empty PersistentHashMap
+   */
+  @SuppressWarnings("unchecked")
+  public static <K, V> PersistentHashMap<K, V> empty() {
+    return (PersistentHashMap<K, V>) EMPTY;
+  }
+
+  /**
+   * Get a map with a given entry added to this map, replacing the value of the same key.
+   *
+   * @param key a given key
+   * @param value a given value
+   * @return a new PersistentHashMap, or this map if it already has the entry
+   */
+  public PersistentHashMap<K, V> with(K key, V value) {
+    Objects.requireNonNull(key);
+    Objects.requireNonNull(value);
+    boolean[] isAdded = new boolean[1]; // set by the node that adds a new key
+    Node newRoot = (root == null ? BitmapNode.EMPTY_NODE : root)
+            .with(0, hash(key), key, value, isAdded);
+    return newRoot == root ? this : new PersistentHashMap<>(newRoot, isAdded[0] ? size + 1 : size);
+  }
+
+  /**
+   * Get a map with a given key removed from this map.
+   *
+   * @param key a given key
+   * @return a new PersistentHashMap, or this map if it does not have the key
+   */
+  public PersistentHashMap<K, V> without(Object key) {
+    if (root == null || key == null) {
+      return this;
+    }
+    Node newRoot = root.without(0, hash(key), key);
+    if (newRoot == root) {
+      return this;
+    }
+    return newRoot == null ? empty() : new PersistentHashMap<>(newRoot, size - 1);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public V get(Object key) {
+    return root == null || key == null ? null : (V) root.find(0, hash(key), key);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    return new AbstractSet<Entry<K, V>>() {
+      @Override
+      public Iterator<Entry<K, V>> iterator() {
+        return new EntryIterator();
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  /**
+   * Spread the hashCode of a key, so the branches of the top levels depend on all of its bits.
+   *
+   * @param key a given key
+   * @return a 32-bit hash
+   */
+  private static int hash(Object key) {
+    int h = key.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Get the branch bit of a hash in a node of a given level.
+   *
+   * @param hash a given hash
+   * @param shift the number of hash bits consumed by the levels above
+   * @return an integer with one bit set
+   */
+  private static int branchBit(int hash, int shift) {
+    return 1 << ((hash >>> shift) & BRANCH_MASK);
+  }
+
+  /**
+   * Build a node of two different keys, which were in the same branch of the level above.
+   *
+   * @param shift the number of hash bits consumed by the levels above the new node
+   * @param key1 the first key
+   * @param value1 the value of the first key
+   * @param hash2 the hash of the second key
+   * @param key2 the second key
+   * @param value2 the value of the second key
+   * @return a new node with both entries
+   */
+  private static Node pairNode(int shift, Object key1, Object value1, int hash2, Object key2,
+                               Object value2) {
+    int hash1 = hash(key1);
+    if (hash1 == hash2) {
+      return new CollisionNode(hash1, new Object[] {key1, value1, key2, value2});
+    }
+    boolean[] isAdded = new boolean[1];
+    return BitmapNode.EMPTY_NODE.with(shift, hash1, key1, value1, isAdded)
+            .with(shift, hash2, key2, value2, isAdded);
+  }
+
+  /**
+   * Copy an array of key and value pairs with a pair inserted.
+   *
+   * @param array a given array of pairs
+   * @param index the array index of the new pair
+   * @param key the key, or null for a child node
+   * @param value the value or the child node
+   * @return a new array
+   */
+  private static Object[] insertPair(Object[] array, int index, Object key, Object value) {
+    Object[] newArray = new Object[array.length + 2];
+    System.arraycopy(array, 0, newArray, 0, index);
+    newArray[index] = key;
+    newArray[index + 1] = value;
+    System.arraycopy(array, index, newArray, index + 2, array.length - index);
+    return newArray;
+  }
+
+  /**
+   * Copy an array of key and value pairs without a pair.
+   *
+   * @param array a given array of pairs
+   * @param index the array index of the removed pair
+   * @return a new array
+   */
+  private static Object[] removePair(Object[] array, int index) {
+    Object[] newArray = new Object[array.length - 2];
+    System.arraycopy(array, 0, newArray, 0, index);
+    System.arraycopy(array, index + 2, newArray, index, array.length - index - 2);
+    return newArray;
+  }
+
+  /**
+   * Copy an array of key and value pairs with one element replaced.
+   *
+   * @param array a given array of pairs
+   * @param index the index of the replaced element
+   * @param element the new element
+   * @return a new array
+   */
+  private static Object[] replace(Object[] array, int index, Object element) {
+    Object[] newArray = array.clone();
+    newArray[index] = element;
+    return newArray;
+  }
+
+  /**
+   * This class represents a node of the trie. Its array holds pairs of a key and its value, or
+   * of null and a child node. A node never changes once it is built.
+   */
+  private abstract static class Node implements Serializable {
+    final Object[] array;
+
+    Node(Object[] array) {
+      this.array = array;
+    }
+
+    /**
+     * Find the value of a key under this node.
+     *
+     * @param shift the number of hash bits consumed by the levels above
+     * @param hash the hash of the key
+     * @param key a given key
+     * @return the value, or null if the key is not under this node
+     */
+    abstract Object find(int shift, int hash, Object key);
+
+    /**
+     * Get a node with an entry added under this node.
+     *
+     * @param shift the number of hash bits consumed by the levels above
+     * @param hash the hash of the key
+     * @param key a given key
+     * @param value a given value
+     * @param isAdded a one-element array, whose element is set if the key is new
+     * @return a new node, or this node if it already has the entry
+     */
+    abstract Node with(int shift, int hash, Object key, Object value, boolean[] isAdded);
+
+    /**
+     * Get a node with a key removed under this node.
+     *
+     * @param shift the number of hash bits consumed by the levels above
+     * @param hash the hash of the key
+     * @param key a given key
+     * @return a new node, this node if the key is not under it, or null if the new node is empty
+     */
+    abstract Node without(int shift, int hash, Object key);
+  }
+
+  /**
+   * This class represents a node with a bitmap of its used branches.
+   */
+  private static final class BitmapNode extends Node {
+    static final BitmapNode EMPTY_NODE = new BitmapNode(0, new Object[0]);
+
+    private final int bitmap;
+
+    BitmapNode(int bitmap, Object[] array) {
+      super(array);
+      this.bitmap = bitmap;
+    }
+
+    /**
+     * Get the array index of the pair of a branch.
+     *
+     * @param bit the branch bit
+     * @return the array index of the key of the pair
+     */
+    private int indexOf(int bit) {
+      return 2 * Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    @Override
+    Object find(int shift, int hash, Object key) {
+      int bit = branchBit(hash, shift);
+      if ((bitmap & bit) == 0) {
+        return null;
+      }
+      int index = indexOf(bit);
+      Object branchKey = array[index];
+      if (branchKey == null) {
+        return ((Node) array[index + 1]).find(shift + BITS, hash, key);
+      }
+      return key.equals(branchKey) ? array[index + 1] : null;
+    }
+
+    @Override
+    Node with(int shift, int hash, Object key, Object value, boolean[] isAdded) {
+      int bit = branchBit(hash, shift);
+      int index = indexOf(bit);
+      if ((bitmap & bit) == 0) {
+        isAdded[0] = true;
+        return new BitmapNode(bitmap | bit, insertPair(array, index, key, value));
+      }
+      Object branchKey = array[index];
+      Object branchValue = array[index + 1];
+      if (branchKey == null) {
+        Node child = (Node) branchValue;
+        Node newChild = child.with(shift + BITS, hash, key, value, isAdded);
+        return newChild == child ? this
+                : new BitmapNode(bitmap, replace(array, index + 1, newChild));
+      }
+      if (key.equals(branchKey)) {
+        return branchValue == value ? this
+                : new BitmapNode(bitmap, replace(array, index + 1, value));
+      }
+      isAdded[0] = true;
+      Object[] newArray = replace(array, index, null);
+      newArray[index + 1] = pairNode(shift + BITS, branchKey, branchValue, hash, key, value);
+      return new BitmapNode(bitmap, newArray);
+    }
+
+    @Override
+    Node without(int shift, int hash, Object key) {
+      int bit = branchBit(hash, shift);
+      if ((bitmap & bit) == 0) {
+        return this;
+      }
+      int index = indexOf(bit);
+      Object branchKey = array[index];
+      if (branchKey == null) {
+        Node child = (Node) array[index + 1];
+        Node newChild = child.without(shift + BITS, hash, key);
+        if (newChild == child) {
+          return this;
+        }
+        if (newChild != null) {
+          return new BitmapNode(bitmap, replace(array, index + 1, newChild));
+        }
+      } else if (!key.equals(branchKey)) {
+        return this;
+      }
+      return bitmap == bit ? null : new BitmapNode(bitmap ^ bit, removePair(array, index));
+    }
+  }
+
+  /**
+   * This class represents a node of the keys with the same 32-bit hash.
+   */
+  private static final class CollisionNode extends Node {
+    private final int hash;
+
+    CollisionNode(int hash, Object[] array) {
+      super(array);
+      this.hash = hash;
+    }
+
+    /**
+     * Get the array index of a key.
+     *
+     * @param key a given key
+     * @return the array index of the key, or -1 if it is not in this node
+     */
+    private int indexOf(Object key) {
+      for (int i = 0; i < array.length; i += 2) {
+        if (key.equals(array[i])) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    Object find(int shift, int hash, Object key) {
+      int index = hash == this.hash ? indexOf(key) : -1;
+      return index < 0 ? null : array[index + 1];
+    }
+
+    @Override
+    Node with(int shift, int hash, Object key, Object value, boolean[] isAdded) {
+      if (hash != this.hash) {
+        // move this node one level down, under a bitmap node that splits the two hashes
+        return new BitmapNode(branchBit(this.hash, shift), new Object[] {null, this})
+                .with(shift, hash, key, value, isAdded);
+      }
+      int index = indexOf(key);
+      if (index >= 0) {
+        return array[index + 1] == value ? this
+                : new CollisionNode(hash, replace(array, index + 1, value));
+      }
+      isAdded[0] = true;
+      Object[] newArray = Arrays.copyOf(array, array.length + 2);
+      newArray[array.length] = key;
+      newArray[array.length + 1] = value;
+      return new CollisionNode(hash, newArray);
+    }
+
+    @Override
+    Node without(int shift, int hash, Object key) {
+      int index = hash == this.hash ? indexOf(key) : -1;
+      if (index < 0) {
+        return this;
+      }
+      return array.length == 2 ? null : new CollisionNode(hash, removePair(array, index));
+    }
+  }
+
+  /**
+   * This class represents a depth-first iterator over the entries of the trie.
+   */
+  private class EntryIterator implements Iterator<Entry<K, V>> {
+    private final Object[][] arrays = new Object[MAX_DEPTH][];
+    private final int[] positions = new int[MAX_DEPTH];
+    private int depth = -1;
+    private Entry<K, V> nextEntry;
+
+    EntryIterator() {
+      if (root != null) {
+        arrays[++depth] = root.array;
+      }
+      advance();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return nextEntry != null;
+    }
+
+    @Override
+    public Entry<K, V> next() {
+      if (nextEntry == null) {
+        throw new NoSuchElementException();
+      }
+      Entry<K, V> entry = nextEntry;
+      advance();
+      return entry;
+    }
+
+    /**
+     * Find the next entry, descending into child nodes and returning from finished ones.
+     */
+    @SuppressWarnings("unchecked")
+    private void advance() {
+      while (depth >= 0) {
+        Object[] array = arrays[depth];
+        int position = positions[depth];
+        if (position >= array.length) {
+          positions[depth--] = 0;
+          continue;
+        }
+        positions[depth] = position + 2;
+        if (array[position] == null) {
+          arrays[++depth] = ((Node) array[position + 1]).array;
+        } else {
+          nextEntry = new SimpleImmutableEntry<>((K) array[position], (V) array[position + 1]);
+          return;
+        }
+      }
+      nextEntry = null;
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package utils;
+
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.Set;
+import transaction.TransactionFlow;
+
+/**
+ * This class represents a UTXOStore backed by a PersistentHashMap. A put or a remove replaces the
+ * map by a new version, which shares all nodes but the changed path with the old one, thus a copy
+ * only keeps the current version and costs O(1), however many UTXOs there are.
+ */
+public class PersistentUTXOStore implements UTXOStore {
+  private PersistentHashMap<String, TransactionFlow> utxos;
+
+  /**
+   * Construct an empty PersistentUTXOStore.
+   */
+  public PersistentUTXOStore() {
+    this(PersistentHashMap.empty());
+  }
+
+  /**
+   * Construct a PersistentUTXOStore with a given version of the map.
+   *
+   * @param utxos a given PersistentHashMap from UTXO IDs to TransactionFlows
+   */
+  private PersistentUTXOStore(PersistentHashMap<String, TransactionFlow> utxos) {
+    this.utxos = utxos;
+  }
+
+  @Override
+  public TransactionFlow get(String ID) {
+    return utxos.get(ID);
+  }
+
+  @Override
+  public boolean containsKey(String ID) {
+    return utxos.containsKey(ID);
+  }
+
+  @Override
+  public TransactionFlow put(String ID, TransactionFlow transactionFlow) {
+    TransactionFlow replaced = utxos.get(ID);
+    utxos = utxos.with(ID, transactionFlow);
+    return replaced;
+  }
+
+  @Override
+  public TransactionFlow remove(String ID) {
+    TransactionFlow removed = utxos.get(ID);
+    if (removed != null) {
+      utxos = utxos.without(ID);
+    }
+    return removed;
+  }
+
+  @Override
+  public int size() {
+    return utxos.size();
+  }
+
+  @Override
+  public UTXOStore copy() {
+    return new PersistentUTXOStore(utxos);
+  }
+
+  /**
+   * Get a layer over this store, which is a copy, since a copy already costs O(1) and its
+   * lookups do not go through a layer.
+   *
+   * @return a copy of this store
+   */
+  @Override
+  public UTXOStore layer() {
+    return copy();
+  }
+
+  @Override
+  public Map<String, TransactionFlow> asMap() {
+    // the current version is read on every call, thus the view reflects later changes
+    return new AbstractMap<String, TransactionFlow>() {
+      @Override
+      public TransactionFlow get(Object key) {
+        return utxos.get(key);
+      }
+
+      @Override
+      public boolean containsKey(Object key) {
+        return utxos.containsKey(key);
+      }
+
+      @Override
+      public int size() {
+        return utxos.size();
+      }
+
+      @Override
+      public Set<Entry<String, TransactionFlow>> entrySet() {
+        return utxos.entrySet();
+      }
+    };
+  }
+
+  @Override
+  public StoreType getType() {
+    return StoreType.PERSISTENT;
+  }
+}
@@ -0,0 +1,134 @@
+package utils;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class represents a bounded concurrent cache of successful signature verifications, so that
+ * a Transaction verified on its admission to the Transaction pool is not verified again when it
+ * is collected into a Block, received in a Block, or received in a whole BlockChain. Only
+ * successful verifications are cached, thus a cache miss only costs the verification.
+ * Each entry is kept in a fixed slot, and once all slots are filled, a new entry replaces the
+ * entry of a random slot. Random eviction needs no access order bookkeeping on hits, thus lookups
+ * from many verifying threads never contend on a shared list.
+ */
+public class SignatureCache {
+  private final int capacity;
+  private final Set<String> entries = ConcurrentHashMap.newKeySet();
+  private final AtomicReferenceArray<String> slots;
+  private final AtomicInteger filledSlots = new AtomicInteger();
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+  private final LongAdder evictionCount = new LongAdder();
+
+  /**
+   * Construct a SignatureCache holding at most a given number of entries.
+   *
+   * @param capacity a positive number of entries
+   * @throws IllegalArgumentException if the given capacity is not positive
+   */
+  public SignatureCache(int capacity) throws IllegalArgumentException {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Signature cache capacity must be positive!");
+    }
+    this.capacity = capacity;
+    this.slots = new AtomicReferenceArray<>(capacity);
+  }
+
+  /**
+   * Check if a given entry is cached, which means its signature was verified successfully.
+   *
+   * @param entry a given cache entry
+   * @return a boolean value, which is true if the entry is cached
+   */
+  public boolean contains(String entry) {
+    boolean isCached = entries.contains(entry);
+    (isCached ? hitCount : missCount).increment();
+    return isCached;
+  }
+
+  /**
+   * Add a given entry of a successful signature verification.
+   *
+   * @param entry a given cache entry
+   */
+  public void add(String entry) {
+    if (!entries.add(entry)) {
+      return;
+    }
+    int slot = filledSlots.get() < capacity ? filledSlots.getAndIncrement() : capacity;
+    if (slot >= capacity) {
+      slot = ThreadLocalRandom.current().nextInt(capacity);
+    }
+    String evicted = slots.getAndSet(slot, entry);
+    if (evicted != null) {
+      entries.remove(evicted);
+      evictionCount.increment();
+    }
+  }
+
+  /**
+   * Remove all entries and reset the counters.
+   */
+  public synchronized void clear() {
+    for (int slot = 0; slot < capacity; slot++) {
+      slots.set(slot, null);
+    }
+    entries.clear();
+    filledSlots.set(0);
+    hitCount.reset();
+    missCount.reset();
+    evictionCount.reset();
+  }
+
+  /**
+   * Get the number of cached entries.
+   *
+   * @return an integer of the size
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Get the number of lookups that found their entry.
+   *
+   * @return a long value of hits
+   */
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  /**
+   * Get the number of lookups that did not find their entry.
+   *
+   * @return a long value of misses
+   */
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  /**
+   * Get the number of entries replaced by new ones.
+   *
+   * @return a long value of evictions
+   */
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  /**
+   * Get the string representation of this SignatureCache.
+   *
+   * @return a formatted string
+   */
+  @Override
+  public String toString() {
+    return String.format("SignatureCache: %d/%d entries, %d hits, %d misses, %d evictions",
+            size(), capacity, getHitCount(), getMissCount(), getEvictionCount());
+  }
+}
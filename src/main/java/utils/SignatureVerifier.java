@@ -0,0 +1,131 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import transaction.Transaction;
+
+/**
+ * This class represents a verifier of the signatures of a batch of Transactions, such as all
+ * Transactions of a received Block or of a whole received BlockChain. The batch is split into one
+ * task for each worker thread, and the first invalid signature stops all the tasks. The checks of
+ * the inputs against an UTXOMap depend on the order of the Transactions, thus they are not part of
+ * the batch and stay sequential in the Block and the BlockChain.
+ * With a single thread, the signatures are verified on the calling thread.
+ */
+public class SignatureVerifier {
+  public static final String THREADS_PROPERTY = "validation.signature.threads";
+
+  private static final SignatureVerifier DEFAULT = fromConfiguration();
+
+  private final int threadCount;
+  private final ExecutorService executor; // null when the signatures are verified sequentially
+
+  /**
+   * Construct a SignatureVerifier with the given number of worker threads.
+   *
+   * @param threadCount a positive integer of worker threads
+   * @throws IllegalArgumentException if the given number of threads is not positive
+   */
+  public SignatureVerifier(int threadCount) throws IllegalArgumentException {
+    if (threadCount <= 0) {
+      throw new IllegalArgumentException("Signature verifier needs at least one thread!");
+    }
+    this.threadCount = threadCount;
+    this.executor = threadCount == 1 ? null
+            : Executors.newFixedThreadPool(threadCount, runnable -> {
+              Thread worker = new Thread(runnable, "signature-verifier");
+              worker.setDaemon(true);
+              return worker;
+            });
+  }
+
+  /**
+   * Create a SignatureVerifier from the node configuration, which is given by the system property
+   * "validation.signature.threads". By default, there is one worker thread for each available
+   * processor.
+   *
+   * @return a new SignatureVerifier
+   * @throws IllegalArgumentException if the configured number of threads is invalid
+   */
+  public static SignatureVerifier fromConfiguration() throws IllegalArgumentException {
+    return new SignatureVerifier(Integer.parseInt(System.getProperty(THREADS_PROPERTY,
+            String.valueOf(Runtime.getRuntime().availableProcessors()))));
+  }
+
+  /**
+   * Get the SignatureVerifier shared by the Block and BlockChain validations of this node.
+   *
+   * @return the default SignatureVerifier
+   */
+  public static SignatureVerifier getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * Verify the signatures of all given Transactions.
+   *
+   * @param transactions a given list of Transactions
+   * @return a boolean value, which is true if every signature is valid
+   */
+  public boolean verifyAll(List<Transaction> transactions) {
+    int taskCount = Math.min(threadCount, transactions.size());
+    if (executor == null || taskCount <= 1) {
+      return verifyStride(transactions, 0, 1, new AtomicBoolean());
+    }
+
+    AtomicBoolean failed = new AtomicBoolean();
+    List<Callable<Boolean>> tasks = new ArrayList<>();
+    for (int i = 0; i < taskCount; i++) {
+      int first = i;
+      tasks.add(() -> verifyStride(transactions, first, taskCount, failed));
+    }
+    try {
+      for (Future<Boolean> future : executor.invokeAll(tasks)) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException e) {
+      e.printStackTrace();
+      return false;
+    }
+    return !failed.get();
+  }
+
+  /**
+   * Verify the signatures of every stride-th Transaction from a given index, until one of them
+   * or one of another task is invalid. The interleaved indexes balance the Transactions of
+   * different senders across the tasks.
+   *
+   * @param transactions a given list of Transactions
+   * @param first the index of the first Transaction to verify
+   * @param stride the distance between the Transactions to verify
+   * @param failed a flag shared by all tasks, which is set by the first invalid signature
+   * @return a boolean value, which is true if no invalid signature is found
+   */
+  private static boolean verifyStride(List<Transaction> transactions, int first, int stride,
+                                      AtomicBoolean failed) {
+    for (int i = first; i < transactions.size() && !failed.get(); i += stride) {
+      if (!transactions.get(i).verifySignature()) {
+        failed.set(true);
+      }
+    }
+    return !failed.get();
+  }
+
+  /**
+   * Get the number of worker threads of this SignatureVerifier.
+   *
+   * @return a positive integer
+   */
+  public int getThreadCount() {
+    return threadCount;
+  }
+}
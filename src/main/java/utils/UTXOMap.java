@@ -1,9 +1,14 @@
 package utils;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import transaction.Transaction;
 import transaction.TransactionFlow;
 
 /**
@@ -14,26 +19,105 @@ import transaction.TransactionFlow;
  * is the same as the outputs recipient.
  * Once an UTXO become a new Transaction input, it is marked as "spent" and will be
  * removed from the UTXO map.
+ * Lookups and the read-only views of the map, its IDs and its UTXOs never copy the map, thus they
+ * cost the same with any number of UTXOs.
+ * The UTXOs are kept by a UTXOStore, whose type is given by the node configuration.
+ * The IDs and the balance of every owner are indexed while UTXOs are put and removed, thus the
+ * balance of a Wallet is a single lookup, and its coin selection only visits its own UTXOs.
+ * The balances and the sum of all UTXOs are running longs of units, thus they are exact, and
+ * sum() is a single read instead of a stream over the UTXOs.
+ * The owner index is a PersistentHashMap, which a copy shares, thus with a PERSISTENT store a
+ * copy costs O(1), and the updates of the copy only allocate the changed paths. A store that
+ * indexes the owners itself, such as the MAPPED store, is used instead of the owner index.
  */
 public class UTXOMap implements Serializable {
-  private Map<String, TransactionFlow> utxoMap;
+  private final UTXOStore store;
+  // the UTXOs of each owner, rebuilt from the store when a UTXOMap is deserialized
+  private transient PersistentHashMap<String, OwnedUTXOs> ownerIndex;
+  private transient UndoRecord journal; // records the changes staged by a UTXOView, or null
+  private transient long sumUnits; // the sum of all UTXOs in units
 
   /**
-   * Construct an empty UTXOMap object.
+   * Construct an empty UTXOMap object, with the UTXOStore type of the node configuration.
+   * A configured MAPPED store is only used for the UTXOMap of a node, which is created with
+   * the configured type explicitly, thus the temporary UTXOMaps stay in memory with a
+   * PERSISTENT store.
+   *
+   * @throws IllegalArgumentException if the configured store type is invalid
+   */
+  public UTXOMap() throws IllegalArgumentException {
+    this(UTXOStore.configuredType() == UTXOStore.StoreType.MAPPED
+            ? UTXOStore.StoreType.PERSISTENT : UTXOStore.configuredType());
+  }
+
+  /**
+   * Construct an empty UTXOMap object with a given type of UTXOStore.
+   *
+   * @param storeType a given StoreType
+   */
+  public UTXOMap(UTXOStore.StoreType storeType) {
+    this(UTXOStore.create(storeType));
+  }
+
+  /**
+   * Construct a UTXOMap object with a given UTXOStore.
+   *
+   * @param store a given UTXOStore
+   */
+  private UTXOMap(UTXOStore store) {
+    this.store = store;
+    this.ownerIndex = PersistentHashMap.empty();
+  }
+
+  /**
+   * Get a UTXOMap of the UTXOs already in a given UTXOStore, such as a MappedUTXOStore reopened
+   * from its directory.
+   *
+   * @param store a given UTXOStore
+   * @return a new UTXOMap backed by the given store
    */
-  public UTXOMap() {
-    this.utxoMap = new HashMap<>();
+  public static UTXOMap fromStore(UTXOStore store) {
+    UTXOMap utxoMap = new UTXOMap(store);
+    utxoMap.reindex();
+    return utxoMap;
   }
 
   /**
-   * Get the map from this UTXOMap.
+   * Get a read-only view of the map from this UTXOMap. The view reflects later changes of this
+   * UTXOMap, use copy() to keep a snapshot.
    *
-   * @return a Map<String, TransactionFlow> contained in this UTXOMap
+   * @return an unmodifiable Map<String, TransactionFlow> backed by this UTXOMap
    */
   public Map<String, TransactionFlow> getMap() {
-    Map<String, TransactionFlow> mapCopy = new HashMap<>();
-    this.utxoMap.forEach(mapCopy::put);
-    return mapCopy;
+    return store.asMap();
+  }
+
+  /**
+   * Get a read-only view of the UTXO IDs in this UTXOMap.
+   *
+   * @return an unmodifiable Set of ID strings backed by this UTXOMap
+   */
+  public Set<String> keySet() {
+    return Collections.unmodifiableSet(store.asMap().keySet());
+  }
+
+  /**
+   * Get a read-only view of the UTXOs in this UTXOMap.
+   *
+   * @return an unmodifiable Collection of TransactionFlows backed by this UTXOMap
+   */
+  public Collection<TransactionFlow> values() {
+    return Collections.unmodifiableCollection(store.asMap().values());
+  }
+
+  /**
+   * Get the UTXO of a given ID.
+   *
+   * @param ID a given UTXO ID string
+   * @return the TransactionFlow of the given ID, or null if it is not in this UTXOMap
+   */
+  public TransactionFlow get(String ID) {
+    return store.get(ID);
   }
 
   /**
@@ -41,9 +125,20 @@ public class UTXOMap implements Serializable {
    *
    * @param ID a given ID string of the new TransactionFlow
    * @param transactionFlow a given TransactionFlow as the new UTXO
+   * @throws IllegalArgumentException if the ID could not be kept by the UTXOStore
    */
-  public void put(String ID, TransactionFlow transactionFlow) {
-    utxoMap.put(ID, transactionFlow);
+  public void put(String ID, TransactionFlow transactionFlow) throws IllegalArgumentException {
+    TransactionFlow replaced = store.put(ID, transactionFlow);
+    sumUnits += transactionFlow.getUnits() - (replaced == null ? 0 : replaced.getUnits());
+    if (!store.isOwnerIndexed()) {
+      if (replaced != null) {
+        unindex(ID, replaced);
+      }
+      index(ID, transactionFlow);
+    }
+    if (journal != null) {
+      journal.record(ID, replaced, transactionFlow);
+    }
   }
 
   /**
@@ -52,7 +147,25 @@ public class UTXOMap implements Serializable {
    * @param ID a given ID string of the removed TransactionFlow
    */
   public void remove(String ID) {
-    utxoMap.remove(ID);
+    TransactionFlow removed = store.remove(ID);
+    if (removed != null) {
+      sumUnits -= removed.getUnits();
+      if (!store.isOwnerIndexed()) {
+        unindex(ID, removed);
+      }
+      if (journal != null) {
+        journal.record(ID, removed, null);
+      }
+    }
+  }
+
+  /**
+   * Set the UndoRecord that records the later changes of this UTXOMap.
+   *
+   * @param journal a given UndoRecord, or null to stop recording
+   */
+  void setJournal(UndoRecord journal) {
+    this.journal = journal;
   }
 
   /**
@@ -61,11 +174,122 @@ public class UTXOMap implements Serializable {
    * @return a copy of this UTXOMap
    */
   public UTXOMap copy() {
-    UTXOMap utxoMapCopy = new UTXOMap();
-    this.utxoMap.forEach(utxoMapCopy::put); // deep copy, because TransactionFlow is immutable
+    UTXOMap utxoMapCopy = new UTXOMap(store.copy());
+    utxoMapCopy.ownerIndex = ownerIndex; // never changes, thus it could be shared
+    utxoMapCopy.sumUnits = sumUnits;
     return utxoMapCopy;
   }
 
+  /**
+   * Get a layer over this UTXOMap for staged changes, such as the changes of a UTXOView or a
+   * Block template. Its changes are not made on this UTXOMap, and this UTXOMap must not change
+   * while the layer is used. Unlike a copy, it costs O(changes) with any UTXOStore.
+   *
+   * @return a new UTXOMap with the UTXOs of this one
+   */
+  public UTXOMap layer() {
+    UTXOMap utxoMapLayer = new UTXOMap(store.layer());
+    utxoMapLayer.ownerIndex = ownerIndex;
+    utxoMapLayer.sumUnits = sumUnits;
+    return utxoMapLayer;
+  }
+
+  /**
+   * Get the IDs of the UTXOs owned by a given owner, as they are now.
+   *
+   * @param owner a Wallet's PublicKey string
+   * @return an unmodifiable Set of ID strings, which is empty if the owner has no UTXO
+   */
+  public Set<String> getOwnedIDs(String owner) {
+    if (store.isOwnerIndexed()) {
+      return store.getOwnedIDs(owner);
+    }
+    OwnedUTXOs owned = ownerIndex.get(owner);
+    return owned == null ? Collections.emptySet() : owned.IDs.keySet();
+  }
+
+  /**
+   * Get the sum of the UTXOs owned by a given owner, without visiting them.
+   *
+   * @param owner a Wallet's PublicKey string
+   * @return a double value of the balance, which is 0 if the owner has no UTXO
+   */
+  public double getBalance(String owner) {
+    return Transaction.toCoins(getBalanceUnits(owner));
+  }
+
+  /**
+   * Get the sum of the UTXOs owned by a given owner in units, without visiting them.
+   *
+   * @param owner a Wallet's PublicKey string
+   * @return a long value of the balance, which is 0 if the owner has no UTXO
+   */
+  public long getBalanceUnits(String owner) {
+    if (store.isOwnerIndexed()) {
+      return store.getBalanceUnits(owner);
+    }
+    OwnedUTXOs owned = ownerIndex.get(owner);
+    return owned == null ? 0 : owned.balance;
+  }
+
+  /**
+   * Add a UTXO to the index of its owner.
+   *
+   * @param ID the ID string of the UTXO
+   * @param transactionFlow the TransactionFlow of the UTXO
+   */
+  private void index(String ID, TransactionFlow transactionFlow) {
+    String owner = transactionFlow.getOwner();
+    OwnedUTXOs owned = ownerIndex.get(owner);
+    ownerIndex = ownerIndex.with(owner, owned == null
+            ? new OwnedUTXOs(PersistentHashMap.<String, String>empty().with(ID, ID),
+                    transactionFlow.getUnits())
+            : new OwnedUTXOs(owned.IDs.with(ID, ID), owned.balance + transactionFlow.getUnits()));
+  }
+
+  /**
+   * Remove a UTXO from the index of its owner. An owner without UTXOs is dropped.
+   *
+   * @param ID the ID string of the UTXO
+   * @param transactionFlow the TransactionFlow of the UTXO
+   */
+  private void unindex(String ID, TransactionFlow transactionFlow) {
+    String owner = transactionFlow.getOwner();
+    OwnedUTXOs owned = ownerIndex.get(owner);
+    PersistentHashMap<String, String> IDs = owned.IDs.without(ID);
+    ownerIndex = IDs.isEmpty() ? ownerIndex.without(owner) : ownerIndex.with(owner,
+            new OwnedUTXOs(IDs, owned.balance - transactionFlow.getUnits()));
+  }
+
+  /**
+   * Read a UTXOMap written by the default serialization, and rebuild its owner index.
+   *
+   * @param in a given ObjectInputStream
+   * @throws IOException if the reading fails
+   * @throws ClassNotFoundException if a class of the store is not found
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    reindex();
+  }
+
+  /**
+   * Take the sum of the UTXOs from a store that indexes owners, such as a reopened MappedUTXOStore,
+   * without visiting its entries. Otherwise sum the UTXOs of the store and index them by owner.
+   */
+  private void reindex() {
+    ownerIndex = PersistentHashMap.empty();
+    if (store.isOwnerIndexed()) {
+      sumUnits = store.getSumUnits();
+      return;
+    }
+    sumUnits = 0;
+    store.asMap().forEach((ID, transactionFlow) -> {
+      sumUnits += transactionFlow.getUnits();
+      index(ID, transactionFlow);
+    });
+  }
+
   /**
    * Check if a given UTXO ID is contained in this UTXOMap.
    *
@@ -73,16 +297,59 @@ public class UTXOMap implements Serializable {
    * @return a boolean value, which is true if the given ID is contained in this UTXOMap
    */
   public boolean containsKey(String ID) {
-    return utxoMap.containsKey(ID);
+    return store.containsKey(ID);
   }
 
   /**
-   * Calculate the sum of all UTXOs in this UTXOMap.
+   * Check if all given UTXO IDs are contained in this UTXOMap, with one lookup for each ID.
+   *
+   * @param IDs a given collection of UTXO ID strings
+   * @return a boolean value, which is true if every given ID is contained in this UTXOMap
+   */
+  public boolean containsAll(Collection<String> IDs) {
+    for (String ID : IDs) {
+      if (!store.containsKey(ID)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Get the number of UTXOs in this UTXOMap.
+   *
+   * @return an integer of the size
+   */
+  public int size() {
+    return store.size();
+  }
+
+  /**
+   * Get the type of the UTXOStore of this UTXOMap.
+   *
+   * @return a StoreType value
+   */
+  public UTXOStore.StoreType getStoreType() {
+    return store.getType();
+  }
+
+  /**
+   * Get the sum of all UTXOs in this UTXOMap.
    *
    * @return a double value, represents the sum of all UTXOs
    */
   public double sum() {
-    return utxoMap.values().stream().mapToDouble(TransactionFlow:: getValue).sum();
+    return Transaction.toCoins(sumUnits);
+  }
+
+  /**
+   * Get the sum of all UTXOs in this UTXOMap in units, which is kept while UTXOs are put and
+   * removed.
+   *
+   * @return a long value of the sum in units
+   */
+  public long sumUnits() {
+    return sumUnits;
   }
 
   /**
@@ -93,7 +360,7 @@ public class UTXOMap implements Serializable {
   @Override
   public String toString() {
     StringBuilder result = new StringBuilder();
-    for (TransactionFlow each : utxoMap.values()) {
+    for (TransactionFlow each : store.asMap().values()) {
       result.append(each.toString());
     }
     return result.toString();
@@ -110,7 +377,7 @@ public class UTXOMap implements Serializable {
     if (this == o) return true;
     if (o == null || getClass() != o.getClass()) return false;
     UTXOMap otherMap = (UTXOMap) o;
-    return utxoMap.equals(otherMap.utxoMap);
+    return store.asMap().equals(otherMap.store.asMap());
   }
 
   /**
@@ -120,6 +387,19 @@ public class UTXOMap implements Serializable {
    */
   @Override
   public int hashCode() {
-    return Objects.hash(utxoMap);
+    return Objects.hash(store.asMap());
+  }
+
+  /**
+   * This class represents the UTXO IDs and the running balance of one owner, which never change.
+   */
+  private static class OwnedUTXOs {
+    private final PersistentHashMap<String, String> IDs; // each ID maps to itself
+    private final long balance; // in units
+
+    private OwnedUTXOs(PersistentHashMap<String, String> IDs, long balance) {
+      this.IDs = IDs;
+      this.balance = balance;
+    }
   }
 }
@@ -0,0 +1,184 @@
+package utils;
+
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Set;
+import transaction.TransactionFlow;
+
+/**
+ * This interface represents the storage behind an UTXOMap, which maps UTXO IDs to the output
+ * TransactionFlows. Different stores trade memory for speed differently, and one of them is
+ * picked for a node through the node configuration. A UTXOStore is not thread-safe.
+ */
+public interface UTXOStore extends Serializable {
+  /**
+   * An enum type represents the available UTXOStore implementations.
+   */
+  enum StoreType { HASH_MAP, OPEN_ADDRESSING, PERSISTENT, MAPPED
+  }
+
+  String STORE_PROPERTY = "utxo.store";
+  String DIRECTORY_PROPERTY = "utxo.store.directory";
+
+  /**
+   * Get the UTXO of a given ID.
+   *
+   * @param ID a given UTXO ID string
+   * @return the TransactionFlow of the given ID, or null if it is not in this UTXOStore
+   */
+  TransactionFlow get(String ID);
+
+  /**
+   * Check if a given UTXO ID is contained in this UTXOStore.
+   *
+   * @param ID a given UTXO ID string
+   * @return a boolean value, which is true if the given ID is contained in this UTXOStore
+   */
+  boolean containsKey(String ID);
+
+  /**
+   * Put a new UTXO entry in this UTXOStore, replacing the entry of the same ID.
+   *
+   * @param ID a given ID string of the new TransactionFlow
+   * @param transactionFlow a given TransactionFlow as the new UTXO
+   * @return the replaced TransactionFlow, or null if the ID was not in this UTXOStore
+   * @throws IllegalArgumentException if the ID could not be kept by this UTXOStore
+   */
+  TransactionFlow put(String ID, TransactionFlow transactionFlow)
+          throws IllegalArgumentException;
+
+  /**
+   * Remove an UTXO entry from this UTXOStore.
+   *
+   * @param ID a given ID string of the removed TransactionFlow
+   * @return the removed TransactionFlow, or null if the ID is not in this UTXOStore
+   */
+  TransactionFlow remove(String ID);
+
+  /**
+   * Get the number of UTXOs in this UTXOStore.
+   *
+   * @return an integer of the size
+   */
+  int size();
+
+  /**
+   * Get a copy of this UTXOStore, which is independent of later changes of this one.
+   *
+   * @return a new UTXOStore of the same type
+   */
+  UTXOStore copy();
+
+  /**
+   * Get a read-only view of this UTXOStore as a Map, which reflects later changes.
+   *
+   * @return an unmodifiable Map from UTXO IDs to TransactionFlows
+   */
+  Map<String, TransactionFlow> asMap();
+
+  /**
+   * Get the type of this UTXOStore.
+   *
+   * @return a StoreType value
+   */
+  StoreType getType();
+
+  /**
+   * Get a layer over this UTXOStore for staged changes, which this UTXOStore must not change
+   * under. By default, it is an overlay of the changes, which costs O(changes).
+   *
+   * @return a new UTXOStore with the UTXOs of this one
+   */
+  default UTXOStore layer() {
+    return new OverlayUTXOStore(this);
+  }
+
+  /**
+   * Check if this UTXOStore indexes the UTXOs of each owner itself, instead of the UTXOMap.
+   *
+   * @return a boolean value, which is true if getOwnedIDs(), getBalanceUnits() and getSumUnits()
+   *         are supported
+   */
+  default boolean isOwnerIndexed() {
+    return false;
+  }
+
+  /**
+   * Get the IDs of the UTXOs owned by a given owner.
+   *
+   * @param owner a Wallet's PublicKey string
+   * @return an unmodifiable Set of ID strings
+   * @throws UnsupportedOperationException if this UTXOStore does not index owners
+   */
+  default Set<String> getOwnedIDs(String owner) throws UnsupportedOperationException {
+    throw new UnsupportedOperationException("UTXOStore does not index owners!");
+  }
+
+  /**
+   * Get the sum of the UTXOs owned by a given owner in units.
+   *
+   * @param owner a Wallet's PublicKey string
+   * @return a long value of the balance
+   * @throws UnsupportedOperationException if this UTXOStore does not index owners
+   */
+  default long getBalanceUnits(String owner) throws UnsupportedOperationException {
+    throw new UnsupportedOperationException("UTXOStore does not index owners!");
+  }
+
+  /**
+   * Get the sum of all UTXOs in units, kept by the store along with the balances of the owners.
+   *
+   * @return a long value of the sum
+   * @throws UnsupportedOperationException if this UTXOStore does not index owners
+   */
+  default long getSumUnits() throws UnsupportedOperationException {
+    throw new UnsupportedOperationException("UTXOStore does not index owners!");
+  }
+
+  /**
+   * Create an empty UTXOStore of a given type.
+   *
+   * @param type a given StoreType
+   * @return a new UTXOStore
+   */
+  static UTXOStore create(StoreType type) {
+    switch (type) {
+      case OPEN_ADDRESSING:
+        return new OpenAddressingUTXOStore();
+      case PERSISTENT:
+        return new PersistentUTXOStore();
+      case MAPPED:
+        return MappedUTXOStore.create(configuredDirectory());
+      case HASH_MAP:
+      default:
+        return new HashMapUTXOStore();
+    }
+  }
+
+  /**
+   * Get the type of UTXOStore from the node configuration, which is given by the system property
+   * "utxo.store" (one of the StoreType names). By default, a PERSISTENT store is used, whose
+   * copies cost O(1).
+   *
+   * @return a StoreType value
+   * @throws IllegalArgumentException if the configured store type is invalid
+   */
+  static StoreType configuredType() throws IllegalArgumentException {
+    return StoreType.valueOf(
+            System.getProperty(STORE_PROPERTY, StoreType.PERSISTENT.name()).toUpperCase());
+  }
+
+  /**
+   * Get the directory in which new MAPPED stores are created from the node configuration, which
+   * is given by the system property "utxo.store.directory". By default, each store is created in
+   * a new temporary directory, which is deleted when the JVM exits.
+   *
+   * @return the path of a directory, or null for temporary directories
+   */
+  static Path configuredDirectory() {
+    String directory = System.getProperty(DIRECTORY_PROPERTY);
+    return directory == null ? null : Paths.get(directory);
+  }
+}
@@ -0,0 +1,65 @@
+package utils;
+
+/**
+ * This class represents a layer of staged changes over a base UTXOMap, such as the changes of a
+ * Block being connected. The changes are made on a layer over the base, which costs O(1) with
+ * the PERSISTENT store and O(changes) with the others, and recorded in an UndoRecord. commit()
+ * makes the recorded changes on the base, which costs O(changes) whatever the size of the base,
+ * and returns the record, thus the changes could be undone later; discard() drops them and
+ * leaves the base untouched.
+ * A UTXOView could be layered over the UTXOMap of another UTXOView, then its commit only changes
+ * the layer below. A UTXOView is used by one thread, and the base must not change before the
+ * view is committed or discarded.
+ */
+public class UTXOView {
+  private final UTXOMap base;
+  private UTXOMap staged;
+  private UndoRecord undoRecord;
+
+  /**
+   * Construct a UTXOView over a given base UTXOMap, without staged changes.
+   *
+   * @param base a given UTXOMap
+   */
+  public UTXOView(UTXOMap base) {
+    this.base = base;
+    this.undoRecord = new UndoRecord();
+    this.staged = base.layer();
+    staged.setJournal(undoRecord);
+  }
+
+  /**
+   * Get the UTXOMap of this view, which is the base with the staged changes. The Transactions of
+   * the staged Block are validated against it and update it.
+   *
+   * @return the staged UTXOMap
+   * @throws IllegalStateException if this view is already committed or discarded
+   */
+  public UTXOMap getUTXOMap() throws IllegalStateException {
+    if (staged == null) {
+      throw new IllegalStateException("UTXOView is already closed!");
+    }
+    return staged;
+  }
+
+  /**
+   * Make the staged changes on the base UTXOMap, and close this view.
+   *
+   * @return the UndoRecord of the changes, which restores the base when undone
+   * @throws IllegalStateException if this view is already committed or discarded
+   */
+  public UndoRecord commit() throws IllegalStateException {
+    getUTXOMap().setJournal(null);
+    undoRecord.redo(base);
+    staged = null;
+    return undoRecord;
+  }
+
+  /**
+   * Drop the staged changes, and close this view.
+   */
+  public void discard() {
+    staged = null;
+    undoRecord = null;
+  }
+}
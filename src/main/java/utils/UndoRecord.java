@@ -0,0 +1,93 @@
+package utils;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import transaction.TransactionFlow;
+
+/**
+ * This class represents the changes of an UTXOMap, in the order they were made. Each change keeps
+ * the UTXO ID, the TransactionFlow before the change, which is null for a new output, and the
+ * TransactionFlow after it, which is null for a spent output. Thus the record of a Block holds the
+ * outputs spent by the Block, and undoing it restores the UTXOMap before the Block, whatever the
+ * order of the spends and outputs in the Block was.
+ */
+public class UndoRecord implements Serializable {
+  private final List<String> IDs = new ArrayList<>();
+  private final List<TransactionFlow> previousFlows = new ArrayList<>();
+  private final List<TransactionFlow> nextFlows = new ArrayList<>();
+
+  /**
+   * Record a change of an UTXO.
+   *
+   * @param ID the UTXO ID string
+   * @param previous the TransactionFlow before the change, or null if the UTXO was new
+   * @param next the TransactionFlow after the change, or null if the UTXO was spent
+   */
+  void record(String ID, TransactionFlow previous, TransactionFlow next) {
+    IDs.add(ID);
+    previousFlows.add(previous);
+    nextFlows.add(next);
+  }
+
+  /**
+   * Make the recorded changes again on a given UTXOMap, in their order.
+   *
+   * @param utxoMap a given UTXOMap in the state before the changes
+   */
+  public void redo(UTXOMap utxoMap) {
+    for (int i = 0; i < IDs.size(); i++) {
+      apply(utxoMap, IDs.get(i), nextFlows.get(i));
+    }
+  }
+
+  /**
+   * Revert the recorded changes on a given UTXOMap, in the reverse order.
+   *
+   * @param utxoMap a given UTXOMap in the state after the changes
+   */
+  public void undo(UTXOMap utxoMap) {
+    for (int i = IDs.size() - 1; i >= 0; i--) {
+      apply(utxoMap, IDs.get(i), previousFlows.get(i));
+    }
+  }
+
+  /**
+   * Get the number of recorded changes.
+   *
+   * @return an integer of the size
+   */
+  public int size() {
+    return IDs.size();
+  }
+
+  /**
+   * Get the outputs spent by the recorded changes.
+   *
+   * @return a new list of the spent TransactionFlows
+   */
+  public List<TransactionFlow> getSpentOutputs() {
+    List<TransactionFlow> spentOutputs = new ArrayList<>();
+    for (int i = 0; i < IDs.size(); i++) {
+      if (nextFlows.get(i) == null && previousFlows.get(i) != null) {
+        spentOutputs.add(previousFlows.get(i));
+      }
+    }
+    return spentOutputs;
+  }
+
+  /**
+   * Set an UTXO of a given UTXOMap to a given TransactionFlow.
+   *
+   * @param utxoMap a given UTXOMap
+   * @param ID the UTXO ID string
+   * @param flow the TransactionFlow of the UTXO, or null to remove the UTXO
+   */
+  private static void apply(UTXOMap utxoMap, String ID, TransactionFlow flow) {
+    if (flow == null) {
+      utxoMap.remove(ID);
+    } else {
+      utxoMap.put(ID, flow);
+    }
+  }
+}
@@ -13,12 +13,13 @@ import java.security.Security;
 import java.security.spec.ECGenParameterSpec;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
+import block.HeaderChain;
+import block.TransactionProof;
 import transaction.NormalTransaction;
 import transaction.Transaction;
-import transaction.TransactionFlow;
 import utils.UTXOMap;
 import utils.BlockchainUtil;
 
@@ -29,11 +30,12 @@ import utils.BlockchainUtil;
 public class Wallet implements Cloneable {
   private PrivateKey privateKey;
   private PublicKey publicKey;
+  private String publicKeyStr; // the encoded PublicKey, which never changes
   // contains both sending and received TXs
   // sending TX updated in Wallet.sent() method
   // received TX updated in PeerNode.updateBlockChain(BLock, int) method
   private List<Transaction> transactionHistory;
-  private double balance;
+  private long balance; // in units of Transaction.UNITS_PER_COIN
 
   static {
     try {
@@ -54,7 +56,7 @@ public class Wallet implements Cloneable {
       e.printStackTrace();
     }
     transactionHistory = new ArrayList<>();
-    balance = 0.0;
+    balance = 0;
   }
 
   /**
@@ -74,17 +76,16 @@ public class Wallet implements Cloneable {
     KeyPair keys = keyGenerator.generateKeyPair();
     privateKey = keys.getPrivate();
     publicKey = keys.getPublic();
+    publicKeyStr = BlockchainUtil.keyToString(publicKey);
   }
 
   /**
-   * Update the balance of this Wallet by a given UTXOMap.
+   * Update the balance of this Wallet by a given UTXOMap, which keeps the balance of each owner.
    *
    * @param utxoMap an UTXOMap contains all UTXOs belong to this Wallet
    */
   public void updateBalance(UTXOMap utxoMap) {
-    balance = utxoMap.getMap().values().stream()
-            .filter(transactionFlow -> transactionFlow.isOwnedBy(getPublicKeyStr()))
-            .mapToDouble(TransactionFlow::getValue).sum();
+    balance = utxoMap.getBalanceUnits(getPublicKeyStr());
   }
 
   /**
@@ -99,9 +100,25 @@ public class Wallet implements Cloneable {
    */
   public Transaction send(String recipient, double value, String memo,
                           UTXOMap utxoMap) throws IllegalArgumentException {
-    // create a new Transaction
-    Transaction newTX = new NormalTransaction(getPublicKeyStr(), recipient, value, memo,
-            generateInputs(utxoMap, value));
+    return sendUnits(recipient, Transaction.toUnits(value), memo, utxoMap);
+  }
+
+  /**
+   * Send a given number of units from this Wallet to given recipient. It is not an overload of
+   * send, since an integer literal passed to send would then be taken as units instead of coins.
+   *
+   * @param recipient a Wallet's PublicKey string of the recipient
+   * @param valueUnits a long value in units of Transaction.UNITS_PER_COIN
+   * @param memo a memo string
+   * @param utxoMap an UTXOMap that contains all UTXOs belong to this Wallet
+   * @return a Transaction started by this Wallet owner
+   * @throws IllegalArgumentException if the generated Transaction is invalid
+   */
+  public Transaction sendUnits(String recipient, long valueUnits, String memo,
+                               UTXOMap utxoMap) throws IllegalArgumentException {
+    // create a new Transaction, toCoins converts back to the same units in its constructor
+    Transaction newTX = new NormalTransaction(getPublicKeyStr(), recipient,
+            Transaction.toCoins(valueUnits), memo, generateInputs(utxoMap, valueUnits));
 
     // sign the Transaction
     ((NormalTransaction) newTX).sign(privateKey);
@@ -128,6 +145,43 @@ public class Wallet implements Cloneable {
     }
   }
 
+  /**
+   * Confirm a Transaction in the transaction history of this Wallet by a given TransactionProof,
+   * without the Transactions of the Blocks. The proof is checked against a HeaderChain the Wallet
+   * verified itself, thus a header made up by the replying Node is rejected.
+   *
+   * @param transactionID the ID of a Transaction in the transaction history
+   * @param proof a TransactionProof replied by a Node
+   * @param trustedHeaders a given HeaderChain the Wallet verified
+   * @return a boolean value, which is true if the Transaction is proven and confirmed
+   */
+  public boolean confirmTransaction(String transactionID, TransactionProof proof,
+                                    HeaderChain trustedHeaders) {
+    if (proof == null || !proof.verify(transactionID, trustedHeaders)) {
+      return false;
+    }
+    for (Transaction transaction : transactionHistory) {
+      if (transaction.getID().equals(transactionID)) {
+        transaction.confirm();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Remove the Transactions received by this Wallet with given IDs from the transaction history,
+   * such as the ones of the Blocks disconnected by a reorganization. The Transactions sent by this
+   * Wallet are kept, as they were added when they were sent and are back in the Transaction pool.
+   *
+   * @param transactionIDs a given set of Transaction IDs
+   */
+  public void removeReceivedTransactions(Set<String> transactionIDs) {
+    String keyStr = getPublicKeyStr();
+    transactionHistory.removeIf(transaction -> transactionIDs.contains(transaction.getID())
+            && !transaction.isSentBy(keyStr));
+  }
+
   /**
    * Reset the transaction history of this Wallet to an empty list.
    */
@@ -149,25 +203,19 @@ public class Wallet implements Cloneable {
   }
 
   /**
-   * Generate inputs from a given UTXOMap.
+   * Generate inputs from a given UTXOMap, visiting only the UTXOs of this Wallet.
    *
    * @param utxoMap an UTXOMap that contains all UTXOs belong to this Wallet
-   * @param transactionValue a given double value of a new Transaction
+   * @param valueUnits a given long value of a new Transaction in units
    * @return an UTXOMap represents the necessary inputs to a new Transaction
    */
-  private UTXOMap generateInputs(UTXOMap utxoMap, double transactionValue) {
+  private UTXOMap generateInputs(UTXOMap utxoMap, long valueUnits) {
     UTXOMap inputs = new UTXOMap();
-    double inputsSum;
 
-    for (Map.Entry<String, TransactionFlow> each : utxoMap.getMap().entrySet()) {
-      String eachKey = each.getKey();
-      TransactionFlow eachFlow = each.getValue();
-      if (eachFlow.isOwnedBy(getPublicKeyStr())) {
-        inputs.put(eachKey, eachFlow);
-      }
+    for (String eachID : utxoMap.getOwnedIDs(getPublicKeyStr())) {
+      inputs.put(eachID, utxoMap.get(eachID));
       // if the inputs sum is larger than the new Transaction's value, stop adding UTXO to inputs
-      inputsSum = inputs.sum();
-      if (inputsSum > transactionValue) {
+      if (inputs.sumUnits() > valueUnits) {
         break;
       }
     }
@@ -190,7 +238,7 @@ public class Wallet implements Cloneable {
    * @return a hexadecimal strign represents the PublicKey
    */
   public String getPublicKeyStr() {
-    return BlockchainUtil.keyToString(publicKey);
+    return publicKeyStr;
   }
 
   /**
@@ -199,6 +247,15 @@ public class Wallet implements Cloneable {
    * @return a double value of the balance
    */
   public double getBalance() {
+    return Transaction.toCoins(balance);
+  }
+
+  /**
+   * Get the balance of this Wallet in units.
+   *
+   * @return a long value of the balance in units of Transaction.UNITS_PER_COIN
+   */
+  public long getBalanceUnits() {
     return balance;
   }
 
@@ -221,7 +278,7 @@ public class Wallet implements Cloneable {
   @Override
   public String toString() {
     return String.format("wallet.Wallet: %s%n", getPublicKeyStr())
-            + String.format("Current Balance: %.2f%n", balance)
+            + String.format("Current Balance: %.2f%n", getBalance())
             + String.format("transaction.Transaction History: %s", transactionHistory);
   }
 
@@ -255,7 +312,7 @@ public class Wallet implements Cloneable {
     if (this == o) return true;
     if (o == null || getClass() != o.getClass()) return false;
     Wallet other = (Wallet) o;
-    return Math.abs(other.balance - balance) < 0.001
+    return other.balance == balance
             && privateKey.equals(other.privateKey)
             && publicKey.equals(other.publicKey)
             && transactionHistory.equals(other.transactionHistory);
@@ -1,18 +1,33 @@
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
 
-import java.util.Random;
-
 import block.Block;
 import block.BlockChain;
+import block.BlockHeader;
+import block.Difficulty;
+import block.HeaderChain;
+import mining.MiningCancellation;
+import mining.MiningEngine;
+import mining.MiningResult;
+import mining.NonceHasher;
 import transaction.Transaction;
+import utils.BlockchainUtil;
+import utils.HashFunction;
+import utils.MerkleProof;
+import utils.MerkleTree;
 import utils.UTXOMap;
 import wallet.Wallet;
 
 import static org.junit.Assert.*;
 
 public class BlockTest {
-  public static final int DIFFICULTY = 4;
 
   private Wallet w1, w2, w3, w4;
   private Transaction tx1, tx2, tx3;
@@ -35,15 +50,14 @@ public class BlockTest {
   }
 
   // To simulate a block creation processed in node.PeerNode class
-  private static void mineBlockHelper(Block newBlock, int difficulty, UTXOMap utxoMap) {
+  private static void mineBlockHelper(Block newBlock, UTXOMap utxoMap) {
     boolean isMined;
-    Random rand = new Random();
     // add transactions
     // update transaction merkle root
     newBlock.setTransactionsMerkleRoot();
     // keep mining in a while loop
     do {
-      isMined = newBlock.oneMining(difficulty, rand);
+      isMined = newBlock.oneMining();
     } while (!isMined);
     // if mining succeeds, confirm all transactions in this new block (update TX state and UTXO)
     newBlock.processBlockTransactions(utxoMap);
@@ -55,17 +69,17 @@ public class BlockTest {
   @Test
   public void testBlockchainBuilding() {
     // create block1, w1 get 10 coins reward
-    mineBlockHelper(b1, DIFFICULTY, utxoMap);
+    mineBlockHelper(b1, utxoMap);
     bc.addBlock(b1);
 
     // create block2, w2 get 10 coins reward
     b2 = new Block(b1.getHash(), w2.getPublicKeyStr());
-    mineBlockHelper(b2, DIFFICULTY, utxoMap);
+    mineBlockHelper(b2, utxoMap);
     bc.addBlock(b2);
 
     // create block3, w3 get 10 coins reward
     b3 = new Block(b2.getHash(), w3.getPublicKeyStr());
-    mineBlockHelper(b3, DIFFICULTY, utxoMap);
+    mineBlockHelper(b3, utxoMap);
     bc.addBlock(b3);
 
     // after creating the first 3 blocks,
@@ -94,11 +108,11 @@ public class BlockTest {
     UTXOMap utxoMapBefore = utxoMap.copy();
     // after creating the new block b4, w1's local utxoMap has been updated,
     // as well as the global map in this test case
-    mineBlockHelper(b4, DIFFICULTY, utxoMap);
+    mineBlockHelper(b4, utxoMap);
 
     // Test the new block verification
     // w2, w3 should verify the new block b4 based on previous utxoMap
-    assertTrue(bc.verifyNewBlock(b4, utxoMapBefore, DIFFICULTY));
+    assertTrue(bc.verifyNewBlock(b4, utxoMapBefore));
 
     // after verifying the new block b4, w2, w3 could finally add it to their local blockchain
     bc.addBlock(b4);
@@ -127,7 +141,7 @@ public class BlockTest {
     assertEquals(b4Str, b4.toString());
 
     // Test blockchain verification
-    assertTrue(bc.verifyChain(4));
+    assertTrue(bc.verifyChain());
 
     // Test util.UTXOMap generation
     assertEquals(utxoMap, bc.generateUTXOMap());
@@ -138,17 +152,17 @@ public class BlockTest {
   @Test
   public void testInvalidAddTransaction() {
     // w1 get 10 coins reward
-    mineBlockHelper(b1, 4, utxoMap);
+    mineBlockHelper(b1, utxoMap);
     bc.addBlock(b1);
 
     // w2 get 10 coins reward
     b2 = new Block(b1.getHash(), w2.getPublicKeyStr());
-    mineBlockHelper(b2, 4, utxoMap);
+    mineBlockHelper(b2, utxoMap);
     bc.addBlock(b2);
 
     // w3 get 10 coins reward
     b3 = new Block(b2.getHash(), w3.getPublicKeyStr());
-    mineBlockHelper(b3, 4, utxoMap);
+    mineBlockHelper(b3, utxoMap);
     bc.addBlock(b3);
 
     // w1 send 5 coins to w2
@@ -156,7 +170,7 @@ public class BlockTest {
     // w1 create b4 contains transaction above, get 10 coins reward
     b4 = new Block(b3.getHash(), w1.getPublicKeyStr());
     b4.addTransaction(tx12, utxoMap);
-    mineBlockHelper(b4, 4, utxoMap);
+    mineBlockHelper(b4, utxoMap);
     bc.addBlock(b4);
 
     // tx12 was added to b4, cannot be added to b5 (double-spent is impossible)
@@ -167,17 +181,17 @@ public class BlockTest {
   @Test
   public void testInvalidPreviousHash() {
     // w1 get 10 coins reward
-    mineBlockHelper(b1, DIFFICULTY, utxoMap);
+    mineBlockHelper(b1, utxoMap);
     bc.addBlock(b1);
 
     // w2 get 10 coins reward
     b2 = new Block(b1.getHash(), w2.getPublicKeyStr());
-    mineBlockHelper(b2, DIFFICULTY, utxoMap);
+    mineBlockHelper(b2, utxoMap);
     bc.addBlock(b2);
 
     // w3 get 10 coins reward
     b3 = new Block(b2.getHash(), w3.getPublicKeyStr());
-    mineBlockHelper(b3, DIFFICULTY, utxoMap);
+    mineBlockHelper(b3, utxoMap);
     bc.addBlock(b3);
 
     // w1 send 5 coins to w2
@@ -188,54 +202,54 @@ public class BlockTest {
     b4 = new Block(b1.getHash(), w1.getPublicKeyStr());
     b4.addTransaction(tx12, utxoMap);
     UTXOMap utxoMapBefore = utxoMap.copy();
-    mineBlockHelper(b4, DIFFICULTY, utxoMap);
-    assertFalse(bc.verifyNewBlock(b4, utxoMapBefore, DIFFICULTY));
+    mineBlockHelper(b4, utxoMap);
+    assertFalse(bc.verifyNewBlock(b4, utxoMapBefore));
   }
 
   @Test
   public void testInvalidDifficulty() {
     // w1 get 10 coins reward
-    mineBlockHelper(b1, DIFFICULTY, utxoMap);
+    mineBlockHelper(b1, utxoMap);
     bc.addBlock(b1);
 
     // w2 get 10 coins reward
-    b2 = new Block(b1.getHash(), w2.getPublicKeyStr());
+    // b2 uses an easier target than the one required by the chain
+    b2 = new Block(b1.getHash(), w2.getPublicKeyStr(), Difficulty.fromLeadingZeros(3));
 
     // for miner w2, its local UTXO Map is updated when the mining successes
     // for w1 and w3, their local UTXO Map reamin previous version
     // w1 and w3 must use verifySelfTransactions method to validate the new block, based on previous UTXO Map
     UTXOMap utxoMapBefore = utxoMap.copy();
-    mineBlockHelper(b2, DIFFICULTY, utxoMap);
-    assertFalse(bc.verifyNewBlock(b1, utxoMapBefore, 3));
+    mineBlockHelper(b2, utxoMap);
+    assertTrue(b2.verifySelf(utxoMapBefore));
+    assertFalse(bc.verifyNewBlock(b2, utxoMapBefore));
 
   }
 
   @Test
   public void testInvalidBlockTransactions() {
     // w1 get 10 coins reward
-    mineBlockHelper(b1, DIFFICULTY, utxoMap);
+    mineBlockHelper(b1, utxoMap);
     bc.addBlock(b1);
 
     // w2 get 10 coins reward
     b2 = new Block(b1.getHash(), w2.getPublicKeyStr());
-    mineBlockHelper(b2, DIFFICULTY, utxoMap);
+    mineBlockHelper(b2, utxoMap);
     // utxoMap has been updated by miner w2,
     // thus other users cannot verify b2's transactions by using updated utxoMap
-    assertFalse(bc.verifyNewBlock(b1, utxoMap, DIFFICULTY));
+    assertFalse(bc.verifyNewBlock(b1, utxoMap));
 
   }
 
 
 
   // simulate an interrupted mining, the given newBlock will not be mined
-  private static boolean interruptedMiningHelper(BlockChain startingChain, Block newBlock,
-                                                 int difficulty) {
+  private static boolean interruptedMiningHelper(BlockChain startingChain, Block newBlock) {
     boolean isMined = false;
-    Random rand = new Random();
     int stratingSize = startingChain.size();
     int count = 0;
     while (!isMined && stratingSize == startingChain.size()) {
-      isMined = newBlock.oneMining(difficulty, rand);
+      isMined = newBlock.oneMining();
       count++;
       if (count == 5) {
         startingChain.addBlock(startingChain.getLastBlock()); // change the original blockchain's size
@@ -247,13 +261,13 @@ public class BlockTest {
 
   @Test
   public void testInterruptedMining() {
-    mineBlockHelper(b1, DIFFICULTY, utxoMap);
+    mineBlockHelper(b1, utxoMap);
     bc.addBlock(b1);
     b2 = new Block(b1.getHash(), w2.getPublicKeyStr());
-    mineBlockHelper(b2, DIFFICULTY, utxoMap);
+    mineBlockHelper(b2, utxoMap);
     bc.addBlock(b2);
     b3 = new Block(b2.getHash(), w3.getPublicKeyStr());
-    mineBlockHelper(b3, DIFFICULTY, utxoMap);
+    mineBlockHelper(b3, utxoMap);
     bc.addBlock(b3);
 
     // w1 send 5 coins to w2
@@ -270,34 +284,315 @@ public class BlockTest {
     b4.addTransaction(tx31, utxoMap);
 
     // b4 is not mined
-    assertFalse(interruptedMiningHelper(bc, b4, DIFFICULTY));
+    assertFalse(interruptedMiningHelper(bc, b4));
     assertEquals(4, bc.size());
-    assertFalse(bc.verifyNewBlock(b4, utxoMap,DIFFICULTY));
+    assertFalse(bc.verifyNewBlock(b4, utxoMap));
+
+  }
+
+  @Test
+  public void testMiningEngines() {
+    for (MiningEngine.EngineType type : MiningEngine.EngineType.values()) {
+      MiningEngine engine = MiningEngine.create(type, 4);
+      assertEquals(type, engine.getType());
+      Block block = new Block("0", w1.getPublicKeyStr());
+      block.setTransactionsMerkleRoot();
+      MiningResult result = engine.mine(block, () -> false);
+      assertNotNull(result);
+      assertEquals(result.getNonce(), block.getNonce());
+      assertEquals(result.getHash(), block.getHash());
+      assertTrue(block.verifySelfHash());
+      assertTrue(result.getHashCount() > 0);
+
+      // an interrupted engine gives up without touching the block
+      b2 = new Block("0", w2.getPublicKeyStr());
+      b2.setTransactionsMerkleRoot();
+      assertNull(engine.mine(b2, () -> true));
+      assertEquals("", b2.getHash());
+
+      assertEquals(1, engine.getStatistics().getSolvedCount());
+      assertEquals(1, engine.getStatistics().getInterruptedCount());
+      assertTrue(engine.getStatistics().getHashRate() > 0);
+    }
+  }
+
+  @Test
+  public void testMiningCancellation() throws InterruptedException {
+    MiningEngine engine = MiningEngine.create(MiningEngine.EngineType.THREAD_POOL, 2);
+    MiningCancellation cancellation = new MiningCancellation();
+    b1.setTransactionsMerkleRoot();
+    MiningResult[] result = new MiningResult[1];
+    // an impossible difficulty keeps the engine mining until it is cancelled
+    Block block = new Block("0", w1.getPublicKeyStr(), Difficulty.fromLeadingZeros(60));
+    block.setTransactionsMerkleRoot();
+    Thread miner = new Thread(() -> result[0] = engine.mine(block, cancellation::isCancelled));
+    miner.start();
+    Thread.sleep(100);
+    assertFalse(cancellation.isCancelled());
+
+    cancellation.cancel();
+    miner.join(1000);
+    assertFalse(miner.isAlive());
+    assertNull(result[0]);
+    assertTrue(cancellation.getNanosSinceCancel() > 0);
+    engine.getStatistics().recordCancellation(cancellation.getNanosSinceCancel());
+    assertEquals(1, engine.getStatistics().getCancelledCount());
+    assertTrue(engine.getStatistics().getMaxWastedMicros() > 0);
+
+    // a stale solution is counted on its own, without a wasted time
+    double averageWastedMicros = engine.getStatistics().getAverageWastedMicros();
+    engine.getStatistics().recordStaleSolution();
+    assertEquals(1, engine.getStatistics().getStaleCount());
+    assertEquals(1, engine.getStatistics().getCancelledCount());
+    assertEquals(averageWastedMicros, engine.getStatistics().getAverageWastedMicros(), 0);
+  }
+
+  @Test
+  public void testNonceHasher() {
+    b1.setTransactionsMerkleRoot();
+    b1.startMining();
+    NonceHasher hasher = new NonceHasher(b1.getHeaderPrefix(), b1.getHeaderSuffix());
+    int[] nonces = {0, 9, 10, 99999, 1000000, 123456789, Integer.MAX_VALUE};
+    for (int nonce : nonces) {
+      hasher.hash(nonce);
+      String hash = b1.calculateHash(nonce);
+      assertEquals(hash, hasher.getHexDigest());
+      assertEquals(Difficulty.isSolution(hash, b1.getBits()),
+              hasher.meetsTarget(Difficulty.toTargetBytes(b1.getBits())));
+    }
+
+    // the mined hash is the same as the one produced by the String hash calculation
+    mineBlockHelper(b1, utxoMap);
+    assertTrue(b1.validateHashCalculation());
+  }
+
+  @Test
+  public void testSequentialMiningWithExtraNonce() {
+    mineBlockHelper(b1, utxoMap);
+    bc.addBlock(b1);
+    b2 = new Block(b1.getHash(), w2.getPublicKeyStr());
+    mineBlockHelper(b2, utxoMap);
+    bc.addBlock(b2);
 
+    Transaction tx12 = w1.send(w2.getPublicKeyStr(), 5, "Hello w2", utxoMap);
+    Transaction tx21 = w2.send(w1.getPublicKeyStr(), 5, "Hello w1", utxoMap);
+    b3 = new Block(b2.getHash(), w3.getPublicKeyStr());
+    b3.addTransaction(tx12, utxoMap);
+    b3.addTransaction(tx21, utxoMap);
+    b3.setTransactionsMerkleRoot();
+
+    // nonces are tried in order
+    assertFalse(b3.oneMining());
+    assertFalse(b3.oneMining());
+    assertEquals(2, b3.getNonce());
+
+    // a new extra nonce changes the RewardTransaction and the merkle root
+    String merkleRoot = BlockchainUtil.calculateMerkleRoot(b3.getTransactions());
+    b3.rollExtraNonce();
+    b3.rollExtraNonce();
+    assertEquals(2, b3.getExtraNonce());
+    assertEquals(0, b3.getNonce());
+    assertNotEquals(merkleRoot, BlockchainUtil.calculateMerkleRoot(b3.getTransactions()));
+
+    // the incrementally updated merkle root is still valid
+    UTXOMap utxoMapBefore = utxoMap.copy();
+    do {
+      assertEquals(2, b3.getExtraNonce());
+    } while (!b3.oneMining());
+    assertTrue(b3.validateHashCalculation());
+    assertTrue(bc.verifyNewBlock(b3, utxoMapBefore));
+  }
+
+  @Test
+  public void testMerkleTree() {
+    List<String> leaves = new ArrayList<>();
+    MerkleTree appended = new MerkleTree();
+    assertEquals("", appended.getRootHex());
+    for (int i = 0; i < 40; i++) {
+      leaves.add(BlockchainUtil.applySha256("leaf" + i));
+      appended.append(leaves.get(i));
+      // appending a leaf rehashes its path to the same root as building the whole tree
+      assertEquals(new MerkleTree(leaves).getRootHex(), appended.getRootHex());
+      // every leaf has a proof leading to the root
+      for (int j = 0; j <= i; j++) {
+        assertTrue(appended.getProof(j).verify(appended.getRootHex()));
+      }
+    }
+    // the parallel layers give the same root as the serial ones
+    for (int parallelThreshold = 1; parallelThreshold <= 32; parallelThreshold *= 2) {
+      assertEquals(appended.getRootHex(), new MerkleTree(leaves, parallelThreshold).getRootHex());
+    }
+    List<String> largeLeaves = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      largeLeaves.add(BlockchainUtil.applySha256("large leaf" + i));
+    }
+    assertEquals(new MerkleTree(largeLeaves, Integer.MAX_VALUE).getRootHex(),
+            new MerkleTree(largeLeaves, 1).getRootHex());
+    MerkleProof proof = appended.getProof(7);
+    assertEquals(6, proof.getDepth());
+    assertEquals(leaves.get(7), proof.getLeafHash());
+    assertFalse(new MerkleProof(leaves.get(8), 7, new byte[6 * 32]).verify(appended.getRootHex()));
+    assertFalse(appended.getProof(8).verify(new MerkleTree(leaves.subList(0, 39)).getRootHex()));
+    assertEquals(leaves.get(0), new MerkleTree(leaves.subList(0, 1)).getRootHex());
+    BaseEncoding hex = BaseEncoding.base16().lowerCase();
+    byte[] pair = new byte[64];
+    System.arraycopy(hex.decode(leaves.get(0)), 0, pair, 0, 32);
+    System.arraycopy(hex.decode(leaves.get(1)), 0, pair, 32, 32);
+    assertEquals(Hashing.sha256().hashBytes(pair).toString(),
+            new MerkleTree(leaves.subList(0, 2)).getRootHex());
+
+    // replacing a leaf only changes the copy it is replaced in
+    MerkleTree copy = appended.copy();
+    copy.setLeaf(39, leaves.get(0));
+    leaves.set(39, leaves.get(0));
+    assertEquals(new MerkleTree(leaves).getRootHex(), copy.getRootHex());
+    assertNotEquals(appended.getRootHex(), copy.getRootHex());
+    try {
+      appended.append("not a hash");
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals(40, appended.size());
+    }
   }
 
   @Test
   public void testInvalidChain() {
-    mineBlockHelper(b1, DIFFICULTY, utxoMap);
+    mineBlockHelper(b1, utxoMap);
     bc.addBlock(b1);
     bc.addBlock(b1);
-    assertFalse(bc.verifyChain(DIFFICULTY)); // invalid previousHash
+    assertFalse(bc.verifyChain()); // invalid previousHash
 
     bc.removeLastBlock();
     b2 = new Block(b1.getHash(), w2.getPublicKeyStr());
-    interruptedMiningHelper(bc, b2, DIFFICULTY);
+    interruptedMiningHelper(bc, b2);
     bc.removeLastBlock();
     bc.addBlock(b2);
     assertEquals(2, bc.size());
-    assertFalse(bc.verifyChain(DIFFICULTY)); // invalid b2 hash
+    assertFalse(bc.verifyChain()); // invalid b2 hash
+
+    bc.removeLastBlock();
+    mineBlockHelper(b2, utxoMap);
+    bc.addBlock(b2);
+    assertTrue(bc.verifyChain());
 
     bc.removeLastBlock();
-    mineBlockHelper(b2, DIFFICULTY, utxoMap);
+    b2 = new Block(b1.getHash(), w2.getPublicKeyStr(), Difficulty.fromLeadingZeros(3));
+    mineBlockHelper(b2, utxoMap);
     bc.addBlock(b2);
-    assertFalse(bc.verifyChain(10)); // invalid POW
+    assertFalse(bc.verifyChain()); // target off the retarget schedule
+  }
+
+  @Test
+  public void testTimeStampRules() {
+    mineBlockHelper(b1, utxoMap);
+    bc.addBlock(b1);
+    HeaderChain headers = new HeaderChain();
+    assertTrue(headers.addHeaders(bc.getHeaders(0)));
+    UTXOMap utxoMapBefore = utxoMap.copy();
+
+    // a Block back-dated before its previous one is rejected, as a Block, in a chain or a header
+    b2 = new Block(b1.getHash(), w2.getPublicKeyStr());
+    b2.startMining(b1.getTimeStamp() - 1);
+    mineBlockHelper(b2, utxoMapBefore.copy());
+    assertFalse(bc.verifyNewBlock(b2, utxoMapBefore));
+    assertFalse(headers.addHeader(new BlockHeader(b2)));
+    bc.addBlock(b2);
+    assertFalse(bc.verifyChain());
+    bc.removeLastBlock();
 
+    // so is a Block from too far in the future
+    b3 = new Block(b1.getHash(), w2.getPublicKeyStr());
+    b3.startMining(System.currentTimeMillis() + 2 * Difficulty.MAX_FUTURE_TIME);
+    mineBlockHelper(b3, utxoMapBefore.copy());
+    assertFalse(bc.verifyNewBlock(b3, utxoMapBefore));
+    assertFalse(headers.addHeader(new BlockHeader(b3)));
+    bc.addBlock(b3);
+    assertFalse(bc.verifyChain());
+    bc.removeLastBlock();
+
+    // a Block at the same time as its previous one is still legal
+    b4 = new Block(b1.getHash(), w2.getPublicKeyStr());
+    b4.startMining(b1.getTimeStamp());
+    mineBlockHelper(b4, utxoMapBefore.copy());
+    assertTrue(bc.verifyNewBlock(b4, utxoMapBefore));
+    assertTrue(headers.addHeader(new BlockHeader(b4)));
+    bc.addBlock(b4);
+    assertTrue(bc.verifyChain());
+  }
 
+  @Test
+  public void testCompactTarget() {
+    assertEquals(0x1d00ffff, Difficulty.toCompact(Difficulty.toTarget(0x1d00ffff)));
+    assertEquals(0x1f00ffff, Difficulty.INITIAL_BITS);
+    assertEquals(BigInteger.valueOf(0xffff).shiftLeft(224), Difficulty.toTarget(0x1f00ffff));
+    assertTrue(Difficulty.isLegalBits(Difficulty.INITIAL_BITS));
+    assertFalse(Difficulty.isLegalBits(Difficulty.fromLeadingZeros(0)));
+    assertFalse(Difficulty.isLegalBits(0));
+
+    String hash = "0000" + "f".repeat(60);
+    assertFalse(Difficulty.isSolution(hash, Difficulty.INITIAL_BITS));
+    assertTrue(Difficulty.isSolution("0000ffff" + "0".repeat(56), Difficulty.INITIAL_BITS));
+    assertTrue(Difficulty.isSolution(hash, Difficulty.fromLeadingZeros(3)));
+    assertFalse(Difficulty.isSolution("", Difficulty.INITIAL_BITS));
   }
 
+  @Test
+  public void testRetarget() {
+    BigInteger initialTarget = Difficulty.toTarget(Difficulty.INITIAL_BITS);
+    // blocks on time keep the target, fast blocks make it harder, slow blocks make it easier
+    long onTime = Difficulty.TARGET_BLOCK_TIME * (Difficulty.RETARGET_INTERVAL - 1);
+    assertEquals(Difficulty.INITIAL_BITS, Difficulty.retarget(Difficulty.INITIAL_BITS, 0, onTime));
+    assertEquals(initialTarget.divide(BigInteger.valueOf(4)),
+            Difficulty.toTarget(Difficulty.retarget(Difficulty.INITIAL_BITS, 0, 0)));
+    assertEquals(initialTarget.multiply(BigInteger.valueOf(2)),
+            Difficulty.toTarget(Difficulty.retarget(Difficulty.INITIAL_BITS, 0, onTime * 2)));
+    assertEquals(Difficulty.toCompact(Difficulty.POW_LIMIT),
+            Difficulty.retarget(Difficulty.fromLeadingZeros(1), 0, onTime * 4));
+
+    // a chain mined in a burst is retargeted to a harder target
+    String previousHash = "0";
+    for (int i = 0; i < Difficulty.RETARGET_INTERVAL; i++) {
+      assertEquals(Difficulty.INITIAL_BITS, bc.getNextBits());
+      Block block = new Block(previousHash, w1.getPublicKeyStr(), bc.getNextBits());
+      mineBlockHelper(block, utxoMap);
+      bc.addBlock(block);
+      previousHash = block.getHash();
+    }
+    assertTrue(bc.verifyChain());
+    assertTrue(Difficulty.toTarget(bc.getNextBits()).compareTo(initialTarget) < 0);
 
-}
\ No newline at end of file
+    // a Block keeping the old target is rejected
+    UTXOMap utxoMapBefore = utxoMap.copy();
+    b2 = new Block(previousHash, w2.getPublicKeyStr());
+    mineBlockHelper(b2, utxoMap);
+    assertFalse(bc.verifyNewBlock(b2, utxoMapBefore));
+    bc.addBlock(b2);
+    assertFalse(bc.verifyChain());
+  }
+
+  @Test
+  public void testHashFunctions() {
+    byte[] header = "previous hash 1234567890 nonce merkle root".getBytes(StandardCharsets.UTF_8);
+    byte[] expected = Hashing.sha256().hashBytes(header).asBytes();
+    for (HashFunction.Backend backend : HashFunction.Backend.values()) {
+      HashFunction hashFunction = HashFunction.create(backend);
+      assertEquals(backend, hashFunction.getBackend());
+      hashFunction.update(header, 0, header.length);
+      assertArrayEquals(expected, hashFunction.digest());
+
+      // the digest resets the HashFunction, and a ByteBuffer is hashed the same as an array
+      ByteBuffer buffer = ByteBuffer.wrap(header);
+      hashFunction.update(buffer);
+      assertFalse(buffer.hasRemaining());
+      assertArrayEquals(expected, hashFunction.digest());
+
+      // a copy continues from the midstate, without changing the original
+      hashFunction.update(header, 0, 10);
+      HashFunction midstate = hashFunction.copy();
+      midstate.update(header, 10, header.length - 10);
+      assertArrayEquals(expected, midstate.digest());
+      hashFunction.update(header, 10, header.length - 10);
+      assertArrayEquals(expected, hashFunction.digest());
+    }
+  }
+}
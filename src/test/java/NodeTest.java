@@ -9,11 +9,20 @@ import java.util.Map;
 
 import block.Block;
 import block.BlockChain;
+import block.BlockHeader;
+import block.Difficulty;
+import block.HeaderChain;
+import block.TransactionProof;
+import node.BlockTemplateManager;
 import node.HostNodeImpl;
 import node.Node;
 import node.NodeClient;
 import node.PeerNode;
+import mining.NonceHasher;
+import mining.Share;
+import mining.WorkUnit;
 import transaction.Transaction;
+import utils.Message;
 import wallet.Wallet;
 
 import static org.junit.Assert.*;
@@ -357,6 +366,72 @@ public class NodeTest {
 
 
   // n1 balance is 0, cannot send funds
+  @Test
+  public void testReorganization() {
+    b1 = n1.createBlock();
+    n2.updateBlockChain(b1);
+    tx1 = n1.startAutoTransaction();
+    n2.updateTransactionPool(tx1);
+
+    // n1 and n2 fork after b1, n2's branch is longer and confirms tx1
+    b2 = n1.createBlock();
+    b3 = n2.createBlock();
+    b4 = n2.createBlock();
+    assertNotEquals(b2, b3);
+    assertTrue(n1.updateBlockChain(n2.getBlockChain()));
+    assertEquals(n2.getBlockChain(), n1.getBlockChain());
+    assertEquals(n2.getUTXOMap(), n1.getUTXOMap());
+    assertEquals(n1.getBlockChain().generateUTXOMap(), n1.getUTXOMap());
+    assertEquals(n2.getWallet().getBalance(),
+            n1.getUTXOMap().getBalance(n2.getWallet().getPublicKeyStr()), 0.001);
+
+    // the Blocks connected by the reorganization could be disconnected again
+    b5 = n1.createBlock();
+    n3.updateBlockChain(n1.getBlockChain());
+    n1.createBlock();
+    b6 = n3.createBlock();
+    n3.createBlock();
+    assertTrue(n1.updateBlockChain(n3.getBlockChain()));
+    assertEquals(n3.getUTXOMap(), n1.getUTXOMap());
+    assertFalse(n1.updateBlockChain(n2.getBlockChain())); // shorter
+  }
+
+  @Test
+  public void testReorganizationReturnsTransactions() {
+    b1 = n1.createBlock();
+    n2.updateBlockChain(b1);
+    tx1 = n1.startAutoTransaction();
+
+    // n1 confirms tx1 in b2, while n2 never sees tx1 and mines a longer branch
+    b2 = n1.createBlock();
+    assertTrue(b2.getTransactions().stream().anyMatch(transaction ->
+            transaction.getID().equals(tx1.getID())));
+    assertFalse(n1.getTransactionPool().contains(tx1));
+    String b2RewardID = b2.getTransactions().get(0).getID();
+    b3 = n2.createBlock();
+    b4 = n2.createBlock();
+    assertTrue(n1.updateBlockChain(n2.getBlockChain()));
+
+    // tx1 is pending again, the reward of b2 is gone, and the history follows the new branch
+    assertTrue(n1.getTransactionPool().stream().anyMatch(transaction ->
+            transaction.getID().equals(tx1.getID())));
+    assertTrue(n1.getTransactionPool().stream().noneMatch(transaction ->
+            transaction.getID().equals(b2RewardID)));
+    List<Transaction> history = n1.getWallet().getTransactionHistory();
+    assertTrue(history.stream().anyMatch(transaction -> transaction.getID().equals(tx1.getID())));
+    assertTrue(history.stream().noneMatch(transaction -> transaction.getID().equals(b2RewardID)));
+    assertTrue(history.stream().anyMatch(transaction ->
+            transaction.getID().equals(b1.getTransactions().get(0).getID())));
+    assertEquals(n1.getUTXOMap().getBalance(n1.getWallet().getPublicKeyStr()),
+            n1.getWallet().getBalance(), 0.001);
+
+    // and n1 confirms it again on the new tip
+    b5 = n1.createBlock();
+    assertTrue(b5.getTransactions().stream().anyMatch(transaction ->
+            transaction.getID().equals(tx1.getID())));
+    assertTrue(n1.getTransactionPool().isEmpty());
+  }
+
   @Test
   public void testInvalidStartTransaction() {
     assertNull(n1.startAutoTransaction());
@@ -383,6 +458,162 @@ public class NodeTest {
     assertEquals(n2TXpool, n2.getTransactionPool());
   }
 
+  @Test
+  public void testTransactionProof() {
+    b1 = n1.createBlock();
+    tx1 = n1.startAutoTransaction();
+    assertNull(n1.getTransactionProof(tx1.getID()));
+    b2 = n1.createBlock();
+    n1.createBlock();
+
+    // a Wallet follows the chain by its headers, and confirms tx1 with the proof against them
+    HeaderChain trustedHeaders = new HeaderChain();
+    assertTrue(trustedHeaders.addHeaders(n1.getHeaders(0)));
+    assertEquals(3, trustedHeaders.size());
+    assertEquals(b2.getHash(), trustedHeaders.getHeader(1).getHash());
+    TransactionProof proof = n1.getTransactionProof(tx1.getID());
+    assertEquals(b2.getHash(), proof.getBlockHash());
+    assertEquals(1, proof.getHeight());
+    assertTrue(proof.verify(tx1.getID(), trustedHeaders));
+    assertFalse(proof.verify(b2.getTransactions().get(0).getID(), trustedHeaders));
+    assertFalse(new TransactionProof(b2, 0, proof.getMerkleProof())
+            .verify(tx1.getID(), trustedHeaders));
+    assertFalse(new TransactionProof(b2, 5, proof.getMerkleProof())
+            .verify(tx1.getID(), trustedHeaders));
+    Wallet wallet = n1.getWallet();
+    assertTrue(wallet.confirmTransaction(tx1.getID(), proof, trustedHeaders));
+    assertTrue(wallet.getTransactionHistory().stream().anyMatch(transaction ->
+            transaction.getID().equals(tx1.getID())
+                    && transaction.getState() == Transaction.TransactionState.CONFIRMED));
+    assertFalse(n2.getWallet().confirmTransaction(tx1.getID(), proof, trustedHeaders));
+    assertFalse(wallet.confirmTransaction(tx1.getID(), null, trustedHeaders));
+    assertFalse(wallet.confirmTransaction(tx1.getID(), proof, new HeaderChain()));
+
+    // headers are only added in order, linked to the tip
+    HeaderChain partialHeaders = new HeaderChain();
+    assertFalse(partialHeaders.addHeaders(n1.getHeaders(1)));
+    assertEquals(0, partialHeaders.size());
+    assertTrue(partialHeaders.addHeaders(n1.getHeaders(0).subList(0, 1)));
+    assertTrue(partialHeaders.addHeaders(n1.getHeaders(1)));
+    assertTrue(n1.getHeaders(3).isEmpty());
+  }
+
+  @Test
+  public void testForgedTransactionProof() {
+    b1 = n1.createBlock();
+    tx1 = n1.startAutoTransaction();
+    b2 = n1.createBlock();
+
+    // a peer mines a header with the easiest target around a Block the chain never had
+    Block forged = new Block(b1.getHash(), n2.getWallet().getPublicKeyStr(),
+            Difficulty.toCompact(Difficulty.POW_LIMIT));
+    tx2 = n1.startAutoTransaction();
+    assertTrue(forged.addTransaction(tx2, n1.getUTXOMap()));
+    forged.setTransactionsMerkleRoot();
+    while (!forged.oneMining()) {
+      // the POW_LIMIT takes about 16 hashes
+    }
+    HeaderChain trustedHeaders = new HeaderChain();
+    assertTrue(trustedHeaders.addHeaders(n1.getHeaders(0)));
+    TransactionProof proof = new TransactionProof(forged, 1, forged.getMerkleProof(tx2.getID()));
+    assertFalse(proof.verify(tx2.getID(), trustedHeaders));
+    assertFalse(n1.getWallet().confirmTransaction(tx2.getID(), proof, trustedHeaders));
+
+    // nor does the forged header extend a HeaderChain, neither as a fork nor at the tip
+    HeaderChain forkedHeaders = new HeaderChain();
+    assertTrue(forkedHeaders.addHeaders(n1.getHeaders(0).subList(0, 1)));
+    assertFalse(forkedHeaders.addHeader(new BlockHeader(forged)));
+    assertEquals(1, forkedHeaders.size());
+    assertTrue(n1.getWallet().getTransactionHistory().stream().noneMatch(transaction ->
+            transaction.getID().equals(tx2.getID())
+                    && transaction.getState() == Transaction.TransactionState.CONFIRMED));
+  }
+
+  @Test
+  public void testBlockTemplateManager() {
+    b1 = n1.createBlock();
+    tx1 = n1.startAutoTransaction(); // admitted into n1's pool and its Block template
+    List<Transaction> pool = new ArrayList<>();
+    BlockTemplateManager manager = new BlockTemplateManager(
+            n2.getWallet().getPublicKeyStr(), BlockTemplateManager.RefreshPolicy.IMMEDIATE, 0);
+    manager.rebuild(n1.getBlockChain(), n1.getUTXOMap(), pool);
+    long version = manager.getVersion();
+    assertEquals(b1.getHash(), manager.getTemplate().getPreviousHash());
+    assertEquals(1, manager.getTemplate().getTransactions().size());
+    assertFalse(manager.isRefreshDue(version, System.nanoTime()));
+
+    // a new Transaction extends the template, and a double-spent one is rejected
+    pool.add(tx1);
+    assertTrue(manager.offerTransaction(tx1));
+    assertFalse(manager.offerTransaction(tx1));
+    assertTrue(manager.getTemplate().getTransactions().contains(tx1));
+    assertTrue(manager.isRefreshDue(version, System.nanoTime()));
+
+    // the mined Block confirms tx1, which leaves the pool
+    b2 = n1.createBlock();
+    assertTrue(b2.getTransactions().contains(tx1));
+    assertFalse(n1.getTransactionPool().contains(tx1));
+    manager.rebuild(n1.getBlockChain(), n1.getUTXOMap(), pool);
+    assertTrue(pool.isEmpty());
+    assertEquals(b2.getHash(), manager.getTemplate().getPreviousHash());
+
+    // other refresh policies
+    BlockTemplateManager never = new BlockTemplateManager(
+            n2.getWallet().getPublicKeyStr(), BlockTemplateManager.RefreshPolicy.NEVER, 0);
+    never.rebuild(n1.getBlockChain(), n1.getUTXOMap(), pool);
+    assertFalse(never.isRefreshDue(never.getVersion() - 1, 0));
+    BlockTemplateManager interval = new BlockTemplateManager(
+            n2.getWallet().getPublicKeyStr(), BlockTemplateManager.RefreshPolicy.INTERVAL, 60000);
+    interval.rebuild(n1.getBlockChain(), n1.getUTXOMap(), pool);
+    long now = System.nanoTime();
+    assertFalse(interval.isRefreshDue(interval.getVersion() - 1, now));
+    assertTrue(interval.isRefreshDue(interval.getVersion() - 1, now - 61_000_000_000L));
+  }
+
+  @Test
+  public void testWorkDistribution() {
+    b1 = n1.createBlock();
+    WorkUnit work = n1.requestWork("w1");
+    WorkUnit nextWork = n1.requestWork("w2");
+    assertEquals(work.getWorkID(), nextWork.getWorkID());
+    assertEquals(work.getNonceTo(), nextWork.getNonceFrom());
+    // the share target is never harder than the Block target
+    assertEquals(work.getBits(), work.getShareBits());
+
+    // search the range like an external worker
+    NonceHasher hasher = new NonceHasher(work.getHeaderPrefix(), work.getHeaderSuffix());
+    int nonce = work.getNonceFrom();
+    hasher.hash(nonce);
+    while (!hasher.meetsTarget(work.getShareTarget())) {
+      hasher.hash(++nonce);
+    }
+    assertTrue(nonce < work.getNonceTo());
+
+    // the share solves the Block, which is added and returned by the next createBlock
+    assertEquals(Message.SUCCESS, n1.submitShare(new Share("w1", work.getWorkID(), nonce)));
+    assertEquals(2, n1.getBlockChain().size());
+    b2 = n1.createBlock();
+    assertEquals(b1.getHash(), b2.getPreviousHash());
+    assertEquals(nonce, b2.getNonce());
+    assertTrue(n2.updateBlockChain(b1));
+    assertTrue(n2.updateBlockChain(b2));
+
+    // the same nonce is stale on the new tip, and unknown work is stale too
+    assertEquals(Message.STALE, n1.submitShare(new Share("w1", work.getWorkID(), nonce)));
+    assertEquals(Message.STALE, n1.submitShare(new Share("w2", -1, 0)));
+    WorkUnit newWork = n1.requestWork("w2");
+    assertNotEquals(work.getWorkID(), newWork.getWorkID());
+    assertEquals(0, newWork.getNonceFrom());
+    assertEquals(Message.FAIL, n1.submitShare(new Share("w2", newWork.getWorkID(), -1)));
+
+    assertEquals(1, n1.getShareAccounting().getAcceptedCount("w1"));
+    assertEquals(1, n1.getShareAccounting().getBlockCount("w1"));
+    assertEquals(1, n1.getShareAccounting().getStaleCount("w1"));
+    assertEquals(1, n1.getShareAccounting().getRejectedCount("w2"));
+    assertTrue(n1.getShareAccounting().getHashRate("w1") > 0);
+    assertEquals(0, n1.getShareAccounting().getHashRate("w2"), 0);
+  }
+
   @Test
   public void testVerifyNewBlockExceptPreviousHash() {
     b1 = n1.createBlock();
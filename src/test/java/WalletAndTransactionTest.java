@@ -1,15 +1,47 @@
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.common.hash.Hashing;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
 import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
 
 import utils.BlockchainUtil;
+import utils.CryptoService;
+import utils.CryptoStatistics;
+import utils.MappedUTXOStore;
+import utils.PersistentHashMap;
+import utils.SignatureCache;
+import utils.SignatureVerifier;
+import transaction.NormalTransaction;
 import transaction.RewardTransaction;
 import transaction.Transaction;
+import transaction.TransactionFlow;
 import utils.UTXOMap;
+import utils.UTXOStore;
+import utils.UTXOView;
+import utils.UndoRecord;
 import wallet.Wallet;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 
 
 public class WalletAndTransactionTest {
@@ -117,7 +149,410 @@ public class WalletAndTransactionTest {
       String k1Str = BlockchainUtil.keyToString(k1);
       PublicKey k1Recover = BlockchainUtil.stringToPublicKey(k1Str);
       assertEquals(k1, k1Recover);
+
+      // the decoded key is cached, a repeat sender is not parsed again
+      long hitCount = BlockchainUtil.getPublicKeyCacheStats().hitCount();
+      assertSame(k1Recover, BlockchainUtil.stringToPublicKey(k1Str));
+      assertEquals(hitCount + 1, BlockchainUtil.getPublicKeyCacheStats().hitCount());
+    }
+
+  @Test
+  public void testCryptoService() {
+    CryptoStatistics statistics = CryptoService.getDefault().getStatistics();
+    long verifyCount = statistics.getCount(CryptoStatistics.Operation.VERIFY);
+    long hashCount = statistics.getCount(CryptoStatistics.Operation.HASH);
+    assertEquals(Hashing.sha256().hashString("data", StandardCharsets.UTF_8).toString(),
+            BlockchainUtil.applySha256("data"));
+
+    // the pooled Signature of this thread is reinitialized for every key
+    Transaction tx = w1.send(w2.getPublicKeyStr(), 1, "pooled", utxoMap);
+    assertTrue(tx.outsideValidate(utxoMap));
+    assertFalse(BlockchainUtil.verifyByECDSA(w2.getPublicKey(), new byte[0], "pooled"));
+    BlockchainUtil.getSignatureCache().clear();
+    assertTrue(tx.outsideValidate(utxoMap));
+    assertEquals(verifyCount + 3, statistics.getCount(CryptoStatistics.Operation.VERIFY));
+    assertTrue(statistics.getCount(CryptoStatistics.Operation.HASH) > hashCount);
+    assertTrue(statistics.getAverageMicros(CryptoStatistics.Operation.VERIFY) > 0);
+  }
+
+  @Test
+  public void testSignatureCache() throws Exception {
+    SignatureCache cache = BlockchainUtil.getSignatureCache();
+    Transaction tx = w1.send(w2.getPublicKeyStr(), 1, "cached", utxoMap);
+    assertTrue(tx.outsideValidate(utxoMap));
+    long hitCount = cache.getHitCount();
+    assertTrue(tx.copy().outsideValidate(utxoMap));
+    assertEquals(hitCount + 1, cache.getHitCount());
+
+    // the entry commits to the signed data, thus a forged Transaction with the same ID and
+    // signature misses
+    KeyPairGenerator keyGenerator = KeyPairGenerator.getInstance("ECDSA", "BC");
+    keyGenerator.initialize(new ECGenParameterSpec("prime192v1"));
+    KeyPair keys = keyGenerator.generateKeyPair();
+    String sender = BlockchainUtil.keyToString(keys.getPublic());
+    byte[] data = (sender + "data").getBytes();
+    byte[] forged = (sender + "forged").getBytes();
+    byte[] signature = BlockchainUtil.encryptByECDSA(keys.getPrivate(), data);
+    assertTrue(BlockchainUtil.verifyTransactionSignature("tx", sender, signature, data));
+    assertTrue(BlockchainUtil.verifyTransactionSignature("tx", sender, signature, data));
+    assertFalse(BlockchainUtil.verifyTransactionSignature("tx", sender, signature, forged));
+
+    // a full cache replaces random entries
+    SignatureCache smallCache = new SignatureCache(4);
+    for (int i = 0; i < 10; i++) {
+      smallCache.add("entry" + i);
     }
+    assertEquals(4, smallCache.size());
+    assertEquals(6, smallCache.getEvictionCount());
+    assertTrue(smallCache.contains("entry9"));
   }
 
+  @Test
+  public void testSignatureVerifier() {
+    List<Transaction> transactions = new ArrayList<>();
+    transactions.add(tx1);
+    transactions.add(w1.send(w2.getPublicKeyStr(), 1, "batch", utxoMap));
+    transactions.add(w2.send(w3.getPublicKeyStr(), 2, "batch", utxoMap));
+    transactions.add(w3.send(w1.getPublicKeyStr(), 3, "batch", utxoMap));
+    BlockchainUtil.getSignatureCache().clear();
+    assertTrue(new SignatureVerifier(1).verifyAll(transactions));
+    assertTrue(new SignatureVerifier(3).verifyAll(transactions));
+
+    // a single unsigned Transaction fails the whole batch
+    transactions.add(2, new NormalTransaction(w1.getPublicKeyStr(), w2.getPublicKeyStr(), 1,
+            "unsigned", new UTXOMap()));
+    assertFalse(new SignatureVerifier(1).verifyAll(transactions));
+    assertFalse(new SignatureVerifier(3).verifyAll(transactions));
+    assertTrue(new SignatureVerifier(3).verifyAll(new ArrayList<>()));
+  }
+
+  @Test
+  public void testTransactionEncoding() {
+    // the ID depends on the value, not on how the double prints
+    String owner = w1.getPublicKeyStr();
+    String parentID = tx1.getID();
+    assertEquals(new TransactionFlow(owner, 0.3, parentID).getID(),
+            new TransactionFlow(owner, 0.1 + 0.2, parentID).getID());
+    assertFalse(new TransactionFlow(owner, 0.3, parentID).getID().equals(
+            new TransactionFlow(owner, 0.31, parentID).getID()));
+    assertFalse(new TransactionFlow(owner, 0.3, parentID).getID().equals(
+            new TransactionFlow(w2.getPublicKeyStr(), 0.3, parentID).getID()));
+    // strings that are not Base64 keys or hexadecimal hashes are still encoded
+    assertEquals(64, new TransactionFlow("not a key", 1, "not a hash").getID().length());
+
+    // a copy keeps the IDs and the signature
+    Transaction tx = w1.send(w2.getPublicKeyStr(), 1, "encoded", utxoMap);
+    Transaction copy = tx.copy();
+    assertEquals(tx, copy);
+    assertEquals(tx.getOutputs(), copy.getOutputs());
+    assertTrue(copy.outsideValidate(utxoMap));
+  }
+
+  @Test
+  public void testUTXOMapViews() {
+    String id = tx1.getOutputs().get(0).getID();
+    assertSame(tx1.getOutputs().get(0), utxoMap.get(id));
+    assertEquals(3, utxoMap.size());
+    assertTrue(utxoMap.containsAll(utxoMap.keySet()));
+    assertFalse(utxoMap.containsAll(List.of(id, "unknown")));
 
+    // the views are read-only and reflect later changes
+    Map<String, TransactionFlow> view = utxoMap.getMap();
+    assertThrows(UnsupportedOperationException.class, () -> view.remove(id));
+    assertThrows(UnsupportedOperationException.class, () -> utxoMap.keySet().clear());
+    Transaction tx = w1.send(w2.getPublicKeyStr(), 1, "view", utxoMap);
+    tx.updateUTXO(utxoMap);
+    assertFalse(view.containsKey(id));
+    assertEquals(utxoMap.size(), utxoMap.values().size());
+    assertTrue(utxoMap.containsAll(tx.getOutputs().stream().map(TransactionFlow::getID)
+            .collect(Collectors.toList())));
+  }
+
+  @Test
+  public void testOpenAddressingUTXOStore() throws Exception {
+    UTXOMap compact = new UTXOMap(UTXOStore.StoreType.OPEN_ADDRESSING);
+    UTXOMap reference = new UTXOMap(UTXOStore.StoreType.HASH_MAP);
+    assertEquals(UTXOStore.StoreType.OPEN_ADDRESSING, compact.getStoreType());
+    for (int i = 0; i < 1000; i++) {
+      TransactionFlow flow = new TransactionFlow(i % 2 == 0 ? w1.getPublicKeyStr()
+              : w2.getPublicKeyStr(), i, BlockchainUtil.applySha256("parent" + i));
+      compact.put(flow.getID(), flow);
+      reference.put(flow.getID(), flow);
+    }
+    // the parent of a test TransactionFlow could be any string
+    TransactionFlow irregular = new TransactionFlow(w3.getPublicKeyStr(), 5, "parent");
+    compact.put(irregular.getID(), irregular);
+    reference.put(irregular.getID(), irregular);
+    assertEquals(reference, compact);
+    assertEquals(irregular, compact.get(irregular.getID()));
+
+    // removing entries shifts the following ones of their probe sequences back
+    UTXOMap snapshot = compact.copy();
+    List<String> IDs = new ArrayList<>(reference.keySet());
+    for (int i = 0; i < IDs.size(); i += 3) {
+      compact.remove(IDs.get(i));
+      reference.remove(IDs.get(i));
+    }
+    assertEquals(reference, compact);
+    assertEquals(reference.sum(), compact.sum(), 1e-9);
+    assertFalse(compact.containsKey(IDs.get(0)));
+    assertTrue(snapshot.containsAll(IDs));
+    assertEquals(IDs.size(), snapshot.size());
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(compact);
+    }
+    try (ObjectInputStream in =
+                 new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      assertEquals(reference, in.readObject());
+    }
+
+    assertThrows(IllegalArgumentException.class, () -> compact.put("utxo", irregular));
+    assertFalse(compact.containsKey("utxo"));
+
+    // Transactions validate and update the compact store the same way
+    tx1.updateUTXO(compact);
+    w1.updateBalance(compact);
+    Transaction tx = w1.send(w2.getPublicKeyStr(), 10, "compact", compact);
+    assertTrue(tx.outsideValidate(compact));
+    tx.updateUTXO(compact);
+    assertFalse(tx.validateInputs(compact)); // the inputs are spent
+    assertTrue(compact.containsAll(tx.getOutputs().stream().map(TransactionFlow::getID)
+            .collect(Collectors.toList())));
+  }
+
+  @Test
+  public void testOwnerIndex() throws Exception {
+    Transaction tx = w1.send(w2.getPublicKeyStr(), 2.5, "index", utxoMap);
+    tx.updateUTXO(utxoMap);
+    for (Wallet wallet : List.of(w1, w2, w3)) {
+      String owner = wallet.getPublicKeyStr();
+      List<String> owned = utxoMap.values().stream().filter(flow -> flow.isOwnedBy(owner))
+              .map(TransactionFlow::getID).collect(Collectors.toList());
+      assertEquals(owned.size(), utxoMap.getOwnedIDs(owner).size());
+      assertTrue(utxoMap.getOwnedIDs(owner).containsAll(owned));
+      double sum = utxoMap.values().stream().filter(flow -> flow.isOwnedBy(owner))
+              .mapToDouble(TransactionFlow::getValue).sum();
+      assertEquals(sum, utxoMap.getBalance(owner), 1e-9);
+      wallet.updateBalance(utxoMap);
+      assertEquals(sum, wallet.getBalance(), 1e-9);
+    }
+    assertEquals(7.5, utxoMap.getBalance(w1.getPublicKeyStr()), 1e-9);
+    assertEquals(0, utxoMap.getBalance("nobody"), 0);
+    assertTrue(utxoMap.getOwnedIDs("nobody").isEmpty());
+
+    // a copy and a deserialized UTXOMap keep their own index
+    UTXOMap snapshot = utxoMap.copy();
+    Transaction spend = w2.send(w3.getPublicKeyStr(), 12.5, "spend all", utxoMap);
+    spend.updateUTXO(utxoMap);
+    assertEquals(0, utxoMap.getBalance(w2.getPublicKeyStr()), 0);
+    assertEquals(12.5, snapshot.getBalance(w2.getPublicKeyStr()), 1e-9);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(snapshot);
+    }
+    try (ObjectInputStream in =
+                 new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      UTXOMap restored = (UTXOMap) in.readObject();
+      assertEquals(snapshot.getOwnedIDs(w2.getPublicKeyStr()),
+              restored.getOwnedIDs(w2.getPublicKeyStr()));
+      assertEquals(12.5, restored.getBalance(w2.getPublicKeyStr()), 1e-9);
+    }
+  }
+
+  @Test
+  public void testPersistentHashMap() {
+    // "Aa" and "BB" have the same hashCode, thus they share a collision node
+    PersistentHashMap<String, Integer> map = PersistentHashMap.<String, Integer>empty()
+            .with("Aa", 1).with("BB", 2);
+    assertEquals(Integer.valueOf(1), map.get("Aa"));
+    assertEquals(Integer.valueOf(2), map.get("BB"));
+    assertEquals(1, map.without("Aa").size());
+
+    Map<String, Integer> reference = new HashMap<>(map);
+    List<PersistentHashMap<String, Integer>> versions = new ArrayList<>();
+    List<Map<String, Integer>> references = new ArrayList<>();
+    Random random = new Random(7);
+    for (int i = 0; i < 20_000; i++) {
+      String key = "key" + random.nextInt(5_000);
+      if (random.nextInt(3) == 0) {
+        map = map.without(key);
+        reference.remove(key);
+      } else {
+        map = map.with(key, i);
+        reference.put(key, i);
+      }
+      if (i % 5_000 == 0) {
+        versions.add(map);
+        references.add(new HashMap<>(reference));
+      }
+    }
+    assertEquals(reference, map);
+    assertEquals(reference.size(), map.size());
+    // every old version is an unchanged snapshot
+    for (int i = 0; i < versions.size(); i++) {
+      assertEquals(references.get(i), versions.get(i));
+    }
+    assertSame(map, map.without("absent"));
+    assertThrows(UnsupportedOperationException.class, () -> versions.get(0).put("key", 0));
+  }
+
+  @Test
+  public void testPersistentUTXOStore() {
+    UTXOMap persistent = new UTXOMap(UTXOStore.StoreType.PERSISTENT);
+    tx1.updateUTXO(persistent);
+    tx2.updateUTXO(persistent);
+    Map<String, TransactionFlow> view = persistent.getMap();
+    UTXOMap snapshot = persistent.copy();
+
+    Transaction tx = w1.send(w2.getPublicKeyStr(), 4, "persistent", persistent);
+    assertTrue(tx.outsideValidate(persistent));
+    tx.updateUTXO(persistent);
+    assertFalse(tx.validateInputs(persistent));
+    assertTrue(tx.validateInputs(snapshot)); // the snapshot keeps the spent inputs
+    assertEquals(2, snapshot.size());
+    assertEquals(10, snapshot.getBalance(w1.getPublicKeyStr()), 1e-9);
+    assertEquals(6, persistent.getBalance(w1.getPublicKeyStr()), 1e-9);
+    assertEquals(persistent.size(), view.size()); // the view follows later changes
+    assertTrue(view.keySet().containsAll(persistent.getOwnedIDs(w2.getPublicKeyStr())));
+  }
+
+  @Test
+  public void testUTXOView() {
+    UTXOMap before = utxoMap.copy();
+    UTXOView view = new UTXOView(utxoMap);
+    Transaction tx = w1.send(w2.getPublicKeyStr(), 3, "staged", view.getUTXOMap());
+    tx.updateUTXO(view.getUTXOMap());
+    // a later Transaction of the same Block spends an output of the first one
+    w2.updateBalance(view.getUTXOMap());
+    Transaction chained = w2.send(w3.getPublicKeyStr(), 12, "chained", view.getUTXOMap());
+    chained.updateUTXO(view.getUTXOMap());
+    assertEquals(before, utxoMap); // the base is untouched until the commit
+    view.discard();
+    assertThrows(IllegalStateException.class, view::getUTXOMap);
+    assertEquals(before, utxoMap);
+
+    view = new UTXOView(utxoMap);
+    tx.updateUTXO(view.getUTXOMap());
+    chained.updateUTXO(view.getUTXOMap());
+    UTXOMap staged = view.getUTXOMap().copy();
+    UndoRecord undoRecord = view.commit();
+    assertEquals(staged, utxoMap);
+    assertEquals(3, undoRecord.getSpentOutputs().size()); // tx1's output, tx2's and tx's change
+    undoRecord.undo(utxoMap);
+    assertEquals(before, utxoMap);
+    assertEquals(10, utxoMap.getBalance(w2.getPublicKeyStr()), 1e-9);
+    undoRecord.redo(utxoMap);
+    assertEquals(staged, utxoMap);
+  }
+
+  @Test
+  public void testMappedUTXOStore() throws Exception {
+    Path directory = Files.createTempDirectory("utxo-test");
+    directory.toFile().deleteOnExit();
+    MappedUTXOStore store = MappedUTXOStore.open(directory);
+    UTXOMap mapped = UTXOMap.fromStore(store);
+    UTXOMap reference = new UTXOMap(UTXOStore.StoreType.PERSISTENT);
+    assertEquals(UTXOStore.StoreType.MAPPED, mapped.getStoreType());
+    List<String> IDs = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      TransactionFlow flow = new TransactionFlow(i % 2 == 0 ? w1.getPublicKeyStr()
+              : w2.getPublicKeyStr(), i, i % 100 == 0 ? "parent" + i
+              : BlockchainUtil.applySha256("parent" + i));
+      mapped.put(flow.getID(), flow);
+      reference.put(flow.getID(), flow);
+      IDs.add(flow.getID());
+    }
+    // removed slots are marked deleted, and reused or dropped by a rehash
+    for (int round = 0; round < 3; round++) {
+      for (int i = round; i < IDs.size(); i += 6) {
+        mapped.remove(IDs.get(i));
+        reference.remove(IDs.get(i));
+        TransactionFlow flow = new TransactionFlow(w3.getPublicKeyStr(), i, "round" + round);
+        mapped.put(flow.getID(), flow);
+        reference.put(flow.getID(), flow);
+      }
+    }
+    assertEquals(reference, mapped);
+    assertEquals(reference.getMap().get(IDs.get(5)), mapped.get(IDs.get(5)));
+    for (Wallet wallet : List.of(w1, w2, w3)) {
+      String owner = wallet.getPublicKeyStr();
+      assertEquals(reference.getOwnedIDs(owner), mapped.getOwnedIDs(owner));
+      assertEquals(reference.getBalance(owner), mapped.getBalance(owner), 1e-6);
+    }
+
+    // a layer keeps the store untouched, while a copy is independent of it
+    UTXOMap layer = mapped.layer();
+    UTXOMap copy = mapped.copy();
+    layer.remove(IDs.get(5));
+    assertTrue(mapped.containsKey(IDs.get(5)));
+    assertEquals(reference.getBalance(w2.getPublicKeyStr()) - 5,
+            layer.getBalance(w2.getPublicKeyStr()), 1e-6);
+    mapped.remove(IDs.get(5));
+    reference.remove(IDs.get(5));
+    assertTrue(copy.containsKey(IDs.get(5)));
+
+    // reopening the directory restores the UTXOs without reading them
+    store.flush();
+    UTXOMap reopened = UTXOMap.fromStore(MappedUTXOStore.open(directory));
+    assertEquals(reference, reopened);
+    assertEquals(reference.getBalance(w1.getPublicKeyStr()),
+            reopened.getBalance(w1.getPublicKeyStr()), 1e-6);
+    assertEquals(reference.sumUnits(), store.getSumUnits());
+    assertEquals(reference.sumUnits(), reopened.sumUnits());
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(mapped);
+    }
+    try (ObjectInputStream in =
+                 new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      assertEquals(reference, in.readObject());
+    }
+    assertThrows(IllegalArgumentException.class, () -> mapped.put("utxo", copy.get(IDs.get(5))));
+  }
+
+  @Test
+  public void testExactAmounts() {
+    // 0.1 + 0.2 is not 0.3 in doubles, but it is in units
+    Transaction tx = w1.send(w2.getPublicKeyStr(), 0.1, "tenth", utxoMap);
+    tx.updateUTXO(utxoMap);
+    w1.updateBalance(utxoMap);
+    Transaction other = w1.send(w2.getPublicKeyStr(), 0.2, "fifth", utxoMap);
+    other.updateUTXO(utxoMap);
+    assertEquals(10_000_000L, tx.getUnits());
+    assertEquals(3 * Transaction.toUnits(Transaction.BLOCK_REWARD), utxoMap.sumUnits());
+    assertEquals(Transaction.toUnits(10.3), utxoMap.getBalanceUnits(w2.getPublicKeyStr()));
+    assertEquals(Transaction.toUnits(9.7), utxoMap.getBalanceUnits(w1.getPublicKeyStr()));
+
+    // w2 spends its reward with the 0.1 and 0.2 outputs, which leaves exactly no change
+    UTXOMap inputs = new UTXOMap();
+    for (Transaction each : List.of(tx, other)) {
+      TransactionFlow output = each.getOutputs().get(0);
+      inputs.put(output.getID(), output);
+    }
+    inputs.put(tx2.getOutputs().get(0).getID(), tx2.getOutputs().get(0));
+    NormalTransaction exact = new NormalTransaction(w2.getPublicKeyStr(), w3.getPublicKeyStr(),
+            10.3, "exact", inputs);
+    assertEquals(1, exact.getOutputs().size());
+    assertTrue(exact.insideValidate());
+    assertEquals(Transaction.toUnits(10.3), inputs.sumUnits());
+  }
+
+  @Test
+  public void testSendUnits() {
+    // units and coins describe the same Transaction value
+    Transaction coins = w1.send(w2.getPublicKeyStr(), 2.5, "coins", utxoMap);
+    Transaction units = w2.sendUnits(w3.getPublicKeyStr(), 250_000_000L, "units", utxoMap);
+    assertEquals(coins.getUnits(), units.getUnits());
+
+    // the whole balance can be sent in units, leaving no change
+    long balanceUnits = w3.getBalanceUnits();
+    assertEquals(Transaction.toUnits(w3.getBalance()), balanceUnits);
+    Transaction all = w3.sendUnits(w1.getPublicKeyStr(), balanceUnits, "all", utxoMap);
+    assertEquals(balanceUnits, all.getUnits());
+    assertEquals(1, all.getOutputs().size());
+    assertTrue(all.insideValidate());
+  }
+}